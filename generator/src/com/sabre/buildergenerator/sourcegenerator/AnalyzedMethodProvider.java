@@ -0,0 +1,13 @@
+package com.sabre.buildergenerator.sourcegenerator;
+
+/**
+ * Method provider that also hands over the model of the builder taken while the methods were being selected, so
+ * that {@link BuilderGenerator} does not need to analyze the types again.
+ */
+public interface AnalyzedMethodProvider<IType, IMethod> extends MethodProvider<IType, IMethod> {
+    /**
+     * @return model of the builder generated for all setters, see
+     *  {@link BuilderGenerator#generateModel(Object, MethodProvider)}, or null if none is available
+     */
+    BuilderModel getAllSettersModel();
+}
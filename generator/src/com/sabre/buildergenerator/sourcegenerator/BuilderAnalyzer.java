@@ -0,0 +1,300 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+package com.sabre.buildergenerator.sourcegenerator;
+
+import com.sabre.buildergenerator.javamodel.IModelHelper;
+import com.sabre.buildergenerator.javamodel.IModelHelper.IMethodInspector;
+import com.sabre.buildergenerator.javamodel.ISignatureResolver;
+import com.sabre.buildergenerator.javamodel.ITypeAccessor;
+import com.sabre.buildergenerator.javamodel.ITypeResolver;
+import com.sabre.buildergenerator.signatureutils.SignatureUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Walks the java model to find out what {@link BuilderGenerator} is going to emit for a type. The analysis of a
+ * type is an intermediate result of the generation, which turns it into the {@link BuilderModel.ClassModel} of the
+ * type once the setters to generate and the types with builder base classes are known.
+ */
+class BuilderAnalyzer<IType, ITypeParameter, IMethod, JavaModelException extends Exception> {
+    private static final String SETTER_PREFIX = "set";
+
+    private final IModelHelper<IType, IMethod, JavaModelException> typeHelper;
+    private final ISignatureResolver<IType, JavaModelException> signatureResolver;
+    private final ITypeResolver<IType, JavaModelException> typeResolver;
+    private final ITypeAccessor<IType, ITypeParameter, IMethod, JavaModelException> typeAccessor;
+
+    BuilderAnalyzer(IModelHelper<IType, IMethod, JavaModelException> typeHelper,
+        ISignatureResolver<IType, JavaModelException> signatureResolver,
+        ITypeResolver<IType, JavaModelException> typeResolver,
+        ITypeAccessor<IType, ITypeParameter, IMethod, JavaModelException> typeAccessor) {
+        this.typeHelper = typeHelper;
+        this.signatureResolver = signatureResolver;
+        this.typeResolver = typeResolver;
+        this.typeAccessor = typeAccessor;
+    }
+
+    /**
+     * @param typeName name of the type as used in the generated source
+     * @param type type to analyze
+     * @param typesAndFieldsToGenerate if not null, setters not requested are skipped
+     * @return analysis of the type
+     * @throws Exception
+     */
+    TypeAnalysis analyzeType(String typeName, final IType type,
+        final MarkedFields<IType, ITypeParameter, IMethod, JavaModelException> typesAndFieldsToGenerate)
+        throws Exception {
+        ITypeParameter[] typeParameters = typeAccessor.getTypeParameters(type);
+        String[] typeParamNames = new String[typeParameters.length];
+        String[][] typeParamBounds = new String[typeParameters.length][];
+        int i = 0;
+
+        for (ITypeParameter typeParameter : typeParameters) {
+            typeParamNames[i] = typeAccessor.getTypeParameterName(typeParameter);
+            typeParamBounds[i] = resolveBounds(type, typeAccessor.getTypeParameterBounds(typeParameter));
+            i++;
+        }
+
+        final List<SetterAnalysis> setters = new ArrayList<SetterAnalysis>();
+
+        typeHelper.findSetterMethods(type, new IMethodInspector<IType, IMethod>() {
+                public void nextMethod(IType methodOwnerType, IMethod method, Map<String, String> parameterSubstitution)
+                    throws Exception {
+                    String fieldName = fieldNameFromSetterName(typeAccessor.getMethodName(method));
+
+                    if (typesAndFieldsToGenerate == null
+                            || typesAndFieldsToGenerate.isSetterRequestedForField(type, fieldName)) {
+                        setters.add(analyzeSetter(methodOwnerType, method, fieldName, parameterSubstitution));
+                    }
+                }
+            });
+
+        return new TypeAnalysis(typeName, typeAccessor.getFullyQualifiedName(type), typeParamNames, typeParamBounds,
+            setters);
+    }
+
+    private SetterAnalysis analyzeSetter(IType methodOwnerType, IMethod method, String fieldName,
+        Map<String, String> parameterSubstitution) throws Exception {
+        String parameterTypeSignature = typeAccessor.getMethodParameterTypes(method)[0];
+        String qualifiedParameterTypeSignature = signatureResolver.resolveTypeWithParameterMapping(methodOwnerType,
+                parameterTypeSignature, parameterSubstitution);
+
+        String[] exceptionSignatures = typeAccessor.getMethodExceptionTypes(method);
+
+        for (int i = 0; i < exceptionSignatures.length; i++) {
+            exceptionSignatures[i] = signatureResolver.resolveTypeWithParameterMapping(methodOwnerType,
+                    exceptionSignatures[i], parameterSubstitution);
+        }
+
+        String elementTypeSignature = null;
+        boolean elementTypeFromSource = false;
+        String[] elementTypeArguments = null;
+
+        if (typeHelper.isCollection(methodOwnerType, qualifiedParameterTypeSignature)) {
+            elementTypeSignature = typeHelper.getTypeParameterSignature(qualifiedParameterTypeSignature);
+            elementTypeFromSource = isSourceClass(methodOwnerType, elementTypeSignature);
+            elementTypeArguments = resolveTypeArguments(methodOwnerType, elementTypeSignature);
+        }
+
+        return new SetterAnalysis(fieldName, typeAccessor.getFullyQualifiedName(methodOwnerType),
+            qualifiedParameterTypeSignature, exceptionSignatures, isSourceClass(methodOwnerType,
+                qualifiedParameterTypeSignature), resolveTypeArguments(methodOwnerType,
+                qualifiedParameterTypeSignature), elementTypeSignature, elementTypeFromSource, elementTypeArguments);
+    }
+
+    private String[] resolveTypeArguments(IType enclosingType, String typeSignature) throws Exception {
+        String[] typeArgs = signatureResolver.getTypeArguments(typeSignature);
+
+        for (int i = 0; i < typeArgs.length; i++) {
+            String sig = signatureResolver.resolveSignature(enclosingType, typeArgs[i]);
+
+            typeArgs[i] = SignatureUtil.signatureToTypeName(sig);
+        }
+
+        return typeArgs;
+    }
+
+    /**
+     * A bound that can't be resolved is kept as written, a failure to read the java model is not hidden.
+     */
+    private String[] resolveBounds(IType type, String[] bounds) throws JavaModelException {
+        if (bounds == null) {
+            return null;
+        }
+
+        String[] resolvedBounds = new String[bounds.length];
+
+        for (int i = 0; i < bounds.length; i++) {
+            resolvedBounds[i] = typeResolver.resolveType(type, bounds[i]);
+        }
+
+        return resolvedBounds;
+    }
+
+    private boolean isSourceClass(IType enclosingType, String typeSignature) throws Exception {
+        IType type = signatureResolver.resolveType(enclosingType, typeSignature);
+
+        return type != null && typeAccessor.isClassFromSource(type);
+    }
+
+    // TODO move to helper
+    private String fieldNameFromSetterName(String setterName) {
+        String fieldName = setterName.substring(SETTER_PREFIX.length());
+
+        return Character.toLowerCase(fieldName.charAt(0)) + fieldName.substring(1);
+    }
+
+    /**
+     * Analysis of a type a builder base class may be generated for.
+     */
+    static final class TypeAnalysis {
+        private final String typeName;
+        private final String qualifiedName;
+        private final String[] typeParamNames;
+        private final String[][] typeParamBounds;
+        private final List<SetterAnalysis> setters;
+
+        /**
+         * @param typeName name of the type as used in the generated source, with type arguments
+         * @param qualifiedName fully qualified name of the type
+         * @param typeParamNames names of type parameters
+         * @param typeParamBounds resolved bounds of type parameters
+         * @param setters analyzed setters
+         */
+        TypeAnalysis(String typeName, String qualifiedName, String[] typeParamNames, String[][] typeParamBounds,
+            List<SetterAnalysis> setters) {
+            this.typeName = typeName;
+            this.qualifiedName = qualifiedName;
+            this.typeParamNames = typeParamNames;
+            this.typeParamBounds = typeParamBounds;
+            this.setters = setters;
+        }
+
+        /**
+         * @param aTypeName name of the type as used in the generated source
+         * @return analysis of the same type referred to with another name
+         */
+        TypeAnalysis withTypeName(String aTypeName) {
+            return new TypeAnalysis(aTypeName, qualifiedName, typeParamNames, typeParamBounds, setters);
+        }
+
+        String getTypeName() {
+            return typeName;
+        }
+
+        String getQualifiedName() {
+            return qualifiedName;
+        }
+
+        /**
+         * @return names of type parameters, not to be modified
+         */
+        String[] getTypeParamNames() {
+            return typeParamNames;
+        }
+
+        /**
+         * @return bounds of type parameters, not to be modified
+         */
+        String[][] getTypeParamBounds() {
+            return typeParamBounds;
+        }
+
+        List<SetterAnalysis> getSetters() {
+            return setters;
+        }
+    }
+
+    /**
+     * Analysis of a single setter. Signatures are resolved with type parameters of the setter's owner type
+     * substituted. Arrays are not to be modified.
+     */
+    static final class SetterAnalysis {
+        private final String fieldName;
+        private final String declaringTypeName;
+        private final String parameterTypeSignature;
+        private final String[] exceptionSignatures;
+        private final boolean fieldTypeFromSource;
+        private final String[] fieldTypeArguments;
+        private final String elementTypeSignature;
+        private final boolean elementTypeFromSource;
+        private final String[] elementTypeArguments;
+
+        /**
+         * @param fieldName name of the field set
+         * @param declaringTypeName fully qualified name of the type declaring the setter
+         * @param parameterTypeSignature resolved signature of the setter parameter
+         * @param exceptionSignatures resolved signatures of exceptions thrown by the setter
+         * @param fieldTypeFromSource true if the parameter type is a class from source
+         * @param fieldTypeArguments resolved type arguments of the parameter type
+         * @param elementTypeSignature signature of collection elements, null if the parameter is not a collection
+         * @param elementTypeFromSource true if the element type is a class from source
+         * @param elementTypeArguments resolved type arguments of the element type, null if not a collection
+         */
+        SetterAnalysis(String fieldName, String declaringTypeName, String parameterTypeSignature,
+            String[] exceptionSignatures, boolean fieldTypeFromSource, String[] fieldTypeArguments,
+            String elementTypeSignature, boolean elementTypeFromSource, String[] elementTypeArguments) {
+            this.fieldName = fieldName;
+            this.declaringTypeName = declaringTypeName;
+            this.parameterTypeSignature = parameterTypeSignature;
+            this.exceptionSignatures = exceptionSignatures;
+            this.fieldTypeFromSource = fieldTypeFromSource;
+            this.fieldTypeArguments = fieldTypeArguments;
+            this.elementTypeSignature = elementTypeSignature;
+            this.elementTypeFromSource = elementTypeFromSource;
+            this.elementTypeArguments = elementTypeArguments;
+        }
+
+        String getFieldName() {
+            return fieldName;
+        }
+
+        String getDeclaringTypeName() {
+            return declaringTypeName;
+        }
+
+        String getParameterTypeSignature() {
+            return parameterTypeSignature;
+        }
+
+        String[] getExceptionSignatures() {
+            return exceptionSignatures;
+        }
+
+        boolean isFieldTypeFromSource() {
+            return fieldTypeFromSource;
+        }
+
+        String[] getFieldTypeArguments() {
+            return fieldTypeArguments;
+        }
+
+        boolean isCollection() {
+            return elementTypeSignature != null;
+        }
+
+        String getElementTypeSignature() {
+            return elementTypeSignature;
+        }
+
+        boolean isElementTypeFromSource() {
+            return elementTypeFromSource;
+        }
+
+        String[] getElementTypeArguments() {
+            return elementTypeArguments;
+        }
+    }
+}
@@ -12,19 +12,57 @@
 package com.sabre.buildergenerator.sourcegenerator;
 
 import com.sabre.buildergenerator.javamodel.IModelHelper;
-import com.sabre.buildergenerator.javamodel.IModelHelper.IMethodInspector;
 import com.sabre.buildergenerator.javamodel.ISignatureResolver;
+import com.sabre.buildergenerator.javamodel.ISignatureUtils;
 import com.sabre.buildergenerator.javamodel.ITypeAccessor;
 import com.sabre.buildergenerator.javamodel.ITypeResolver;
-import com.sabre.buildergenerator.signatureutils.SignatureParserException;
 import com.sabre.buildergenerator.signatureutils.SignatureUtil;
-
-import java.io.PrintWriter;
-import java.io.StringWriter;
-
+import com.sabre.buildergenerator.sourcegenerator.BuilderAnalyzer.SetterAnalysis;
+import com.sabre.buildergenerator.sourcegenerator.BuilderAnalyzer.TypeAnalysis;
+import com.sabre.buildergenerator.sourcegenerator.BuilderModel.ClassModel;
+import com.sabre.buildergenerator.sourcegenerator.BuilderModel.SetterModel;
+import com.sabre.buildergenerator.sourcegenerator.java.ByteChannelWriter;
+import com.sabre.buildergenerator.sourcegenerator.java.Clazz;
+import com.sabre.buildergenerator.sourcegenerator.java.FormattingProfile;
+import com.sabre.buildergenerator.sourcegenerator.java.IndentWriter;
+import com.sabre.buildergenerator.sourcegenerator.java.JavaSourceEmitter;
+import com.sabre.buildergenerator.sourcegenerator.java.PrintingJavaSourceEmitter;
+
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 
+/**
+ * Generates builder source for a type. Holds only configuration, all state of a generation is kept in a
+ * {@link GenerationSession} created per call, so a configured generator may be reused and used by many threads at
+ * once.
+ * <p>
+ * Generation has two phases: the types are analyzed into a {@link BuilderModel}, which is then emitted as source
+ * with the requested prefixes and names.
+ * <p>
+ * With an analysis executor set, types queued for builder base classes are analyzed in the background while
+ * already analyzed ones are emitted. Emission itself stays sequential in queue order, so the output does not
+ * depend on the executor.
+ */
 public class BuilderGenerator<IType, ITypeParameter, IMethod, JavaModelException extends Exception> {
     private static final String SETTER_PREFIX = "set";
 
@@ -32,28 +70,254 @@ public class BuilderGenerator<IType, ITypeParameter, IMethod, JavaModelException
     private ISignatureResolver<IType, JavaModelException> signatureResolver;
     private ITypeResolver<IType, JavaModelException> typeResolver;
     private ITypeAccessor<IType, ITypeParameter, IMethod, JavaModelException> typeAccessor;
-    private MarkedFields<IType, ITypeParameter, IMethod, JavaModelException> typesAndFieldsToGenerate;
-    private final ClassesToProcess classesToProcess = new ClassesToProcess();
+    private ISignatureUtils signatureUtils;
+    private ExecutorService analysisExecutor;
+    private FormattingProfile formattingProfile = FormattingProfile.DEFAULT;
+    private final ThreadLocal<ByteBuffer> outputBuffers = new ThreadLocal<ByteBuffer>() {
+            @Override
+            protected ByteBuffer initialValue() {
+                return ByteBuffer.allocateDirect(ByteChannelWriter.DEFAULT_BUFFER_SIZE);
+            }
+        };
 
     /**
      * @param type
      * @param packageName
      * @param builderName
      * @param methodProvider
+     *  if it is an {@link AnalyzedMethodProvider} with a model of the type, the types are not analyzed again
      * @param setterPrefix
      * @param collectionSetterPrefix
      * @param endPrefix
      * @param doFormat
      *  perform formatting ?
-     * @return
+     * @return builder source, byte-identical for identical types and selected setters, so it may be used as a
+     *  cache key
      * @throws Exception
      */
     public String generateSource(final IType type, String packageName, String builderName,
         MethodProvider<IType, IMethod> methodProvider, String setterPrefix, String collectionSetterPrefix, String endPrefix) throws Exception {
-        // find classes and fields to generate
+        return generateSource(type, packageName, builderName, methodProvider, setterPrefix, collectionSetterPrefix,
+            endPrefix, null);
+    }
+
+    /**
+     * Like {@link #generateSource(Object, String, String, MethodProvider, String, String, String)}, but also tells
+     * which types the builder was generated from, i.e. which changes may make it stale.
+     *
+     * @param referencedTypeNames if not null, receives fully qualified names of the types the builder and its
+     *  nested builder base classes were generated for and of the types declaring their setters
+     */
+    public String generateSource(final IType type, String packageName, String builderName,
+        MethodProvider<IType, IMethod> methodProvider, String setterPrefix, String collectionSetterPrefix,
+        String endPrefix, Set<String> referencedTypeNames) throws Exception {
+        BuilderModel model = generateModel(type, methodProvider);
+
+        if (referencedTypeNames != null) {
+            referencedTypeNames.addAll(model.getReferencedTypeNames());
+        }
+
+        return generateSource(model, packageName, builderName, setterPrefix, collectionSetterPrefix, endPrefix);
+    }
+
+    /**
+     * Like {@link #generateSource(Object, String, String, MethodProvider, String, String, String, Set)}, but passes
+     * the builder to the emitter class by class, as soon as each class is complete, instead of returning it as a
+     * whole. Of the source, only the tree of the class being emitted is held in memory; the builder model itself
+     * grows with the builder, it is generated up front and kept until the source is complete.
+     * <p>
+     * The imports precede the classes, so they are collected by a first pass over the builder model that discards
+     * the classes, and the model is emitted a second time for the source. Types are analyzed once for both passes.
+     *
+     * @param emitter receives the same source as returned by the other methods
+     */
+    public void generateSource(final IType type, String packageName, String builderName,
+        MethodProvider<IType, IMethod> methodProvider, String setterPrefix, String collectionSetterPrefix,
+        String endPrefix, Set<String> referencedTypeNames, JavaSourceEmitter emitter) throws Exception {
+        BuilderModel model = generateModel(type, methodProvider);
+
+        if (referencedTypeNames != null) {
+            referencedTypeNames.addAll(model.getReferencedTypeNames());
+        }
+
+        generateSource(model, packageName, builderName, setterPrefix, collectionSetterPrefix, endPrefix, emitter);
+    }
+
+    /**
+     * Like {@link #generateSource(Object, String, String, MethodProvider, String, String, String, Set)}, but writes
+     * the builder to the stream as it is generated, see
+     * {@link #generateSource(Object, String, String, MethodProvider, String, String, String, Set, JavaSourceEmitter)}.
+     *
+     * @param out stream to write the builder to, left open
+     * @param charset encoding of the builder, e.g. of the file it is written to
+     */
+    public void generateSource(final IType type, String packageName, String builderName,
+        MethodProvider<IType, IMethod> methodProvider, String setterPrefix, String collectionSetterPrefix,
+        String endPrefix, Set<String> referencedTypeNames, OutputStream out, Charset charset) throws Exception {
+        WritableByteChannel channel;
+
+        if (out instanceof FileOutputStream) {
+            channel = ((FileOutputStream) out).getChannel();
+        } else {
+            channel = Channels.newChannel(out);
+        }
+
+        generateSource(type, packageName, builderName, methodProvider, setterPrefix, collectionSetterPrefix,
+            endPrefix, referencedTypeNames, channel, charset);
+        out.flush();
+    }
+
+    /**
+     * Like {@link #generateSource(Object, String, String, MethodProvider, String, String, String, Set)}, but writes
+     * the builder to the channel as it is generated, see
+     * {@link #generateSource(Object, String, String, MethodProvider, String, String, String, Set, JavaSourceEmitter)}.
+     * The bytes are encoded through a buffer reused by all builders generated on the calling thread.
+     *
+     * @param channel channel to write the builder to, left open
+     * @param charset encoding of the builder, e.g. of the file it is written to
+     */
+    public void generateSource(final IType type, String packageName, String builderName,
+        MethodProvider<IType, IMethod> methodProvider, String setterPrefix, String collectionSetterPrefix,
+        String endPrefix, Set<String> referencedTypeNames, WritableByteChannel channel, Charset charset)
+        throws Exception {
+        ByteChannelWriter writer = new ByteChannelWriter(channel, charset, outputBuffers.get());
+        IndentWriter w = new IndentWriter(writer, formattingProfile);
+
+        generateSource(type, packageName, builderName, methodProvider, setterPrefix, collectionSetterPrefix,
+            endPrefix, referencedTypeNames, new PrintingJavaSourceEmitter(w));
+        w.flush();
+        writer.close();
+    }
+
+    /**
+     * Generates builders for many types in one pass. Types referenced from several of them are analyzed once for
+     * the whole batch, and each builder is passed to the consumer as soon as it is generated.
+     *
+     * @param types types to generate builders for
+     * @param methodProvider setters to generate, null for all setters
+     * @param options
+     * @param consumer receives the builders in the order of the types
+     * @throws Exception
+     */
+    public void generateSources(Collection<IType> types, MethodProvider<IType, IMethod> methodProvider,
+        GenerationOptions options, BuilderSourceConsumer<IType> consumer) throws Exception {
+        MarkedFields<IType, ITypeParameter, IMethod, JavaModelException> typesAndFieldsToGenerate = retrieveTypesAndFieldsToGenerate(methodProvider);
+        ConcurrentMap<String, TypeAnalysis> analyzedTypes = new ConcurrentHashMap<String, TypeAnalysis>();
+
+        for (IType type : types) {
+            String typeQName = typeAccessor.getFullyQualifiedName(type);
+            String packageName = options.getPackageName(typeQName);
+            String builderName = options.getBuilderName(typeQName);
+            BuilderModel model = generateModel(type, typesAndFieldsToGenerate, analyzedTypes);
+            String builderSource = generateSource(model, packageName, builderName, options.getSetterPrefix(),
+                    options.getCollectionSetterPrefix(), options.getEndPrefix());
+
+            consumer.nextBuilder(type, packageName, builderName, builderSource,
+                new TreeSet<String>(model.getReferencedTypeNames()));
+        }
+    }
+
+    private MarkedFields<IType, ITypeParameter, IMethod, JavaModelException> retrieveTypesAndFieldsToGenerate(
+        MethodProvider<IType, IMethod> methodProvider) {
+        MarkedFields<IType, ITypeParameter, IMethod, JavaModelException> typesAndFieldsToGenerate = new MarkedFields<IType, ITypeParameter, IMethod, JavaModelException>();
+        typesAndFieldsToGenerate.setTypeAccessor(typeAccessor);
+        typesAndFieldsToGenerate.setSignatureUtils(signatureUtils);
         typesAndFieldsToGenerate.retrieveTypesAndFieldsToGenerate(methodProvider);
 
-        // create source builder
+        return typesAndFieldsToGenerate;
+    }
+
+    /**
+     * Regenerates only the builder base classes of an existing builder that are affected by changed types: the
+     * classes of the changed types, the top level class if the type or the types of its setters changed, and
+     * classes of types newly referenced from the regenerated classes. Only the root type and the types of the
+     * regenerated classes are analyzed.
+     *
+     * @param type
+     * @param packageName
+     * @param builderName
+     * @param methodProvider
+     * @param setterPrefix
+     * @param collectionSetterPrefix
+     * @param endPrefix
+     * @param outline imports and builder base classes of the existing builder source
+     * @param changedTypeNames fully qualified names of the changed types
+     * @param referencedTypeNames if not null, receives fully qualified names of the types the regenerated classes
+     *  were generated from
+     * @return the regenerated classes
+     * @throws Exception
+     */
+    public PartialBuilderSource generateChangedClasses(IType type, String packageName, String builderName,
+        MethodProvider<IType, IMethod> methodProvider, String setterPrefix, String collectionSetterPrefix,
+        String endPrefix, BuilderOutline outline, Set<String> changedTypeNames, Set<String> referencedTypeNames)
+        throws Exception {
+        GenerationSession<IType, ITypeParameter, IMethod, JavaModelException> session = new GenerationSession<IType, ITypeParameter, IMethod, JavaModelException>(
+                type, retrieveTypesAndFieldsToGenerate(methodProvider), new ConcurrentHashMap<String, TypeAnalysis>());
+        boolean rootChanged;
+
+        session.generateChangedClassesOnly(outline, changedTypeNames);
+
+        try {
+            TypeAnalysis rootType = analyzeType(session, typeAccessor.getFullyQualifiedName(type), type);
+            String typeQName = rootType.getQualifiedName();
+
+            session.getClassesToProcess().markAsAlreadyProcessed(signatureResolver.createTypeSignature(typeQName));
+            rootChanged = session.isChanged(typeQName) || referencesChangedType(session, rootType);
+
+            if (rootChanged) {
+                generateBuilderBaseClass(session, rootType);
+            } else {
+                // only the enclosing class for the nested classes
+                session.addClass(new ClassModel(rootType.getTypeName(), typeQName, rootType.getTypeParamNames(),
+                        rootType.getTypeParamBounds(), Collections.<SetterModel>emptyList()));
+            }
+
+            for (String changedTypeName : new TreeSet<String>(changedTypeNames)) {
+                if (!changedTypeName.equals(typeQName) && outline.hasClassFor(changedTypeName)) {
+                    addForProcessing(session, signatureResolver.createTypeSignature(changedTypeName));
+                }
+            }
+
+            generateBuilderBaseClasses(session, type);
+        } finally {
+            session.cancelTypeAnalyses();
+        }
+
+        if (referencedTypeNames != null) {
+            referencedTypeNames.addAll(session.getReferencedTypeNames());
+        }
+
+        BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelException> generator = createSourceGenerator(
+                setterPrefix, collectionSetterPrefix, endPrefix);
+
+        generator.addImports(outline.getImports());
+        emit(new BuilderModel(session.getClasses(), session.getReferencedTypeNames()), packageName, builderName,
+            generator);
+
+        return generator.finishClasses(rootChanged);
+    }
+
+    private boolean referencesChangedType(GenerationSession<IType, ITypeParameter, IMethod, JavaModelException> session,
+        TypeAnalysis type) {
+        for (SetterAnalysis setter : type.getSetters()) {
+            if (session.getTypesAndFieldsToGenerate().isSetterRequestedForTypeName(type.getQualifiedName(),
+                        setter.getFieldName())
+                    && (isChangedType(session, setter.getParameterTypeSignature())
+                        || (setter.isCollection() && isChangedType(session, setter.getElementTypeSignature())))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isChangedType(GenerationSession<IType, ITypeParameter, IMethod, JavaModelException> session,
+        String typeSignature) {
+        return session.isChanged(SignatureUtil.signatureToTypeName(signatureResolver.getTypeErasure(typeSignature)));
+    }
+
+    BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelException> createSourceGenerator(
+        String setterPrefix, String collectionSetterPrefix, String endPrefix) {
         BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelException> generator = new BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelException>();
         generator.setTypeAccessor(typeAccessor);
         generator.setTypeResolver(typeResolver);
@@ -61,169 +325,374 @@ public class BuilderGenerator<IType, ITypeParameter, IMethod, JavaModelException
         generator.setSetterPrefix(setterPrefix);
         generator.setCollectionElementSetterPrefix(collectionSetterPrefix);
         generator.setEndPrefix(endPrefix);
+        generator.setFormattingProfile(formattingProfile);
+
+        return generator;
+    }
 
-        StringWriter sw = new StringWriter();
+    /**
+     * Analyzes the type and the types of its builder base classes into a model of the builder, the part of the
+     * generation that reads the java model. The model may be emitted many times, e.g. with changed prefixes, see
+     * {@link #generateSource(BuilderModel, String, String, String, String, String)}.
+     *
+     * @param type
+     * @param methodProvider
+     *  if it is an {@link AnalyzedMethodProvider} with a model of the type, the types are not analyzed again
+     * @return model of the builder
+     * @throws Exception
+     */
+    public BuilderModel generateModel(IType type, MethodProvider<IType, IMethod> methodProvider) throws Exception {
+        MarkedFields<IType, ITypeParameter, IMethod, JavaModelException> typesAndFieldsToGenerate =
+            retrieveTypesAndFieldsToGenerate(methodProvider);
+        BuilderModel allSettersModel = getAllSettersModel(type, methodProvider);
+
+        if (allSettersModel != null) {
+            return allSettersModel.select(typesAndFieldsToGenerate);
+        }
+
+        return generateModel(type, typesAndFieldsToGenerate, new ConcurrentHashMap<String, TypeAnalysis>());
+    }
 
-        generator.setOut(new PrintWriter(sw));
+    private BuilderModel generateModel(IType type,
+        MarkedFields<IType, ITypeParameter, IMethod, JavaModelException> typesAndFieldsToGenerate,
+        ConcurrentMap<String, TypeAnalysis> analyzedTypes) throws Exception {
+        GenerationSession<IType, ITypeParameter, IMethod, JavaModelException> session = new GenerationSession<IType, ITypeParameter, IMethod, JavaModelException>(
+                type, typesAndFieldsToGenerate, analyzedTypes);
 
-        // retrieve type parameter names
-        ITypeParameter[] typeParameters = typeAccessor.getTypeParameters(type);
-        String[] typeParamNames = new String[typeParameters.length];
-        String[][] typeParamBounds = new String[typeParameters.length][];
-        int i = 0;
+        try {
+            TypeAnalysis rootType = analyzeType(session, typeAccessor.getFullyQualifiedName(type), type);
+            String typeSignature = signatureResolver.createTypeSignature(rootType.getQualifiedName());
+            session.getClassesToProcess().markAsAlreadyProcessed(typeSignature);
 
-        for (ITypeParameter typeParameter : typeParameters) {
-            typeParamNames[i] = typeAccessor.getTypeParameterName(typeParameter);
-            typeParamBounds[i] = typeAccessor.getTypeParameterBounds(typeParameter);
-            i++;
+            generateBuilderBaseClass(session, rootType);
+
+            generateBuilderBaseClasses(session, type);
+        } finally {
+            session.cancelTypeAnalyses();
         }
 
-        // generate source
-        String typeQName = typeAccessor.getFullyQualifiedName(type);
+        return new BuilderModel(session.getClasses(), session.getReferencedTypeNames());
+    }
 
-        generator.generateBuilderClass(type, typeQName, packageName, builderName, typeParamNames, typeParamBounds);
-        String typeSignature = signatureResolver.createTypeSignature(typeQName);
-        classesToProcess.markAsAlreadyProcessed(typeSignature);
+    /**
+     * Analyzes only the type into a model of its builder base class, without the classes of the types its setters
+     * refer to. Within a model generated for all setters, see {@link #generateModel(Object, MethodProvider)}, the
+     * builder base class of the type is the same whatever the builder it is generated for, so it may be shared by
+     * the builders.
+     *
+     * @param type
+     * @return model with the builder base class of the type only, referencing the type and the types declaring its
+     *  setters
+     * @throws Exception
+     */
+    public BuilderModel generateClassModel(IType type) throws Exception {
+        GenerationSession<IType, ITypeParameter, IMethod, JavaModelException> session = new GenerationSession<IType, ITypeParameter, IMethod, JavaModelException>(
+                type, retrieveTypesAndFieldsToGenerate(null), new ConcurrentHashMap<String, TypeAnalysis>());
+
+        try {
+            generateBuilderBaseClass(session, analyzeType(session, typeAccessor.getFullyQualifiedName(type), type));
+        } finally {
+            session.cancelTypeAnalyses();
+        }
 
-        generateBuilderBaseClass(generator, typeQName, type, true);
+        return new BuilderModel(session.getClasses(), session.getReferencedTypeNames());
+    }
 
-        generateBuilderBaseClasses(generator, type);
+    /**
+     * Generates builder source from a model, without touching the java model.
+     *
+     * @param model
+     * @param packageName
+     * @param builderName
+     * @param setterPrefix
+     * @param collectionSetterPrefix
+     * @param endPrefix
+     * @return the same source as generated from the type the model was generated for
+     */
+    public String generateSource(BuilderModel model, String packageName, String builderName, String setterPrefix,
+        String collectionSetterPrefix, String endPrefix) {
+        BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelException> generator = createSourceGenerator(
+                setterPrefix, collectionSetterPrefix, endPrefix);
+        IndentWriter w = new IndentWriter(null, formattingProfile);
+
+        generator.setOut(w);
+        emit(model, packageName, builderName, generator);
         generator.finish();
-        sw.flush();
 
-        String builderSource = sw.toString();
+        return w.toString();
+    }
 
-        return builderSource;
+    /**
+     * Like {@link #generateSource(BuilderModel, String, String, String, String, String)}, but puts each builder base
+     * class into a compilation unit of its own in the package returned by
+     * {@link #getBaseClassesPackage(String, String)}, so that the units can be compiled in parallel and only the
+     * changed ones recompiled.
+     *
+     * @return sources by fully qualified class name, the builder first
+     */
+    public Map<String, String> generateCompilationUnits(BuilderModel model, String packageName, String builderName,
+        String setterPrefix, String collectionSetterPrefix, String endPrefix) {
+        return generateCompilationUnits(model, packageName, builderName,
+            getBaseClassesPackage(packageName, builderName), setterPrefix, collectionSetterPrefix, endPrefix);
     }
 
-    private void generateBuilderBaseClasses(final BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelException> generator, final IType enclosingType)
-        throws Exception {
-        String typeSgn = null;
-        while ((typeSgn = classesToProcess.nextClassToProcess()) != null) {
-            final IType resolvedType = signatureResolver.resolveType(enclosingType, typeSgn);
+    /**
+     * Like {@link #generateCompilationUnits(BuilderModel, String, String, String, String, String)}, but with the
+     * builder base classes in the given package, e.g. one shared by the builders of a project.
+     *
+     * @param builderName null to generate the builder base classes only
+     * @param classesPackageName package of the builder base classes
+     * @return sources by fully qualified class name, the builder first
+     */
+    public Map<String, String> generateCompilationUnits(BuilderModel model, String packageName, String builderName,
+        String classesPackageName, String setterPrefix, String collectionSetterPrefix, String endPrefix) {
+        BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelException> generator = createSourceGenerator(
+                setterPrefix, collectionSetterPrefix, endPrefix);
 
-            if (resolvedType != null) {
-                String typeSpec = SignatureUtil.signatureToTypeName(signatureResolver.resolveSignature(enclosingType,
-                            typeSgn));
+        generator.setClassesPackage(classesPackageName);
 
-                generateBuilderBaseClass(generator, typeSpec, resolvedType, false);
+        if (builderName != null) {
+            emit(model, packageName, builderName, generator);
+        } else {
+            for (ClassModel classModel : model.getClasses()) {
+                emit(classModel, false, generator);
             }
         }
+
+        return generator.finishCompilationUnits();
     }
 
-    private void generateBuilderBaseClass(final BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelException> generator, String type, final IType resolvedType,
-        boolean isTopLevel) throws JavaModelException, Exception {
-        generator.generateBuilderBaseClass(type, resolvedType, isTopLevel); // following methods might add elements to typesUsed
-
-        typeHelper.findSetterMethods(resolvedType, new IMethodInspector<IType, IMethod>() {
-                public void nextMethod(IType methodOwnerType, IMethod method, Map<String, String> parameterSubstitution)
-                    throws Exception {
-                    String fieldName = fieldNameFromSetter(method);
-
-//                    try {
-                        String parameterTypeSignature = typeAccessor.getMethodParameterTypes(method)[0];
-                        String qualifiedParameterTypeSignature = signatureResolver.resolveTypeWithParameterMapping(
-                                methodOwnerType, parameterTypeSignature, parameterSubstitution);
-
-                        String[] exceptionSignatures = typeAccessor.getMethodExceptionTypes(method);
-
-                        for (int i = 0; i < exceptionSignatures.length; i++) {
-                            exceptionSignatures[i] = signatureResolver.resolveTypeWithParameterMapping(methodOwnerType,
-                                    exceptionSignatures[i], parameterSubstitution);
-                        }
-
-                        if (typesAndFieldsToGenerate.isSetterRequestedForField(resolvedType, fieldName)) {
-                            generateSimpleSetter(generator, methodOwnerType, exceptionSignatures, fieldName,
-                                qualifiedParameterTypeSignature);
-                            generateCollectionAdder(generator, methodOwnerType, exceptionSignatures, fieldName,
-                                qualifiedParameterTypeSignature);
-                            generateCollectionBuilder(generator, methodOwnerType, exceptionSignatures, fieldName,
-                                qualifiedParameterTypeSignature);
-                            generateFieldBuilder(generator, methodOwnerType, exceptionSignatures, fieldName,
-                                qualifiedParameterTypeSignature);
-                        }
-//                    } catch (Exception e) {
-//                        Activator.getDefault().getLog().log(
-//                            new Status(IStatus.ERROR, Activator.PLUGIN_ID,
-//                                "couldn't handle field '" + fieldName + "' for type '"
-//                                + typeAccessor.getFullyQualifiedParameterizedName(resolvedType) + "'", e));
-//                    }
-                }
-            });
+    /**
+     * Builder base classes of split builders get a package of their own, so that builders generated into the same
+     * package for overlapping types do not share them.
+     *
+     * @param packageName package of the builder
+     * @param builderName
+     * @return package of the builder base classes generated with the builder
+     */
+    public static String getBaseClassesPackage(String packageName, String builderName) {
+        String subpackageName = builderName.toLowerCase();
+
+        return packageName != null && packageName.length() > 0 ? packageName + "." + subpackageName : subpackageName;
     }
 
-    private void generateSimpleSetter(BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelException> generator, IType enclosingType,
-        String[] exceptionSignatures, String fieldName, String fieldTypeSignature) {
-        String fieldType = SignatureUtil.signatureToTypeName(fieldTypeSignature);
-        String[] exceptionTypes = signaturesToTypes(exceptionSignatures);
+    /**
+     * Like {@link #generateSource(BuilderModel, String, String, String, String, String)}, but passes the builder to
+     * the emitter class by class, see
+     * {@link #generateSource(Object, String, String, MethodProvider, String, String, String, Set, JavaSourceEmitter)}.
+     *
+     * @param emitter
+     */
+    public void generateSource(BuilderModel model, String packageName, String builderName, String setterPrefix,
+        String collectionSetterPrefix, String endPrefix, JavaSourceEmitter emitter) {
+        // imports pass
+        BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelException> importsGenerator = createSourceGenerator(
+                setterPrefix, collectionSetterPrefix, endPrefix);
+
+        importsGenerator.setEmitter(new DiscardingEmitter());
+        emit(model, packageName, builderName, importsGenerator);
+        importsGenerator.finish();
+
+        // source pass
+        BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelException> generator = createSourceGenerator(
+                setterPrefix, collectionSetterPrefix, endPrefix);
+
+        generator.addImports(importsGenerator.getImports());
+        generator.setEmitter(emitter);
+        emit(model, packageName, builderName, generator);
+        generator.finish();
+    }
+
+    private void emit(BuilderModel model, String packageName, String builderName,
+        BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelException> generator) {
+        ClassModel rootClass = model.getRootClass();
+        boolean isTopLevel = true;
 
-        generator.addFieldSetter(fieldName, fieldType, exceptionTypes);
+        generator.generateBuilderClass(rootClass.getQualifiedName(), packageName, builderName,
+            rootClass.getTypeParamNames(), rootClass.getTypeParamBounds());
+
+        for (ClassModel classModel : model.getClasses()) {
+            emit(classModel, isTopLevel, generator);
+            isTopLevel = false;
+        }
     }
 
-    private void generateCollectionAdder(BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelException> generator, IType enclosingType,
-        String[] exceptionSignatures, String fieldName, String resolvedFieldTypeSignature) throws Exception {
-        boolean isFieldACollection = typeHelper.isCollection(enclosingType, resolvedFieldTypeSignature);
+    void emit(ClassModel classModel, boolean isTopLevel,
+        BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelException> generator) {
+        generator.generateBuilderBaseClass(classModel.getTypeName(), classModel.getTypeParamNames(),
+            classModel.getTypeParamBounds(), isTopLevel); // following methods might add elements to typesUsed
 
-        if (isFieldACollection) {
-            String elementTypeSignature = typeHelper.getTypeParameterSignature(resolvedFieldTypeSignature);
-            String elementType = SignatureUtil.signatureToTypeName(elementTypeSignature);
-            String elementName = pluralToSingle(fieldName);
+        for (SetterModel setter : classModel.getSetters()) {
+            generator.addFieldSetter(setter.getFieldName(), setter.getFieldType(), setter.getExceptionTypes());
 
-            String fieldTypeErasureSignature = signatureResolver.getTypeErasure(resolvedFieldTypeSignature);
-            String concreteCollectionType = abstractToConcreteCollectionType(fieldTypeErasureSignature);
+            if (setter.isCollection()) {
+                generator.addCollectionElementSetter(setter.getFieldName(), setter.getElementName(),
+                    setter.getElementType(), setter.getConcreteCollectionType(), setter.getExceptionTypes());
 
-            String[] exceptionTypes = signaturesToTypes(exceptionSignatures);
+                if (setter.hasElementBuilder()) {
+                    generator.addCollectionElementBuilder(setter.getElementName(), setter.getElementType(),
+                        setter.getExceptionTypes(), setter.getElementTypeArguments());
+                }
+            }
 
-            generator.addCollectionElementSetter(fieldName, elementName, elementType, concreteCollectionType,
-                exceptionTypes);
+            if (setter.hasFieldBuilder()) {
+                generator.addFieldBuilder(setter.getFieldName(), setter.getFieldType(),
+                    setter.getExceptionTypes(), setter.getFieldTypeArguments());
+            }
         }
     }
 
-    private void generateCollectionBuilder(BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelException> generator, IType enclosingType,
-        String[] exceptionSignatures, String fieldName, String resolvedFieldTypeSignature) throws Exception {
-        boolean isFieldACollection = typeHelper.isCollection(enclosingType, resolvedFieldTypeSignature);
+    private BuilderModel getAllSettersModel(IType type, MethodProvider<IType, IMethod> methodProvider) {
+        if (methodProvider instanceof AnalyzedMethodProvider<?, ?>) {
+            BuilderModel model = ((AnalyzedMethodProvider<IType, IMethod>) methodProvider).getAllSettersModel();
 
-        if (isFieldACollection) {
-            String elementTypeSignature = typeHelper.getTypeParameterSignature(resolvedFieldTypeSignature);
-            String elementType = SignatureUtil.signatureToTypeName(elementTypeSignature);
-            String elementName = pluralToSingle(fieldName);
+            if (model != null
+                    && model.getRootClass().getQualifiedName().equals(typeAccessor.getFullyQualifiedName(type))) {
+                return model;
+            }
+        }
 
-            String[] typeArgs = signatureResolver.getTypeArguments(elementTypeSignature);
+        return null;
+    }
 
-            for (int i = 0; i < typeArgs.length; i++) {
-                String sig = signatureResolver.resolveSignature(enclosingType, typeArgs[i]);
+    private BuilderAnalyzer<IType, ITypeParameter, IMethod, JavaModelException> createAnalyzer() {
+        return new BuilderAnalyzer<IType, ITypeParameter, IMethod, JavaModelException>(typeHelper, signatureResolver,
+            typeResolver, typeAccessor);
+    }
 
-                typeArgs[i] = SignatureUtil.signatureToTypeName(sig);
+    private void generateBuilderBaseClasses(final GenerationSession<IType, ITypeParameter, IMethod, JavaModelException> session, final IType enclosingType)
+        throws Exception {
+        String typeSgn = null;
+        while ((typeSgn = session.getClassesToProcess().nextClassToProcess()) != null) {
+            Future<TypeAnalysis> pendingAnalysis = session.takeTypeAnalysis(typeSgn);
+            TypeAnalysis typeAnalysis;
+
+            if (pendingAnalysis != null) {
+                typeAnalysis = getTypeAnalysis(pendingAnalysis);
+            } else {
+                typeAnalysis = analyzeType(session, enclosingType, typeSgn);
+            }
+
+            if (typeAnalysis != null) {
+                generateBuilderBaseClass(session, typeAnalysis);
             }
+        }
+    }
 
-            if (isSourceClass(enclosingType, elementTypeSignature) && typesAndFieldsToGenerate.isBuilderRequestedForType(elementTypeSignature)) {
-                String[] exceptionTypes = signaturesToTypes(exceptionSignatures);
+    private TypeAnalysis getTypeAnalysis(Future<TypeAnalysis> pendingAnalysis) throws Exception {
+        try {
+            return pendingAnalysis.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
 
-                generator.addCollectionElementBuilder(elementName, elementType, exceptionTypes, typeArgs);
-                classesToProcess.addForProcessing(signatureResolver.getTypeErasure(elementTypeSignature));
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
             }
+
+            throw e;
         }
     }
 
-    private void generateFieldBuilder(BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelException> generator, IType enclosingType,
-        String[] exceptionSignatures, String fieldName, String resolvedFieldTypeSignature) throws Exception {
-        String fieldType = SignatureUtil.signatureToTypeName(resolvedFieldTypeSignature);
+    private void addForProcessing(final GenerationSession<IType, ITypeParameter, IMethod, JavaModelException> session,
+        final String typeSgn) {
+        if (!session.isGenerated(SignatureUtil.signatureToTypeName(typeSgn))) {
+            // the builder base class in the existing source is kept
+            session.getClassesToProcess().markAsAlreadyProcessed(typeSgn);
+
+            return;
+        }
+
+        if (!session.getClassesToProcess().addForProcessing(typeSgn) || analysisExecutor == null) {
+            return;
+        }
 
-        String[] typeArgs = signatureResolver.getTypeArguments(resolvedFieldTypeSignature);
+        session.addTypeAnalysis(typeSgn, analysisExecutor.submit(new Callable<TypeAnalysis>() {
+                public TypeAnalysis call() throws Exception {
+                    return analyzeType(session, session.getType(), typeSgn);
+                }
+            }));
+    }
 
-        for (int i = 0; i < typeArgs.length; i++) {
-            String sig = signatureResolver.resolveSignature(enclosingType, typeArgs[i]);
+    private TypeAnalysis analyzeType(GenerationSession<IType, ITypeParameter, IMethod, JavaModelException> session, IType enclosingType, String typeSgn)
+        throws Exception {
+        final IType resolvedType = signatureResolver.resolveType(enclosingType, typeSgn);
 
-            typeArgs[i] = SignatureUtil.signatureToTypeName(sig);
+        if (resolvedType == null) {
+            return null;
         }
 
-        if (isSourceClass(enclosingType, resolvedFieldTypeSignature)
-                && typesAndFieldsToGenerate.isBuilderRequestedForType(resolvedFieldTypeSignature)) {
-            String[] exceptionTypes = signaturesToTypes(exceptionSignatures);
+        String typeSpec = SignatureUtil.signatureToTypeName(signatureResolver.resolveSignature(enclosingType,
+                    typeSgn));
 
-            generator.addFieldBuilder(fieldName, fieldType, exceptionTypes, typeArgs);
-            classesToProcess.addForProcessing(signatureResolver.getTypeErasure(resolvedFieldTypeSignature));
+        return analyzeType(session, typeSpec, resolvedType);
+    }
+
+    private TypeAnalysis analyzeType(GenerationSession<IType, ITypeParameter, IMethod, JavaModelException> session,
+        String typeSpec, IType type) throws Exception {
+        String typeQName = typeAccessor.getFullyQualifiedName(type);
+        TypeAnalysis typeAnalysis = session.getAnalyzedTypes().get(typeQName);
+
+        if (typeAnalysis == null) {
+            typeAnalysis = createAnalyzer().analyzeType(typeSpec, type, session.getTypesAndFieldsToGenerate());
+            session.getAnalyzedTypes().putIfAbsent(typeQName, typeAnalysis);
+        } else {
+            typeAnalysis = typeAnalysis.withTypeName(typeSpec);
         }
+
+        return typeAnalysis;
+    }
+
+    private void generateBuilderBaseClass(final GenerationSession<IType, ITypeParameter, IMethod, JavaModelException> session, TypeAnalysis type)
+        throws Exception {
+        List<SetterModel> setters = new ArrayList<SetterModel>();
+
+        session.addReferencedTypeName(type.getQualifiedName());
+
+        for (SetterAnalysis setter : type.getSetters()) {
+            if (session.getTypesAndFieldsToGenerate().isSetterRequestedForTypeName(type.getQualifiedName(),
+                        setter.getFieldName())) {
+                session.addReferencedTypeName(setter.getDeclaringTypeName());
+                setters.add(createSetterModel(session, setter));
+            }
+        }
+
+        session.addClass(new ClassModel(type.getTypeName(), type.getQualifiedName(), type.getTypeParamNames(),
+                type.getTypeParamBounds(), setters));
+    }
+
+    private SetterModel createSetterModel(GenerationSession<IType, ITypeParameter, IMethod, JavaModelException> session, SetterAnalysis setter) {
+        String resolvedFieldTypeSignature = setter.getParameterTypeSignature();
+        String fieldType = SignatureUtil.signatureToTypeName(resolvedFieldTypeSignature);
+        String[] exceptionTypes = signaturesToTypes(setter.getExceptionSignatures());
+        String[] fieldTypeArguments = null;
+        String elementName = null;
+        String elementType = null;
+        String concreteCollectionType = null;
+        String[] elementTypeArguments = null;
+
+        if (setter.isCollection()) {
+            String elementTypeSignature = setter.getElementTypeSignature();
+            String fieldTypeErasureSignature = signatureResolver.getTypeErasure(resolvedFieldTypeSignature);
+
+            elementType = SignatureUtil.signatureToTypeName(elementTypeSignature);
+            elementName = pluralToSingle(setter.getFieldName());
+            concreteCollectionType = abstractToConcreteCollectionType(fieldTypeErasureSignature);
+
+            if (setter.isElementTypeFromSource()
+                    && session.getTypesAndFieldsToGenerate().isBuilderRequestedForType(elementTypeSignature)) {
+                elementTypeArguments = setter.getElementTypeArguments();
+                addForProcessing(session, signatureResolver.getTypeErasure(elementTypeSignature));
+            }
+        }
+
+        if (setter.isFieldTypeFromSource()
+                && session.getTypesAndFieldsToGenerate().isBuilderRequestedForType(resolvedFieldTypeSignature)) {
+            fieldTypeArguments = setter.getFieldTypeArguments();
+            addForProcessing(session, signatureResolver.getTypeErasure(resolvedFieldTypeSignature));
+        }
+
+        return new SetterModel(setter.getFieldName(), setter.getDeclaringTypeName(), fieldType, exceptionTypes,
+            fieldTypeArguments, elementName, elementType, concreteCollectionType, elementTypeArguments);
     }
 
     private String abstractToConcreteCollectionType(String collectionTypeErasureSignature) {
@@ -254,13 +723,6 @@ public class BuilderGenerator<IType, ITypeParameter, IMethod, JavaModelException
         return exceptionTypes;
     }
 
-    private boolean isSourceClass(IType enclosingType, String typeSignature) throws JavaModelException,
-        SignatureParserException {
-        IType type = signatureResolver.resolveType(enclosingType, typeSignature);
-
-        return type != null && typeAccessor.isClassFromSource(type);
-    }
-
     // TODO move to helper
     public String fieldNameFromSetter(IMethod method) {
         return fieldNameFromSetterName(typeAccessor.getMethodName(method));
@@ -307,11 +769,54 @@ public class BuilderGenerator<IType, ITypeParameter, IMethod, JavaModelException
         this.typeAccessor = typeAccessor;
     }
 
-    public void setTypesAndFieldsToGenerate(MarkedFields<IType, ITypeParameter, IMethod, JavaModelException> typesAndFieldsToGenerate) {
-        this.typesAndFieldsToGenerate = typesAndFieldsToGenerate;
+    public void setSignatureUtils(ISignatureUtils signatureUtils) {
+        this.signatureUtils = signatureUtils;
     }
 
     public void setTypeResolver(ITypeResolver<IType, JavaModelException> typeResolver) {
         this.typeResolver = typeResolver;
     }
+
+    /**
+     * Emitter of the imports pass, the classes are only generated for the imports they add.
+     */
+    private static class DiscardingEmitter implements JavaSourceEmitter {
+        public void startSource(List<String> commentLines, String packge, Collection<String> imports) {
+        }
+
+        public void emitClazz(Clazz clazz) {
+        }
+
+        public void openClazz(Clazz clazz) {
+        }
+
+        public void emitInnerClazz(Clazz clazz) {
+        }
+
+        public void closeClazz() {
+        }
+
+        public void endSource() {
+        }
+    }
+
+    FormattingProfile getFormattingProfile() {
+        return formattingProfile;
+    }
+
+    /**
+     * @param formattingProfile layout of generated builders, null for {@link FormattingProfile#DEFAULT}; an
+     *  emitter passed to the generator has to print with the same profile
+     */
+    public void setFormattingProfile(FormattingProfile formattingProfile) {
+        this.formattingProfile = formattingProfile != null ? formattingProfile : FormattingProfile.DEFAULT;
+    }
+
+    /**
+     * @param analysisExecutor executor analyzing types of builder base classes in the background, null to analyze
+     *  them on the generating thread
+     */
+    public void setAnalysisExecutor(ExecutorService analysisExecutor) {
+        this.analysisExecutor = analysisExecutor;
+    }
 }
@@ -0,0 +1,396 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+
+package com.sabre.buildergenerator.sourcegenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+
+/**
+ * Immutable intermediate representation of a builder: the builder base classes to generate, in order, and their
+ * setters with all types resolved. It is the result of analyzing the types and holds neither java model elements
+ * nor generation options, so a model may be cached and emitted again with other prefixes or builder names without
+ * touching the java model, see {@link BuilderGenerator#generateSource(BuilderModel, String, String, String, String,
+ * String)}.
+ * <p>
+ * Models are compared by value, so models of the same type may be compared to find the classes that changed.
+ * <p>
+ * A model generated for all setters also stands for the models of the same type generated for some of its
+ * setters, see {@link #select(MarkedFields)}, so it may be taken while the setters are being selected.
+ */
+public final class BuilderModel {
+    private final List<ClassModel> classes;
+    private final Set<String> referencedTypeNames;
+
+    /**
+     * @param classes builder base classes in generation order, the first one is the top level class of the type the
+     *  builder is generated for
+     * @param referencedTypeNames fully qualified names of the types the builder is generated from
+     */
+    public BuilderModel(List<ClassModel> classes, Collection<String> referencedTypeNames) {
+        if (classes.isEmpty()) {
+            throw new IllegalArgumentException("no builder base class for the builder");
+        }
+
+        this.classes = Collections.unmodifiableList(new ArrayList<ClassModel>(classes));
+        this.referencedTypeNames = Collections.unmodifiableSet(new TreeSet<String>(referencedTypeNames));
+    }
+
+    /**
+     * @return the top level builder base class, of the type the builder is generated for
+     */
+    public ClassModel getRootClass() {
+        return classes.get(0);
+    }
+
+    public List<ClassModel> getClasses() {
+        return classes;
+    }
+
+    /**
+     * @return fully qualified names of the types the builder and its nested builder base classes were generated for
+     *  and of the types declaring their setters
+     */
+    public Set<String> getReferencedTypeNames() {
+        return referencedTypeNames;
+    }
+
+    /**
+     * @param previous model of an earlier generation of the same builder
+     * @return fully qualified names of the types whose builder base classes are new or differ from the previous model
+     */
+    public Set<String> getChangedTypeNames(BuilderModel previous) {
+        Map<String, ClassModel> previousClasses = new HashMap<String, ClassModel>();
+        Set<String> changedTypeNames = new TreeSet<String>();
+
+        for (ClassModel previousClass : previous.classes) {
+            previousClasses.put(previousClass.getQualifiedName(), previousClass);
+        }
+
+        for (ClassModel classModel : classes) {
+            if (!classModel.equals(previousClasses.get(classModel.getQualifiedName()))) {
+                changedTypeNames.add(classModel.getQualifiedName());
+            }
+        }
+
+        return changedTypeNames;
+    }
+
+    /**
+     * Derives the model of the builder generated for the selected setters from this model, generated for all
+     * setters. The derived model is the same as the model generated for the selected setters from the types: its
+     * classes are reached from the top level class through the selected setters, in the same order.
+     *
+     * @param selection setters selected for generation
+     * @return model of the builder for the selected setters
+     */
+    BuilderModel select(MarkedFields<?, ?, ?, ?> selection) {
+        Map<String, ClassModel> classesByTypeName = new HashMap<String, ClassModel>();
+
+        for (ClassModel classModel : classes) {
+            classesByTypeName.put(erasure(classModel.getQualifiedName()), classModel);
+        }
+
+        Set<String> queuedTypeNames = new HashSet<String>();
+        LinkedList<ClassModel> pending = new LinkedList<ClassModel>();
+        List<ClassModel> selectedClasses = new ArrayList<ClassModel>();
+        Set<String> selectedTypeNames = new TreeSet<String>();
+
+        queuedTypeNames.add(erasure(getRootClass().getQualifiedName()));
+        pending.add(getRootClass());
+
+        while (!pending.isEmpty()) {
+            ClassModel classModel = pending.removeFirst();
+            List<SetterModel> setters = new ArrayList<SetterModel>();
+
+            selectedTypeNames.add(classModel.getQualifiedName());
+
+            for (SetterModel setter : classModel.getSetters()) {
+                if (!selection.isSetterRequestedForTypeName(classModel.getQualifiedName(), setter.getFieldName())) {
+                    continue;
+                }
+
+                String[] fieldTypeArguments = null;
+                String[] elementTypeArguments = null;
+
+                // element builder before field builder, like the classes are queued from the types
+                if (setter.hasElementBuilder() && selection.isBuilderRequestedForTypeName(setter.getElementType())) {
+                    elementTypeArguments = setter.elementTypeArguments;
+                    queue(setter.getElementType(), classesByTypeName, queuedTypeNames, pending);
+                }
+
+                if (setter.hasFieldBuilder() && selection.isBuilderRequestedForTypeName(setter.getFieldType())) {
+                    fieldTypeArguments = setter.fieldTypeArguments;
+                    queue(setter.getFieldType(), classesByTypeName, queuedTypeNames, pending);
+                }
+
+                selectedTypeNames.add(setter.getDeclaringTypeName());
+                setters.add(new SetterModel(setter.fieldName, setter.declaringTypeName, setter.fieldType,
+                        setter.exceptionTypes, fieldTypeArguments, setter.elementName, setter.elementType,
+                        setter.concreteCollectionType, elementTypeArguments));
+            }
+
+            selectedClasses.add(new ClassModel(classModel.typeName, classModel.qualifiedName,
+                    classModel.typeParamNames, classModel.typeParamBounds, setters));
+        }
+
+        return new BuilderModel(selectedClasses, selectedTypeNames);
+    }
+
+    private static void queue(String typeName, Map<String, ClassModel> classesByTypeName, Set<String> queuedTypeNames,
+        LinkedList<ClassModel> pending) {
+        String erasure = erasure(typeName);
+        ClassModel classModel = classesByTypeName.get(erasure);
+
+        if (queuedTypeNames.add(erasure) && classModel != null) {
+            pending.add(classModel);
+        }
+    }
+
+    private static String erasure(String typeName) {
+        int typeArgumentsStart = typeName.indexOf('<');
+        String erasure = typeArgumentsStart != -1 ? typeName.substring(0, typeArgumentsStart) : typeName;
+
+        // nested types are named with '$' in the qualified names and with '.' in the setter types
+        return erasure.replace('$', '.');
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if (!(obj instanceof BuilderModel)) {
+            return false;
+        }
+
+        BuilderModel other = (BuilderModel) obj;
+
+        return classes.equals(other.classes) && referencedTypeNames.equals(other.referencedTypeNames);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * classes.hashCode() + referencedTypeNames.hashCode();
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static String[][] copy(String[][] array) {
+        String[][] copy = new String[array.length][];
+
+        for (int i = 0; i < array.length; i++) {
+            copy[i] = array[i] != null ? array[i].clone() : null;
+        }
+
+        return copy;
+    }
+
+    /**
+     * Builder base class of a type.
+     */
+    public static final class ClassModel {
+        private final String typeName;
+        private final String qualifiedName;
+        private final String[] typeParamNames;
+        private final String[][] typeParamBounds;
+        private final List<SetterModel> setters;
+
+        /**
+         * @param typeName name of the type as used in the generated source, with type arguments
+         * @param qualifiedName fully qualified name of the type
+         * @param typeParamNames names of type parameters
+         * @param typeParamBounds resolved bounds of type parameters, null for bounds that could not be resolved
+         * @param setters setters to generate, in order
+         */
+        public ClassModel(String typeName, String qualifiedName, String[] typeParamNames,
+            String[][] typeParamBounds, List<SetterModel> setters) {
+            this.typeName = typeName;
+            this.qualifiedName = qualifiedName;
+            this.typeParamNames = typeParamNames.clone();
+            this.typeParamBounds = copy(typeParamBounds);
+            this.setters = Collections.unmodifiableList(new ArrayList<SetterModel>(setters));
+        }
+
+        public String getTypeName() {
+            return typeName;
+        }
+
+        public String getQualifiedName() {
+            return qualifiedName;
+        }
+
+        public String[] getTypeParamNames() {
+            return typeParamNames.clone();
+        }
+
+        public String[][] getTypeParamBounds() {
+            return copy(typeParamBounds);
+        }
+
+        public List<SetterModel> getSetters() {
+            return setters;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+
+            if (!(obj instanceof ClassModel)) {
+                return false;
+            }
+
+            ClassModel other = (ClassModel) obj;
+
+            return typeName.equals(other.typeName) && qualifiedName.equals(other.qualifiedName)
+                && Arrays.equals(typeParamNames, other.typeParamNames)
+                && Arrays.deepEquals(typeParamBounds, other.typeParamBounds) && setters.equals(other.setters);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * qualifiedName.hashCode() + typeName.hashCode()) + setters.hashCode();
+        }
+    }
+
+    /**
+     * Methods generated for a single setter: the setter itself, for a collection an adder of its elements and
+     * builders of the field value or of the collection elements if their types have builder base classes.
+     */
+    public static final class SetterModel {
+        private final String fieldName;
+        private final String declaringTypeName;
+        private final String fieldType;
+        private final String[] exceptionTypes;
+        private final String[] fieldTypeArguments;
+        private final String elementName;
+        private final String elementType;
+        private final String concreteCollectionType;
+        private final String[] elementTypeArguments;
+
+        /**
+         * @param fieldName name of the field set
+         * @param declaringTypeName fully qualified name of the type declaring the setter
+         * @param fieldType type of the setter parameter
+         * @param exceptionTypes types of exceptions thrown by the setter
+         * @param fieldTypeArguments type arguments of the field type if a field builder is generated, otherwise null
+         * @param elementName name of a collection element, null if the field is not a collection
+         * @param elementType type of collection elements, null if the field is not a collection
+         * @param concreteCollectionType type of the collection created by the element adder, null if the field is
+         *  not a collection
+         * @param elementTypeArguments type arguments of the element type if an element builder is generated,
+         *  otherwise null
+         */
+        public SetterModel(String fieldName, String declaringTypeName, String fieldType, String[] exceptionTypes,
+            String[] fieldTypeArguments, String elementName, String elementType, String concreteCollectionType,
+            String[] elementTypeArguments) {
+            this.fieldName = fieldName;
+            this.declaringTypeName = declaringTypeName;
+            this.fieldType = fieldType;
+            this.exceptionTypes = exceptionTypes.clone();
+            this.fieldTypeArguments = fieldTypeArguments != null ? fieldTypeArguments.clone() : null;
+            this.elementName = elementName;
+            this.elementType = elementType;
+            this.concreteCollectionType = concreteCollectionType;
+            this.elementTypeArguments = elementTypeArguments != null ? elementTypeArguments.clone() : null;
+        }
+
+        public String getFieldName() {
+            return fieldName;
+        }
+
+        public String getDeclaringTypeName() {
+            return declaringTypeName;
+        }
+
+        public String getFieldType() {
+            return fieldType;
+        }
+
+        public String[] getExceptionTypes() {
+            return exceptionTypes.clone();
+        }
+
+        public boolean hasFieldBuilder() {
+            return fieldTypeArguments != null;
+        }
+
+        public String[] getFieldTypeArguments() {
+            return fieldTypeArguments != null ? fieldTypeArguments.clone() : null;
+        }
+
+        public boolean isCollection() {
+            return elementType != null;
+        }
+
+        public String getElementName() {
+            return elementName;
+        }
+
+        public String getElementType() {
+            return elementType;
+        }
+
+        public String getConcreteCollectionType() {
+            return concreteCollectionType;
+        }
+
+        public boolean hasElementBuilder() {
+            return elementTypeArguments != null;
+        }
+
+        public String[] getElementTypeArguments() {
+            return elementTypeArguments != null ? elementTypeArguments.clone() : null;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+
+            if (!(obj instanceof SetterModel)) {
+                return false;
+            }
+
+            SetterModel other = (SetterModel) obj;
+
+            return fieldName.equals(other.fieldName) && declaringTypeName.equals(other.declaringTypeName)
+                && fieldType.equals(other.fieldType)
+                && Arrays.equals(exceptionTypes, other.exceptionTypes)
+                && Arrays.equals(fieldTypeArguments, other.fieldTypeArguments)
+                && equal(elementName, other.elementName) && equal(elementType, other.elementType)
+                && equal(concreteCollectionType, other.concreteCollectionType)
+                && Arrays.equals(elementTypeArguments, other.elementTypeArguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * fieldName.hashCode() + fieldType.hashCode();
+        }
+    }
+}
@@ -0,0 +1,404 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+
+package com.sabre.buildergenerator.sourcegenerator;
+
+import com.sabre.buildergenerator.sourcegenerator.BuilderModel.ClassModel;
+import com.sabre.buildergenerator.sourcegenerator.BuilderModel.SetterModel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+
+import java.nio.ByteBuffer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+
+/**
+ * Compact binary form of a {@link BuilderModel}, e.g. to keep models across sessions. Numbers are unsigned varints,
+ * 7 bits per byte with the high bit set on all but the last byte, and all strings of the classes are stored once in
+ * a table and referred to by index.
+ * <p>
+ * Layout: magic, version, the fingerprint of the inputs the model was generated from (length and bytes), the
+ * referenced type names, the string table, then the classes. Strings are stored as byte length and UTF-8 bytes.
+ * Bounds of type parameters refer to the table by index + 1, 0 stands for a bound that is null.
+ * The header, i.e. the fingerprint and the referenced type names, may be read without reading the classes, see
+ * {@link #readHeader(ByteBuffer)}, so a stale model is recognized cheaply. The format does not depend on the buffer
+ * position, so it may be read from a memory mapped buffer.
+ */
+public final class BuilderModelFormat {
+    /** version of the format, models written by another version are not read */
+    public static final int VERSION = 3;
+
+    private static final int MAGIC = 0x46424D44;
+    private static final String CHARSET = "UTF-8";
+    private static final int COLLECTION = 1;
+    private static final int FIELD_BUILDER = 2;
+    private static final int ELEMENT_BUILDER = 4;
+
+    private BuilderModelFormat() {
+    }
+
+    /**
+     * @param out stream to write the model to, left open
+     * @param model
+     * @param fingerprint fingerprint of the inputs the model was generated from
+     * @throws IOException
+     */
+    public static void write(OutputStream out, BuilderModel model, byte[] fingerprint) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+
+        for (ClassModel classModel : model.getClasses()) {
+            indexStrings(strings, classModel);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        bytes.write(MAGIC >>> 24);
+        bytes.write(MAGIC >>> 16);
+        bytes.write(MAGIC >>> 8);
+        bytes.write(MAGIC);
+        writeVarint(bytes, VERSION);
+        writeVarint(bytes, fingerprint.length);
+        bytes.write(fingerprint);
+        writeVarint(bytes, model.getReferencedTypeNames().size());
+
+        for (String typeName : model.getReferencedTypeNames()) {
+            writeString(bytes, typeName);
+        }
+
+        writeVarint(bytes, strings.size());
+
+        for (String string : strings.keySet()) {
+            writeString(bytes, string);
+        }
+
+        writeVarint(bytes, model.getClasses().size());
+
+        for (ClassModel classModel : model.getClasses()) {
+            writeClass(bytes, strings, classModel);
+        }
+
+        bytes.writeTo(out);
+    }
+
+    /**
+     * Reads the fingerprint and the referenced type names only. The position of the buffer is not changed.
+     *
+     * @param buffer buffer holding a model, from its position on
+     * @return header of the model
+     * @throws IOException if the buffer does not hold a model of this format version
+     */
+    public static Header readHeader(ByteBuffer buffer) throws IOException {
+        ByteBuffer in = buffer.duplicate();
+
+        try {
+            return readHeaderFrom(in);
+        } catch (RuntimeException e) {
+            throw corrupt(e);
+        }
+    }
+
+    /**
+     * @param buffer buffer holding a model, from its position on; its position is moved to the end of the model
+     * @return the model
+     * @throws IOException if the buffer does not hold a model of this format version
+     */
+    public static BuilderModel read(ByteBuffer buffer) throws IOException {
+        try {
+            Header header = readHeaderFrom(buffer);
+            String[] strings = new String[readVarint(buffer)];
+
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = readString(buffer);
+            }
+
+            List<ClassModel> classes = new ArrayList<ClassModel>();
+
+            for (int classCount = readVarint(buffer); classCount > 0; classCount--) {
+                classes.add(readClass(buffer, strings));
+            }
+
+            return new BuilderModel(classes, header.getReferencedTypeNames());
+        } catch (RuntimeException e) {
+            throw corrupt(e);
+        }
+    }
+
+    private static Header readHeaderFrom(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC || readVarint(buffer) != VERSION) {
+            throw new IOException("not a builder model or unsupported version");
+        }
+
+        byte[] fingerprint = new byte[readVarint(buffer)];
+
+        buffer.get(fingerprint);
+
+        Set<String> referencedTypeNames = new TreeSet<String>();
+
+        for (int count = readVarint(buffer); count > 0; count--) {
+            referencedTypeNames.add(readString(buffer));
+        }
+
+        return new Header(fingerprint, referencedTypeNames);
+    }
+
+    private static IOException corrupt(RuntimeException e) {
+        IOException ioException = new IOException("corrupt builder model");
+
+        ioException.initCause(e);
+
+        return ioException;
+    }
+
+    private static void writeClass(ByteArrayOutputStream out, Map<String, Integer> strings, ClassModel classModel) {
+        String[] typeParamNames = classModel.getTypeParamNames();
+        String[][] typeParamBounds = classModel.getTypeParamBounds();
+
+        writeVarint(out, strings.get(classModel.getTypeName()));
+        writeVarint(out, strings.get(classModel.getQualifiedName()));
+        writeStrings(out, strings, typeParamNames);
+
+        for (String[] bounds : typeParamBounds) {
+            // 0 for a bound that could not be resolved
+            if (bounds == null) {
+                writeVarint(out, 0);
+            } else {
+                writeVarint(out, bounds.length + 1);
+
+                for (String bound : bounds) {
+                    writeVarint(out, bound != null ? strings.get(bound) + 1 : 0);
+                }
+            }
+        }
+
+        writeVarint(out, classModel.getSetters().size());
+
+        for (SetterModel setter : classModel.getSetters()) {
+            int flags = (setter.isCollection() ? COLLECTION : 0) | (setter.hasFieldBuilder() ? FIELD_BUILDER : 0)
+                | (setter.hasElementBuilder() ? ELEMENT_BUILDER : 0);
+
+            writeVarint(out, flags);
+            writeVarint(out, strings.get(setter.getFieldName()));
+            writeVarint(out, strings.get(setter.getDeclaringTypeName()));
+            writeVarint(out, strings.get(setter.getFieldType()));
+            writeStrings(out, strings, setter.getExceptionTypes());
+
+            if (setter.hasFieldBuilder()) {
+                writeStrings(out, strings, setter.getFieldTypeArguments());
+            }
+
+            if (setter.isCollection()) {
+                writeVarint(out, strings.get(setter.getElementName()));
+                writeVarint(out, strings.get(setter.getElementType()));
+                writeVarint(out, strings.get(setter.getConcreteCollectionType()));
+            }
+
+            if (setter.hasElementBuilder()) {
+                writeStrings(out, strings, setter.getElementTypeArguments());
+            }
+        }
+    }
+
+    private static ClassModel readClass(ByteBuffer buffer, String[] strings) {
+        String typeName = strings[readVarint(buffer)];
+        String qualifiedName = strings[readVarint(buffer)];
+        String[] typeParamNames = readStrings(buffer, strings);
+        String[][] typeParamBounds = new String[typeParamNames.length][];
+
+        for (int i = 0; i < typeParamBounds.length; i++) {
+            int boundCount = readVarint(buffer);
+
+            if (boundCount > 0) {
+                typeParamBounds[i] = new String[boundCount - 1];
+
+                for (int j = 0; j < typeParamBounds[i].length; j++) {
+                    int index = readVarint(buffer);
+
+                    typeParamBounds[i][j] = index > 0 ? strings[index - 1] : null;
+                }
+            }
+        }
+
+        List<SetterModel> setters = new ArrayList<SetterModel>();
+
+        for (int setterCount = readVarint(buffer); setterCount > 0; setterCount--) {
+            int flags = readVarint(buffer);
+            String fieldName = strings[readVarint(buffer)];
+            String declaringTypeName = strings[readVarint(buffer)];
+            String fieldType = strings[readVarint(buffer)];
+            String[] exceptionTypes = readStrings(buffer, strings);
+            String[] fieldTypeArguments = (flags & FIELD_BUILDER) != 0 ? readStrings(buffer, strings) : null;
+            String elementName = null;
+            String elementType = null;
+            String concreteCollectionType = null;
+
+            if ((flags & COLLECTION) != 0) {
+                elementName = strings[readVarint(buffer)];
+                elementType = strings[readVarint(buffer)];
+                concreteCollectionType = strings[readVarint(buffer)];
+            }
+
+            String[] elementTypeArguments = (flags & ELEMENT_BUILDER) != 0 ? readStrings(buffer, strings) : null;
+
+            setters.add(new SetterModel(fieldName, declaringTypeName, fieldType, exceptionTypes, fieldTypeArguments,
+                    elementName, elementType, concreteCollectionType, elementTypeArguments));
+        }
+
+        return new ClassModel(typeName, qualifiedName, typeParamNames, typeParamBounds, setters);
+    }
+
+    private static void writeStrings(ByteArrayOutputStream out, Map<String, Integer> strings, String[] values) {
+        writeVarint(out, values.length);
+
+        for (String value : values) {
+            writeVarint(out, strings.get(value));
+        }
+    }
+
+    private static String[] readStrings(ByteBuffer buffer, String[] strings) {
+        String[] values = new String[readVarint(buffer)];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = strings[readVarint(buffer)];
+        }
+
+        return values;
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(CHARSET);
+
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[readVarint(buffer)];
+
+        buffer.get(bytes);
+
+        try {
+            return new String(bytes, CHARSET);
+        } catch (UnsupportedEncodingException e) {
+            // every java platform supports UTF-8
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        out.write(value);
+    }
+
+    private static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+
+            value |= (b & 0x7F) << shift;
+
+            if (b >= 0) {
+                return value;
+            }
+        }
+
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    private static void indexStrings(Map<String, Integer> strings, ClassModel classModel) {
+        index(strings, classModel.getTypeName());
+        index(strings, classModel.getQualifiedName());
+        index(strings, classModel.getTypeParamNames());
+
+        for (String[] bounds : classModel.getTypeParamBounds()) {
+            if (bounds != null) {
+                for (String bound : bounds) {
+                    if (bound != null) {
+                        index(strings, bound);
+                    }
+                }
+            }
+        }
+
+        for (SetterModel setter : classModel.getSetters()) {
+            index(strings, setter.getFieldName());
+            index(strings, setter.getDeclaringTypeName());
+            index(strings, setter.getFieldType());
+            index(strings, setter.getExceptionTypes());
+
+            if (setter.hasFieldBuilder()) {
+                index(strings, setter.getFieldTypeArguments());
+            }
+
+            if (setter.isCollection()) {
+                index(strings, setter.getElementName());
+                index(strings, setter.getElementType());
+                index(strings, setter.getConcreteCollectionType());
+            }
+
+            if (setter.hasElementBuilder()) {
+                index(strings, setter.getElementTypeArguments());
+            }
+        }
+    }
+
+    private static void index(Map<String, Integer> strings, String[] values) {
+        for (String value : values) {
+            index(strings, value);
+        }
+    }
+
+    private static void index(Map<String, Integer> strings, String string) {
+        if (!strings.containsKey(string)) {
+            strings.put(string, strings.size());
+        }
+    }
+
+    /**
+     * Fingerprint and referenced type names of a stored model.
+     */
+    public static final class Header {
+        private final byte[] fingerprint;
+        private final Set<String> referencedTypeNames;
+
+        Header(byte[] fingerprint, Collection<String> referencedTypeNames) {
+            this.fingerprint = fingerprint;
+            this.referencedTypeNames = Collections.unmodifiableSet(new TreeSet<String>(referencedTypeNames));
+        }
+
+        public byte[] getFingerprint() {
+            return fingerprint.clone();
+        }
+
+        /**
+         * @return fully qualified names of the types the model was generated from
+         */
+        public Set<String> getReferencedTypeNames() {
+            return referencedTypeNames;
+        }
+    }
+}
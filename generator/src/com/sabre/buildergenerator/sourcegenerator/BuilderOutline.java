@@ -0,0 +1,48 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+package com.sabre.buildergenerator.sourcegenerator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Imports and builder base classes of an existing builder source, the frame changed classes are generated into by
+ * {@link BuilderGenerator#generateChangedClasses}.
+ */
+public final class BuilderOutline {
+    private final List<String> imports;
+    private final Set<String> classNames;
+
+    /**
+     * @param imports fully qualified names of the single type imports of the builder source
+     * @param classNames names of the builder base classes in the builder source, top level and nested
+     */
+    public BuilderOutline(Collection<String> imports, Collection<String> classNames) {
+        this.imports = new ArrayList<String>(imports);
+        this.classNames = new HashSet<String>(classNames);
+    }
+
+    public List<String> getImports() {
+        return imports;
+    }
+
+    /**
+     * @param typeName fully qualified type name
+     * @return true if the builder source has a builder base class for the type
+     */
+    public boolean hasClassFor(String typeName) {
+        return classNames.contains(BuilderSourceGenerator.getBuilderBaseClassName(typeName));
+    }
+}
@@ -0,0 +1,290 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+
+package com.sabre.buildergenerator.sourcegenerator;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.sabre.buildergenerator.sourcegenerator.BuilderModel.ClassModel;
+import com.sabre.buildergenerator.sourcegenerator.java.Clazz;
+import com.sabre.buildergenerator.sourcegenerator.java.FormattingProfile;
+import com.sabre.buildergenerator.sourcegenerator.java.IndentWriter;
+import com.sabre.buildergenerator.sourcegenerator.java.JavaSourceEmitter;
+import com.sabre.buildergenerator.sourcegenerator.java.PrintingJavaSourceEmitter;
+
+
+/**
+ * Renders the source of a builder from successive models of it, e.g. for a preview updated while the setters are
+ * selected. Only the builder base classes whose model changed since the previous rendering are emitted again,
+ * together with the top level class enclosing them. The other classes are reused as long as the imports of the
+ * builder resolve the types they refer to as before, so the source is always the same as generated by
+ * {@link BuilderGenerator#generateSource(BuilderModel, String, String, String, String, String)}.
+ * <p>
+ * The classes a builder base class registers for import are recorded when it is emitted, so the imports of the
+ * whole builder are resolved again without emitting the reused classes. A changed package, builder name, prefix or
+ * formatting profile changes every class, so all of them are emitted again.
+ */
+public class BuilderPreview<IType, ITypeParameter, IMethod, JavaModelException extends Exception> {
+    private final BuilderGenerator<IType, ITypeParameter, IMethod, JavaModelException> builderGenerator;
+    private List<Object> options;
+    private BuilderModel model;
+    private String source;
+    private Map<String, RenderedClass> renderedClasses = new HashMap<String, RenderedClass>();
+
+    /**
+     * @param builderGenerator generator emitting the classes, with the formatting profile of the preview
+     */
+    public BuilderPreview(BuilderGenerator<IType, ITypeParameter, IMethod, JavaModelException> builderGenerator) {
+        this.builderGenerator = builderGenerator;
+    }
+
+    /**
+     * @param model
+     * @param packageName
+     * @param builderName
+     * @param setterPrefix
+     * @param collectionSetterPrefix
+     * @param endPrefix
+     * @return the builder source
+     */
+    public String render(BuilderModel model, String packageName, String builderName, String setterPrefix,
+        String collectionSetterPrefix, String endPrefix) {
+        List<Object> renderOptions = Arrays.<Object>asList(packageName, builderName, setterPrefix,
+                collectionSetterPrefix, endPrefix, builderGenerator.getFormattingProfile());
+
+        if (!renderOptions.equals(options)) {
+            options = renderOptions;
+            renderedClasses.clear();
+        } else if (model.equals(this.model)) {
+            return source;
+        }
+
+        if (model.getClasses().size() == 1) {
+            // the top level class is not opened for nested classes
+            source = builderGenerator.generateSource(model, packageName, builderName, setterPrefix,
+                    collectionSetterPrefix, endPrefix);
+            renderedClasses.clear();
+        } else {
+            source = renderClasses(model, packageName, builderName, setterPrefix, collectionSetterPrefix, endPrefix);
+        }
+
+        this.model = model;
+
+        return source;
+    }
+
+    private String renderClasses(BuilderModel model, String packageName, String builderName, String setterPrefix,
+        String collectionSetterPrefix, String endPrefix) {
+        ClassModel rootClass = model.getRootClass();
+        List<ClassModel> nestedClasses = model.getClasses().subList(1, model.getClasses().size());
+        List<String> rootRegisteredClasses = new ArrayList<String>();
+        Map<String, List<String>> registeredClasses = new HashMap<String, List<String>>();
+
+        // classes registered by the changed classes, which are generated but not printed
+        BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelException> generator = builderGenerator
+            .createSourceGenerator(setterPrefix, collectionSetterPrefix, endPrefix);
+
+        generator.setRegisteredClasses(rootRegisteredClasses);
+        generateBuilderClass(generator, rootClass, packageName, builderName);
+        builderGenerator.emit(rootClass, true, generator);
+
+        for (ClassModel classModel : nestedClasses) {
+            RenderedClass renderedClass = renderedClasses.get(classModel.getQualifiedName());
+
+            if (renderedClass != null && renderedClass.getClassModel().equals(classModel)) {
+                registeredClasses.put(classModel.getQualifiedName(), renderedClass.getRegisteredClasses());
+            } else {
+                List<String> classRegisteredClasses = new ArrayList<String>();
+
+                generator.setRegisteredClasses(classRegisteredClasses);
+                builderGenerator.emit(classModel, false, generator);
+                registeredClasses.put(classModel.getQualifiedName(), classRegisteredClasses);
+            }
+        }
+
+        // imports of the whole builder
+        generator = builderGenerator.createSourceGenerator(setterPrefix, collectionSetterPrefix, endPrefix);
+        generator.registerClasses(rootRegisteredClasses, packageName);
+
+        for (ClassModel classModel : nestedClasses) {
+            generator.registerClasses(registeredClasses.get(classModel.getQualifiedName()), packageName);
+        }
+
+        Set<String> imports = new HashSet<String>(generator.getImports());
+        SegmentingEmitter emitter = new SegmentingEmitter(builderGenerator.getFormattingProfile());
+        List<ClassModel> emittedClasses = new ArrayList<ClassModel>();
+
+        generator.setEmitter(emitter);
+        generateBuilderClass(generator, rootClass, packageName, builderName);
+        builderGenerator.emit(rootClass, true, generator);
+
+        for (ClassModel classModel : nestedClasses) {
+            RenderedClass renderedClass = renderedClasses.get(classModel.getQualifiedName());
+
+            // at least one nested class, so that the top level class is printed without its closing brace
+            if (emittedClasses.isEmpty() || renderedClass == null || !renderedClass.isValid(classModel, imports)) {
+                builderGenerator.emit(classModel, false, generator);
+                emittedClasses.add(classModel);
+            }
+        }
+
+        generator.finish();
+
+        // the top level class, emitted classes, closing brace of the top level class
+        List<String> segments = emitter.getSegments();
+        Map<String, RenderedClass> classes = new HashMap<String, RenderedClass>();
+        StringBuilder buf = new StringBuilder(segments.get(0));
+        int segment = 1;
+
+        for (ClassModel classModel : nestedClasses) {
+            String typeName = classModel.getQualifiedName();
+            RenderedClass renderedClass;
+
+            if (segment <= emittedClasses.size() && emittedClasses.get(segment - 1) == classModel) {
+                renderedClass = new RenderedClass(classModel, registeredClasses.get(typeName), imports,
+                        segments.get(segment++));
+            } else {
+                renderedClass = renderedClasses.get(typeName);
+            }
+
+            buf.append(renderedClass.getSource());
+            classes.put(typeName, renderedClass);
+        }
+
+        buf.append(segments.get(segment));
+        renderedClasses = classes;
+
+        return buf.toString();
+    }
+
+    private void generateBuilderClass(
+        BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelException> generator, ClassModel rootClass,
+        String packageName, String builderName) {
+        generator.generateBuilderClass(rootClass.getQualifiedName(), packageName, builderName,
+            rootClass.getTypeParamNames(), rootClass.getTypeParamBounds());
+    }
+
+    /**
+     * Source of a builder base class and the imports it was printed with.
+     */
+    private static final class RenderedClass {
+        private final ClassModel classModel;
+        private final List<String> registeredClasses;
+        private final Set<String> importedClasses;
+        private final String source;
+
+        public RenderedClass(ClassModel classModel, List<String> registeredClasses, Set<String> imports,
+            String source) {
+            this.classModel = classModel;
+            this.registeredClasses = registeredClasses;
+            this.importedClasses = getImportedClasses(registeredClasses, imports);
+            this.source = source;
+        }
+
+        public ClassModel getClassModel() {
+            return classModel;
+        }
+
+        public List<String> getRegisteredClasses() {
+            return registeredClasses;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        /**
+         * A registered class is referred to by its simple name if it is imported and by its qualified name
+         * otherwise, unless it needs no import at all, so the source stays the same if the same classes are
+         * imported.
+         *
+         * @param classModel
+         * @param imports imports of the builder
+         * @return true if the source is the source of the class within a builder with the imports
+         */
+        public boolean isValid(ClassModel classModel, Set<String> imports) {
+            return this.classModel.equals(classModel)
+                && importedClasses.equals(getImportedClasses(registeredClasses, imports));
+        }
+
+        private static Set<String> getImportedClasses(Collection<String> registeredClasses, Set<String> imports) {
+            Set<String> importedClasses = new HashSet<String>();
+
+            for (String registeredClass : registeredClasses) {
+                if (imports.contains(registeredClass)) {
+                    importedClasses.add(registeredClass);
+                }
+            }
+
+            return importedClasses;
+        }
+    }
+
+    /**
+     * Prints the source and cuts it into the text before, of and after each nested class of the opened class.
+     */
+    private static class SegmentingEmitter implements JavaSourceEmitter {
+        private final StringWriter out = new StringWriter();
+        private final PrintingJavaSourceEmitter emitter;
+        private final List<String> segments = new ArrayList<String>();
+
+        public SegmentingEmitter(FormattingProfile profile) {
+            emitter = new PrintingJavaSourceEmitter(new IndentWriter(out, profile));
+        }
+
+        public List<String> getSegments() {
+            return segments;
+        }
+
+        public void startSource(List<String> commentLines, String packge, Collection<String> imports) {
+            emitter.startSource(commentLines, packge, imports);
+        }
+
+        public void emitClazz(Clazz clazz) {
+            emitter.emitClazz(clazz);
+        }
+
+        public void openClazz(Clazz clazz) {
+            emitter.openClazz(clazz);
+        }
+
+        public void emitInnerClazz(Clazz clazz) {
+            endSegment();
+            emitter.emitInnerClazz(clazz);
+        }
+
+        public void closeClazz() {
+            endSegment();
+            emitter.closeClazz();
+        }
+
+        public void endSource() {
+            emitter.endSource();
+            endSegment();
+        }
+
+        private void endSegment() {
+            StringBuffer buf = out.getBuffer();
+
+            segments.add(buf.toString());
+            buf.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.sabre.buildergenerator.sourcegenerator;
+
+import java.util.Set;
+
+public interface BuilderSourceConsumer<IType> {
+    void nextBuilder(IType type, String packageName, String builderName, String builderSource,
+        Set<String> referencedTypeNames) throws Exception;
+}
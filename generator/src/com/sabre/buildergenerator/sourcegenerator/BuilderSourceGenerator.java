@@ -11,30 +11,47 @@
 
 package com.sabre.buildergenerator.sourcegenerator;
 
-import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 import com.sabre.buildergenerator.javamodel.ITypeAccessor;
 import com.sabre.buildergenerator.javamodel.ITypeResolver;
+import com.sabre.buildergenerator.sourcegenerator.java.Clazz;
+import com.sabre.buildergenerator.sourcegenerator.java.FormattingProfile;
 import com.sabre.buildergenerator.sourcegenerator.java.Imports;
 import com.sabre.buildergenerator.sourcegenerator.java.IndentWriter;
 import com.sabre.buildergenerator.sourcegenerator.java.JavaSource;
 import com.sabre.buildergenerator.sourcegenerator.java.JavaSourceBuilder;
+import com.sabre.buildergenerator.sourcegenerator.java.JavaSourceEmitter;
 
 
 public class BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelException extends Exception> {
+    /** Text in the header comment of every generated builder source */
+    public static final String GENERATED_SOURCE_MARKER = "Source code generated by Fluent Builders Generator";
+
     private static final String BUILDER_TYPE_ARG_NAME = "GeneratorT";
     private static final String GETTER_PREFIX = "get";
     private static final String SETTER_PREFIX = "set";
     private static final String BUILDER_BASE_SUFFIX = "BuilderBase";
     private static final String FIELD_BUILDER_SUFFIX = "Builder";
     private static final String COLLECTION_ELEMENT_BUILDER_PREFIX = "Added";
+    private static final List<String> HEADER_LINES = Arrays.asList("// CHECKSTYLE:OFF", "/**",
+            " * " + GENERATED_SOURCE_MARKER, " * Do not modify this file",
+            " * See generator home page at: http://code.google.com/p/fluent-builders-generator-eclipse-plugin/",
+            " */", "");
 
     private String setterPrefix = "with";
     private String collectionElementSetterPrefix = "withAdded";
     private String endPrefix = "end";
+    private FormattingProfile formattingProfile = FormattingProfile.DEFAULT;
 
     private String buildClassName;
     private String buildClassType;
@@ -44,14 +61,22 @@ public class BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelExc
     private String innerBuildClassType;
     private String innerBuilderClassName;
 
-    private PrintWriter out;
+    private IndentWriter out;
 
-    private final Imports imports = new Imports();
+    private Imports imports = new Imports();
+    private final Set<String> existingImports = new HashSet<String>();
     private JavaSourceBuilder javaSourceBuilder;
     private JavaSourceBuilder.ClazzClazzBuilder topClassBuilder;
     private JavaSourceBuilder.ClazzClazzBuilder.InnerClassClazzBuilder innerClassBuilder;
     private JavaSourceBuilder.ClazzBuilderBase<?> innerClassBuilderBase;
 
+    private JavaSourceEmitter emitter;
+    private Clazz rootClazz;
+    private boolean rootClazzOpened;
+
+    private String classesPackage;
+    private final List<JavaSource> compilationUnits = new ArrayList<JavaSource>();
+
     private Set<String> nonTypeNames = null;
     private String builderPackage;
 
@@ -104,11 +129,105 @@ public class BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelExc
         setterPrefix = aSetterPrefix;
     }
 
-    public void setOut(PrintWriter printWriter) {
-        out = printWriter;
+    /**
+     * @param formattingProfile layout of the generated statements, the writer has to be created with the same
+     *  profile
+     */
+    public void setFormattingProfile(FormattingProfile formattingProfile) {
+        this.formattingProfile = formattingProfile;
+    }
+
+    public void setOut(IndentWriter indentWriter) {
+        out = indentWriter;
+    }
+
+    /**
+     * Makes the generator pass each class to the emitter as soon as it is complete and forget it, instead of
+     * printing the whole source in {@link #finish()}. The imports are emitted before the first class, so all of
+     * them have to be added up front, see {@link #addImports(Collection)}.
+     *
+     * @param emitter
+     */
+    public void setEmitter(JavaSourceEmitter emitter) {
+        this.emitter = emitter;
+    }
+
+    /**
+     * Makes the generator put each builder base class into a compilation unit of its own, a public top level class
+     * of the package, instead of nesting them in the top level builder base class. Each unit has its own imports.
+     * The units are printed by {@link #finishCompilationUnits()}. Not supported together with an emitter.
+     *
+     * @param classesPackage package of the builder base classes, may be the package of the builder
+     */
+    public void setClassesPackage(String classesPackage) {
+        this.classesPackage = classesPackage;
+    }
+
+    /**
+     * @return fully qualified names of the classes imported so far
+     */
+    public Set<String> getImports() {
+        return imports.getImports();
+    }
+
+    /**
+     * Makes the generated classes use the imports of the source they are going to be spliced into.
+     *
+     * @param existingImports fully qualified class names
+     */
+    public void addImports(Collection<String> existingImports) {
+        for (String existingImport : existingImports) {
+            imports.addImport(existingImport);
+            this.existingImports.add(existingImport);
+        }
+    }
+
+    /**
+     * Makes the generator append the classes it registers for import from now on to the list, so that the imports
+     * of a builder can be resolved again without generating the classes, see
+     * {@link #registerClasses(Collection, String)}.
+     *
+     * @param registeredClasses fully qualified class names in registration order, null to stop appending
+     */
+    public void setRegisteredClasses(List<String> registeredClasses) {
+        imports.setRegisteredClasses(registeredClasses);
+    }
+
+    /**
+     * Registers classes for import as if the classes of the builder that registered them were generated first, so
+     * that the classes generated afterwards resolve type names the same way as within the whole builder. Has to be
+     * called before the builder class is generated.
+     *
+     * @param registeredClasses fully qualified class names in registration order
+     * @param aPackageForBuilder
+     */
+    public void registerClasses(Collection<String> registeredClasses, String aPackageForBuilder) {
+        imports.registerClasses(registeredClasses, aPackageForBuilder);
+    }
+
+    /**
+     * @param typeName fully qualified name of a type
+     * @return name of the builder base class generated for the type
+     */
+    public static String getBuilderBaseClassName(String typeName) {
+        int e = typeName.indexOf('<');
+        if (e == -1) {
+            e = typeName.length();
+        }
+        int b = Math.max(typeName.lastIndexOf('.', e), typeName.lastIndexOf('$', e)) + 1;
+
+        return typeName.substring(b, e) + BUILDER_BASE_SUFFIX;
     }
 
     public void generateBuilderClass(final IType owningType, String aBuildClassType, String aPackageForBuilder, String aBuilderClassName, String[] typeParamNames, String[][] typeParamBounds) {
+        generateBuilderClass(aBuildClassType, aPackageForBuilder, aBuilderClassName, typeParamNames,
+            resolveBounds(owningType, typeParamBounds));
+    }
+
+    /**
+     * @param typeParamBounds resolved type parameter bounds, null for a bound that could not be resolved
+     */
+    public void generateBuilderClass(String aBuildClassType, String aPackageForBuilder, String aBuilderClassName, String[] typeParamNames, String[][] typeParamBounds) {
         builderPackage = aPackageForBuilder;
 
         buildClassName = getClassName(aBuildClassType);
@@ -122,16 +241,7 @@ public class BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelExc
             typeParams[i] = typeParamNames[i];
             if (bounds != null && bounds.length > 0) {
                 typeParams[i] += " extends ";
-                typeParams[i] += toString(" & ", bounds, new StringRetriever<String>() {
-                    public String toString(String bound) {
-                        try {
-                            bound = typeResolver.resolveType(owningType, bound);
-                            return imports.getUnqualified(bound, nonTypeNames, builderPackage);
-                        } catch(Exception e) {
-                            return "";
-                        }
-                    }
-                });
+                typeParams[i] += toString(" & ", bounds, new BoundRetriever());
             }
             i++;
         }
@@ -149,7 +259,11 @@ public class BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelExc
         }
 
         // base class type
-        String baseClass = buildClassName + BUILDER_BASE_SUFFIX + "<" + builderClassName + typeArgs;
+        String baseClassName = buildClassName + BUILDER_BASE_SUFFIX;
+        if (classesPackage != null) {
+            baseClassName = imports.getUnqualified(qualified(classesPackage, baseClassName), null, builderPackage);
+        }
+        String baseClass = baseClassName + "<" + builderClassName + typeArgs;
         for (String typeParamName : typeParamNames) {
             baseClass += ", " + typeParamName;
         }
@@ -176,48 +290,78 @@ public class BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelExc
             .endMethod();
         javaSourceBuilder = topClassBuilder.endClazz();
         innerClassBuilderBase = topClassBuilder;
+
+        if (emitter != null) {
+            JavaSource javaSource = javaSourceBuilder.build();
+
+            emitter.startSource(HEADER_LINES, javaSource.getPackge(), imports.getImports());
+            emitter.emitClazz(javaSource.getClazzes().remove(0));
+        }
     }
 
     // TODO: remove usage of IType
     public void generateBuilderBaseClass(String buildClassType, IType type, boolean isTopLevel) throws JavaModelException {
         ITypeParameter[] typeParameters = typeAccessor.getTypeParameters(type);
+        String[] typeParamNames = new String[typeParameters.length];
+        String[][] typeParamBounds = new String[typeParameters.length][];
+        int i = 0;
 
-        nonTypeNames = new HashSet<String>();
-        for(ITypeParameter typeParam : typeParameters) {
-            nonTypeNames.add(typeAccessor.getTypeParameterName(typeParam));
+        for (ITypeParameter typeParam : typeParameters) {
+            typeParamNames[i] = typeAccessor.getTypeParameterName(typeParam);
+            typeParamBounds[i] = typeAccessor.getTypeParameterBounds(typeParam);
+            i++;
         }
 
+        generateBuilderBaseClass(buildClassType, typeParamNames, resolveBounds(type, typeParamBounds), isTopLevel);
+    }
+
+    /**
+     * @param typeParamBounds resolved type parameter bounds, null for a bound that could not be resolved
+     */
+    public void generateBuilderBaseClass(String buildClassType, String[] typeParamNames, String[][] typeParamBounds, boolean isTopLevel) {
+        if (classesPackage != null) {
+            startCompilationUnit(classesPackage);
+        }
+        nonTypeNames = new HashSet<String>(Arrays.asList(typeParamNames));
+
         innerBuildClassName = getClassName(buildClassType);
         innerBuildClassType = imports.getUnqualified(buildClassType, nonTypeNames, builderPackage);
         innerBuilderClassName = innerBuildClassName + BUILDER_BASE_SUFFIX;
 
         // class definition, for example:
         // public static MyClassBuilderBase<GeneratorT extends MyClassBuilderBase, T1, T2>
-        if (isTopLevel) {
+        if (isTopLevel || classesPackage != null) {
             topClassBuilder = javaSourceBuilder.withClazz();
-            generateBuilderBaseClassBody(topClassBuilder, type, typeParameters);
+            if (classesPackage != null) {
+                // used by the builder or the other builder base classes from outside the unit
+                topClassBuilder.withModifiers(JavaSource.MODIFIER_PUBLIC);
+            }
+            generateBuilderBaseClassBody(topClassBuilder, typeParamNames, typeParamBounds);
             // end class
             javaSourceBuilder = topClassBuilder.endClazz();
             innerClassBuilderBase = topClassBuilder;
+            rootClazz = lastOf(javaSourceBuilder.build().getClazzes());
         } else {
+            if (emitter != null) {
+                // the previous class is complete
+                emitCompletedClazzes();
+            }
             innerClassBuilder = topClassBuilder.withInnerClass()
                 .withModifiers(JavaSource.MODIFIER_PUBLIC + JavaSource.MODIFIER_STATIC);
-            generateBuilderBaseClassBody(innerClassBuilder, type, typeParameters);
+            generateBuilderBaseClassBody(innerClassBuilder, typeParamNames, typeParamBounds);
             // end class
             topClassBuilder = innerClassBuilder.endInnerClass();
             innerClassBuilderBase = innerClassBuilder;
         }
     }
 
-    // TODO: remove usage of ITypeParameter
-    private void generateBuilderBaseClassBody(JavaSourceBuilder.ClazzBuilderBase<?> innerClassBuilderBase, final IType type, ITypeParameter[] typeParameters)
-            throws JavaModelException {
+    private void generateBuilderBaseClassBody(JavaSourceBuilder.ClazzBuilderBase<?> innerClassBuilderBase, String[] typeParamNames, String[][] typeParamBounds) {
         // type argument list
         String typeArgList = "";
-        if (typeParameters != null && typeParameters.length > 0) {
-            typeArgList += toString(", ", typeParameters, new StringRetriever<ITypeParameter>() {
-                public String toString(ITypeParameter typeParam) {
-                    return typeAccessor.getTypeParameterName(typeParam);
+        if (typeParamNames != null && typeParamNames.length > 0) {
+            typeArgList += toString(", ", typeParamNames, new StringRetriever<String>() {
+                public String toString(String typeParamName) {
+                    return typeParamName;
                 }
             });
         }
@@ -226,21 +370,12 @@ public class BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelExc
         String typeArg = BUILDER_TYPE_ARG_NAME + " extends " + innerBuilderClassName + "<" + BUILDER_TYPE_ARG_NAME
                 + (typeArgList.length() > 0 ? ", " + typeArgList : "") + ">";
         innerClassBuilderBase.withName(innerBuilderClassName).withTypeArg(typeArg);
-        for (ITypeParameter typeParam : typeParameters) {
-            String param = typeAccessor.getTypeParameterName(typeParam);
-            String[] bounds = typeAccessor.getTypeParameterBounds(typeParam);
+        for (int i = 0; i < typeParamNames.length; i++) {
+            String param = typeParamNames[i];
+            String[] bounds = typeParamBounds[i];
             if (bounds != null && bounds.length > 0) {
                 param += " extends ";
-                param += toString(" & ", bounds, new StringRetriever<String>() {
-                    public String toString(String bound) {
-                        try {
-                            bound = typeResolver.resolveType(type, bound);
-                            return imports.getUnqualified(bound, nonTypeNames, builderPackage);
-                        } catch(Exception e) {
-                            return "";
-                        }
-                    }
-                });
+                param += toString(" & ", bounds, new BoundRetriever());
             }
             innerClassBuilderBase.withTypeArg(param);
         }
@@ -270,6 +405,38 @@ public class BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelExc
         String toString(T obj);
     }
 
+    private class BoundRetriever implements StringRetriever<String> {
+        public String toString(String bound) {
+            if (bound == null) {
+                return "";
+            }
+            try {
+                return imports.getUnqualified(bound, nonTypeNames, builderPackage);
+            } catch(Exception e) {
+                return "";
+            }
+        }
+    }
+
+    private String[][] resolveBounds(IType type, String[][] typeParamBounds) {
+        String[][] resolvedBounds = new String[typeParamBounds.length][];
+
+        for (int i = 0; i < typeParamBounds.length; i++) {
+            if (typeParamBounds[i] != null) {
+                resolvedBounds[i] = new String[typeParamBounds[i].length];
+                for (int j = 0; j < typeParamBounds[i].length; j++) {
+                    try {
+                        resolvedBounds[i][j] = typeResolver.resolveType(type, typeParamBounds[i][j]);
+                    } catch(Exception e) {
+                        resolvedBounds[i][j] = null;
+                    }
+                }
+            }
+        }
+
+        return resolvedBounds;
+    }
+
     public <T> String toString(String separator, T[] elements, StringRetriever<T> r) {
         StringBuilder b = new StringBuilder();
         boolean isFirst = true;
@@ -374,7 +541,7 @@ public class BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelExc
                 .withInstruction().withStatement("    instance.%s(new %s<%s>());").withParam(setterName(collectionFieldName)).withParam(collectionContainerType).withParam(elementType).endInstruction()
                 .withInstruction().withStatement("}").endInstruction()
                 .withInstruction().endInstruction()
-                .withInstruction().withStatement("((%s<%s>)instance.%s()).add(aValue);").withParam(collectionContainerType).withParam(elementType).withParam(getterName(collectionFieldName)).endInstruction()
+                .withInstruction().withStatement("((%s<%s>)" + (formattingProfile.isSpaceAfterCast() ? " " : "") + "instance.%s()).add(aValue);").withParam(collectionContainerType).withParam(elementType).withParam(getterName(collectionFieldName)).endInstruction()
                 .withInstruction().endInstruction()
                 .withReturnValue().withStatement(castBuilderType ? "(%s) this" : "this").withParam(builderType).endReturnValue()
             .endMethod();
@@ -395,18 +562,131 @@ public class BuilderSourceGenerator<IType, ITypeParameter, IMethod, JavaModelExc
     }
 
     public void finish() {
-        IndentWriter w = new IndentWriter();
-        w.out = out;
+        if (emitter != null) {
+            if (rootClazzOpened) {
+                emitCompletedClazzes();
+                emitter.closeClazz();
+            } else {
+                emitter.emitClazz(rootClazz);
+            }
+            javaSourceBuilder.build().getClazzes().remove(rootClazz);
+            emitter.endSource();
+            return;
+        }
         JavaSource javaSource = javaSourceBuilder.build();
         javaSource.addImports(imports);
-        w.out.println("// CHECKSTYLE:OFF");
-        w.out.println("/**");
-        w.out.println(" * Source code generated by Fluent Builders Generator");
-        w.out.println(" * Do not modify this file");
-        w.out.println(" * See generator home page at: http://code.google.com/p/fluent-builders-generator-eclipse-plugin/");
-        w.out.println(" */");
-        w.out.println();
-        javaSource.print(w);
+        for (String line : HEADER_LINES) {
+            out.append(line).newLine();
+        }
+        javaSource.print(out);
+    }
+
+    /**
+     * Ends generation of a builder split into compilation units, see {@link #setClassesPackage(String)}.
+     *
+     * @return sources of the builder and of its builder base classes by fully qualified class name, the builder
+     *  first
+     */
+    public Map<String, String> finishCompilationUnits() {
+        completeCompilationUnit();
+        Map<String, String> sources = new LinkedHashMap<String, String>();
+        for (JavaSource javaSource : compilationUnits) {
+            IndentWriter w = new IndentWriter(null, formattingProfile);
+            for (String line : HEADER_LINES) {
+                w.append(line).newLine();
+            }
+            javaSource.print(w);
+            sources.put(qualified(javaSource.getPackge(), javaSource.getClazzes().get(0).getName()), w.toString());
+        }
+        compilationUnits.clear();
+        return sources;
+    }
+
+    private void startCompilationUnit(String packageName) {
+        completeCompilationUnit();
+        imports = new Imports();
+        javaSourceBuilder = JavaSourceBuilder.javaSource();
+        builderPackage = packageName;
+        if (packageName.length() > 0) {
+            javaSourceBuilder.withPackge(packageName);
+        }
+    }
+
+    private void completeCompilationUnit() {
+        JavaSource javaSource = javaSourceBuilder.build();
+        if (javaSource.getClazzes().isEmpty()) {
+            // no builder class generated before the first builder base class
+            return;
+        }
+        javaSource.addImports(imports);
+        compilationUnits.add(javaSource);
+    }
+
+    private static String qualified(String packageName, String className) {
+        return packageName != null && packageName.length() > 0 ? packageName + "." + className : className;
+    }
+
+    private void emitCompletedClazzes() {
+        List<Clazz> innerClasses = rootClazz.getInnerClasses();
+
+        if (!rootClazzOpened) {
+            // members of the top level class and its field builder classes
+            emitter.openClazz(rootClazz);
+            rootClazzOpened = true;
+        } else {
+            for (Clazz clazz : innerClasses) {
+                emitter.emitInnerClazz(clazz);
+            }
+        }
+        innerClasses.clear();
+    }
+
+    private static <T> T lastOf(List<T> list) {
+        return list.get(list.size() - 1);
+    }
+
+    /**
+     * Ends generation of builder base classes to be spliced into an existing builder source instead of printing
+     * the whole source, see {@link #addImports(Collection)}.
+     *
+     * @param withRootClass include the top level builder base class
+     * @return the generated builder base classes
+     */
+    public PartialBuilderSource finishClasses(boolean withRootClass) {
+        JavaSource javaSource = javaSourceBuilder.build();
+        // the builder class is followed by the top level builder base class
+        Clazz rootClass = javaSource.getClazzes().get(1);
+        List<Clazz> fieldBuilderClasses = new ArrayList<Clazz>();
+        Map<String, String> classSources = new LinkedHashMap<String, String>();
+
+        for (Clazz clazz : rootClass.getInnerClasses()) {
+            if ((clazz.getModifiers() & JavaSource.MODIFIER_STATIC) != 0) {
+                classSources.put(clazz.getName(), print(clazz, 1));
+            } else {
+                fieldBuilderClasses.add(clazz);
+            }
+        }
+
+        String rootClassSource = null;
+
+        if (withRootClass) {
+            rootClass.setInnerClasses(fieldBuilderClasses);
+            rootClassSource = print(rootClass, 0);
+        }
+
+        SortedSet<String> newImports = new TreeSet<String>(imports.getImports());
+
+        newImports.removeAll(existingImports);
+
+        return new PartialBuilderSource(rootClass.getName(), rootClassSource, classSources, newImports);
+    }
+
+    private String print(Clazz clazz, int indentLevel) {
+        IndentWriter w = new IndentWriter();
+        w.setIndentLevel(indentLevel);
+        clazz.print(w);
+
+        return w.toString().substring(indentLevel * FormattingProfile.DEFAULT.getIndentSize());
     }
 
     private String[] getExceptionTypes(String[] exceptions) {
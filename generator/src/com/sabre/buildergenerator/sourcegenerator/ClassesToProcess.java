@@ -1,32 +1,50 @@
 package com.sabre.buildergenerator.sourcegenerator;
 
+import java.util.ArrayDeque;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.Queue;
 import java.util.Set;
 
+/**
+ * Work queue of types to generate builder base classes for.
+ * <p>
+ * Types are handed out breadth-first, in the order they were added, and each type only once. Together with
+ * setters being visited in model order this guarantees that identical input produces byte-identical builder
+ * source.
+ */
 public class ClassesToProcess {
     private final Set<String> typesAlradyGenerated = new HashSet<String>();
-    private final Set<String> typesToGenerate = new HashSet<String>();
+    private final Set<String> typesSeen = new HashSet<String>();
+    private final Queue<String> typesToGenerate = new ArrayDeque<String>();
 
-    public void addForProcessing(String typeSignature) {
-        if (!typesAlradyGenerated.contains(typeSignature)) {
+    /**
+     * @return true if the type was queued, false if it was queued or processed before
+     */
+    public boolean addForProcessing(String typeSignature) {
+        if (typesSeen.add(typeSignature)) {
             typesToGenerate.add(typeSignature);
+
+            return true;
         }
+
+        return false;
     }
 
     public void markAsAlreadyProcessed(String typeSignature) {
+        typesSeen.add(typeSignature);
         typesAlradyGenerated.add(typeSignature);
-        typesToGenerate.remove(typeSignature);
     }
 
     public String nextClassToProcess() {
-        String typeSignature = null;
-        Iterator<String> iterator = typesToGenerate.iterator();
-        if (iterator.hasNext()) {
-            typeSignature = iterator.next();
-            markAsAlreadyProcessed(typeSignature);
+        String typeSignature;
+
+        // skip types marked as processed after they were queued
+        while ((typeSignature = typesToGenerate.poll()) != null) {
+            if (typesAlradyGenerated.add(typeSignature)) {
+                return typeSignature;
+            }
         }
 
-        return typeSignature;
+        return null;
     }
 }
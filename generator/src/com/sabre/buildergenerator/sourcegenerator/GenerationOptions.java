@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+package com.sabre.buildergenerator.sourcegenerator;
+
+/**
+ * Options of generating builders for many types at once, see
+ * {@link BuilderGenerator#generateSources(java.util.Collection, MethodProvider, GenerationOptions, BuilderSourceConsumer)}.
+ */
+public final class GenerationOptions {
+    private static final String BUILDER_SUFFIX = "Builder";
+
+    private final String packageName;
+    private final String setterPrefix;
+    private final String collectionSetterPrefix;
+    private final String endPrefix;
+
+    /**
+     * @param packageName package of the builders, null to put each builder in the package of its type
+     * @param setterPrefix
+     * @param collectionSetterPrefix
+     * @param endPrefix
+     */
+    public GenerationOptions(String packageName, String setterPrefix, String collectionSetterPrefix,
+        String endPrefix) {
+        this.packageName = packageName;
+        this.setterPrefix = setterPrefix;
+        this.collectionSetterPrefix = collectionSetterPrefix;
+        this.endPrefix = endPrefix;
+    }
+
+    /**
+     * @param typeQualifiedName fully qualified name of the type
+     * @return package of the type's builder
+     */
+    public String getPackageName(String typeQualifiedName) {
+        if (packageName != null) {
+            return packageName;
+        }
+
+        int i = typeQualifiedName.lastIndexOf('.');
+
+        return i != -1 ? typeQualifiedName.substring(0, i) : "";
+    }
+
+    /**
+     * @param typeQualifiedName fully qualified name of the type, nested types separated with '$'
+     * @return simple name of the type's builder
+     */
+    public String getBuilderName(String typeQualifiedName) {
+        String typeName = typeQualifiedName.substring(typeQualifiedName.lastIndexOf('.') + 1);
+
+        return typeName.substring(typeName.lastIndexOf('$') + 1) + BUILDER_SUFFIX;
+    }
+
+    public String getSetterPrefix() {
+        return setterPrefix;
+    }
+
+    public String getCollectionSetterPrefix() {
+        return collectionSetterPrefix;
+    }
+
+    public String getEndPrefix() {
+        return endPrefix;
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+package com.sabre.buildergenerator.sourcegenerator;
+
+import com.sabre.buildergenerator.sourcegenerator.BuilderAnalyzer.TypeAnalysis;
+import com.sabre.buildergenerator.sourcegenerator.BuilderModel.ClassModel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+
+/**
+ * State of a single {@link BuilderGenerator} run: the queue of builder base classes still to generate, the selected
+ * setters and the classes of the {@link BuilderModel} built so far. A session is confined to the thread
+ * running the generation, only analyses of queued types may be computed by other threads.
+ */
+class GenerationSession<IType, ITypeParameter, IMethod, JavaModelException extends Exception> {
+    private final IType type;
+    private final ClassesToProcess classesToProcess = new ClassesToProcess();
+    private final MarkedFields<IType, ITypeParameter, IMethod, JavaModelException> typesAndFieldsToGenerate;
+    private final ConcurrentMap<String, TypeAnalysis> analyzedTypes;
+    private final List<ClassModel> classes = new ArrayList<ClassModel>();
+    private final Set<String> referencedTypeNames = new TreeSet<String>();
+    private final Map<String, Future<TypeAnalysis>> typeAnalyses = new HashMap<String, Future<TypeAnalysis>>();
+    private BuilderOutline outline;
+    private Set<String> changedTypeNames;
+
+    /**
+     * @param type type the builder is generated for
+     * @param typesAndFieldsToGenerate setters selected for generation
+     * @param analyzedTypes types analyzed during generation by fully qualified name, may be shared by sessions
+     *  with the same setters selected
+     */
+    public GenerationSession(IType type, MarkedFields<IType, ITypeParameter, IMethod, JavaModelException> typesAndFieldsToGenerate,
+        ConcurrentMap<String, TypeAnalysis> analyzedTypes) {
+        this.type = type;
+        this.typesAndFieldsToGenerate = typesAndFieldsToGenerate;
+        this.analyzedTypes = analyzedTypes;
+    }
+
+    public IType getType() {
+        return type;
+    }
+
+    public ClassesToProcess getClassesToProcess() {
+        return classesToProcess;
+    }
+
+    public MarkedFields<IType, ITypeParameter, IMethod, JavaModelException> getTypesAndFieldsToGenerate() {
+        return typesAndFieldsToGenerate;
+    }
+
+    /**
+     * @param classModel next builder base class of the builder
+     */
+    public void addClass(ClassModel classModel) {
+        classes.add(classModel);
+    }
+
+    public List<ClassModel> getClasses() {
+        return classes;
+    }
+
+    public ConcurrentMap<String, TypeAnalysis> getAnalyzedTypes() {
+        return analyzedTypes;
+    }
+
+    /**
+     * @param typeName fully qualified name of a type the builder is generated from
+     */
+    public void addReferencedTypeName(String typeName) {
+        referencedTypeNames.add(typeName);
+    }
+
+    public Set<String> getReferencedTypeNames() {
+        return referencedTypeNames;
+    }
+
+    /**
+     * Limits the generation to builder base classes of changed types and of types missing from the outline.
+     *
+     * @param outline existing builder source
+     * @param changedTypeNames fully qualified names of changed types
+     */
+    public void generateChangedClassesOnly(BuilderOutline outline, Set<String> changedTypeNames) {
+        this.outline = outline;
+        this.changedTypeNames = new HashSet<String>();
+
+        for (String changedTypeName : changedTypeNames) {
+            this.changedTypeNames.add(changedTypeName.replace('$', '.'));
+        }
+    }
+
+    /**
+     * @param typeName fully qualified type name
+     * @return true if the type changed, always true unless only changed classes are generated
+     */
+    public boolean isChanged(String typeName) {
+        return changedTypeNames == null || changedTypeNames.contains(typeName.replace('$', '.'));
+    }
+
+    /**
+     * @param typeName fully qualified type name
+     * @return true if the builder base class of the type is to be generated
+     */
+    public boolean isGenerated(String typeName) {
+        return outline == null || isChanged(typeName) || !outline.hasClassFor(typeName);
+    }
+
+    /**
+     * @param typeSignature queued type
+     * @param typeAnalysis analysis of the type being computed in the background
+     */
+    public void addTypeAnalysis(String typeSignature, Future<TypeAnalysis> typeAnalysis) {
+        typeAnalyses.put(typeSignature, typeAnalysis);
+    }
+
+    /**
+     * @return background analysis of the type or null if there is none
+     */
+    public Future<TypeAnalysis> takeTypeAnalysis(String typeSignature) {
+        return typeAnalyses.remove(typeSignature);
+    }
+
+    /**
+     * Cancels background analyses not taken yet, e.g. after generation failed.
+     */
+    public void cancelTypeAnalyses() {
+        for (Future<TypeAnalysis> typeAnalysis : typeAnalyses.values()) {
+            typeAnalysis.cancel(false);
+        }
+
+        typeAnalyses.clear();
+    }
+}
@@ -22,6 +22,15 @@ public class MarkedFields<IType, ITypeParameter, IMethod, JavaModelException ext
         return typesAndFieldsToGenerate == null || typesAndFieldsToGenerate.get(elementTypeSignature) != null;
     }
 
+    /**
+     * @param typeName type name as used in the generated source
+     * @return the same as {@link #isBuilderRequestedForType(String)} for the signature of the type
+     */
+    public boolean isBuilderRequestedForTypeName(String typeName) {
+        return typesAndFieldsToGenerate == null
+            || isBuilderRequestedForType(signatureUtils.createTypeSignature(typeName, false));
+    }
+
     public boolean isSetterRequestedForField(String elementTypeSignature, String fieldName) {
         return typesAndFieldsToGenerate == null
             || typesAndFieldsToGenerate.get(elementTypeSignature) != null && typesAndFieldsToGenerate.get(
@@ -29,7 +38,10 @@ public class MarkedFields<IType, ITypeParameter, IMethod, JavaModelException ext
     }
 
     public boolean isSetterRequestedForField(IType enclosingType, String fieldName) {
-        String enclosingTypeFullyQualifiedName = typeAccessor.getFullyQualifiedName(enclosingType);
+        return isSetterRequestedForTypeName(typeAccessor.getFullyQualifiedName(enclosingType), fieldName);
+    }
+
+    public boolean isSetterRequestedForTypeName(String enclosingTypeFullyQualifiedName, String fieldName) {
         String enclosingTypeSignature = signatureUtils.createTypeSignature(enclosingTypeFullyQualifiedName, false);
 
         return isSetterRequestedForField(enclosingTypeSignature, fieldName);
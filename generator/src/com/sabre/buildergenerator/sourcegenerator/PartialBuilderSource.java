@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+package com.sabre.buildergenerator.sourcegenerator;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builder base classes regenerated for changed types by {@link BuilderGenerator#generateChangedClasses}, to be
+ * spliced into the existing builder source. Class sources start at the class declaration, the following lines are
+ * indented for the nesting level of the class and the source ends with a line separator.
+ */
+public final class PartialBuilderSource {
+    private final String rootClassName;
+    private final String rootClassSource;
+    private final Map<String, String> classSources;
+    private final Set<String> newImports;
+
+    /**
+     * @param rootClassName name of the top level builder base class
+     * @param rootClassSource source of the top level builder base class without the nested builder base classes,
+     *  null if it is not regenerated
+     * @param classSources sources of the nested builder base classes by class name, in generation order
+     * @param newImports imports the classes need in addition to the imports of the outline
+     */
+    public PartialBuilderSource(String rootClassName, String rootClassSource, Map<String, String> classSources,
+        Set<String> newImports) {
+        this.rootClassName = rootClassName;
+        this.rootClassSource = rootClassSource;
+        this.classSources = classSources;
+        this.newImports = newImports;
+    }
+
+    public String getRootClassName() {
+        return rootClassName;
+    }
+
+    public String getRootClassSource() {
+        return rootClassSource;
+    }
+
+    public Map<String, String> getClassSources() {
+        return classSources;
+    }
+
+    public Set<String> getNewImports() {
+        return newImports;
+    }
+}
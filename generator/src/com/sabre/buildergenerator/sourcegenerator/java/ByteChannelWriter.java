@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+
+package com.sabre.buildergenerator.sourcegenerator.java;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Writer encoding characters straight into a byte channel through a byte buffer, which may be reused by writers
+ * created one after another. Characters the charset cannot encode are replaced, like {@link String#getBytes}
+ * does.
+ * <p>
+ * Closing the writer writes the remaining bytes, but leaves the channel open.
+ */
+public class ByteChannelWriter extends Writer {
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder;
+    private final CharBuffer chars = CharBuffer.allocate(DEFAULT_BUFFER_SIZE);
+    private final ByteBuffer bytes;
+    private IOException error;
+    private boolean closed;
+
+    public ByteChannelWriter(WritableByteChannel channel, Charset charset) {
+        this(channel, charset, ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE));
+    }
+
+    /**
+     * @param channel
+     * @param charset
+     * @param bytes buffer to encode into, cleared before use
+     */
+    public ByteChannelWriter(WritableByteChannel channel, Charset charset, ByteBuffer bytes) {
+        this.channel = channel;
+        this.encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes = bytes;
+        bytes.clear();
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int n = Math.min(len, chars.remaining());
+            chars.put(cbuf, off, n);
+            off += n;
+            len -= n;
+            if (!chars.hasRemaining()) {
+                encode(false);
+            }
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int n = Math.min(len, chars.remaining());
+            chars.put(str, off, off + n);
+            off += n;
+            len -= n;
+            if (!chars.hasRemaining()) {
+                encode(false);
+            }
+        }
+    }
+
+    /**
+     * Writes the bytes of all characters written so far, except for the first half of a surrogate pair.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        encode(false);
+        drain();
+    }
+
+    /**
+     * @throws IOException also if writing failed before, e.g. while the writer was used by a
+     *  {@link java.io.PrintWriter}, which does not report errors
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        ensureOpen();
+        encode(true);
+        while (encoder.flush(bytes).isOverflow()) {
+            drain();
+        }
+        drain();
+        closed = true;
+    }
+
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+        CoderResult result;
+        while ((result = encoder.encode(chars, bytes, endOfInput)).isOverflow()) {
+            drain();
+        }
+        chars.compact();
+        if (result.isError()) {
+            result.throwException();
+        }
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException e) {
+            error = e;
+            throw e;
+        } finally {
+            bytes.clear();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (error != null) {
+            throw error;
+        }
+        if (closed) {
+            throw new IOException("Writer closed");
+        }
+    }
+}
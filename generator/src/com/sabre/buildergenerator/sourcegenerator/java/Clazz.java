@@ -15,6 +15,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class Clazz {
+    /** width of the opening brace ending a header */
+    static final int BRACE_WIDTH = 2;
+
     private List<String> annotations = new ArrayList<String>();
     private int modifiers;
     private String name;
@@ -98,74 +101,92 @@ public class Clazz {
     }
 
     public void print(IndentWriter w) {
+        printOpening(w);
+        printClosing(w);
+    }
+
+    /**
+     * Prints the class without its closing brace, so that more nested classes may be printed after its members.
+     *
+     * @return true if a method or a nested class was printed
+     */
+    boolean printOpening(IndentWriter w) {
         for (String annotation : annotations) {
-            w.out.print(w.indent);
-            w.out.println(annotation);
+            w.appendIndent();
+            w.append(annotation).newLine();
         }
-        w.out.print(w.indent);
+        w.appendIndent();
         if ((modifiers & JavaSource.MODIFIER_PUBLIC) != 0) {
-            w.out.print("public ");
+            w.append("public ");
         } else if ((modifiers & JavaSource.MODIFIER_PRIVATE) != 0) {
-            w.out.print("private ");
+            w.append("private ");
         } else if ((modifiers & JavaSource.MODIFIER_PROTECTED) != 0) {
-            w.out.print("protected ");
+            w.append("protected ");
         }
         if ((modifiers & JavaSource.MODIFIER_STATIC) != 0) {
-            w.out.print("static ");
+            w.append("static ");
         }
-        w.out.printf("class %s", name);
+        w.append("class ");
+        w.append(name);
         if (!typeArgs.isEmpty()) {
-            w.out.print("<");
+            w.append('<');
             boolean first = true;
             for (String arg : typeArgs) {
                 if (!first) {
-                    w.out.print(", ");
+                    w.append(", ");
                 }
                 first = false;
-                w.out.print(arg);
+                w.append(arg);
             }
-            w.out.print(">");
+            w.append('>');
         }
         if (baseClazz != null) {
-            w.out.printf(" extends %s", baseClazz);
+            w.appendSpaceOrWrap("extends ".length() + baseClazz.length() + BRACE_WIDTH);
+            w.append("extends ");
+            w.append(baseClazz);
         }
         if (!interfaces.isEmpty()) {
-            w.out.print(" implements");
             boolean first = true;
             for (String interf : interfaces) {
-                if (!first) {
-                    w.out.print(",");
-                    first = true;
+                if (first) {
+                    w.appendSpaceOrWrap("implements ".length() + interf.length() + BRACE_WIDTH);
+                    w.append("implements ");
+                } else {
+                    w.append(',');
+                    w.appendSpaceOrWrap(interf.length() + BRACE_WIDTH);
                 }
                 first = false;
-                w.out.print(" ");
-                w.out.print(interf);
+                w.append(interf);
             }
         }
-        w.out.println(" {");
+        w.appendOpeningBrace();
         w.increseIndent();
         if (!declarations.isEmpty()) {
             for (Statement decl : declarations) {
                 decl.print(w);
             }
-            w.out.println();
+            w.appendBlankLines();
         }
         boolean first = true;
         for (Method method : methods) {
             if (!first) {
-                w.out.println();
+                w.appendBlankLines();
             }
             first = false;
             method.print(w);
         }
         for (Clazz clazz : innerClasses) {
             if (!first) {
-                w.out.println();
+                w.appendBlankLines();
             }
             first = false;
             clazz.print(w);
         }
+        return !first;
+    }
+
+    void printClosing(IndentWriter w) {
         w.decreaseIndent();
-        w.out.println(w.indent + "}");
+        w.appendIndent().append('}').newLine();
     }
 }
@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+
+package com.sabre.buildergenerator.sourcegenerator.java;
+
+import java.util.Arrays;
+
+/**
+ * Layout of printed sources: indentation, line wrapping, brace style and blank lines. A source printed with a
+ * profile matching the settings of a code formatter does not need to be formatted again.
+ * <p>
+ * Long class and method headers are wrapped before {@code extends}, {@code implements}, {@code throws} and method
+ * parameters. Lines of method bodies are not wrapped, see {@link #fits(String)}.
+ */
+public final class FormattingProfile {
+    /** Layout of generated builders when they are not formatted */
+    public static final FormattingProfile DEFAULT = new FormattingProfile(false, 4, 0, 2, false, 1, false);
+
+    private static final int PRECOMPUTED_INDENTS = 16;
+
+    private final boolean useTabs;
+    private final int indentSize;
+    private final int lineLength;
+    private final int continuationIndent;
+    private final boolean bracesOnNextLine;
+    private final int blankLinesBeforeMember;
+    private final boolean spaceAfterCast;
+    private final char[][] indents = new char[PRECOMPUTED_INDENTS][];
+
+    /**
+     * @param useTabs indent with tabs instead of spaces
+     * @param indentSize spaces of an indentation level, also the width of a tab
+     * @param lineLength maximum length of a line, 0 for no line wrapping
+     * @param continuationIndent indentation levels of wrapped lines
+     * @param bracesOnNextLine put the opening braces of classes and methods on the next line
+     * @param blankLinesBeforeMember blank lines before methods and nested classes
+     * @param spaceAfterCast put a space after the parenthesis of every cast, some casts have it anyway
+     */
+    public FormattingProfile(boolean useTabs, int indentSize, int lineLength, int continuationIndent,
+        boolean bracesOnNextLine, int blankLinesBeforeMember, boolean spaceAfterCast) {
+        this.useTabs = useTabs;
+        this.indentSize = indentSize;
+        this.lineLength = lineLength;
+        this.continuationIndent = continuationIndent;
+        this.bracesOnNextLine = bracesOnNextLine;
+        this.blankLinesBeforeMember = blankLinesBeforeMember;
+        this.spaceAfterCast = spaceAfterCast;
+        for (int i = 0; i < PRECOMPUTED_INDENTS; i++) {
+            indents[i] = new char[useTabs ? i : i * indentSize];
+            Arrays.fill(indents[i], useTabs ? '\t' : ' ');
+        }
+    }
+
+    public boolean isUseTabs() {
+        return useTabs;
+    }
+
+    public int getIndentSize() {
+        return indentSize;
+    }
+
+    public int getLineLength() {
+        return lineLength;
+    }
+
+    public int getContinuationIndent() {
+        return continuationIndent;
+    }
+
+    public boolean isBracesOnNextLine() {
+        return bracesOnNextLine;
+    }
+
+    public int getBlankLinesBeforeMember() {
+        return blankLinesBeforeMember;
+    }
+
+    public boolean isSpaceAfterCast() {
+        return spaceAfterCast;
+    }
+
+    /**
+     * @param level
+     * @return indentation of the level, null if it is not precomputed
+     */
+    char[] getIndent(int level) {
+        return level < PRECOMPUTED_INDENTS ? indents[level] : null;
+    }
+
+    /**
+     * Tells if a source printed with the profile is laid out completely, i.e. if none of its statements is too
+     * long. Headers of classes, methods and blocks, i.e. lines ending with a brace, are laid out by the profile as
+     * far as they can be and comment lines are not laid out at all, so they are not checked.
+     *
+     * @param source
+     * @return true if no statement is longer than the line length
+     */
+    public boolean fits(String source) {
+        if (lineLength <= 0) {
+            return true;
+        }
+        int lineStart = 0;
+        while (lineStart < source.length()) {
+            int lineEnd = source.indexOf('\n', lineStart);
+            if (lineEnd == -1) {
+                lineEnd = source.length();
+            }
+            if (!fits(source, lineStart, lineEnd)) {
+                return false;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return true;
+    }
+
+    private boolean fits(String source, int lineStart, int lineEnd) {
+        int end = lineEnd;
+        while (end > lineStart && Character.isWhitespace(source.charAt(end - 1))) {
+            end--;
+        }
+        int width = 0;
+        int i = lineStart;
+        for (; i < end && (source.charAt(i) == ' ' || source.charAt(i) == '\t'); i++) {
+            width += source.charAt(i) == '\t' ? indentSize - width % indentSize : 1;
+        }
+        if (i == end || source.charAt(i) == '/' || source.charAt(i) == '*' || source.charAt(end - 1) == '{') {
+            return true;
+        }
+        return width + end - i <= lineLength;
+    }
+}
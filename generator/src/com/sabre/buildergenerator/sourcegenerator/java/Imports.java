@@ -11,7 +11,9 @@
 
 package com.sabre.buildergenerator.sourcegenerator.java;
 
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -23,6 +25,7 @@ public class Imports {
 
     private final SortedSet<String> imports = new TreeSet<String>();
     private final Set<String> importedClasses = new HashSet<String>();
+    private List<String> registeredClasses;
 
     static {
         simpleTypes.add("int");
@@ -39,6 +42,38 @@ public class Imports {
         return imports;
     }
 
+    /**
+     * Registers an import of a class, e.g. one already present in the source the types are generated into.
+     *
+     * @param qualifiedClassName fully qualified class name without type parameters
+     */
+    public void addImport(String qualifiedClassName) {
+        imports.add(qualifiedClassName);
+        importedClasses.add(getTypeDescriptionWithoutPackage(qualifiedClassName));
+    }
+
+    /**
+     * Makes the imports append the classes registered from now on to the list, in order, so that the registrations
+     * can be replayed without the type descriptions, see {@link #registerClasses(Collection, String)}.
+     *
+     * @param registeredClasses fully qualified class names, null to stop appending
+     */
+    public void setRegisteredClasses(List<String> registeredClasses) {
+        this.registeredClasses = registeredClasses;
+    }
+
+    /**
+     * Registers the classes in order, as if the type descriptions they were registered for were processed again.
+     *
+     * @param qualifiedClassNames fully qualified class names without type parameters
+     * @param packageName
+     */
+    public void registerClasses(Collection<String> qualifiedClassNames, String packageName) {
+        for (String qualifiedClassName : qualifiedClassNames) {
+            register(qualifiedClassName, null, packageName);
+        }
+    }
+
     /**
      * Adds all classes referenced within the type description to the imports.
      * Returns type description with package names removed.
@@ -87,6 +122,9 @@ public class Imports {
         String className = getClassName(unqualifiedType);                          // "MyClass"
 
         if (!simpleTypes.contains(className) && (nonTypeNames == null || !nonTypeNames.contains(className))) {
+            if (registeredClasses != null) {
+                registeredClasses.add(qualifiedClassName);
+            }
             if (imports.contains(qualifiedClassName)) {         // already imported: return class type
                 return unqualifiedType;
             } else if (importedClasses.contains(className)) {   // name conflict: return full type
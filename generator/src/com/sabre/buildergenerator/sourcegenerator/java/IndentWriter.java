@@ -9,19 +9,208 @@
  *    Sabre Polska sp. z o.o. - initial implementation during Hackday
  */
 
+
 package com.sabre.buildergenerator.sourcegenerator.java;
 
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.io.Writer;
 
+/**
+ * Buffered writer of indented source code, laid out according to a {@link FormattingProfile}. Text is appended to
+ * a growing character buffer, without locking, and passed to the underlying writer only when the buffer is
+ * written, e.g. after each emitted class. Without an underlying writer the whole text stays in the buffer, see
+ * {@link #toString()}.
+ */
 public class IndentWriter {
-    public PrintWriter out;
-    public String indent = "";
+    private static final char[] LINE_SEPARATOR = System.getProperty("line.separator").toCharArray();
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    private final Writer out;
+    private final FormattingProfile profile;
+    private char[] buf = new char[INITIAL_BUFFER_SIZE];
+    private int count;
+    private int indentLevel;
+    private int column;
+    private IOException error;
+
+    /**
+     * Keeps the text in the buffer.
+     */
+    public IndentWriter() {
+        this(null, FormattingProfile.DEFAULT);
+    }
+
+    /**
+     * @param out writer the buffered text is written to
+     */
+    public IndentWriter(Writer out) {
+        this(out, FormattingProfile.DEFAULT);
+    }
+
+    /**
+     * @param out writer the buffered text is written to, null to keep the text in the buffer
+     * @param profile
+     */
+    public IndentWriter(Writer out, FormattingProfile profile) {
+        this.out = out;
+        this.profile = profile;
+    }
+
+    public FormattingProfile getProfile() {
+        return profile;
+    }
+
+    public int getIndentLevel() {
+        return indentLevel;
+    }
+
+    public void setIndentLevel(int indentLevel) {
+        this.indentLevel = indentLevel;
+    }
 
     protected void increseIndent() {
-        indent += "    ";
+        indentLevel++;
     }
 
     protected void decreaseIndent() {
-        indent = indent.substring(4);
+        indentLevel--;
+    }
+
+    public IndentWriter appendIndent() {
+        char[] indent = profile.getIndent(indentLevel);
+        if (indent != null) {
+            append(indent);
+        } else {
+            for (int i = 0; i < indentLevel; i++) {
+                append(profile.getIndent(1));
+            }
+        }
+        column += indentLevel * profile.getIndentSize();
+        return this;
+    }
+
+    public IndentWriter newLine() {
+        append(LINE_SEPARATOR);
+        column = 0;
+        return this;
+    }
+
+    /**
+     * Appends the blank lines the profile puts before a method or a nested class.
+     */
+    public IndentWriter appendBlankLines() {
+        for (int i = 0; i < profile.getBlankLinesBeforeMember(); i++) {
+            newLine();
+        }
+        return this;
+    }
+
+    /**
+     * Appends the opening brace of a class or method body and ends the line.
+     */
+    public IndentWriter appendOpeningBrace() {
+        if (profile.isBracesOnNextLine()) {
+            newLine();
+            appendIndent();
+            append('{');
+        } else {
+            append(" {");
+        }
+        return newLine();
+    }
+
+    /**
+     * Separates the next part of a header from the line with a space, or starts a continuation line if the part
+     * would make the line longer than the profile allows.
+     *
+     * @param width length of the part and of what has to follow it on the same line
+     */
+    public IndentWriter appendSpaceOrWrap(int width) {
+        int lineLength = profile.getLineLength();
+        if (lineLength > 0 && column + 1 + width > lineLength) {
+            newLine();
+            indentLevel += profile.getContinuationIndent();
+            appendIndent();
+            indentLevel -= profile.getContinuationIndent();
+            return this;
+        }
+        return append(' ');
+    }
+
+    /**
+     * @param s text to append, "null" for null
+     */
+    public IndentWriter append(String s) {
+        if (s == null) {
+            s = "null";
+        }
+        int len = s.length();
+        ensureCapacity(len);
+        s.getChars(0, len, buf, count);
+        count += len;
+        column += len;
+        return this;
+    }
+
+    public IndentWriter append(char c) {
+        ensureCapacity(1);
+        buf[count++] = c;
+        column++;
+        return this;
+    }
+
+    private IndentWriter append(char[] chars) {
+        ensureCapacity(chars.length);
+        System.arraycopy(chars, 0, buf, count, chars.length);
+        count += chars.length;
+        return this;
+    }
+
+    private void ensureCapacity(int len) {
+        if (count + len > buf.length) {
+            char[] newBuf = new char[Math.max(buf.length * 2, count + len)];
+            System.arraycopy(buf, 0, newBuf, 0, count);
+            buf = newBuf;
+        }
+    }
+
+    /**
+     * Writes the buffered text to the underlying writer, if there is one. An error is reported by
+     * {@link #flush()}.
+     */
+    void writeBuffer() {
+        if (out != null && count > 0) {
+            if (error == null) {
+                try {
+                    out.write(buf, 0, count);
+                } catch (IOException e) {
+                    error = e;
+                }
+            }
+            count = 0;
+        }
+    }
+
+    /**
+     * Writes the buffered text and flushes the underlying writer.
+     *
+     * @throws IOException also if writing the buffer failed before
+     */
+    public void flush() throws IOException {
+        writeBuffer();
+        if (error != null) {
+            throw error;
+        }
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    /**
+     * @return text in the buffer, the whole text if there is no underlying writer
+     */
+    @Override
+    public String toString() {
+        return new String(buf, 0, count);
     }
 }
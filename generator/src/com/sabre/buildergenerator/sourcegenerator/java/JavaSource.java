@@ -11,10 +11,11 @@
 
 package com.sabre.buildergenerator.sourcegenerator.java;
 
+import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintStream;
-import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class JavaSource {
@@ -52,34 +53,23 @@ public class JavaSource {
     }
 
     public void print(PrintStream out) {
-        IndentWriter w = new IndentWriter();
-        OutputStreamWriter outputStreamWriter = new OutputStreamWriter(out);
-        w.out = new PrintWriter(outputStreamWriter);
+        IndentWriter w = new IndentWriter(new OutputStreamWriter(out));
         print(w);
+        try {
+            w.flush();
+        } catch (IOException e) {
+            // not thrown by a print stream
+            throw new IllegalStateException(e);
+        }
     }
 
     public void print(IndentWriter w) {
-        if (packge != null) {
-            w.out.print("package ");
-            w.out.print(packge);
-            w.out.println(";");
-            w.out.println();
-        }
-        for (String imp : imports) {
-            w.out.println("import " + imp + ";");
-        }
-        if (!imports.isEmpty() && !clazzes.isEmpty()) {
-            w.out.println();
-        }
-        boolean first = true;
+        JavaSourceEmitter emitter = new PrintingJavaSourceEmitter(w);
+        emitter.startSource(Collections.<String>emptyList(), packge, imports);
         for (Clazz clazz : clazzes) {
-            if (!first) {
-                w.out.println();
-            }
-            first = false;
-            clazz.print(w);
+            emitter.emitClazz(clazz);
         }
-        w.out.flush();
+        emitter.endSource();
     }
 
     public void addImports(Imports newImports) {
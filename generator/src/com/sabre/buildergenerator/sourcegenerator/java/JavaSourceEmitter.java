@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+
+package com.sabre.buildergenerator.sourcegenerator.java;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Receives a java source class by class, as soon as each class is complete, so that the whole source does not
+ * have to be held in memory. Imports are passed up front, classes follow in source order.
+ */
+public interface JavaSourceEmitter {
+    /**
+     * @param commentLines lines printed before the package declaration
+     * @param packge package of the source, null for the default package
+     * @param imports fully qualified names of all classes the source imports
+     */
+    void startSource(List<String> commentLines, String packge, Collection<String> imports);
+
+    /**
+     * @param clazz complete top level class
+     */
+    void emitClazz(Clazz clazz);
+
+    /**
+     * Starts a top level class whose nested classes are emitted separately.
+     *
+     * @param clazz top level class with complete members, may have nested classes already
+     */
+    void openClazz(Clazz clazz);
+
+    /**
+     * @param clazz complete nested class of the opened class
+     */
+    void emitInnerClazz(Clazz clazz);
+
+    /**
+     * Ends the opened class.
+     */
+    void closeClazz();
+
+    void endSource();
+}
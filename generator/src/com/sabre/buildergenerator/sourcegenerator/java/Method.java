@@ -99,75 +99,76 @@ public class Method {
 
     public void print(IndentWriter w) {
         for (String annotation : annotations) {
-            w.out.print(w.indent);
-            w.out.println(annotation);
+            w.appendIndent();
+            w.append(annotation).newLine();
         }
-        w.out.print(w.indent);
+        w.appendIndent();
         if ((modifiers & JavaSource.MODIFIER_PUBLIC) != 0) {
-            w.out.print("public ");
+            w.append("public ");
         } else if ((modifiers & JavaSource.MODIFIER_PROTECTED) != 0) {
-            w.out.print("protected ");
+            w.append("protected ");
         } else if ((modifiers & JavaSource.MODIFIER_PRIVATE) != 0) {
-            w.out.print("private ");
+            w.append("private ");
         }
         if ((modifiers & JavaSource.MODIFIER_STATIC) != 0) {
-            w.out.print("static ");
+            w.append("static ");
         }
         if (!typeArgs.isEmpty()) {
-            w.out.print("<");
+            w.append('<');
             boolean first = true;
             for (String arg : typeArgs) {
                 if (!first) {
-                    w.out.print(", ");
+                    w.append(", ");
                 }
                 first = false;
-                w.out.print(arg);
+                w.append(arg);
             }
-            w.out.print("> ");
+            w.append("> ");
         }
         if (returnType != null) {
-            w.out.print(returnType);
-            w.out.print(" ");
+            w.append(returnType);
+            w.append(' ');
         }
-        w.out.printf("%s(", name);
+        w.append(name);
+        w.append('(');
         boolean first = true;
         for (MethodParameter param : parameters) {
             if (!first) {
-                w.out.print(", ");
+                w.append(',');
+                w.appendSpaceOrWrap(param.getWidth() + 1);
             }
             first = false;
             param.print(w);
         }
-        w.out.print(")");
+        w.append(')');
         if (!exceptions.isEmpty()) {
-            w.out.print(" throws");
             first = true;
             for (String ex : exceptions) {
-                if (!first) {
-                    w.out.print(",");
+                if (first) {
+                    w.appendSpaceOrWrap("throws ".length() + ex.length() + Clazz.BRACE_WIDTH);
+                    w.append("throws ");
+                } else {
+                    w.append(',');
+                    w.appendSpaceOrWrap(ex.length() + Clazz.BRACE_WIDTH);
                 }
                 first = false;
-                w.out.print(" ");
-                w.out.print(ex);
+                w.append(ex);
             }
         }
-        w.out.println(" {");
+        w.appendOpeningBrace();
         w.increseIndent();
         for (Statement statement : instructions) {
             if (statement != null) {
                 statement.print(w);
             } else {
-                w.out.println();
+                w.newLine();
             }
         }
         if (returnValue != null) {
-            Statement statement = new Statement();
-            statement.setStatement("return " + returnValue.getStatement() + ";");
-            statement.setParams(returnValue.getParams());
-            statement.print(w);
+            returnValue.printLine(w, "return ", ";");
         }
         w.decreaseIndent();
-        w.out.print(w.indent);
-        w.out.println("}");
+        w.appendIndent();
+        w.append('}').newLine();
     }
 }
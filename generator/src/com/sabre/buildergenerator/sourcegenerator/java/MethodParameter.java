@@ -31,7 +31,16 @@ public class MethodParameter {
         this.name = name;
     }
 
+    /**
+     * @return length of the printed parameter
+     */
+    int getWidth() {
+        return String.valueOf(type).length() + 1 + String.valueOf(name).length();
+    }
+
     public void print(IndentWriter w) {
-        w.out.printf("%s %s", type, name);
+        w.append(type);
+        w.append(' ');
+        w.append(name);
     }
 }
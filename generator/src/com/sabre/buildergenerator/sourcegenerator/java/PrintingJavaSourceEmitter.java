@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+
+package com.sabre.buildergenerator.sourcegenerator.java;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Prints emitted classes to an {@link IndentWriter}, the same way {@link JavaSource#print(IndentWriter)} prints
+ * the whole source. The writer's buffer is written after each class, the writer has to be flushed by the caller.
+ */
+public class PrintingJavaSourceEmitter implements JavaSourceEmitter {
+    private final IndentWriter w;
+    private boolean separateClazz;
+    private Clazz openedClazz;
+    private boolean openedClazzEmpty;
+
+    public PrintingJavaSourceEmitter(IndentWriter w) {
+        this.w = w;
+    }
+
+    public void startSource(List<String> commentLines, String packge, Collection<String> imports) {
+        for (String line : commentLines) {
+            w.append(line).newLine();
+        }
+        if (packge != null) {
+            w.append("package ");
+            w.append(packge);
+            w.append(';').newLine();
+            w.newLine();
+        }
+        for (String imp : imports) {
+            w.append("import ").append(imp).append(';').newLine();
+        }
+        separateClazz = !imports.isEmpty();
+    }
+
+    public void emitClazz(Clazz clazz) {
+        startClazz();
+        clazz.print(w);
+        w.writeBuffer();
+    }
+
+    public void openClazz(Clazz clazz) {
+        startClazz();
+        openedClazz = clazz;
+        openedClazzEmpty = !clazz.printOpening(w);
+        w.writeBuffer();
+    }
+
+    public void emitInnerClazz(Clazz clazz) {
+        if (!openedClazzEmpty) {
+            w.appendBlankLines();
+        }
+        openedClazzEmpty = false;
+        clazz.print(w);
+        w.writeBuffer();
+    }
+
+    public void closeClazz() {
+        openedClazz.printClosing(w);
+        openedClazz = null;
+    }
+
+    public void endSource() {
+        w.writeBuffer();
+    }
+
+    private void startClazz() {
+        // classes are separated from the imports and from each other by a blank line
+        if (separateClazz) {
+            w.newLine();
+        }
+        separateClazz = true;
+    }
+}
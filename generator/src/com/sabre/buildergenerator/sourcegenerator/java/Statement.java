@@ -14,8 +14,12 @@ package com.sabre.buildergenerator.sourcegenerator.java;
 import java.util.List;
 
 public class Statement {
+    /** indentation of a statement in a block opened by a previous one, e.g. by an if */
+    private static final String RELATIVE_INDENT = "    ";
+
     private String statement;
     private List<Object> params;
+    private StatementTemplate template;
 
     public String getStatement() {
         return statement;
@@ -23,6 +27,7 @@ public class Statement {
 
     public void setStatement(String format) {
         this.statement = format;
+        this.template = null;
     }
 
     public List<Object> getParams() {
@@ -35,13 +40,37 @@ public class Statement {
 
     public void print(IndentWriter w) {
         if (statement != null){
-            w.out.print(w.indent);
-            if (params != null) {
-                w.out.printf(statement, params.toArray(new Object[params.size()]));
-            } else {
-                w.out.print(statement);
+            printLine(w, "", "");
+        } else {
+            w.newLine();
+        }
+    }
+
+    /**
+     * Prints the statement between the prefix and the suffix as one line.
+     */
+    void printLine(IndentWriter w, String prefix, String suffix) {
+        // leading indentation of the statement is relative to the enclosing block
+        int levels = 0;
+        if (statement != null) {
+            while (statement.startsWith(RELATIVE_INDENT, levels * RELATIVE_INDENT.length())) {
+                levels++;
+            }
+        }
+        w.setIndentLevel(w.getIndentLevel() + levels);
+        w.appendIndent();
+        w.setIndentLevel(w.getIndentLevel() - levels);
+        w.append(prefix);
+        String text = levels > 0 ? statement.substring(levels * RELATIVE_INDENT.length()) : statement;
+        if (params != null && text != null) {
+            if (template == null) {
+                template = StatementTemplate.compile(text);
             }
+            template.appendTo(w, params);
+        } else {
+            w.append(text);
         }
-        w.out.println();
+        w.append(suffix);
+        w.newLine();
     }
 }
@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+
+package com.sabre.buildergenerator.sourcegenerator.java;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.MissingFormatArgumentException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Format string of a {@link Statement} compiled into literal segments and argument slots, so that printing a
+ * statement appends its parts instead of parsing the format again. Compiles the {@code %s}, {@code %n$s},
+ * {@code %%} and {@code %n} conversions, other format strings are printed with {@link String#format}.
+ */
+final class StatementTemplate {
+    private static final int MAX_CACHED_TEMPLATES = 1024;
+    private static final ConcurrentMap<String, StatementTemplate> TEMPLATES = new ConcurrentHashMap<String, StatementTemplate>();
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private final String format;
+    /** literal before each slot and after the last one, null if the format is not compiled */
+    private final String[] literals;
+    private final int[] argIndexes;
+    private final String[] specifiers;
+
+    private StatementTemplate(String format, String[] literals, int[] argIndexes, String[] specifiers) {
+        this.format = format;
+        this.literals = literals;
+        this.argIndexes = argIndexes;
+        this.specifiers = specifiers;
+    }
+
+    /**
+     * @param format
+     * @return template of the format, shared by all statements with the same format
+     */
+    static StatementTemplate compile(String format) {
+        StatementTemplate template = TEMPLATES.get(format);
+        if (template == null) {
+            template = parse(format);
+            // formats concatenated with generated names are not worth keeping
+            if (TEMPLATES.size() < MAX_CACHED_TEMPLATES) {
+                TEMPLATES.putIfAbsent(format, template);
+            }
+        }
+        return template;
+    }
+
+    private static StatementTemplate parse(String format) {
+        List<String> literals = new ArrayList<String>();
+        List<Integer> argIndexes = new ArrayList<Integer>();
+        List<String> specifiers = new ArrayList<String>();
+        StringBuilder literal = new StringBuilder();
+        int nextArgIndex = 0;
+        int i = 0;
+        while (i < format.length()) {
+            char c = format.charAt(i);
+            if (c != '%') {
+                literal.append(c);
+                i++;
+                continue;
+            }
+            int j = i + 1;
+            while (j < format.length() && Character.isDigit(format.charAt(j))) {
+                j++;
+            }
+            if (j == format.length()) {
+                return new StatementTemplate(format, null, null, null);
+            }
+            char conversion = format.charAt(j);
+            if (j == i + 1 && conversion == '%') {
+                literal.append('%');
+            } else if (j == i + 1 && conversion == 'n') {
+                literal.append(LINE_SEPARATOR);
+            } else if (j == i + 1 && conversion == 's') {
+                literals.add(literal.toString());
+                literal.setLength(0);
+                argIndexes.add(nextArgIndex++);
+                specifiers.add("%s");
+            } else if (j > i + 1 && conversion == '$' && j + 1 < format.length() && format.charAt(j + 1) == 's'
+                    && format.charAt(i + 1) != '0') {
+                literals.add(literal.toString());
+                literal.setLength(0);
+                argIndexes.add(Integer.parseInt(format.substring(i + 1, j)) - 1);
+                specifiers.add(format.substring(i, j + 2));
+                j++;
+            } else {
+                return new StatementTemplate(format, null, null, null);
+            }
+            i = j + 1;
+        }
+        literals.add(literal.toString());
+
+        int[] indexes = new int[argIndexes.size()];
+        for (int k = 0; k < indexes.length; k++) {
+            indexes[k] = argIndexes.get(k);
+        }
+        return new StatementTemplate(format, literals.toArray(new String[literals.size()]), indexes,
+            specifiers.toArray(new String[specifiers.size()]));
+    }
+
+    /**
+     * Appends the format with the slots filled with the arguments, like {@link String#format} does.
+     *
+     * @param w
+     * @param args
+     * @throws MissingFormatArgumentException if a slot has no argument
+     */
+    void appendTo(IndentWriter w, List<Object> args) {
+        if (literals == null) {
+            w.append(String.format(format, args.toArray(new Object[args.size()])));
+            return;
+        }
+        for (int i = 0; i < argIndexes.length; i++) {
+            w.append(literals[i]);
+            if (argIndexes[i] >= args.size()) {
+                throw new MissingFormatArgumentException(specifiers[i]);
+            }
+            w.append(String.valueOf(args.get(argIndexes[i])));
+        }
+        w.append(literals[argIndexes.length]);
+    }
+}
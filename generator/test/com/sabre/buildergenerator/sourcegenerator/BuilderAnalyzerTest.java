@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+
+package com.sabre.buildergenerator.sourcegenerator;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+
+import junit.framework.TestCase;
+
+import com.sabre.buildergenerator.javamodel.ITypeResolver;
+import com.sabre.buildergenerator.javamodel.reflection.ReflectionModelHelper;
+import com.sabre.buildergenerator.javamodel.reflection.ReflectionSignatureResolver;
+import com.sabre.buildergenerator.javamodel.reflection.ReflectionTypeAccessor;
+import com.sabre.buildergenerator.javamodel.reflection.ReflectionTypeResolver;
+import com.sabre.buildergenerator.sourcegenerator.BuilderAnalyzer.TypeAnalysis;
+
+public class BuilderAnalyzerTest extends TestCase {
+    public static class Bounded<T extends Number> {
+    }
+
+    public void testShouldResolveBoundsOfTypeParameters() throws Exception {
+        // given
+        BuilderAnalyzer<Type, TypeVariable<?>, Method, Exception> analyzer = createAnalyzer(
+            new ReflectionTypeResolver());
+
+        // when
+        TypeAnalysis analysis = analyzer.analyzeType("Bounded<T>", Bounded.class, null);
+
+        // then
+        assertEquals(1, analysis.getTypeParamBounds().length);
+        assertEquals("QNumber;", analysis.getTypeParamBounds()[0][0]);
+    }
+
+    public void testShouldPropagateFailureToResolveBound() throws Exception {
+        // given
+        final Exception failure = new Exception("no java model");
+        BuilderAnalyzer<Type, TypeVariable<?>, Method, Exception> analyzer = createAnalyzer(
+            new ITypeResolver<Type, Exception>() {
+                public String resolveType(Type owningType, String type) throws Exception {
+                    throw failure;
+                }
+            });
+
+        // when
+        try {
+            analyzer.analyzeType("Bounded<T>", Bounded.class, null);
+
+            // then
+            fail("failure to resolve bound not propagated");
+        } catch (Exception e) {
+            assertSame(failure, e);
+        }
+    }
+
+    private BuilderAnalyzer<Type, TypeVariable<?>, Method, Exception> createAnalyzer(
+        ITypeResolver<Type, Exception> typeResolver) {
+        return new BuilderAnalyzer<Type, TypeVariable<?>, Method, Exception>(new ReflectionModelHelper(),
+            new ReflectionSignatureResolver(), typeResolver, new ReflectionTypeAccessor() {
+                @Override
+                public String getTypeParameterName(TypeVariable<?> typeParam) {
+                    return typeParam.getName();
+                }
+
+                @Override
+                public String[] getTypeParameterBounds(TypeVariable<?> typeParam) {
+                    return new String[] { "QNumber;" };
+                }
+            });
+    }
+}
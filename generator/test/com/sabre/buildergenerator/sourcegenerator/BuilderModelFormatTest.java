@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+
+package com.sabre.buildergenerator.sourcegenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.sabre.buildergenerator.sourcegenerator.BuilderModel.ClassModel;
+import com.sabre.buildergenerator.sourcegenerator.BuilderModel.SetterModel;
+
+public class BuilderModelFormatTest extends TestCase {
+    private static final byte[] FINGERPRINT = { 1, 2, 3, -1 };
+
+    public void testShouldReadWrittenModel() throws Exception {
+        // given
+        BuilderModel model = createModel(3);
+        ByteBuffer buffer = write(model);
+
+        // when
+        BuilderModel readModel = BuilderModelFormat.read(buffer);
+
+        // then
+        assertEquals(model, readModel);
+        assertEquals(model.getReferencedTypeNames(), readModel.getReferencedTypeNames());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    public void testShouldReadModelWithManyStrings() throws Exception {
+        // given
+        BuilderModel model = createModel(200);
+
+        // when
+        BuilderModel readModel = BuilderModelFormat.read(write(model));
+
+        // then
+        assertEquals(model, readModel);
+    }
+
+    public void testShouldReadModelWithNullBounds() throws Exception {
+        // given
+        ClassModel rootClass = new ClassModel("pkg.Root<T, U>", "pkg.Root", new String[] { "T", "U" },
+            new String[][] { { null, "java.lang.Comparable<T>" }, null }, Collections.<SetterModel>emptyList());
+        BuilderModel model = new BuilderModel(Arrays.asList(rootClass), Arrays.asList("pkg.Root"));
+
+        // when
+        BuilderModel readModel = BuilderModelFormat.read(write(model));
+
+        // then
+        assertEquals(model, readModel);
+        assertNull(readModel.getRootClass().getTypeParamBounds()[0][0]);
+        assertNull(readModel.getRootClass().getTypeParamBounds()[1]);
+    }
+
+    public void testShouldReadHeaderOnly() throws Exception {
+        // given
+        BuilderModel model = createModel(3);
+        ByteBuffer buffer = write(model);
+
+        // when
+        BuilderModelFormat.Header header = BuilderModelFormat.readHeader(buffer);
+
+        // then
+        assertTrue(Arrays.equals(FINGERPRINT, header.getFingerprint()));
+        assertEquals(model.getReferencedTypeNames(), header.getReferencedTypeNames());
+        assertEquals(0, buffer.position());
+    }
+
+    public void testShouldRejectOtherData() throws Exception {
+        // given
+        ByteBuffer buffer = ByteBuffer.wrap("not a model".getBytes("UTF-8"));
+
+        // when
+        try {
+            BuilderModelFormat.read(buffer);
+            fail();
+        } catch (IOException e) {
+            // then
+        }
+    }
+
+    public void testShouldRejectTruncatedModel() throws Exception {
+        // given
+        ByteBuffer buffer = write(createModel(3));
+        buffer.limit(buffer.limit() - 1);
+
+        // when
+        try {
+            BuilderModelFormat.read(buffer);
+            fail();
+        } catch (IOException e) {
+            // then
+        }
+    }
+
+    private ByteBuffer write(BuilderModel model) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BuilderModelFormat.write(out, model, FINGERPRINT);
+
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    private BuilderModel createModel(int valueClassCount) {
+        List<ClassModel> classes = new ArrayList<ClassModel>();
+        List<String> typeNames = new ArrayList<String>();
+        SetterModel valuesSetter = new SetterModel("values", "pkg.Root", "java.util.List<pkg.Value0<T>>",
+            new String[] { "java.io.IOException" }, null, "value", "pkg.Value0<T>", "java.util.ArrayList",
+            new String[] { "T" });
+        SetterModel rootSetter = new SetterModel("root", "pkg.Base", "pkg.Root<T, U>", new String[0],
+            new String[] { "T", "U" }, null, null, null, null);
+
+        classes.add(new ClassModel("pkg.Root<T, U>", "pkg.Root", new String[] { "T", "U" },
+            new String[][] { { "java.lang.Number", "java.lang.Comparable<T>" }, null },
+            Arrays.asList(valuesSetter, rootSetter)));
+        typeNames.add("pkg.Root");
+
+        for (int i = 0; i < valueClassCount; i++) {
+            SetterModel setter = new SetterModel("value" + i, "pkg.Value" + i, "int", new String[0], null, null, null,
+                null, null);
+
+            classes.add(new ClassModel("pkg.Value" + i + "<T>", "pkg.Value" + i, new String[] { "T" },
+                new String[][] { new String[0] }, Arrays.asList(setter)));
+            typeNames.add("pkg.Value" + i);
+        }
+
+        return new BuilderModel(classes, typeNames);
+    }
+}
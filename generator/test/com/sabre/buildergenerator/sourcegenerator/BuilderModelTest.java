@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+
+package com.sabre.buildergenerator.sourcegenerator;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import com.sabre.buildergenerator.javamodel.reflection.SignatureUtils;
+import com.sabre.buildergenerator.signatureutils.SignatureUtil;
+import com.sabre.buildergenerator.sourcegenerator.BuilderModel.ClassModel;
+import com.sabre.buildergenerator.sourcegenerator.BuilderModel.SetterModel;
+
+public class BuilderModelTest extends TestCase {
+    public void testShouldCompareModelsByValue() {
+        // given
+        BuilderModel model = createModel("int");
+
+        // when
+        BuilderModel sameModel = createModel("int");
+
+        // then
+        assertEquals(model, sameModel);
+        assertEquals(model.hashCode(), sameModel.hashCode());
+        assertTrue(sameModel.getChangedTypeNames(model).isEmpty());
+    }
+
+    public void testShouldFindChangedClasses() {
+        // given
+        BuilderModel model = createModel("int");
+
+        // when
+        BuilderModel changedModel = createModel("long");
+
+        // then
+        assertFalse(model.equals(changedModel));
+        assertEquals(Collections.singleton("pkg.Value"), changedModel.getChangedTypeNames(model));
+    }
+
+    public void testShouldFindNewClasses() {
+        // given
+        BuilderModel model = new BuilderModel(Arrays.asList(createRootClass()), Arrays.asList("pkg.Root"));
+
+        // when
+        BuilderModel changedModel = createModel("int");
+
+        // then
+        assertEquals(Collections.singleton("pkg.Value"), changedModel.getChangedTypeNames(model));
+    }
+
+    public void testShouldNotExposeTypeArguments() {
+        // given
+        SetterModel setter = new SetterModel("value", "pkg.Root", "pkg.Value<T>", new String[0], new String[] { "T" },
+            null, null, null, null);
+
+        // when
+        setter.getFieldTypeArguments()[0] = "java.lang.String";
+
+        // then
+        assertEquals("T", setter.getFieldTypeArguments()[0]);
+        assertTrue(setter.hasFieldBuilder());
+        assertFalse(setter.isCollection());
+    }
+
+    public void testShouldSelectAllSettersWithoutSelection() {
+        // given
+        BuilderModel model = createModel("int");
+
+        // when
+        BuilderModel selectedModel = model.select(createSelection());
+
+        // then
+        assertEquals(model, selectedModel);
+    }
+
+    public void testShouldSelectOnlySelectedSetters() {
+        // given
+        BuilderModel model = createModel("int");
+        MarkedFields<Object, Object, Object, Exception> selection = createSelection();
+
+        selection.typesAndFieldsToGenerate = new HashMap<String, Set<String>>();
+        select(selection, "pkg.Root", "values");
+        select(selection, "pkg.Value");
+
+        // when
+        BuilderModel selectedModel = model.select(selection);
+
+        // then
+        assertEquals(2, selectedModel.getClasses().size());
+        assertTrue(selectedModel.getRootClass().getSetters().get(0).hasElementBuilder());
+        assertTrue(selectedModel.getClasses().get(1).getSetters().isEmpty());
+        assertEquals(new HashSet<String>(Arrays.asList("pkg.Root", "pkg.Value")),
+            selectedModel.getReferencedTypeNames());
+    }
+
+    public void testShouldSkipBuildersOfNotSelectedTypes() {
+        // given
+        BuilderModel model = createModel("int");
+        MarkedFields<Object, Object, Object, Exception> selection = createSelection();
+
+        selection.typesAndFieldsToGenerate = new HashMap<String, Set<String>>();
+        select(selection, "pkg.Root", "values");
+
+        // when
+        BuilderModel selectedModel = model.select(selection);
+
+        // then
+        assertEquals(1, selectedModel.getClasses().size());
+        assertFalse(selectedModel.getRootClass().getSetters().get(0).hasElementBuilder());
+        assertEquals(Collections.singleton("pkg.Root"), selectedModel.getReferencedTypeNames());
+    }
+
+    private MarkedFields<Object, Object, Object, Exception> createSelection() {
+        MarkedFields<Object, Object, Object, Exception> selection =
+            new MarkedFields<Object, Object, Object, Exception>();
+
+        selection.setSignatureUtils(new SignatureUtils());
+
+        return selection;
+    }
+
+    private void select(MarkedFields<?, ?, ?, ?> selection, String typeName, String... fieldNames) {
+        selection.typesAndFieldsToGenerate.put(SignatureUtil.typeNameToSignature(typeName),
+            new HashSet<String>(Arrays.asList(fieldNames)));
+    }
+
+    private BuilderModel createModel(String valueType) {
+        ClassModel valueClass = new ClassModel("pkg.Value", "pkg.Value", new String[0], new String[0][],
+            Arrays.asList(new SetterModel("value", "pkg.Value", valueType, new String[0], null, null, null, null,
+                null)));
+
+        return new BuilderModel(Arrays.asList(createRootClass(), valueClass), Arrays.asList("pkg.Root", "pkg.Value"));
+    }
+
+    private ClassModel createRootClass() {
+        SetterModel valuesSetter = new SetterModel("values", "pkg.Root", "java.util.List<pkg.Value>", new String[0],
+            null, "value", "pkg.Value", "java.util.ArrayList", new String[0]);
+
+        return new ClassModel("pkg.Root", "pkg.Root", new String[0], new String[0][], Arrays.asList(valuesSetter));
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+
+
+package com.sabre.buildergenerator.sourcegenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.sabre.buildergenerator.sourcegenerator.BuilderModel.ClassModel;
+import com.sabre.buildergenerator.sourcegenerator.BuilderModel.SetterModel;
+
+public class BuilderPreviewTest extends TestCase {
+    private BuilderGenerator<Object, Object, Object, Exception> generator;
+    private BuilderPreview<Object, Object, Object, Exception> preview;
+
+    @Override
+    protected void setUp() throws Exception {
+        generator = new BuilderGenerator<Object, Object, Object, Exception>();
+        preview = new BuilderPreview<Object, Object, Object, Exception>(generator);
+    }
+
+    public void testShouldRenderGeneratedSource() {
+        // given
+        BuilderModel model = createModel(createClass("pkg.Value", "int"), createClass("pkg.Other", "long"));
+
+        // when
+        String source = render(model);
+
+        // then
+        assertEquals(generator.generateSource(model, "builders", "RootBuilder", "with", "withAdded", "end"), source);
+    }
+
+    public void testShouldRenderChangedClass() {
+        // given
+        render(createModel(createClass("pkg.Value", "int"), createClass("pkg.Other", "long")));
+        BuilderModel changedModel = createModel(createClass("pkg.Value", "java.util.Date"),
+            createClass("pkg.Other", "long"));
+
+        // when
+        String source = render(changedModel);
+
+        // then
+        assertEquals(generator.generateSource(changedModel, "builders", "RootBuilder", "with", "withAdded", "end"),
+            source);
+    }
+
+    public void testShouldRenderUnchangedClassWithChangedImports() {
+        // given
+        render(createModel(createClass("pkg.Value", "a.Foo"), createClass("pkg.Other", "b.Foo")));
+        BuilderModel changedModel = createModel(createClass("pkg.Value", null), createClass("pkg.Other", "b.Foo"));
+
+        // when
+        String source = render(changedModel);
+
+        // then
+        assertEquals(generator.generateSource(changedModel, "builders", "RootBuilder", "with", "withAdded", "end"),
+            source);
+        assertTrue(source.contains("import b.Foo;"));
+    }
+
+    public void testShouldRenderClassesWithChangedPrefix() {
+        // given
+        BuilderModel model = createModel(createClass("pkg.Value", "int"), createClass("pkg.Other", "long"));
+        render(model);
+
+        // when
+        String source = preview.render(model, "builders", "RootBuilder", "set", "withAdded", "end");
+
+        // then
+        assertEquals(generator.generateSource(model, "builders", "RootBuilder", "set", "withAdded", "end"), source);
+    }
+
+    private String render(BuilderModel model) {
+        return preview.render(model, "builders", "RootBuilder", "with", "withAdded", "end");
+    }
+
+    private BuilderModel createModel(ClassModel... nestedClasses) {
+        ClassModel rootClass = new ClassModel("pkg.Root", "pkg.Root", new String[0], new String[0][],
+            Collections.<SetterModel>emptyList());
+        List<ClassModel> classes = new ArrayList<ClassModel>();
+
+        classes.add(rootClass);
+        classes.addAll(Arrays.asList(nestedClasses));
+
+        return new BuilderModel(classes, Arrays.asList("pkg.Root"));
+    }
+
+    private ClassModel createClass(String typeName, String valueType) {
+        if (valueType == null) {
+            return new ClassModel(typeName, typeName, new String[0], new String[0][],
+                Collections.<SetterModel>emptyList());
+        }
+
+        return new ClassModel(typeName, typeName, new String[0], new String[0][],
+            Arrays.asList(new SetterModel("value", typeName, valueType, new String[0], null, null, null, null, null)));
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+package com.sabre.buildergenerator.sourcegenerator;
+
+import junit.framework.TestCase;
+
+public class ClassesToProcessTest extends TestCase {
+    private ClassesToProcess classesToProcess;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        classesToProcess = new ClassesToProcess();
+    }
+
+    public void testShouldReturnTypesInInsertionOrder() {
+        // given
+        classesToProcess.addForProcessing("Lpkg.C;");
+        classesToProcess.addForProcessing("Lpkg.A;");
+        classesToProcess.addForProcessing("Lpkg.B;");
+
+        // when
+        String first = classesToProcess.nextClassToProcess();
+        classesToProcess.addForProcessing("Lpkg.D;");
+        String second = classesToProcess.nextClassToProcess();
+        String third = classesToProcess.nextClassToProcess();
+        String fourth = classesToProcess.nextClassToProcess();
+
+        // then
+        assertEquals("Lpkg.C;", first);
+        assertEquals("Lpkg.A;", second);
+        assertEquals("Lpkg.B;", third);
+        assertEquals("Lpkg.D;", fourth);
+        assertNull(classesToProcess.nextClassToProcess());
+    }
+
+    public void testShouldReturnEachTypeOnce() {
+        // given
+        classesToProcess.addForProcessing("Lpkg.A;");
+        classesToProcess.addForProcessing("Lpkg.A;");
+
+        // when
+        String first = classesToProcess.nextClassToProcess();
+        classesToProcess.addForProcessing("Lpkg.A;");
+        String second = classesToProcess.nextClassToProcess();
+
+        // then
+        assertEquals("Lpkg.A;", first);
+        assertNull(second);
+    }
+
+    public void testShouldSkipTypesAlreadyProcessed() {
+        // given
+        classesToProcess.markAsAlreadyProcessed("Lpkg.Root;");
+        classesToProcess.addForProcessing("Lpkg.Root;");
+        classesToProcess.addForProcessing("Lpkg.A;");
+        classesToProcess.addForProcessing("Lpkg.B;");
+
+        // when
+        classesToProcess.markAsAlreadyProcessed("Lpkg.A;");
+        String next = classesToProcess.nextClassToProcess();
+
+        // then
+        assertEquals("Lpkg.B;", next);
+        assertNull(classesToProcess.nextClassToProcess());
+    }
+}
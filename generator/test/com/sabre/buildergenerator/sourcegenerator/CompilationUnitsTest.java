@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+
+
+package com.sabre.buildergenerator.sourcegenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import com.sabre.buildergenerator.sourcegenerator.BuilderModel.ClassModel;
+import com.sabre.buildergenerator.sourcegenerator.BuilderModel.SetterModel;
+
+public class CompilationUnitsTest extends TestCase {
+    private BuilderGenerator<Object, Object, Object, Exception> generator;
+
+    @Override
+    protected void setUp() throws Exception {
+        generator = new BuilderGenerator<Object, Object, Object, Exception>();
+    }
+
+    public void testShouldPutEachBuilderBaseClassIntoUnit() {
+        // given
+        BuilderModel model = createModel(createClass("pkg.Value", "int"), createClass("pkg.Other", "long"));
+
+        // when
+        Map<String, String> units = generate(model);
+
+        // then
+        assertEquals(Arrays.asList("builders.RootBuilder", "builders.rootbuilder.RootBuilderBase",
+                "builders.rootbuilder.ValueBuilderBase", "builders.rootbuilder.OtherBuilderBase"),
+            new ArrayList<String>(units.keySet()));
+        assertTrue(units.get("builders.rootbuilder.ValueBuilderBase").contains("package builders.rootbuilder;"));
+        assertTrue(units.get("builders.rootbuilder.ValueBuilderBase").contains("public class ValueBuilderBase"));
+    }
+
+    public void testShouldImportRootBuilderBaseClassIntoBuilder() {
+        // given
+        BuilderModel model = createModel(createClass("pkg.Value", "int"));
+
+        // when
+        String builderSource = generate(model).get("builders.RootBuilder");
+
+        // then
+        assertTrue(builderSource.contains("import builders.rootbuilder.RootBuilderBase;"));
+        assertTrue(builderSource.contains("extends RootBuilderBase<RootBuilder>"));
+    }
+
+    public void testShouldManageImportsOfEachUnit() {
+        // given
+        BuilderModel model = createModel(createClass("pkg.Value", "a.Foo"), createClass("pkg.Other", "b.Foo"));
+
+        // when
+        Map<String, String> units = generate(model);
+
+        // then
+        String valueSource = units.get("builders.rootbuilder.ValueBuilderBase");
+        String otherSource = units.get("builders.rootbuilder.OtherBuilderBase");
+
+        assertTrue(valueSource.contains("import a.Foo;"));
+        assertFalse(valueSource.contains("b.Foo"));
+        assertTrue(otherSource.contains("import b.Foo;"));
+        assertFalse(otherSource.contains("a.Foo"));
+    }
+
+    public void testShouldImportSharedBuilderBaseClassIntoBuilder() {
+        // given
+        BuilderModel model = createModel(createClass("pkg.Value", "int"));
+
+        // when
+        Map<String, String> units = generator.generateCompilationUnits(model, "builders", "RootBuilder", "shared",
+                "with", "withAdded", "end");
+
+        // then
+        assertTrue(units.containsKey("shared.ValueBuilderBase"));
+        assertTrue(units.get("builders.RootBuilder").contains("import shared.RootBuilderBase;"));
+    }
+
+    public void testShouldGenerateBuilderBaseClassesOnly() {
+        // given
+        BuilderModel model = new BuilderModel(Arrays.asList(createClass("pkg.Value", "int")),
+                Arrays.asList("pkg.Value"));
+
+        // when
+        Map<String, String> units = generator.generateCompilationUnits(model, null, null, "shared", "with",
+                "withAdded", "end");
+
+        // then
+        assertEquals(Arrays.asList("shared.ValueBuilderBase"), new ArrayList<String>(units.keySet()));
+        assertTrue(units.get("shared.ValueBuilderBase").contains("package shared;"));
+    }
+
+    private Map<String, String> generate(BuilderModel model) {
+        return generator.generateCompilationUnits(model, "builders", "RootBuilder", "with", "withAdded", "end");
+    }
+
+    private BuilderModel createModel(ClassModel... nestedClasses) {
+        ClassModel rootClass = new ClassModel("pkg.Root", "pkg.Root", new String[0], new String[0][],
+            Collections.<SetterModel>emptyList());
+        List<ClassModel> classes = new ArrayList<ClassModel>();
+
+        classes.add(rootClass);
+        classes.addAll(Arrays.asList(nestedClasses));
+
+        return new BuilderModel(classes, Arrays.asList("pkg.Root"));
+    }
+
+    private ClassModel createClass(String typeName, String valueType) {
+        return new ClassModel(typeName, typeName, new String[0], new String[0][],
+            Arrays.asList(new SetterModel("value", typeName, valueType, new String[0], null, null, null, null, null)));
+    }
+}
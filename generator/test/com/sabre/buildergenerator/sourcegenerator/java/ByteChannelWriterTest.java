@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+
+package com.sabre.buildergenerator.sourcegenerator.java;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+
+import junit.framework.TestCase;
+
+public class ByteChannelWriterTest extends TestCase {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private ByteArrayOutputStream out;
+    private WritableByteChannel channel;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        out = new ByteArrayOutputStream();
+        channel = Channels.newChannel(out);
+    }
+
+    public void testShouldEncodeNonLatinCharacters() throws Exception {
+        // given
+        String text = "Za\u017c\u00f3\u0142\u0107 g\u0119\u015bl\u0105 ja\u017a\u0144 \u4e2d\u6587 \ud834\udd1e";
+        ByteChannelWriter writer = new ByteChannelWriter(channel, UTF_8, ByteBuffer.allocate(4));
+
+        // when
+        writer.write(text);
+        writer.close();
+
+        // then
+        assertEquals(text, new String(out.toByteArray(), "UTF-8"));
+        assertTrue(channel.isOpen());
+    }
+
+    public void testShouldEncodeSurrogatePairSplitBetweenBuffers() throws Exception {
+        // given
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < ByteChannelWriter.DEFAULT_BUFFER_SIZE - 1; i++) {
+            text.append('a');
+        }
+        text.append("\ud834\udd1e");
+        ByteChannelWriter writer = new ByteChannelWriter(channel, UTF_8);
+
+        // when
+        writer.write(text.toString());
+        writer.close();
+
+        // then
+        assertEquals(text.toString(), new String(out.toByteArray(), "UTF-8"));
+    }
+
+    public void testShouldReplaceUnmappableCharacters() throws Exception {
+        // given
+        ByteChannelWriter writer = new ByteChannelWriter(channel, Charset.forName("ISO-8859-1"));
+
+        // when
+        writer.write("a\u4e2db");
+        writer.close();
+
+        // then
+        assertEquals("a?b", new String(out.toByteArray(), "ISO-8859-1"));
+    }
+}
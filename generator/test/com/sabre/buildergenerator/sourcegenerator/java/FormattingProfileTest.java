@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+
+
+package com.sabre.buildergenerator.sourcegenerator.java;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class FormattingProfileTest extends TestCase {
+    private static final String NL = System.getProperty("line.separator");
+
+    public void testShouldLayOutClassWithTabsAndBracesOnNextLine() {
+        // given
+        FormattingProfile profile = new FormattingProfile(true, 4, 0, 2, true, 1, false);
+        IndentWriter w = new IndentWriter(null, profile);
+        Method method = new Method();
+        method.setName("m");
+        method.setReturnType("void");
+        Statement statement = new Statement();
+        statement.setStatement("m();");
+        method.setInstructions(Arrays.asList(statement));
+        Clazz clazz = new Clazz();
+        clazz.setName("A");
+        clazz.setMethods(Arrays.asList(method, method));
+
+        // when
+        clazz.print(w);
+
+        // then
+        assertEquals("class A" + NL + "{" + NL + "\tvoid m()" + NL + "\t{" + NL + "\t\tm();" + NL + "\t}" + NL + NL
+            + "\tvoid m()" + NL + "\t{" + NL + "\t\tm();" + NL + "\t}" + NL + "}" + NL, w.toString());
+    }
+
+    public void testShouldWrapMethodParameters() {
+        // given
+        FormattingProfile profile = new FormattingProfile(false, 4, 30, 2, false, 1, false);
+        IndentWriter w = new IndentWriter(null, profile);
+        Method method = new Method();
+        method.setName("method");
+        method.setReturnType("void");
+        method.setParameters(Arrays.asList(parameter("String", "first"), parameter("String", "second")));
+
+        // when
+        method.print(w);
+
+        // then
+        assertEquals("void method(String first," + NL + "        String second) {" + NL + "}" + NL, w.toString());
+        assertTrue(profile.fits(w.toString()));
+    }
+
+    public void testShouldNotFitLongStatement() {
+        // given
+        FormattingProfile profile = new FormattingProfile(true, 4, 20, 2, false, 1, false);
+
+        // when
+        boolean fits = profile.fits("class A {\n\tvoid method(String parameter) {\n\t\tint i = 0;\n\t}\n}\n");
+        boolean longStatementFits = profile.fits("class A {\n\tvoid m() {\n\t\tint index = 0;\n\t}\n}\n");
+
+        // then
+        assertTrue(fits);
+        assertFalse(longStatementFits);
+    }
+
+    public void testShouldFitAnythingWithoutLineLength() {
+        // given
+        FormattingProfile profile = FormattingProfile.DEFAULT;
+
+        // when
+        boolean fits = profile.fits("    int aVeryLongNameOfAFieldThatWouldNotFitIntoAnyReasonableLineLength = 0;");
+
+        // then
+        assertTrue(fits);
+    }
+
+    private MethodParameter parameter(String type, String name) {
+        MethodParameter parameter = new MethodParameter();
+        parameter.setType(type);
+        parameter.setName(name);
+
+        return parameter;
+    }
+}
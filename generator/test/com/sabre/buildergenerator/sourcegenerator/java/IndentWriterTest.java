@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+
+package com.sabre.buildergenerator.sourcegenerator.java;
+
+import java.io.StringWriter;
+
+import junit.framework.TestCase;
+
+public class IndentWriterTest extends TestCase {
+    public void testShouldIndentDeeperThanPrecomputedLevels() {
+        // given
+        IndentWriter w = new IndentWriter();
+        w.setIndentLevel(20);
+
+        // when
+        w.appendIndent().append('}');
+
+        // then
+        assertEquals(80, w.toString().indexOf('}'));
+        assertEquals("}", w.toString().trim());
+    }
+
+    public void testShouldGrowBuffer() {
+        // given
+        IndentWriter w = new IndentWriter();
+        StringBuilder expected = new StringBuilder();
+
+        // when
+        for (int i = 0; i < 1000; i++) {
+            w.append("line ").append(String.valueOf(i)).newLine();
+            expected.append("line ").append(i).append(System.getProperty("line.separator"));
+        }
+
+        // then
+        assertEquals(expected.toString(), w.toString());
+    }
+
+    public void testShouldWriteBufferToWriter() throws Exception {
+        // given
+        StringWriter sw = new StringWriter();
+        IndentWriter w = new IndentWriter(sw);
+        w.append("class A {");
+
+        // when
+        w.writeBuffer();
+        w.append('}');
+        w.flush();
+
+        // then
+        assertEquals("class A {}", sw.toString());
+        assertEquals("", w.toString());
+    }
+}
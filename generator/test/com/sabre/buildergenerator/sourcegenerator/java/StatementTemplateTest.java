@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+
+package com.sabre.buildergenerator.sourcegenerator.java;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.MissingFormatArgumentException;
+
+import junit.framework.TestCase;
+
+public class StatementTemplateTest extends TestCase {
+    public void testShouldFillSlotsInOrder() {
+        assertRendered("instance.%s(new %s<%s>());", "setItems", "java.util.ArrayList", "Item");
+    }
+
+    public void testShouldFillIndexedSlots() {
+        assertRendered("%2$s = %1$s; // %s", "a", "b");
+    }
+
+    public void testShouldRenderEscapes() {
+        assertRendered("100%% of %s%n", "lines");
+    }
+
+    public void testShouldRenderNullArgument() {
+        assertRendered("return %s;", (Object) null);
+    }
+
+    public void testShouldFormatUncompiledConversions() {
+        assertRendered("%d: %-6s|", 5, "left");
+    }
+
+    public void testShouldFailOnMissingArgument() {
+        // given
+        StatementTemplate template = StatementTemplate.compile("%s = %s;");
+
+        // when
+        try {
+            template.appendTo(new IndentWriter(), Arrays.<Object>asList("a"));
+            fail();
+        } catch (MissingFormatArgumentException e) {
+            // then
+            assertEquals("%s", e.getFormatSpecifier());
+        }
+    }
+
+    private void assertRendered(String format, Object... args) {
+        // given
+        List<Object> params = Arrays.asList(args);
+        IndentWriter w = new IndentWriter();
+        w.append("> ");
+
+        // when
+        StatementTemplate.compile(format).appendTo(w, params);
+
+        // then
+        assertEquals("> " + String.format(format, args), w.toString());
+    }
+}
@@ -0,0 +1,68 @@
+package com.sabre.buildergenerator.eclipsejavamodel;
+
+import java.util.Collections;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeHierarchy;
+
+import com.sabre.buildergenerator.JdtTestCase;
+
+public class TypeHierarchyCacheTest extends JdtTestCase {
+    private TypeHierarchyCache cache;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        cache = new TypeHierarchyCache();
+    }
+
+    public void testShouldReuseHierarchy() throws Exception {
+        // given
+        IType mainType = buildJavaSource().forPackage("testpkg").forClassName("MyClass")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("public class MyClass {")
+            .withSourceLine("}")
+            .buildType();
+
+        // when
+        ITypeHierarchy first = cache.getSupertypeHierarchy(mainType);
+        ITypeHierarchy second = cache.getSupertypeHierarchy(mainType);
+
+        // then
+        assertSame("Hierarchy should be built only once", first, second);
+    }
+
+    public void testShouldEvictHierarchyOfSubclassWhenSuperclassChanges() throws Exception {
+        // given
+        IType superType = buildJavaSource().forPackage("testpkg").forClassName("MySuperClass")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("public class MySuperClass {")
+            .withSourceLine("}")
+            .buildType();
+        IType mainType = buildJavaSource().forPackage("testpkg").forClassName("MyClass")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("public class MyClass extends MySuperClass {")
+            .withSourceLine("}")
+            .buildType();
+        IType otherType = buildJavaSource().forPackage("testpkg").forClassName("MyOtherClass")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("public class MyOtherClass {")
+            .withSourceLine("}")
+            .buildType();
+        ITypeHierarchy mainHierarchy = cache.getSupertypeHierarchy(mainType);
+        ITypeHierarchy otherHierarchy = cache.getSupertypeHierarchy(otherType);
+
+        // when
+        cache.evict(Collections.<ICompilationUnit>singleton(superType.getCompilationUnit()));
+
+        // then
+        assertNotSame("Hierarchy depending on changed unit should be rebuilt", mainHierarchy,
+            cache.getSupertypeHierarchy(mainType));
+        assertSame("Unrelated hierarchy should be kept", otherHierarchy, cache.getSupertypeHierarchy(otherType));
+    }
+}
@@ -0,0 +1,86 @@
+package com.sabre.buildergenerator.eclipsejavamodel;
+
+import java.util.Collections;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaModelException;
+
+import com.sabre.buildergenerator.JdtTestCase;
+
+public class TypeResolutionCacheTest extends JdtTestCase {
+    private TypeResolutionCache cache;
+    private IType mainType;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        cache = new TypeResolutionCache();
+        mainType = buildJavaSource().forPackage("testpkg").forClassName("MyClass")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("public class MyClass {")
+            .withSourceLine("}")
+            .buildType();
+    }
+
+    public void testShouldResolveNameOnlyOnce() throws Exception {
+        // given
+        CountingResolver<String> resolver = new CountingResolver<String>("java.lang.String");
+
+        // when
+        String first = cache.resolveTypeName(mainType, "String", resolver);
+        String second = cache.resolveTypeName(mainType, "String", resolver);
+
+        // then
+        assertEquals("java.lang.String", first);
+        assertEquals("java.lang.String", second);
+        assertEquals("Resolver should be called once", 1, resolver.calls);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate(), 0.001);
+    }
+
+    public void testShouldRememberUnresolvableType() throws Exception {
+        // given
+        CountingResolver<IType> resolver = new CountingResolver<IType>(null);
+
+        // when
+        IType first = cache.resolveType(mainType, "Missing", resolver);
+        IType second = cache.resolveType(mainType, "Missing", resolver);
+
+        // then
+        assertNull(first);
+        assertNull(second);
+        assertEquals("Resolver should be called once", 1, resolver.calls);
+    }
+
+    public void testShouldResolveAgainAfterEviction() throws Exception {
+        // given
+        CountingResolver<String> resolver = new CountingResolver<String>("java.util.List");
+
+        cache.resolveTypeName(mainType, "List", resolver);
+
+        // when
+        cache.evict(Collections.<ICompilationUnit>singleton(mainType.getCompilationUnit()));
+        cache.resolveTypeName(mainType, "List", resolver);
+
+        // then
+        assertEquals("Resolver should be called again", 2, resolver.calls);
+    }
+
+    private static class CountingResolver<T> implements TypeResolutionCache.Resolver<T> {
+        private final T result;
+        private int calls;
+
+        public CountingResolver(T result) {
+            this.result = result;
+        }
+
+        public T resolve() throws JavaModelException {
+            calls++;
+
+            return result;
+        }
+    }
+}
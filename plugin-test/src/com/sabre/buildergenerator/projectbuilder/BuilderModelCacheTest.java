@@ -0,0 +1,102 @@
+package com.sabre.buildergenerator.projectbuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.jdt.core.IType;
+
+import com.sabre.buildergenerator.JdtTestCase;
+import com.sabre.buildergenerator.eclipsejavamodel.EclipseBuilderGenerator;
+import com.sabre.buildergenerator.sourcegenerator.BuilderModel;
+
+public class BuilderModelCacheTest extends JdtTestCase {
+    private File directory;
+    private BuilderModelCache cache;
+    private IType type;
+    private BuilderModel model;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        directory = File.createTempFile("models", "");
+        directory.delete();
+        cache = new BuilderModelCache(directory);
+        buildJavaSource().forPackage("testpkg").forClassName("MyValue")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("public class MyValue {")
+            .withSourceLine("    public void setValue(int aValue) {")
+            .withSourceLine("    }")
+            .withSourceLine("}")
+            .buildType();
+        type = buildJavaSource().forPackage("testpkg").forClassName("MyRoot")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("public class MyRoot {")
+            .withSourceLine("    public void setValue(MyValue aValue) {")
+            .withSourceLine("    }")
+            .withSourceLine("}")
+            .buildType();
+        model = new EclipseBuilderGenerator().generateModel(type, null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        delete(directory);
+        super.tearDown();
+    }
+
+    public void testShouldReturnStoredModel() throws Exception {
+        // given
+        cache.putModel(type.getJavaProject(), type, null, model);
+
+        // when
+        BuilderModel storedModel = new BuilderModelCache(directory).getModel(type.getJavaProject(), type, null);
+
+        // then
+        assertEquals(model, storedModel);
+    }
+
+    public void testShouldNotReturnModelOfOtherSetters() throws Exception {
+        // given
+        Map<String, Set<String>> selectedSetters = Collections.singletonMap("testpkg.MyRoot",
+            Collections.singleton("value"));
+        cache.putModel(type.getJavaProject(), type, null, model);
+
+        // when
+        BuilderModel storedModel = cache.getModel(type.getJavaProject(), type, selectedSetters);
+
+        // then
+        assertNull(storedModel);
+    }
+
+    public void testShouldNotReturnModelOfChangedType() throws Exception {
+        // given
+        cache.putModel(type.getJavaProject(), type, null, model);
+        IFile valueFile = (IFile) type.getJavaProject().findType("testpkg.MyValue").getResource();
+        valueFile.setContents(new ByteArrayInputStream(("package testpkg;\n\npublic class MyValue {\n"
+            + "    public void setValue(long aValue) {\n    }\n}\n").getBytes()), true, false, null);
+
+        // when
+        BuilderModel storedModel = cache.getModel(type.getJavaProject(), type, null);
+
+        // then
+        assertNull(storedModel);
+    }
+
+    private void delete(File file) {
+        File[] children = file.listFiles();
+
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+
+        file.delete();
+    }
+}
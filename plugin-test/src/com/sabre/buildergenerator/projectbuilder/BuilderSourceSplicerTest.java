@@ -0,0 +1,79 @@
+package com.sabre.buildergenerator.projectbuilder;
+
+import java.util.Collections;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+
+import com.sabre.buildergenerator.JdtTestCase;
+import com.sabre.buildergenerator.sourcegenerator.PartialBuilderSource;
+import com.sabre.buildergenerator.ui.actions.BuilderGenerationProperties;
+import com.sabre.buildergenerator.ui.actions.GenerateBuilderAction;
+
+public class BuilderSourceSplicerTest extends JdtTestCase {
+    private static final String CLASS_SOURCE = "public static class ValueBuilderBase {\n"
+        + "        public ValueBuilderBase withValue(int aValue) {\n            return this;\n        }\n    }";
+    private static final String BUILDER_SOURCE = "package testpkg;\n\npublic class MyBuilderBase {\n    "
+        + CLASS_SOURCE + "\n}\n";
+
+    private ICompilationUnit builderUnit;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        IType type = buildJavaSource().forPackage("testpkg").forClassName("My")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("public class My {")
+            .withSourceLine("}")
+            .buildType();
+        IPackageFragmentRoot sourceFolder = new BuilderGenerationProperties(type).getSourceFolder();
+
+        GenerateBuilderAction.writeSource(sourceFolder, "testpkg", "MyBuilderBase", BUILDER_SOURCE, null);
+        builderUnit = sourceFolder.getPackageFragment("testpkg").getCompilationUnit("MyBuilderBase.java");
+    }
+
+    public void testShouldReplaceChangedClass() throws Exception {
+        // given
+        String changedClassSource = CLASS_SOURCE.replace("int aValue", "long aValue");
+
+        // when
+        boolean spliced = BuilderSourceSplicer.splice(builderUnit, createPartialSource(changedClassSource), false,
+            null);
+
+        // then
+        assertTrue(spliced);
+        assertEquals(BUILDER_SOURCE.replace("int aValue", "long aValue"), builderUnit.getSource());
+    }
+
+    public void testShouldNotSaveUnsavedChangesOfBuilder() throws Exception {
+        // given
+        String changedClassSource = CLASS_SOURCE.replace("int aValue", "long aValue");
+        String editedSource = BUILDER_SOURCE.replace("aValue", "aNewValue");
+
+        builderUnit.becomeWorkingCopy(null);
+
+        try {
+            builderUnit.getBuffer().setContents(editedSource);
+
+            // when
+            boolean spliced = BuilderSourceSplicer.splice(builderUnit, createPartialSource(changedClassSource), false,
+                null);
+
+            // then
+            assertFalse(spliced);
+            assertEquals(editedSource, builderUnit.getSource());
+            assertTrue(builderUnit.hasUnsavedChanges());
+        } finally {
+            builderUnit.discardWorkingCopy();
+        }
+
+        assertEquals(BUILDER_SOURCE, builderUnit.getSource());
+    }
+
+    private PartialBuilderSource createPartialSource(String classSource) {
+        return new PartialBuilderSource("MyBuilderBase", null,
+            Collections.singletonMap("ValueBuilderBase", classSource), Collections.<String>emptySet());
+    }
+}
@@ -0,0 +1,59 @@
+package com.sabre.buildergenerator.projectbuilder;
+
+import org.eclipse.core.resources.ICommand;
+import org.eclipse.core.resources.IProject;
+
+import com.sabre.buildergenerator.JdtTestCase;
+
+public class FluentBuildersNatureTest extends JdtTestCase {
+    private IProject project;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        project = getJavaProject().getProject();
+    }
+
+    public void testShouldNotBeEnabledByDefault() throws Exception {
+        // when
+        boolean enabled = FluentBuildersNature.isEnabled(project);
+
+        // then
+        assertFalse(enabled);
+        assertEquals(-1, indexOf(FluentBuildersProjectBuilder.BUILDER_ID));
+    }
+
+    public void testShouldAddBuilderAheadOfJavaBuilder() throws Exception {
+        // when
+        FluentBuildersNature.toggle(project, null);
+
+        // then
+        assertTrue(FluentBuildersNature.isEnabled(project));
+        assertEquals(indexOf("org.eclipse.jdt.core.javabuilder") - 1, indexOf(FluentBuildersProjectBuilder.BUILDER_ID));
+    }
+
+    public void testShouldRemoveBuilderWithNature() throws Exception {
+        // given
+        FluentBuildersNature.toggle(project, null);
+
+        // when
+        FluentBuildersNature.toggle(project, null);
+
+        // then
+        assertFalse(FluentBuildersNature.isEnabled(project));
+        assertEquals(-1, indexOf(FluentBuildersProjectBuilder.BUILDER_ID));
+        assertTrue(indexOf("org.eclipse.jdt.core.javabuilder") != -1);
+    }
+
+    private int indexOf(String builderId) throws Exception {
+        ICommand[] commands = project.getDescription().getBuildSpec();
+
+        for (int i = 0; i < commands.length; i++) {
+            if (builderId.equals(commands[i].getBuilderName())) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
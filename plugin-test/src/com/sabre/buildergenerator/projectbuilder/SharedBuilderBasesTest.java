@@ -0,0 +1,138 @@
+package com.sabre.buildergenerator.projectbuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+
+import com.sabre.buildergenerator.JdtTestCase;
+import com.sabre.buildergenerator.eclipsejavamodel.EclipseBuilderGenerator;
+import com.sabre.buildergenerator.ui.actions.BuilderGenerationProperties;
+
+public class SharedBuilderBasesTest extends JdtTestCase {
+    private static final String SHARED_PACKAGE = "builders.shared";
+
+    private IProject project;
+    private IPackageFragmentRoot sourceFolder;
+    private EclipseBuilderGenerator generator;
+    private IType firstType;
+    private IType secondType;
+    private IType otherAddressType;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        project = getJavaProject().getProject();
+        generator = new EclipseBuilderGenerator();
+        buildJavaSource().forPackage("pkga").forClassName("Address")
+            .withSourceLine("package pkga;")
+            .withSourceLine("")
+            .withSourceLine("public class Address {")
+            .withSourceLine("    public void setStreet(String aStreet) {")
+            .withSourceLine("    }")
+            .withSourceLine("}")
+            .buildType();
+        buildJavaSource().forPackage("pkgb").forClassName("Address")
+            .withSourceLine("package pkgb;")
+            .withSourceLine("")
+            .withSourceLine("public class Address {")
+            .withSourceLine("    public void setCity(String aCity) {")
+            .withSourceLine("    }")
+            .withSourceLine("}")
+            .buildType();
+        firstType = buildRootType("First", "pkga.Address");
+        secondType = buildRootType("Second", "pkga.Address");
+        otherAddressType = buildRootType("Third", "pkgb.Address");
+        sourceFolder = new BuilderGenerationProperties(firstType).getSourceFolder();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        for (GeneratedBuilder builder : new ArrayList<GeneratedBuilder>(
+                GeneratedBuilders.getDefault().getBuilders(project))) {
+            GeneratedBuilders.getDefault().unregister(project, builder.getBuilderTypeName());
+        }
+
+        super.tearDown();
+    }
+
+    public void testShouldGenerateSharedClassOnceForBuildersReachingType() throws Exception {
+        // given
+        writeBuilder(firstType, "with");
+
+        // when
+        writeBuilder(secondType, "with");
+
+        // then
+        GeneratedBuilder sharedClass = GeneratedBuilders.getDefault().getBuilder(project,
+            SHARED_PACKAGE + ".AddressBuilderBase");
+
+        assertTrue(sharedClass.isSharedBaseClass());
+        assertEquals("pkga.Address", sharedClass.getTypeName());
+        assertTrue(getSharedUnit().exists());
+    }
+
+    public void testShouldRefuseTypeWithNameOfSharedType() throws Exception {
+        // given
+        writeBuilder(firstType, "with");
+        String source = getSharedUnit().getSource();
+
+        // when
+        try {
+            writeBuilder(otherAddressType, "with");
+            fail();
+        } catch (CoreException e) {
+            // then
+            assertEquals("pkga.Address", GeneratedBuilders.getDefault().getBuilder(project,
+                SHARED_PACKAGE + ".AddressBuilderBase").getTypeName());
+            assertEquals(source, getSharedUnit().getSource());
+            assertFalse(sourceFolder.getPackageFragment("builders").getCompilationUnit("ThirdBuilder.java").exists());
+        }
+    }
+
+    public void testShouldRefuseBuilderWithOtherPrefixes() throws Exception {
+        // given
+        writeBuilder(firstType, "with");
+        String source = getSharedUnit().getSource();
+
+        // when
+        try {
+            writeBuilder(secondType, "set");
+            fail();
+        } catch (CoreException e) {
+            // then
+            assertEquals("with", GeneratedBuilders.getDefault().getBuilder(project,
+                SHARED_PACKAGE + ".AddressBuilderBase").getMethodsPrefix());
+            assertEquals(source, getSharedUnit().getSource());
+            assertFalse(sourceFolder.getPackageFragment("builders").getCompilationUnit("SecondBuilder.java").exists());
+        }
+    }
+
+    private IType buildRootType(String name, String addressType) throws Exception {
+        return buildJavaSource().forPackage("testpkg").forClassName(name)
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("public class " + name + " {")
+            .withSourceLine("    public void setAddress(" + addressType + " aAddress) {")
+            .withSourceLine("    }")
+            .withSourceLine("}")
+            .buildType();
+    }
+
+    private void writeBuilder(IType type, String methodsPrefix) throws Exception {
+        GeneratedBuilder builder = new GeneratedBuilder(type.getFullyQualifiedName(),
+            sourceFolder.getHandleIdentifier(), "builders", type.getElementName() + "Builder", methodsPrefix,
+            "withAdded", "end", false, true, SHARED_PACKAGE, false, null, Collections.<String>emptySet());
+
+        SharedBuilderBases.writeBuilder(generator, sourceFolder, builder, generator.generateModel(type, null), null,
+            null);
+    }
+
+    private ICompilationUnit getSharedUnit() {
+        return sourceFolder.getPackageFragment(SHARED_PACKAGE).getCompilationUnit("AddressBuilderBase.java");
+    }
+}
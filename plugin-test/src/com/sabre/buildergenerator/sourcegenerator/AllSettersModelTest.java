@@ -0,0 +1,111 @@
+package com.sabre.buildergenerator.sourcegenerator;
+
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+
+import com.sabre.buildergenerator.JdtTestCase;
+import com.sabre.buildergenerator.eclipsejavamodel.EclipseBuilderGenerator;
+import com.sabre.buildergenerator.sourcegenerator.BuilderModel.ClassModel;
+import com.sabre.buildergenerator.sourcegenerator.BuilderModel.SetterModel;
+
+public class AllSettersModelTest extends JdtTestCase {
+    private IType mainType;
+    private IType otherType;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        otherType = buildJavaSource().forPackage("testpkg").forClassName("MyOther")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("public class MyOther {")
+            .withSourceLine("    public void setValue(int aValue) {")
+            .withSourceLine("    }")
+            .withSourceLine("}")
+            .buildType();
+        mainType = buildJavaSource().forPackage("testpkg").forClassName("MyClass")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("import java.util.List;")
+            .withSourceLine("")
+            .withSourceLine("public class MyClass {")
+            .withSourceLine("    public void setName(String aName) {")
+            .withSourceLine("    }")
+            .withSourceLine("")
+            .withSourceLine("    public void setOther(MyOther aOther) {")
+            .withSourceLine("    }")
+            .withSourceLine("")
+            .withSourceLine("    public void setOthers(List<MyOther> aOthers) {")
+            .withSourceLine("    }")
+            .withSourceLine("}")
+            .buildType();
+    }
+
+    public void testShouldGenerateModelOfAllSettersOfReferencedTypes() throws Exception {
+        // given
+        EclipseBuilderGenerator generator = new EclipseBuilderGenerator();
+
+        // when
+        BuilderModel model = generator.generateModel(mainType, null);
+
+        // then
+        ClassModel rootClass = model.getRootClass();
+
+        assertEquals("testpkg.MyClass", rootClass.getQualifiedName());
+        assertEquals(3, rootClass.getSetters().size());
+        assertEquals(2, model.getClasses().size());
+
+        SetterModel othersSetter = findSetter(rootClass.getSetters(), "others");
+
+        assertTrue(othersSetter.isCollection());
+        assertTrue(othersSetter.hasElementBuilder());
+        assertFalse(findSetter(rootClass.getSetters(), "name").hasFieldBuilder());
+    }
+
+    public void testShouldGenerateSameSourceFromAllSettersModel() throws Exception {
+        // given
+        final BuilderModel allSettersModel = new EclipseBuilderGenerator().generateModel(mainType, null);
+        final MethodProvider<IType, IMethod> methodProvider = new MethodProvider<IType, IMethod>() {
+            public void process(MethodConsumer<IType, IMethod> consumer) {
+                try {
+                    for (IType type : new IType[] { mainType, otherType }) {
+                        for (IMethod method : type.getMethods()) {
+                            consumer.nextMethod(type, method);
+                        }
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        String expectedSource = new EclipseBuilderGenerator().generateSource(mainType, "testpkg", "MyClassBuilder",
+            methodProvider, "with", "withAdded", "end");
+
+        // when
+        String source = new EclipseBuilderGenerator().generateSource(mainType, "testpkg", "MyClassBuilder",
+            new AnalyzedMethodProvider<IType, IMethod>() {
+                public void process(MethodConsumer<IType, IMethod> consumer) {
+                    methodProvider.process(consumer);
+                }
+
+                public BuilderModel getAllSettersModel() {
+                    return allSettersModel;
+                }
+            }, "with", "withAdded", "end");
+
+        // then
+        assertEquals(expectedSource, source);
+    }
+
+    private SetterModel findSetter(Iterable<SetterModel> setters, String fieldName) {
+        for (SetterModel setter : setters) {
+            if (setter.getFieldName().equals(fieldName)) {
+                return setter;
+            }
+        }
+
+        fail("no setter for " + fieldName);
+
+        return null;
+    }
+}
@@ -0,0 +1,79 @@
+package com.sabre.buildergenerator.sourcegenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.jdt.core.IType;
+
+import com.sabre.buildergenerator.JdtTestCase;
+import com.sabre.buildergenerator.eclipsejavamodel.EclipseBuilderGenerator;
+
+public class BuilderGeneratorBatchTest extends JdtTestCase {
+    private IType firstType;
+    private IType secondType;
+    private EclipseBuilderGenerator generator;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        buildJavaSource().forPackage("testpkg").forClassName("MyValue")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("public class MyValue {")
+            .withSourceLine("    public void setValue(int aValue) {")
+            .withSourceLine("    }")
+            .withSourceLine("}")
+            .buildType();
+        firstType = buildJavaSource().forPackage("testpkg").forClassName("MyFirst")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("public class MyFirst {")
+            .withSourceLine("    public void setValue(MyValue aValue) {")
+            .withSourceLine("    }")
+            .withSourceLine("}")
+            .buildType();
+        secondType = buildJavaSource().forPackage("testpkg").forClassName("MySecond")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("import java.util.List;")
+            .withSourceLine("")
+            .withSourceLine("public class MySecond {")
+            .withSourceLine("    public void setValues(List<MyValue> aValues) {")
+            .withSourceLine("    }")
+            .withSourceLine("}")
+            .buildType();
+        generator = new EclipseBuilderGenerator();
+    }
+
+    public void testShouldGenerateSameSourcesAsOneByOne() throws Exception {
+        // given
+        String firstSource = generator.generateSource(firstType, "testpkg", "MyFirstBuilder", null, "with",
+            "withAdded", "end");
+        String secondSource = generator.generateSource(secondType, "testpkg", "MySecondBuilder", null, "with",
+            "withAdded", "end");
+        final List<String> builderNames = new ArrayList<String>();
+        final List<String> sources = new ArrayList<String>();
+        final List<Set<String>> referencedTypeNames = new ArrayList<Set<String>>();
+
+        // when
+        generator.generateSources(Arrays.asList(firstType, secondType), null,
+            new GenerationOptions(null, "with", "withAdded", "end"), new BuilderSourceConsumer<IType>() {
+                public void nextBuilder(IType type, String packageName, String builderName, String builderSource,
+                    Set<String> typeNames) {
+                    assertEquals("testpkg", packageName);
+                    builderNames.add(builderName);
+                    sources.add(builderSource);
+                    referencedTypeNames.add(typeNames);
+                }
+            });
+
+        // then
+        assertEquals(Arrays.asList("MyFirstBuilder", "MySecondBuilder"), builderNames);
+        assertEquals(Arrays.asList(firstSource, secondSource), sources);
+        assertTrue(referencedTypeNames.get(0).contains("testpkg.MyFirst"));
+        assertTrue(referencedTypeNames.get(0).contains("testpkg.MyValue"));
+        assertTrue(referencedTypeNames.get(1).contains("testpkg.MyValue"));
+    }
+}
@@ -0,0 +1,55 @@
+package com.sabre.buildergenerator.sourcegenerator;
+
+import org.eclipse.jdt.core.IType;
+
+import com.sabre.buildergenerator.JdtTestCase;
+import com.sabre.buildergenerator.eclipsejavamodel.EclipseBuilderGenerator;
+
+public class BuilderGeneratorModelTest extends JdtTestCase {
+    private EclipseBuilderGenerator generator;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        buildMyValue();
+        generator = new EclipseBuilderGenerator();
+    }
+
+    public void testShouldGenerateSameSourceFromModel() throws Exception {
+        // given
+        IType type = buildMyRoot();
+        BuilderModel model = generator.generateModel(type, null);
+
+        // when
+        String source = generator.generateSource(model, "builders", "MyRootBuilder", "set", "add", "done");
+
+        // then
+        assertEquals(generator.generateSource(type, "builders", "MyRootBuilder", null, "set", "add", "done"), source);
+        assertEquals(2, model.getClasses().size());
+        assertEquals("testpkg.MyRoot", model.getRootClass().getQualifiedName());
+    }
+
+    private IType buildMyRoot() throws Exception {
+        return buildJavaSource().forPackage("testpkg").forClassName("MyRoot")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("import java.util.List;")
+            .withSourceLine("")
+            .withSourceLine("public class MyRoot {")
+            .withSourceLine("    public void setValues(List<MyValue> aValues) {")
+            .withSourceLine("    }")
+            .withSourceLine("}")
+            .buildType();
+    }
+
+    private void buildMyValue() throws Exception {
+        buildJavaSource().forPackage("testpkg").forClassName("MyValue")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("public class MyValue {")
+            .withSourceLine("    public void setValue(int aValue) {")
+            .withSourceLine("    }")
+            .withSourceLine("}")
+            .buildType();
+    }
+}
@@ -0,0 +1,79 @@
+package com.sabre.buildergenerator.sourcegenerator;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.jdt.core.IType;
+
+import com.sabre.buildergenerator.JdtTestCase;
+import com.sabre.buildergenerator.eclipsejavamodel.EclipseBuilderGenerator;
+
+public class BuilderGeneratorPartialTest extends JdtTestCase {
+    private IType type;
+    private EclipseBuilderGenerator generator;
+    private BuilderOutline outline;
+    private String source;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        buildJavaSource().forPackage("testpkg").forClassName("MyValue")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("public class MyValue {")
+            .withSourceLine("    public void setValue(int aValue) {")
+            .withSourceLine("    }")
+            .withSourceLine("}")
+            .buildType();
+        buildJavaSource().forPackage("testpkg").forClassName("MyMiddle")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("public class MyMiddle {")
+            .withSourceLine("    public void setValue(MyValue aValue) {")
+            .withSourceLine("    }")
+            .withSourceLine("}")
+            .buildType();
+        type = buildJavaSource().forPackage("testpkg").forClassName("MyRoot")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("public class MyRoot {")
+            .withSourceLine("    public void setMiddle(MyMiddle aMiddle) {")
+            .withSourceLine("    }")
+            .withSourceLine("}")
+            .buildType();
+        generator = new EclipseBuilderGenerator();
+        source = generator.generateSource(type, "testpkg", "MyRootBuilder", null, "with", "withAdded", "end");
+        outline = new BuilderOutline(Collections.<String>emptyList(), Arrays.asList("MyRootBuilderBase",
+            "MyMiddleBuilderBase", "MyValueBuilderBase"));
+    }
+
+    public void testShouldGenerateOnlyClassOfChangedType() throws Exception {
+        // given
+        Set<String> referencedTypeNames = new TreeSet<String>();
+
+        // when
+        PartialBuilderSource partialSource = generator.generateChangedClasses(type, "testpkg", "MyRootBuilder", null,
+            "with", "withAdded", "end", outline, Collections.singleton("testpkg.MyValue"), referencedTypeNames);
+
+        // then
+        assertEquals("MyRootBuilderBase", partialSource.getRootClassName());
+        assertNull(partialSource.getRootClassSource());
+        assertEquals(Collections.singleton("MyValueBuilderBase"), partialSource.getClassSources().keySet());
+        assertTrue(source.contains("    " + partialSource.getClassSources().get("MyValueBuilderBase")));
+        assertTrue(partialSource.getNewImports().isEmpty());
+        assertEquals(Collections.singleton("testpkg.MyValue"), referencedTypeNames);
+    }
+
+    public void testShouldGenerateRootClassIfSetterTypeChanged() throws Exception {
+        // when
+        PartialBuilderSource partialSource = generator.generateChangedClasses(type, "testpkg", "MyRootBuilder", null,
+            "with", "withAdded", "end", outline, Collections.singleton("testpkg.MyMiddle"), null);
+
+        // then
+        String rootClassSource = partialSource.getRootClassSource();
+        assertTrue(source.contains(rootClassSource.substring(0, rootClassSource.lastIndexOf('}'))));
+        assertEquals(Collections.singleton("MyMiddleBuilderBase"), partialSource.getClassSources().keySet());
+    }
+}
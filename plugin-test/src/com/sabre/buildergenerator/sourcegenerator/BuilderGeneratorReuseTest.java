@@ -0,0 +1,100 @@
+package com.sabre.buildergenerator.sourcegenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.jdt.core.IType;
+
+import com.sabre.buildergenerator.JdtTestCase;
+import com.sabre.buildergenerator.eclipsejavamodel.EclipseBuilderGenerator;
+
+public class BuilderGeneratorReuseTest extends JdtTestCase {
+    private IType mainType;
+    private EclipseBuilderGenerator generator;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        buildJavaSource().forPackage("testpkg").forClassName("MyOther")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("public class MyOther {")
+            .withSourceLine("    public void setValue(int aValue) {")
+            .withSourceLine("    }")
+            .withSourceLine("}")
+            .buildType();
+        mainType = buildJavaSource().forPackage("testpkg").forClassName("MyClass")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("public class MyClass {")
+            .withSourceLine("    public void setOther(MyOther aOther) {")
+            .withSourceLine("    }")
+            .withSourceLine("}")
+            .buildType();
+        generator = new EclipseBuilderGenerator();
+    }
+
+    public void testShouldGenerateSameSourceWhenReused() throws Exception {
+        // given
+        String firstSource = generate();
+
+        // when
+        String secondSource = generate();
+
+        // then
+        assertTrue("Nested builder base expected", firstSource.contains("MyOtherBuilderBase"));
+        assertEquals(firstSource, secondSource);
+    }
+
+    public void testShouldGenerateConcurrently() throws Exception {
+        // given
+        String expectedSource = generate();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<String>> results = new ArrayList<Future<String>>();
+
+        // when
+        try {
+            for (int i = 0; i < 16; i++) {
+                results.add(executor.submit(new Callable<String>() {
+                    public String call() throws Exception {
+                        return generate();
+                    }
+                }));
+            }
+
+            // then
+            for (Future<String> result : results) {
+                assertEquals(expectedSource, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testShouldGenerateSameSourceWithAnalysisExecutor() throws Exception {
+        // given
+        String expectedSource = generate();
+        ExecutorService analysisExecutor = Executors.newFixedThreadPool(4);
+
+        // when
+        String source;
+
+        try {
+            generator.setAnalysisExecutor(analysisExecutor);
+            source = generate();
+        } finally {
+            analysisExecutor.shutdown();
+        }
+
+        // then
+        assertEquals(expectedSource, source);
+    }
+
+    private String generate() throws Exception {
+        return generator.generateSource(mainType, "testpkg", "MyClassBuilder", null, "with", "withAdded", "end");
+    }
+}
@@ -0,0 +1,62 @@
+package com.sabre.buildergenerator.sourcegenerator;
+
+import java.io.StringWriter;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.jdt.core.IType;
+
+import com.sabre.buildergenerator.JdtTestCase;
+import com.sabre.buildergenerator.eclipsejavamodel.EclipseBuilderGenerator;
+import com.sabre.buildergenerator.sourcegenerator.java.IndentWriter;
+import com.sabre.buildergenerator.sourcegenerator.java.PrintingJavaSourceEmitter;
+
+public class BuilderGeneratorStreamingTest extends JdtTestCase {
+    public void testShouldEmitSameSourceAsGenerated() throws Exception {
+        // given
+        buildJavaSource().forPackage("testpkg").forClassName("MyValue")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("public class MyValue {")
+            .withSourceLine("    public void setValue(int aValue) {")
+            .withSourceLine("    }")
+            .withSourceLine("}")
+            .buildType();
+        buildJavaSource().forPackage("testpkg").forClassName("MyMiddle")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("import java.util.List;")
+            .withSourceLine("")
+            .withSourceLine("public class MyMiddle {")
+            .withSourceLine("    public void setValues(List<MyValue> aValues) {")
+            .withSourceLine("    }")
+            .withSourceLine("}")
+            .buildType();
+        IType type = buildJavaSource().forPackage("testpkg").forClassName("MyRoot")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("public class MyRoot {")
+            .withSourceLine("    public void setMiddle(MyMiddle aMiddle) {")
+            .withSourceLine("    }")
+            .withSourceLine("    public void setValue(MyValue aValue) {")
+            .withSourceLine("    }")
+            .withSourceLine("}")
+            .buildType();
+        EclipseBuilderGenerator generator = new EclipseBuilderGenerator();
+        Set<String> referencedTypeNames = new TreeSet<String>();
+        String source = generator.generateSource(type, "builders", "MyRootBuilder", null, "with", "withAdded", "end",
+            referencedTypeNames);
+        StringWriter sw = new StringWriter();
+        IndentWriter w = new IndentWriter(sw);
+        Set<String> emittedTypeNames = new TreeSet<String>();
+
+        // when
+        generator.generateSource(type, "builders", "MyRootBuilder", null, "with", "withAdded", "end",
+            emittedTypeNames, new PrintingJavaSourceEmitter(w));
+        w.flush();
+
+        // then
+        assertEquals(source, sw.toString());
+        assertEquals(referencedTypeNames, emittedTypeNames);
+    }
+}
@@ -0,0 +1,86 @@
+package com.sabre.buildergenerator.ui.actions;
+
+import org.eclipse.jdt.core.IType;
+
+import com.sabre.buildergenerator.JdtTestCase;
+import com.sabre.buildergenerator.eclipsejavamodel.EclipseBuilderGenerator;
+import com.sabre.buildergenerator.sourcegenerator.java.FormattingProfile;
+
+/**
+ * Compares the time of generating a formatted builder by passing it through the code formatter with the time of
+ * generating it laid out by the formatting profile. Not part of the regular tests, run on its own.
+ */
+public class FormattedGenerationBenchmark extends JdtTestCase {
+    private static final int TYPE_COUNT = 50;
+    private static final int WARM_UP_RUNS = 3;
+    private static final int RUNS = 10;
+
+    private IType rootType;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        for (int i = TYPE_COUNT - 1; i >= 0; i--) {
+            IType type = buildJavaSource().forPackage("testpkg").forClassName("MyType" + i)
+                .withSourceLine("package testpkg;")
+                .withSourceLine("")
+                .withSourceLine("import java.util.List;")
+                .withSourceLine("")
+                .withSourceLine("public class MyType" + i + " {")
+                .withSourceLine("    public void setName(String aName) {")
+                .withSourceLine("    }")
+                .withSourceLine("")
+                .withSourceLine("    public void setCount(int aCount) {")
+                .withSourceLine("    }")
+                .withSourceLine("")
+                .withSourceLine("    public void setNext(MyType" + (i + 1) % TYPE_COUNT + " aNext) {")
+                .withSourceLine("    }")
+                .withSourceLine("")
+                .withSourceLine("    public void setItems(List<MyType" + (i + 2) % TYPE_COUNT + "> aItems) {")
+                .withSourceLine("    }")
+                .withSourceLine("}")
+                .buildType();
+
+            rootType = type;
+        }
+    }
+
+    public void testFormattedGeneration() throws Exception {
+        FormattingProfile profile = GenerateBuilderAction.getFormattingProfile();
+        EclipseBuilderGenerator formatterGenerator = new EclipseBuilderGenerator();
+        EclipseBuilderGenerator profileGenerator = new EclipseBuilderGenerator();
+
+        profileGenerator.setFormattingProfile(profile);
+
+        String formattedSource = null;
+        String profileSource = null;
+        long formatterTime = 0;
+        long profileTime = 0;
+
+        for (int run = 0; run < WARM_UP_RUNS + RUNS; run++) {
+            long start = System.nanoTime();
+
+            formattedSource = GenerateBuilderAction.formatSource(generate(formatterGenerator));
+
+            long formatted = System.nanoTime();
+
+            profileSource = GenerateBuilderAction.formatSource(generate(profileGenerator), profile);
+
+            long laidOut = System.nanoTime();
+
+            if (run >= WARM_UP_RUNS) {
+                formatterTime += formatted - start;
+                profileTime += laidOut - formatted;
+            }
+        }
+
+        System.out.println("builder of " + TYPE_COUNT + " types, " + profileSource.length() + " chars: code formatter "
+            + formatterTime / RUNS / 1000000 + " ms, formatting profile " + profileTime / RUNS / 1000000 + " ms");
+        assertEquals(formattedSource, profileSource);
+    }
+
+    private String generate(EclipseBuilderGenerator generator) throws Exception {
+        return generator.generateSource(rootType, "testpkg", "MyType0Builder", null, "with", "withAdded", "end");
+    }
+}
@@ -0,0 +1,149 @@
+package com.sabre.buildergenerator.ui.actions;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+
+import com.sabre.buildergenerator.JdtTestCase;
+import com.sabre.buildergenerator.eclipsejavamodel.EclipseBuilderGenerator;
+import com.sabre.buildergenerator.sourcegenerator.java.FormattingProfile;
+
+public class GenerateBuilderActionTest extends JdtTestCase {
+    private static final String BUILDER_SOURCE = "package testpkg;\n\npublic class MyBuilder {\n"
+        + "    public MyBuilder withValue(int aValue) {\n        return this;\n    }\n}\n";
+
+    private IPackageFragmentRoot sourceFolder;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        IType type = buildJavaSource().forPackage("testpkg").forClassName("My")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("public class My {")
+            .withSourceLine("}")
+            .buildType();
+        sourceFolder = new BuilderGenerationProperties(type).getSourceFolder();
+    }
+
+    public void testShouldReplaceChangedLinesOfExistingBuilder() throws Exception {
+        // given
+        String changedSource = BUILDER_SOURCE.replace("int aValue", "long aValue");
+        GenerateBuilderAction.writeSource(sourceFolder, "testpkg", "MyBuilder", BUILDER_SOURCE, null);
+
+        // when
+        boolean written = GenerateBuilderAction.writeSource(sourceFolder, "testpkg", "MyBuilder", changedSource, null);
+
+        // then
+        assertTrue(written);
+        assertEquals(changedSource,
+            sourceFolder.getPackageFragment("testpkg").getCompilationUnit("MyBuilder.java").getSource());
+    }
+
+    public void testShouldNotWriteUnchangedBuilder() throws Exception {
+        // given
+        GenerateBuilderAction.writeSource(sourceFolder, "testpkg", "MyBuilder", BUILDER_SOURCE, null);
+
+        // when
+        boolean written = GenerateBuilderAction.writeSource(sourceFolder, "testpkg", "MyBuilder", BUILDER_SOURCE, null);
+
+        // then
+        assertFalse(written);
+    }
+
+    public void testShouldNotOverwriteUnsavedChangesOfBuilder() throws Exception {
+        // given
+        String changedSource = BUILDER_SOURCE.replace("int aValue", "long aValue");
+        String editedSource = BUILDER_SOURCE.replace("aValue", "aNewValue");
+        GenerateBuilderAction.writeSource(sourceFolder, "testpkg", "MyBuilder", BUILDER_SOURCE, null);
+        ICompilationUnit compilationUnit = sourceFolder.getPackageFragment("testpkg").getCompilationUnit(
+            "MyBuilder.java");
+
+        compilationUnit.becomeWorkingCopy(null);
+
+        try {
+            compilationUnit.getBuffer().setContents(editedSource);
+
+            // when
+            try {
+                GenerateBuilderAction.writeSource(sourceFolder, "testpkg", "MyBuilder", changedSource, null);
+                fail();
+            } catch (CoreException e) {
+                // then
+                assertEquals(editedSource, compilationUnit.getSource());
+                assertTrue(compilationUnit.hasUnsavedChanges());
+            }
+        } finally {
+            compilationUnit.discardWorkingCopy();
+        }
+
+        assertEquals(BUILDER_SOURCE, compilationUnit.getSource());
+    }
+
+    public void testShouldNotFormatSourceLaidOutByProfile() throws Exception {
+        // given
+        FormattingProfile profile = new FormattingProfile(false, 4, 80, 2, false, 1, true);
+        String source = BUILDER_SOURCE.replace("    public MyBuilder", "    public   MyBuilder");
+
+        // when
+        String formattedSource = GenerateBuilderAction.formatSource(source, profile);
+
+        // then
+        assertEquals(source, formattedSource);
+    }
+
+    public void testShouldGenerateSourceTheCodeFormatterLeavesUnchanged() throws Exception {
+        // given
+        buildJavaSource().forPackage("testpkg").forClassName("MyValue")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("public class MyValue<T extends Comparable<T>> {")
+            .withSourceLine("    public void setValue(T aValue) throws java.io.IOException {")
+            .withSourceLine("    }")
+            .withSourceLine("}")
+            .buildType();
+        IType type = buildJavaSource().forPackage("testpkg").forClassName("MyRootWithQuiteALongNameOfTheType")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("import java.util.List;")
+            .withSourceLine("")
+            .withSourceLine("public class MyRootWithQuiteALongNameOfTheType {")
+            .withSourceLine("    public void setName(String aName) {")
+            .withSourceLine("    }")
+            .withSourceLine("")
+            .withSourceLine("    public void setValues(List<MyValue<String>> aValues) {")
+            .withSourceLine("    }")
+            .withSourceLine("")
+            .withSourceLine("    public void setOtherValue(MyValue<Integer> aValue) {")
+            .withSourceLine("    }")
+            .withSourceLine("}")
+            .buildType();
+        FormattingProfile profile = GenerateBuilderAction.getFormattingProfile();
+        EclipseBuilderGenerator generator = new EclipseBuilderGenerator();
+
+        generator.setFormattingProfile(profile);
+
+        // when
+        String source = generator.generateSource(type, "testpkg", "MyRootWithQuiteALongNameOfTheTypeBuilder", null,
+            "with", "withAdded", "end");
+
+        // then
+        assertNotNull("default formatter settings not covered by a profile", profile);
+        assertTrue(profile.fits(source));
+        assertEquals(GenerateBuilderAction.formatSource(source), source);
+    }
+
+    public void testShouldFormatSourceWithTooLongLines() throws Exception {
+        // given
+        FormattingProfile profile = new FormattingProfile(false, 4, 20, 2, false, 1, true);
+        String source = BUILDER_SOURCE.replace("return this;", "return   this;");
+
+        // when
+        String formattedSource = GenerateBuilderAction.formatSource(source, profile);
+
+        // then
+        assertEquals(GenerateBuilderAction.formatSource(source), formattedSource);
+        assertFalse(source.equals(formattedSource));
+    }
+}
@@ -0,0 +1,76 @@
+package com.sabre.buildergenerator.ui.actions;
+
+import java.util.Arrays;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+
+import com.sabre.buildergenerator.JdtTestCase;
+
+public class GenerateBuildersJobTest extends JdtTestCase {
+    private IType firstType;
+    private IType secondType;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        firstType = buildJavaSource().forPackage("testpkg").forClassName("MyFirst")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("public class MyFirst {")
+            .withSourceLine("    public void setValue(int aValue) {")
+            .withSourceLine("    }")
+            .withSourceLine("}")
+            .buildType();
+        secondType = buildJavaSource().forPackage("testpkg").forClassName("MySecond")
+            .withSourceLine("package testpkg;")
+            .withSourceLine("")
+            .withSourceLine("public class MySecond {")
+            .withSourceLine("    public void setFirst(MyFirst aFirst) {")
+            .withSourceLine("    }")
+            .withSourceLine("}")
+            .buildType();
+    }
+
+    public void testShouldWriteBuildersOfAllTypes() throws Exception {
+        // given
+        BuilderGenerationProperties firstProperties = new BuilderGenerationProperties(firstType);
+        BuilderGenerationProperties secondProperties = new BuilderGenerationProperties(secondType);
+        IPackageFragmentRoot sourceFolder = firstProperties.getSourceFolder();
+        GenerateBuildersJob job = new GenerateBuildersJob(sourceFolder, Arrays.asList(firstProperties,
+            secondProperties));
+
+        // when
+        job.schedule();
+        job.join();
+
+        // then
+        assertEquals(IStatus.OK, job.getResult().getSeverity());
+        assertTrue(sourceFolder.getPackageFragment("testpkg").getCompilationUnit("MyFirstBuilder.java").exists());
+        assertTrue(sourceFolder.getPackageFragment("testpkg").getCompilationUnit("MySecondBuilder.java").exists());
+    }
+
+    public void testShouldNotRewriteUnchangedBuilder() throws Exception {
+        // given
+        BuilderGenerationProperties properties = new BuilderGenerationProperties(firstType);
+        IPackageFragmentRoot sourceFolder = properties.getSourceFolder();
+        GenerateBuildersJob job = new GenerateBuildersJob(sourceFolder, Arrays.asList(properties));
+
+        job.schedule();
+        job.join();
+
+        IResource builderFile = sourceFolder.getPackageFragment("testpkg").getCompilationUnit("MyFirstBuilder.java")
+            .getResource();
+        long modificationStamp = builderFile.getModificationStamp();
+
+        // when
+        job.schedule();
+        job.join();
+
+        // then
+        assertEquals(IStatus.OK, job.getResult().getSeverity());
+        assertEquals(modificationStamp, builderFile.getModificationStamp());
+    }
+}
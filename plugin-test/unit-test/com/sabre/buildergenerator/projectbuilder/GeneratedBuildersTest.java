@@ -0,0 +1,145 @@
+package com.sabre.buildergenerator.projectbuilder;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.resources.IProject;
+
+public class GeneratedBuildersTest extends TestCase {
+
+	private GeneratedBuilders generatedBuilders;
+	private IProject project;
+
+	public void setUp() {
+		generatedBuilders = new GeneratedBuilders();
+		project = mock(IProject.class);
+		when(project.getName()).thenReturn("project");
+	}
+
+	public void testShouldFindBuildersGeneratedFromChangedTypes() {
+		// given
+		GeneratedBuilder personBuilder = createBuilder("PersonBuilder", "model.Person", "model.Address");
+		GeneratedBuilder companyBuilder = createBuilder("CompanyBuilder", "model.Company");
+		generatedBuilders.register(project, personBuilder);
+		generatedBuilders.register(project, companyBuilder);
+
+		// when
+		List<GeneratedBuilder> staleBuilders = generatedBuilders.getStaleBuilders(project,
+				Collections.singleton("model.Address"));
+
+		// then
+		assertEquals(Arrays.asList(personBuilder), staleBuilders);
+	}
+
+	public void testShouldReplaceBuilderWithTheSameName() {
+		// given
+		generatedBuilders.register(project, createBuilder("PersonBuilder", "model.Person", "model.Address"));
+
+		// when
+		generatedBuilders.register(project, createBuilder("PersonBuilder", "model.Person"));
+
+		// then
+		assertEquals(1, generatedBuilders.getBuilders(project).size());
+		assertTrue(generatedBuilders.getStaleBuilders(project, Collections.singleton("model.Address")).isEmpty());
+	}
+
+	public void testShouldForgetUnregisteredBuilder() {
+		// given
+		generatedBuilders.register(project, createBuilder("PersonBuilder", "model.Person"));
+
+		// when
+		generatedBuilders.unregister(project, "builders.PersonBuilder");
+
+		// then
+		assertFalse(generatedBuilders.isBuilder(project, "builders.PersonBuilder"));
+		assertTrue(generatedBuilders.getBuilders(project).isEmpty());
+	}
+
+	public void testShouldLoadSavedBuilders() throws Exception {
+		// given
+		File indexFile = File.createTempFile("builders", ".index");
+		indexFile.delete();
+		GeneratedBuilders savedBuilders = new GeneratedBuilders(indexFile);
+		savedBuilders.register(project, createBuilder("PersonBuilder", "model.Person", "model.Address"));
+		savedBuilders.save();
+
+		try {
+			// when
+			GeneratedBuilders loadedBuilders = new GeneratedBuilders(indexFile);
+
+			// then
+			List<GeneratedBuilder> staleBuilders = loadedBuilders.getStaleBuilders(project,
+					Collections.singleton("model.Address"));
+			assertEquals(1, staleBuilders.size());
+			assertEquals("builders.PersonBuilder", staleBuilders.get(0).getBuilderTypeName());
+			assertEquals("withAdded", staleBuilders.get(0).getCollectionAddPrefix());
+			assertNull(staleBuilders.get(0).getSelectedSetters());
+		} finally {
+			indexFile.delete();
+		}
+	}
+
+	public void testShouldLoadSavedOptionFlags() throws Exception {
+		// given
+		File indexFile = File.createTempFile("builders", ".index");
+		indexFile.delete();
+		GeneratedBuilders savedBuilders = new GeneratedBuilders(indexFile);
+		savedBuilders.register(project, new GeneratedBuilder("model.Person", "=project/src", "builders",
+				"PersonBuilder", "with", "withAdded", "end", false, true, null, false, null,
+				Collections.singleton("model.Person")));
+		savedBuilders.save();
+
+		try {
+			// when
+			GeneratedBuilders loadedBuilders = new GeneratedBuilders(indexFile);
+
+			// then
+			GeneratedBuilder loadedBuilder = loadedBuilders.getBuilders(project).iterator().next();
+			assertFalse(loadedBuilder.isFormatCode());
+			assertTrue(loadedBuilder.isSplitFiles());
+		} finally {
+			indexFile.delete();
+		}
+	}
+
+	public void testShouldLoadSavedSharedBaseClass() throws Exception {
+		// given
+		File indexFile = File.createTempFile("builders", ".index");
+		indexFile.delete();
+		GeneratedBuilders savedBuilders = new GeneratedBuilders(indexFile);
+		savedBuilders.register(project, new GeneratedBuilder("model.Person", "=project/src", "shared",
+				"PersonBuilderBase", "with", "withAdded", "end", true, true, "shared", true, null,
+				new HashSet<String>(Arrays.asList("model.Person", "model.Address"))));
+		savedBuilders.save();
+
+		try {
+			// when
+			GeneratedBuilders loadedBuilders = new GeneratedBuilders(indexFile);
+
+			// then
+			GeneratedBuilder loadedBuilder = loadedBuilders.getBuilder(project, "shared.PersonBuilderBase");
+			assertNotNull(loadedBuilder);
+			assertEquals("shared", loadedBuilder.getSharedPackageName());
+			assertTrue(loadedBuilder.isSharedBaseClass());
+			assertEquals(1, loadedBuilders.getStaleBuilders(project, Collections.singleton("model.Address")).size());
+		} finally {
+			indexFile.delete();
+		}
+	}
+
+	private GeneratedBuilder createBuilder(String builderName, String... referencedTypeNames) {
+		Set<String> typeNames = new HashSet<String>(Arrays.asList(referencedTypeNames));
+
+		return new GeneratedBuilder(referencedTypeNames[0], "=project/src", "builders", builderName, "with",
+				"withAdded", "end", true, false, null, false, null, typeNames);
+	}
+}
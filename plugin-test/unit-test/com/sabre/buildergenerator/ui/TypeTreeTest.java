@@ -14,15 +14,22 @@ package com.sabre.buildergenerator.ui;
 
 import static java.util.Arrays.asList;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.isA;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import junit.framework.TestCase;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.jdt.core.IMethod;
 import org.eclipse.jdt.core.IType;
 
@@ -170,4 +177,117 @@ public class TypeTreeTest extends TestCase {
 				.contains(new MethodNode(method, typeTree.getNodeFor(baseType))));
 	}
 
+	public void testLazyTreeShouldNotResolvePointedTypeUntilRequested()
+			throws Exception {
+		IType complexPointedType = mock(IType.class);
+
+		when(typeHelperRouter.findTypeMethods(baseType)).thenReturn(
+				baseTypeMethods.get(baseType));
+		when(typeHelperRouter.resolveSetterSetType(isA(IType.class), method, Collections.<String, String> emptyMap())).thenReturn(new SetType(complexPointedType));
+		when(complexPointedType.isClass()).thenReturn(true);
+		when(complexPointedType.isBinary()).thenReturn(false);
+
+		TypeTree typeTree = new TypeTree(baseType, typeHelperRouter, null);
+		typeTree.buildLazily();
+
+		TypeNode pointedTypeNode = typeTree.getNodeFor(complexPointedType);
+		assertNotNull(pointedTypeNode);
+		assertFalse(pointedTypeNode.isResolved());
+		assertSame(pointedTypeNode, typeTree.getNodeFor(baseType)
+				.getMethodNodeFor(method).getPointedTypeNode());
+		verify(typeHelperRouter, never()).findTypeMethods(complexPointedType);
+	}
+
+	public void testLazyTreeShouldResolveSelectedTypesBeforeGeneration()
+			throws Exception {
+		IType complexPointedType = mock(IType.class);
+
+		when(typeHelperRouter.findTypeMethods(baseType)).thenReturn(
+				baseTypeMethods.get(baseType));
+		when(typeHelperRouter.resolveSetterSetType(isA(IType.class), method, Collections.<String, String> emptyMap())).thenReturn(new SetType(complexPointedType));
+		when(complexPointedType.isClass()).thenReturn(true);
+		when(complexPointedType.isBinary()).thenReturn(false);
+
+		TypeTree typeTree = new TypeTree(baseType, typeHelperRouter, null);
+		typeTree.buildLazily();
+		typeTree.resolveSelected(new NullProgressMonitor());
+
+		assertTrue(typeTree.getNodeFor(complexPointedType).isResolved());
+		verify(typeHelperRouter).findTypeMethods(complexPointedType);
+	}
+
+	public void testBackgroundTreeShouldNotifyListenerAboutEachTypeNodeAsItIsAdded()
+			throws Exception {
+		final IType complexPointedType = mockAnalyzedPointedType();
+		final List<IType> addedTypes = new ArrayList<IType>();
+		final TypeTree[] typeTree = new TypeTree[1];
+
+		typeTree[0] = new TypeTree(baseType, typeHelperRouter,
+				new TypeTree.Listener() {
+					public void typeNodeAdded(TypeNode typeNode) {
+						addedTypes.add(typeNode.getElement());
+						assertSame(typeNode, typeTree[0].getNodeFor(typeNode
+								.getElement()));
+						assertFalse(typeTree[0].isComplete());
+					}
+				});
+		typeTree[0].build(new NullProgressMonitor());
+
+		assertEquals(asList(baseType, complexPointedType), addedTypes);
+	}
+
+	public void testBackgroundTreeShouldBeCompleteOnlyAfterBuild()
+			throws Exception {
+		IType complexPointedType = mockAnalyzedPointedType();
+
+		TypeTree typeTree = new TypeTree(baseType, typeHelperRouter, null);
+
+		assertFalse(typeTree.isComplete());
+		assertNull(typeTree.getNodeFor(baseType));
+
+		typeTree.build(new NullProgressMonitor());
+
+		assertTrue(typeTree.isComplete());
+		assertSame(typeTree.getNodeFor(complexPointedType), typeTree
+				.getNodeFor(baseType).getMethodNodeFor(method)
+				.getPointedTypeNode());
+	}
+
+	public void testCancelledBuildShouldStopAndLeaveTreeIncomplete()
+			throws Exception {
+		IType complexPointedType = mockAnalyzedPointedType();
+		IProgressMonitor monitor = mock(IProgressMonitor.class);
+		when(monitor.isCanceled()).thenReturn(true);
+
+		TypeTree typeTree = new TypeTree(baseType, typeHelperRouter, null);
+
+		try {
+			typeTree.build(monitor);
+			fail("OperationCanceledException expected");
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+
+		assertFalse(typeTree.isComplete());
+		assertNull(typeTree.getNodeFor(complexPointedType));
+		verify(typeHelperRouter, never()).findTypeMethods(complexPointedType);
+		verify(monitor).done();
+	}
+
+	private IType mockAnalyzedPointedType() throws Exception {
+		IType complexPointedType = mock(IType.class);
+
+		when(typeHelperRouter.findTypeMethods(baseType)).thenReturn(
+				baseTypeMethods.get(baseType));
+		when(typeHelperRouter.findTypeMethods(complexPointedType)).thenReturn(
+				new TypeMethods(Collections.<IMethod> emptyList(), Collections
+						.<String, String> emptyMap()));
+		when(typeHelperRouter.resolveSetterSetType(isA(IType.class), method, Collections.<String, String> emptyMap())).thenReturn(new SetType(complexPointedType));
+		when(complexPointedType.isClass()).thenReturn(true);
+		when(complexPointedType.isBinary()).thenReturn(false);
+		when(complexPointedType.getFullyQualifiedName()).thenReturn("A");
+
+		return complexPointedType;
+	}
+
 }
@@ -0,0 +1,86 @@
+package com.sabre.buildergenerator.ui.actions;
+
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.formatter.DefaultCodeFormatterConstants;
+
+import com.sabre.buildergenerator.sourcegenerator.java.FormattingProfile;
+
+public class FormatterSettingsTest extends TestCase {
+
+	private Map<String, String> options;
+
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		options = DefaultCodeFormatterConstants.getEclipseDefaultSettings();
+	}
+
+	public void testShouldMapEclipseDefaultSettings() {
+		// when
+		FormattingProfile profile = FormatterSettings.toProfile(options);
+
+		// then
+		assertTrue(profile.isUseTabs());
+		assertEquals(4, profile.getIndentSize());
+		assertEquals(80, profile.getLineLength());
+		assertEquals(2, profile.getContinuationIndent());
+		assertFalse(profile.isBracesOnNextLine());
+		assertEquals(1, profile.getBlankLinesBeforeMember());
+		assertTrue(profile.isSpaceAfterCast());
+	}
+
+	public void testShouldMapSpacesAndBracesOnNextLine() {
+		// given
+		options.put(DefaultCodeFormatterConstants.FORMATTER_TAB_CHAR, JavaCore.SPACE);
+		options.put(DefaultCodeFormatterConstants.FORMATTER_LINE_SPLIT, "120");
+		options.put(DefaultCodeFormatterConstants.FORMATTER_BRACE_POSITION_FOR_TYPE_DECLARATION,
+				DefaultCodeFormatterConstants.NEXT_LINE);
+		options.put(DefaultCodeFormatterConstants.FORMATTER_BRACE_POSITION_FOR_METHOD_DECLARATION,
+				DefaultCodeFormatterConstants.NEXT_LINE);
+
+		// when
+		FormattingProfile profile = FormatterSettings.toProfile(options);
+
+		// then
+		assertFalse(profile.isUseTabs());
+		assertEquals(120, profile.getLineLength());
+		assertTrue(profile.isBracesOnNextLine());
+	}
+
+	public void testShouldNotMapMixedIndentation() {
+		// given
+		options.put(DefaultCodeFormatterConstants.FORMATTER_TAB_CHAR, DefaultCodeFormatterConstants.MIXED);
+
+		// when
+		FormattingProfile profile = FormatterSettings.toProfile(options);
+
+		// then
+		assertNull(profile);
+	}
+
+	public void testShouldNotMapDifferentBracePositions() {
+		// given
+		options.put(DefaultCodeFormatterConstants.FORMATTER_BRACE_POSITION_FOR_TYPE_DECLARATION,
+				DefaultCodeFormatterConstants.NEXT_LINE);
+
+		// when
+		FormattingProfile profile = FormatterSettings.toProfile(options);
+
+		// then
+		assertNull(profile);
+	}
+
+	public void testShouldNotMapSettingsTheLayoutDoesNotCover() {
+		// given
+		options.put(DefaultCodeFormatterConstants.FORMATTER_BLANK_LINES_BEFORE_FIRST_CLASS_BODY_DECLARATION, "1");
+
+		// when
+		FormattingProfile profile = FormatterSettings.toProfile(options);
+
+		// then
+		assertNull(profile);
+	}
+}
@@ -0,0 +1,56 @@
+package com.sabre.buildergenerator.ui.actions.support;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.text.edits.MultiTextEdit;
+import org.eclipse.text.edits.TextEdit;
+
+public class LineDiffTest extends TestCase {
+
+	public void testShouldReplaceOnlyChangedLines() throws Exception {
+		// given
+		String oldText = "a\nb\nc\nd\ne\n";
+		String newText = "a\nB\nc\nd\ne\nf\n";
+
+		// when
+		MultiTextEdit edit = LineDiff.diff(oldText, newText);
+
+		// then
+		TextEdit[] children = edit.getChildren();
+		assertEquals(2, children.length);
+		assertEquals(2, children[0].getOffset());
+		assertEquals(2, children[0].getLength());
+		assertEquals(10, children[1].getOffset());
+		assertEquals(0, children[1].getLength());
+		assertEquals(newText, apply(oldText, edit));
+	}
+
+	public void testShouldNotEditEqualTexts() throws Exception {
+		// when
+		MultiTextEdit edit = LineDiff.diff("a\r\nb\r\n", "a\r\nb\r\n");
+
+		// then
+		assertFalse(edit.hasChildren());
+	}
+
+	public void testShouldTurnOldTextIntoNewText() throws Exception {
+		// given
+		String oldText = "class A {\n}\n\nclass B {\n    int b;\n}";
+		String newText = "class B {\n    int b;\n    int c;\n}\n\nclass A {\n}";
+
+		// when
+		MultiTextEdit edit = LineDiff.diff(oldText, newText);
+
+		// then
+		assertEquals(newText, apply(oldText, edit));
+	}
+
+	private String apply(String text, TextEdit edit) throws Exception {
+		Document document = new Document(text);
+
+		edit.apply(document);
+
+		return document.get();
+	}
+}
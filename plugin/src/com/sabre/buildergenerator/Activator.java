@@ -11,12 +11,22 @@
 
 package com.sabre.buildergenerator;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 
 import org.osgi.framework.BundleContext;
 
+import com.sabre.buildergenerator.eclipsejavamodel.TypeHierarchyCache;
+import com.sabre.buildergenerator.eclipsejavamodel.TypeResolutionCache;
+import com.sabre.buildergenerator.projectbuilder.GeneratedBuilders;
+
 
 /**
  * The activator class controls the plug-in life cycle
@@ -30,6 +40,8 @@ public class Activator extends AbstractUIPlugin {
 
     public static boolean debug = false;
 
+    private ExecutorService analysisExecutor;
+
     /**
      * The constructor
      */
@@ -44,6 +56,20 @@ public class Activator extends AbstractUIPlugin {
     public void start(BundleContext context) throws Exception {
         super.start(context);
         plugin = this;
+        JavaCore.addElementChangedListener(TypeHierarchyCache.getDefault(),
+            ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+        JavaCore.addElementChangedListener(TypeResolutionCache.getDefault(),
+            ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+        analysisExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "Builder generator analysis");
+
+                        thread.setDaemon(true);
+
+                        return thread;
+                    }
+                });
     }
 
     /*
@@ -52,6 +78,13 @@ public class Activator extends AbstractUIPlugin {
      */
     @Override
     public void stop(BundleContext context) throws Exception {
+        analysisExecutor.shutdownNow();
+        analysisExecutor = null;
+        JavaCore.removeElementChangedListener(TypeHierarchyCache.getDefault());
+        JavaCore.removeElementChangedListener(TypeResolutionCache.getDefault());
+        TypeHierarchyCache.getDefault().clear();
+        TypeResolutionCache.getDefault().clear();
+        GeneratedBuilders.getDefault().clear();
         plugin = null;
         super.stop(context);
     }
@@ -65,6 +98,13 @@ public class Activator extends AbstractUIPlugin {
         return plugin;
     }
 
+    /**
+     * @return executor shared by builder generators to analyze types in the background
+     */
+    public ExecutorService getAnalysisExecutor() {
+        return analysisExecutor;
+    }
+
     public static void logDebug(String msg) {
         if (debug) {
             plugin.getLog().log(new Status(IStatus.OK, PLUGIN_ID, msg));
@@ -11,22 +11,18 @@ import com.sabre.buildergenerator.javamodel.ISignatureUtils;
 import com.sabre.buildergenerator.javamodel.ITypeAccessor;
 import com.sabre.buildergenerator.javamodel.ITypeResolver;
 import com.sabre.buildergenerator.sourcegenerator.BuilderGenerator;
-import com.sabre.buildergenerator.sourcegenerator.MarkedFields;
 
 public class EclipseBuilderGenerator extends BuilderGenerator<IType, ITypeParameter, IMethod, JavaModelException> {
     public EclipseBuilderGenerator() {
         ITypeAccessor<IType, ITypeParameter, IMethod, JavaModelException> typeAccessor = new TypeAccessor();
-        MarkedFields<IType, ITypeParameter, IMethod, JavaModelException> typesAndFieldsToGenerate = new MarkedFields<IType, ITypeParameter, IMethod, JavaModelException>();
         IModelHelper<IType, IMethod, JavaModelException> typeHelper = new ModelHelper();
         ISignatureResolver<IType, JavaModelException> signatureResolver = new SignatureResolver();
         ITypeResolver<IType, JavaModelException> typeResolver = new TypeResolver();
-        typesAndFieldsToGenerate.setTypeAccessor(typeAccessor);
         ISignatureUtils signatureUtils = new SignatureUtils();
-        typesAndFieldsToGenerate.setSignatureUtils(signatureUtils);
         setTypeAccessor(typeAccessor);
         setTypeHelper(typeHelper);
         setTypeResolver(typeResolver);
         setSignatureResolver(signatureResolver);
-        setTypesAndFieldsToGenerate(typesAndFieldsToGenerate);
+        setSignatureUtils(signatureUtils);
     }
 }
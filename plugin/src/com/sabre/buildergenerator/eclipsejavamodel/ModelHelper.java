@@ -16,7 +16,6 @@ import com.sabre.buildergenerator.javamodel.IModelHelper;
 import com.sabre.buildergenerator.signatureutils.SignatureParserException;
 import com.sabre.buildergenerator.signatureutils.SignatureUtil;
 
-import org.eclipse.core.runtime.NullProgressMonitor;
 
 import org.eclipse.jdt.core.Flags;
 import org.eclipse.jdt.core.IMethod;
@@ -98,6 +97,19 @@ public class ModelHelper implements IModelHelper<IType, IMethod, JavaModelExcept
         return result;
     }
 
+    /**
+     * @param type type to inspect
+     * @return setter methods of the type (including inherited ones) or null if there are none
+     * @throws Exception
+     */
+    public TypeMethods findTypeMethods(IType type) throws Exception {
+        TypeMethodsCollector collector = new TypeMethodsCollector();
+
+        findSetterMethods(type, collector);
+
+        return collector.typeMethods;
+    }
+
     public boolean isCollection(IType owningType, String typeSignature) throws Exception {
         return implementsInterface(owningType, typeSignature, COLLECTION_INTERFACE_NAME);
     }
@@ -113,7 +125,7 @@ public class ModelHelper implements IModelHelper<IType, IMethod, JavaModelExcept
     }
 
     public boolean implementsInterface(IType type, String interfaceName) throws JavaModelException {
-        ITypeHierarchy supertypeHierarchy = type.newSupertypeHierarchy(null);
+        ITypeHierarchy supertypeHierarchy = TypeHierarchyCache.getDefault().getSupertypeHierarchy(type);
         IType[] superInterfaces = supertypeHierarchy.getAllInterfaces();
 
         for (IType interfaceType : superInterfaces) {
@@ -132,7 +144,7 @@ public class ModelHelper implements IModelHelper<IType, IMethod, JavaModelExcept
     }
 
     public boolean hasSuperType(IType type, String superTypeName) throws JavaModelException {
-        ITypeHierarchy supertypeHierarchy = type.newSupertypeHierarchy(null);
+        ITypeHierarchy supertypeHierarchy = TypeHierarchyCache.getDefault().getSupertypeHierarchy(type);
         IType[] superTypes = supertypeHierarchy.getAllTypes();
 
         for (IType superType : superTypes) {
@@ -193,7 +205,7 @@ public class ModelHelper implements IModelHelper<IType, IMethod, JavaModelExcept
     private Collection<IMethod> findAllMethods(IType type) throws JavaModelException {
         List<IMethod> methods = new ArrayList<IMethod>(Arrays.asList(type.getMethods()));
 
-        ITypeHierarchy typeHierarchy = type.newSupertypeHierarchy(new NullProgressMonitor());
+        ITypeHierarchy typeHierarchy = TypeHierarchyCache.getDefault().getSupertypeHierarchy(type);
         IType[] superTypes = typeHierarchy.getAllSuperclasses(type);
 
         for (IType superType : superTypes) {
@@ -270,6 +282,18 @@ public class ModelHelper implements IModelHelper<IType, IMethod, JavaModelExcept
         return typeParameterMapping;
     }
 
+    private static class TypeMethodsCollector implements IMethodInspector<IType, IMethod> {
+        private TypeMethods typeMethods;
+
+        public void nextMethod(IType methodOwnerType, IMethod method, Map<String, String> parameterSubstitution) {
+            if (typeMethods == null) {
+                typeMethods = new TypeMethods(new ArrayList<IMethod>(), parameterSubstitution);
+            }
+
+            typeMethods.methods.add(method);
+        }
+    }
+
     public static class TypeMethods implements ITypeMethods<IMethod> {
         final Collection<IMethod> methods;
         private final Map<String, String> parameterSubstitution;
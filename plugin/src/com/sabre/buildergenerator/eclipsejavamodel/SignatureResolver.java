@@ -116,13 +116,20 @@ public class SignatureResolver implements ISignatureResolver<IType, JavaModelExc
         return typeSignature;
     }
 
-    public static String resolveTypeName(final IType owningType, String typeName) throws JavaModelException {
+    public static String resolveTypeName(final IType owningType, final String typeName) throws JavaModelException {
+        return TypeResolutionCache.getDefault().resolveTypeName(owningType, typeName,
+            new TypeResolutionCache.Resolver<String>() {
+                public String resolve() throws JavaModelException {
+                    return doResolveTypeName(owningType, typeName);
+                }
+            });
+    }
+
+    private static String doResolveTypeName(IType owningType, String typeName) throws JavaModelException {
         String t = resolveTypeNameSimple(owningType, typeName);
 
         if (t == null) {
-            ITypeHierarchy typeHierarchy;
-
-            typeHierarchy = owningType.newSupertypeHierarchy(null);
+            ITypeHierarchy typeHierarchy = TypeHierarchyCache.getDefault().getSupertypeHierarchy(owningType);
 
             for (IType supertype : typeHierarchy.getAllSupertypes(owningType)) {
                 if ((t = resolveTypeNameSimple(supertype, typeName)) != null) {
@@ -148,9 +155,7 @@ public class SignatureResolver implements ISignatureResolver<IType, JavaModelExc
         IType t = findRelativeToType(owningType, identifier);
 
         if (t == null) {
-            ITypeHierarchy typeHierarchy;
-
-            typeHierarchy = owningType.newSupertypeHierarchy(null);
+            ITypeHierarchy typeHierarchy = TypeHierarchyCache.getDefault().getSupertypeHierarchy(owningType);
 
             for (IType supertype : typeHierarchy.getAllSupertypes(owningType)) {
                 if ((t = findRelativeToType(supertype, identifier)) != null) {
@@ -162,7 +167,17 @@ public class SignatureResolver implements ISignatureResolver<IType, JavaModelExc
         return t;
     }
 
-    private static IType findRelativeToType(final IType owningType, String identifier) throws JavaModelException {
+    private static IType findRelativeToType(final IType owningType, final String identifier)
+        throws JavaModelException {
+        return TypeResolutionCache.getDefault().resolveType(owningType, identifier,
+            new TypeResolutionCache.Resolver<IType>() {
+                public IType resolve() throws JavaModelException {
+                    return doFindRelativeToType(owningType, identifier);
+                }
+            });
+    }
+
+    private static IType doFindRelativeToType(IType owningType, String identifier) throws JavaModelException {
         String[][] resolvedType = owningType.resolveType(identifier);
 
         if (resolvedType != null && resolvedType.length > 0) {
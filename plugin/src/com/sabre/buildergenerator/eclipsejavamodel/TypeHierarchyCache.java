@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+package com.sabre.buildergenerator.eclipsejavamodel;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeHierarchy;
+import org.eclipse.jdt.core.JavaModelException;
+
+/**
+ * Supertype hierarchies shared by {@link ModelHelper} and {@link SignatureResolver}.
+ * <p>
+ * Each hierarchy is built once per type and reused across wizard invocations.
+ * Registered as a Java model listener, the cache evicts the hierarchies that
+ * contain a changed compilation unit and drops everything on classpath changes.
+ */
+public class TypeHierarchyCache implements IElementChangedListener {
+    private static final int CLASSPATH_CHANGE_FLAGS = IJavaElementDelta.F_CLASSPATH_CHANGED
+        | IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH
+        | IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED;
+
+    private static final TypeHierarchyCache instance = new TypeHierarchyCache();
+
+    private final Map<IType, ITypeHierarchy> hierarchies = new ConcurrentHashMap<IType, ITypeHierarchy>();
+
+    public static TypeHierarchyCache getDefault() {
+        return instance;
+    }
+
+    /**
+     * @param type type to build the hierarchy for
+     * @return cached supertype hierarchy of the type
+     * @throws JavaModelException
+     */
+    public ITypeHierarchy getSupertypeHierarchy(IType type) throws JavaModelException {
+        ITypeHierarchy hierarchy = hierarchies.get(type);
+
+        if (hierarchy == null) {
+            hierarchy = type.newSupertypeHierarchy(null);
+            hierarchies.put(type, hierarchy);
+        }
+
+        return hierarchy;
+    }
+
+    public void clear() {
+        hierarchies.clear();
+    }
+
+    public int size() {
+        return hierarchies.size();
+    }
+
+    public void elementChanged(ElementChangedEvent event) {
+        Set<ICompilationUnit> changedUnits = new HashSet<ICompilationUnit>();
+
+        if (collectChangedCompilationUnits(event.getDelta(), changedUnits)) {
+            clear();
+        } else if (!changedUnits.isEmpty()) {
+            evict(changedUnits);
+        }
+    }
+
+    /**
+     * Removes hierarchies of types declared in, or inheriting from types declared in, the given units.
+     */
+    void evict(Set<ICompilationUnit> changedUnits) {
+        for (Iterator<Map.Entry<IType, ITypeHierarchy>> it = hierarchies.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<IType, ITypeHierarchy> entry = it.next();
+
+            if (dependsOn(entry.getKey(), entry.getValue(), changedUnits)) {
+                it.remove();
+            }
+        }
+    }
+
+    private boolean dependsOn(IType type, ITypeHierarchy hierarchy, Set<ICompilationUnit> units) {
+        if (isDeclaredIn(type, units)) {
+            return true;
+        }
+
+        for (IType superType : hierarchy.getAllSupertypes(type)) {
+            if (isDeclaredIn(superType, units)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isDeclaredIn(IType type, Set<ICompilationUnit> units) {
+        ICompilationUnit unit = type.getCompilationUnit();
+
+        return unit != null && units.contains(unit.getPrimary());
+    }
+
+    /**
+     * @return true if the change invalidates the whole cache
+     */
+    private boolean collectChangedCompilationUnits(IJavaElementDelta delta, Set<ICompilationUnit> units) {
+        if ((delta.getFlags() & CLASSPATH_CHANGE_FLAGS) != 0) {
+            return true;
+        }
+
+        IJavaElement element = delta.getElement();
+
+        if (element.getElementType() == IJavaElement.COMPILATION_UNIT) {
+            if (delta.getKind() != IJavaElementDelta.CHANGED) {
+                // added or removed unit may supply a previously missing supertype
+                return true;
+            }
+
+            units.add(((ICompilationUnit) element).getPrimary());
+
+            return false;
+        }
+
+        for (IJavaElementDelta child : delta.getAffectedChildren()) {
+            if (collectChangedCompilationUnits(child, units)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,239 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+package com.sabre.buildergenerator.eclipsejavamodel;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaModelException;
+
+/**
+ * Memo table for simple name resolution done by {@link SignatureResolver}, keyed by owning type and identifier.
+ * <p>
+ * Unresolvable names are remembered as well. Entries of a compilation unit are evicted when its imports or
+ * package declaration change; added or removed types and classpath changes drop the whole table.
+ */
+public class TypeResolutionCache implements IElementChangedListener {
+    private static final int CLASSPATH_CHANGE_FLAGS = IJavaElementDelta.F_CLASSPATH_CHANGED
+        | IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH
+        | IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED;
+
+    private static final Object NOT_FOUND = new Object();
+
+    private static final TypeResolutionCache instance = new TypeResolutionCache();
+
+    private final ConcurrentMap<IType, ConcurrentMap<String, Object>> typeNames =
+        new ConcurrentHashMap<IType, ConcurrentMap<String, Object>>();
+    private final ConcurrentMap<IType, ConcurrentMap<String, Object>> types =
+        new ConcurrentHashMap<IType, ConcurrentMap<String, Object>>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public static TypeResolutionCache getDefault() {
+        return instance;
+    }
+
+    /**
+     * Computes a resolution result on cache miss.
+     */
+    public interface Resolver<T> {
+        T resolve() throws JavaModelException;
+    }
+
+    /**
+     * @param owningType type the identifier is resolved relative to
+     * @param identifier simple or qualified type name
+     * @param resolver called when the pair is not cached yet
+     * @return qualified type name or null if it cannot be resolved
+     * @throws JavaModelException
+     */
+    public String resolveTypeName(IType owningType, String identifier, Resolver<String> resolver)
+        throws JavaModelException {
+        return lookup(typeNames, owningType, identifier, resolver);
+    }
+
+    /**
+     * @param owningType type the identifier is resolved relative to
+     * @param identifier simple or qualified type name
+     * @param resolver called when the pair is not cached yet
+     * @return resolved type or null if it cannot be found
+     * @throws JavaModelException
+     */
+    public IType resolveType(IType owningType, String identifier, Resolver<IType> resolver)
+        throws JavaModelException {
+        return lookup(types, owningType, identifier, resolver);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T lookup(ConcurrentMap<IType, ConcurrentMap<String, Object>> table, IType owningType,
+        String identifier, Resolver<T> resolver) throws JavaModelException {
+        ConcurrentMap<String, Object> entries = table.get(owningType);
+
+        if (entries == null) {
+            entries = new ConcurrentHashMap<String, Object>();
+
+            ConcurrentMap<String, Object> existing = table.putIfAbsent(owningType, entries);
+
+            if (existing != null) {
+                entries = existing;
+            }
+        }
+
+        Object value = entries.get(identifier);
+
+        if (value != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+
+            T resolved = resolver.resolve();
+
+            value = resolved != null ? resolved : NOT_FOUND;
+            entries.put(identifier, value);
+        }
+
+        return value != NOT_FOUND ? (T) value : null;
+    }
+
+    public void clear() {
+        typeNames.clear();
+        types.clear();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return fraction of lookups answered from the cache, 0 if there were none
+     */
+    public double getHitRate() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+
+        return total > 0 ? (double) hitCount / total : 0;
+    }
+
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "type resolution cache: " + getHitCount() + " hits, " + getMissCount() + " misses, "
+            + Math.round(getHitRate() * 100) + "% hit rate";
+    }
+
+    public void elementChanged(ElementChangedEvent event) {
+        Set<ICompilationUnit> changedUnits = new HashSet<ICompilationUnit>();
+
+        if (collectChangedCompilationUnits(event.getDelta(), changedUnits)) {
+            clear();
+        } else if (!changedUnits.isEmpty()) {
+            evict(changedUnits);
+        }
+    }
+
+    /**
+     * Removes resolutions done relative to types declared in the given units.
+     */
+    void evict(Set<ICompilationUnit> changedUnits) {
+        evict(typeNames, changedUnits);
+        evict(types, changedUnits);
+    }
+
+    private void evict(ConcurrentMap<IType, ConcurrentMap<String, Object>> table, Set<ICompilationUnit> units) {
+        for (Iterator<IType> it = table.keySet().iterator(); it.hasNext();) {
+            ICompilationUnit unit = it.next().getCompilationUnit();
+
+            if (unit != null && units.contains(unit.getPrimary())) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * @return true if the change invalidates the whole cache
+     */
+    private boolean collectChangedCompilationUnits(IJavaElementDelta delta, Set<ICompilationUnit> units) {
+        if ((delta.getFlags() & CLASSPATH_CHANGE_FLAGS) != 0) {
+            return true;
+        }
+
+        IJavaElement element = delta.getElement();
+
+        if (element.getElementType() == IJavaElement.COMPILATION_UNIT) {
+            if (delta.getKind() != IJavaElementDelta.CHANGED) {
+                return true;
+            }
+
+            IJavaElementDelta[] children = delta.getAffectedChildren();
+
+            // coarse delta (e.g. file saved without an open editor) carries no details, assume imports changed
+            if (children.length == 0 || affectsNames(children)) {
+                units.add(((ICompilationUnit) element).getPrimary());
+            }
+
+            return hasTypesAddedOrRemoved(children);
+        }
+
+        for (IJavaElementDelta child : delta.getAffectedChildren()) {
+            if (collectChangedCompilationUnits(child, units)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean affectsNames(IJavaElementDelta[] deltas) {
+        for (IJavaElementDelta delta : deltas) {
+            int elementType = delta.getElement().getElementType();
+
+            if (elementType == IJavaElement.IMPORT_CONTAINER || elementType == IJavaElement.IMPORT_DECLARATION
+                || elementType == IJavaElement.PACKAGE_DECLARATION) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean hasTypesAddedOrRemoved(IJavaElementDelta[] deltas) {
+        for (IJavaElementDelta delta : deltas) {
+            if (delta.getElement().getElementType() == IJavaElement.TYPE) {
+                if (delta.getKind() != IJavaElementDelta.CHANGED
+                    || hasTypesAddedOrRemoved(delta.getAffectedChildren())) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+}
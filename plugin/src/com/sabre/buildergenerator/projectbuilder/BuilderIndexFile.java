@@ -0,0 +1,286 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+package com.sabre.buildergenerator.projectbuilder;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Binary file of {@link GeneratedBuilders}. All strings are stored once in a table at the start of the file and
+ * referred to by index. The layout suits a memory mapped buffer, but the file is read into a heap buffer, as a
+ * mapped file cannot be replaced on Windows until the mapping is garbage collected.
+ * <p>
+ * Layout, big-endian: magic, version, string count, strings (byte length and UTF-8 bytes), project count, then for
+ * each project its name and builders. A builder is the indexes of its type name, source folder handle, package,
+ * name and prefixes, the option flags (format code, split files, shared base class), the shared package (-1 if
+ * none, since version 2), the selected setters (type count or -1 for all setters, then for each type its name and
+ * setter names) and the referenced type names.
+ */
+final class BuilderIndexFile {
+    private static final int MAGIC = 0x46424958;
+    private static final int VERSION = 2;
+    private static final String CHARSET = "UTF-8";
+    private static final int FORMAT_CODE_FLAG = 1;
+    private static final int SPLIT_FILES_FLAG = 2;
+    private static final int SHARED_BASE_CLASS_FLAG = 4;
+
+    private BuilderIndexFile() {
+    }
+
+    /**
+     * Replaces the file, the old content stays in place if writing fails.
+     *
+     * @param file
+     * @param builders builders by project name and fully qualified builder name
+     * @throws IOException
+     */
+    public static void write(File file, Map<String, Map<String, GeneratedBuilder>> builders) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+
+        for (Map.Entry<String, Map<String, GeneratedBuilder>> entry : builders.entrySet()) {
+            index(strings, entry.getKey());
+
+            for (GeneratedBuilder builder : entry.getValue().values()) {
+                indexStrings(strings, builder);
+            }
+        }
+
+        File tmpFile = new File(file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(strings.size());
+
+            for (String string : strings.keySet()) {
+                byte[] bytes = string.getBytes(CHARSET);
+
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            out.writeInt(builders.size());
+
+            for (Map.Entry<String, Map<String, GeneratedBuilder>> entry : builders.entrySet()) {
+                out.writeInt(strings.get(entry.getKey()));
+                out.writeInt(entry.getValue().size());
+
+                for (GeneratedBuilder builder : entry.getValue().values()) {
+                    writeBuilder(out, strings, builder);
+                }
+            }
+        } finally {
+            out.close();
+        }
+
+        if (file.exists() && !file.delete() || !tmpFile.renameTo(file)) {
+            throw new IOException("couldn't replace " + file);
+        }
+    }
+
+    /**
+     * @param file
+     * @return builders by project name
+     * @throws IOException if the file cannot be read or is not a builder index
+     */
+    public static Map<String, List<GeneratedBuilder>> read(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+
+        try {
+            FileChannel channel = in.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                // read the whole file
+            }
+
+            buffer.flip();
+
+            return read(buffer);
+        } catch (RuntimeException e) {
+            IOException ioException = new IOException("corrupt builder index " + file);
+
+            ioException.initCause(e);
+            throw ioException;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static Map<String, List<GeneratedBuilder>> read(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("not a builder index");
+        }
+
+        int version = buffer.getInt();
+
+        if (version < 1 || version > VERSION) {
+            throw new IOException("unsupported builder index version " + version);
+        }
+
+        String[] strings = new String[buffer.getInt()];
+
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+
+            buffer.get(bytes);
+            strings[i] = new String(bytes, CHARSET);
+        }
+
+        Map<String, List<GeneratedBuilder>> builders = new HashMap<String, List<GeneratedBuilder>>();
+
+        for (int projectCount = buffer.getInt(); projectCount > 0; projectCount--) {
+            String projectName = strings[buffer.getInt()];
+            List<GeneratedBuilder> projectBuilders = new ArrayList<GeneratedBuilder>();
+
+            for (int builderCount = buffer.getInt(); builderCount > 0; builderCount--) {
+                projectBuilders.add(readBuilder(buffer, strings, version));
+            }
+
+            builders.put(projectName, projectBuilders);
+        }
+
+        return builders;
+    }
+
+    private static void writeBuilder(DataOutputStream out, Map<String, Integer> strings, GeneratedBuilder builder)
+        throws IOException {
+        out.writeInt(strings.get(builder.getTypeName()));
+        out.writeInt(strings.get(builder.getSourceFolderHandle()));
+        out.writeInt(strings.get(builder.getPackageName()));
+        out.writeInt(strings.get(builder.getBuilderName()));
+        out.writeInt(strings.get(builder.getMethodsPrefix()));
+        out.writeInt(strings.get(builder.getCollectionAddPrefix()));
+        out.writeInt(strings.get(builder.getEndPrefix()));
+        out.writeByte((builder.isFormatCode() ? FORMAT_CODE_FLAG : 0) | (builder.isSplitFiles() ? SPLIT_FILES_FLAG : 0)
+            | (builder.isSharedBaseClass() ? SHARED_BASE_CLASS_FLAG : 0));
+        out.writeInt(builder.getSharedPackageName() != null ? strings.get(builder.getSharedPackageName()) : -1);
+
+        Map<String, Set<String>> selectedSetters = builder.getSelectedSetters();
+
+        if (selectedSetters == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(selectedSetters.size());
+
+            for (Map.Entry<String, Set<String>> entry : selectedSetters.entrySet()) {
+                out.writeInt(strings.get(entry.getKey()));
+                writeStrings(out, strings, entry.getValue());
+            }
+        }
+
+        writeStrings(out, strings, builder.getReferencedTypeNames());
+    }
+
+    private static GeneratedBuilder readBuilder(ByteBuffer buffer, String[] strings, int version) {
+        String typeName = strings[buffer.getInt()];
+        String sourceFolderHandle = strings[buffer.getInt()];
+        String packageName = strings[buffer.getInt()];
+        String builderName = strings[buffer.getInt()];
+        String methodsPrefix = strings[buffer.getInt()];
+        String collectionAddPrefix = strings[buffer.getInt()];
+        String endPrefix = strings[buffer.getInt()];
+        int flags = buffer.get();
+        String sharedPackageName = null;
+
+        if (version >= 2) {
+            int sharedPackageIndex = buffer.getInt();
+
+            sharedPackageName = sharedPackageIndex != -1 ? strings[sharedPackageIndex] : null;
+        }
+
+        Map<String, Set<String>> selectedSetters = null;
+        int selectedTypeCount = buffer.getInt();
+
+        if (selectedTypeCount >= 0) {
+            selectedSetters = new HashMap<String, Set<String>>();
+
+            for (; selectedTypeCount > 0; selectedTypeCount--) {
+                String selectedTypeName = strings[buffer.getInt()];
+
+                selectedSetters.put(selectedTypeName, readStrings(buffer, strings));
+            }
+        }
+
+        return new GeneratedBuilder(typeName, sourceFolderHandle, packageName, builderName, methodsPrefix,
+            collectionAddPrefix, endPrefix, (flags & FORMAT_CODE_FLAG) != 0, (flags & SPLIT_FILES_FLAG) != 0,
+            sharedPackageName, (flags & SHARED_BASE_CLASS_FLAG) != 0, selectedSetters, readStrings(buffer, strings));
+    }
+
+    private static void writeStrings(DataOutputStream out, Map<String, Integer> strings, Set<String> values)
+        throws IOException {
+        out.writeInt(values.size());
+
+        for (String value : values) {
+            out.writeInt(strings.get(value));
+        }
+    }
+
+    private static Set<String> readStrings(ByteBuffer buffer, String[] strings) {
+        Set<String> values = new HashSet<String>();
+
+        for (int count = buffer.getInt(); count > 0; count--) {
+            values.add(strings[buffer.getInt()]);
+        }
+
+        return values;
+    }
+
+    private static void indexStrings(Map<String, Integer> strings, GeneratedBuilder builder) {
+        index(strings, builder.getTypeName());
+        index(strings, builder.getSourceFolderHandle());
+        index(strings, builder.getPackageName());
+        index(strings, builder.getBuilderName());
+        index(strings, builder.getMethodsPrefix());
+        index(strings, builder.getCollectionAddPrefix());
+        index(strings, builder.getEndPrefix());
+
+        if (builder.getSharedPackageName() != null) {
+            index(strings, builder.getSharedPackageName());
+        }
+
+        if (builder.getSelectedSetters() != null) {
+            for (Map.Entry<String, Set<String>> entry : builder.getSelectedSetters().entrySet()) {
+                index(strings, entry.getKey());
+
+                for (String setterName : entry.getValue()) {
+                    index(strings, setterName);
+                }
+            }
+        }
+
+        for (String typeName : builder.getReferencedTypeNames()) {
+            index(strings, typeName);
+        }
+    }
+
+    private static void index(Map<String, Integer> strings, String string) {
+        if (!strings.containsKey(string)) {
+            strings.put(string, strings.size());
+        }
+    }
+}
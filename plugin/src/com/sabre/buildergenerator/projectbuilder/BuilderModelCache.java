@@ -0,0 +1,271 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+
+package com.sabre.buildergenerator.projectbuilder;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaModelException;
+
+import com.sabre.buildergenerator.Activator;
+import com.sabre.buildergenerator.eclipsejavamodel.TypeHierarchyCache;
+import com.sabre.buildergenerator.sourcegenerator.BuilderModel;
+import com.sabre.buildergenerator.sourcegenerator.BuilderModelFormat;
+
+
+/**
+ * Builder models kept across sessions, so that a builder whose types did not change is regenerated without
+ * analyzing them. There is one file per project and type the builder is generated for, in
+ * {@link BuilderModelFormat}, with a fingerprint of the selected setters and of the sources of the types the model
+ * was generated from and their supertypes. A model is used only if the fingerprint still matches, which is checked
+ * from the header of the file before the model is read.
+ */
+public class BuilderModelCache {
+    private static final String MODELS_DIRECTORY_NAME = "models";
+    private static final String MODEL_FILE_EXTENSION = ".model";
+    private static final String CHARSET = "UTF-8";
+
+    private static BuilderModelCache instance;
+
+    private final File directory;
+
+    public static synchronized BuilderModelCache getDefault() {
+        if (instance == null) {
+            instance = new BuilderModelCache(Activator.getDefault().getStateLocation().append(
+                        MODELS_DIRECTORY_NAME).toFile());
+        }
+
+        return instance;
+    }
+
+    /**
+     * @param directory directory the model files are kept in
+     */
+    public BuilderModelCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @param javaProject project the builder is generated in
+     * @param type type the builder is generated for
+     * @param selectedSetters setter names by type name, null for all setters
+     * @return model stored for the type if none of its input changed since, otherwise null
+     * @throws JavaModelException
+     */
+    public BuilderModel getModel(IJavaProject javaProject, IType type, Map<String, Set<String>> selectedSetters)
+        throws JavaModelException {
+        File file = getFile(javaProject, type);
+
+        if (!file.exists()) {
+            return null;
+        }
+
+        try {
+            ByteBuffer buffer = read(file);
+            BuilderModelFormat.Header header = BuilderModelFormat.readHeader(buffer);
+            byte[] fingerprint = fingerprint(javaProject, type, selectedSetters, header.getReferencedTypeNames());
+
+            if (!Arrays.equals(fingerprint, header.getFingerprint())) {
+                return null;
+            }
+
+            return BuilderModelFormat.read(buffer);
+        } catch (IOException e) {
+            // the model is generated and stored again
+            Activator.getDefault().getLog().log(new Status(IStatus.WARNING, Activator.PLUGIN_ID,
+                    "couldn't read builder model '" + file + "'", e));
+
+            return null;
+        }
+    }
+
+    /**
+     * @param javaProject project the builder is generated in
+     * @param type type the builder is generated for
+     * @param selectedSetters setter names by type name, null for all setters
+     * @param model model generated for the type with the selected setters
+     * @throws JavaModelException
+     */
+    public void putModel(IJavaProject javaProject, IType type, Map<String, Set<String>> selectedSetters,
+        BuilderModel model) throws JavaModelException {
+        File file = getFile(javaProject, type);
+        byte[] fingerprint = fingerprint(javaProject, type, selectedSetters, model.getReferencedTypeNames());
+
+        try {
+            write(file, model, fingerprint);
+        } catch (IOException e) {
+            Activator.getDefault().getLog().log(new Status(IStatus.ERROR, Activator.PLUGIN_ID,
+                    "couldn't write builder model '" + file + "'", e));
+        } catch (RuntimeException e) {
+            // a model that can't be stored doesn't stop the generation of the builder
+            Activator.getDefault().getLog().log(new Status(IStatus.ERROR, Activator.PLUGIN_ID,
+                    "couldn't write builder model '" + file + "'", e));
+        }
+    }
+
+    private File getFile(IJavaProject javaProject, IType type) {
+        return new File(new File(directory, javaProject.getElementName()),
+            type.getFullyQualifiedName() + MODEL_FILE_EXTENSION);
+    }
+
+    /**
+     * Reads the file into a heap buffer rather than mapping it, as a mapped file cannot be replaced on Windows until
+     * the mapping is garbage collected.
+     */
+    private static ByteBuffer read(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+
+        try {
+            FileChannel channel = in.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                // read the whole file
+            }
+
+            buffer.flip();
+
+            return buffer;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static synchronized void write(File file, BuilderModel model, byte[] fingerprint) throws IOException {
+        File tmpFile = new File(file.getPath() + ".tmp");
+
+        if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+            throw new IOException("couldn't create " + file.getParentFile());
+        }
+
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(tmpFile));
+
+        try {
+            BuilderModelFormat.write(out, model, fingerprint);
+        } finally {
+            out.close();
+        }
+
+        if (file.exists() && !file.delete() || !tmpFile.renameTo(file)) {
+            throw new IOException("couldn't replace " + file);
+        }
+    }
+
+    /**
+     * @param referencedTypeNames names of the types the model is generated from
+     * @return digest of the selected setters and of the sources of the referenced types and their supertypes
+     */
+    private static byte[] fingerprint(IJavaProject javaProject, IType type, Map<String, Set<String>> selectedSetters,
+        Set<String> referencedTypeNames) throws JavaModelException {
+        MessageDigest messageDigest;
+
+        try {
+            messageDigest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            // every java platform supports MD5
+            throw new IllegalStateException(e);
+        }
+
+        update(messageDigest, type.getFullyQualifiedName());
+
+        if (selectedSetters != null) {
+            for (Map.Entry<String, Set<String>> entry : new TreeMap<String, Set<String>>(selectedSetters).entrySet()) {
+                update(messageDigest, entry.getKey());
+                update(messageDigest, new TreeSet<String>(entry.getValue()).toString());
+            }
+        } else {
+            // all setters
+            update(messageDigest, "*");
+        }
+
+        Set<IType> digestedTypes = new HashSet<IType>();
+
+        for (String typeName : new TreeSet<String>(referencedTypeNames)) {
+            IType referencedType = javaProject.findType(typeName.replace('$', '.'));
+
+            update(messageDigest, typeName);
+
+            if (referencedType == null) {
+                // the type is gone
+                update(messageDigest, "-");
+            } else {
+                update(messageDigest, digestedTypes, referencedType);
+
+                for (IType supertype : TypeHierarchyCache.getDefault().getSupertypeHierarchy(referencedType)
+                        .getAllSupertypes(referencedType)) {
+                    update(messageDigest, digestedTypes, supertype);
+                }
+            }
+        }
+
+        return messageDigest.digest();
+    }
+
+    private static void update(MessageDigest messageDigest, Set<IType> digestedTypes, IType type)
+        throws JavaModelException {
+        if (!digestedTypes.add(type)) {
+            return;
+        }
+
+        ICompilationUnit compilationUnit = type.getCompilationUnit();
+
+        update(messageDigest, type.getFullyQualifiedName());
+
+        if (compilationUnit != null) {
+            String source = compilationUnit.getSource();
+
+            update(messageDigest, source != null ? source : "");
+        } else {
+            // binary type, changes with its archive or class folder
+            IPackageFragmentRoot root = (IPackageFragmentRoot) type.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
+            IResource resource = root.getResource();
+
+            update(messageDigest, root.getPath().toString());
+            update(messageDigest, String.valueOf(resource != null ? resource.getModificationStamp()
+                    : root.getPath().toFile().lastModified()));
+        }
+    }
+
+    private static void update(MessageDigest messageDigest, String string) {
+        try {
+            messageDigest.update(string.getBytes(CHARSET));
+            messageDigest.update((byte) 0);
+        } catch (UnsupportedEncodingException e) {
+            // every java platform supports UTF-8
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+package com.sabre.buildergenerator.projectbuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.Flags;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IImportDeclaration;
+import org.eclipse.jdt.core.ISourceRange;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.ToolFactory;
+import org.eclipse.jdt.core.formatter.CodeFormatter;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.Region;
+import org.eclipse.text.edits.InsertEdit;
+import org.eclipse.text.edits.MultiTextEdit;
+import org.eclipse.text.edits.ReplaceEdit;
+import org.eclipse.text.edits.TextEdit;
+
+import com.sabre.buildergenerator.sourcegenerator.BuilderOutline;
+import com.sabre.buildergenerator.sourcegenerator.PartialBuilderSource;
+
+
+/**
+ * Splices builder base classes regenerated for changed types into the existing builder compilation unit. Each
+ * regenerated class replaces the source range of its old version, new classes are added at the end of the top level
+ * builder base class and all other classes are left as they are.
+ */
+final class BuilderSourceSplicer {
+    private static final String BUILDER_BASE_SUFFIX = "BuilderBase";
+
+    private BuilderSourceSplicer() {
+    }
+
+    /**
+     * @param builderUnit
+     * @return imports and builder base classes of the builder
+     * @throws JavaModelException
+     */
+    public static BuilderOutline outline(ICompilationUnit builderUnit) throws JavaModelException {
+        List<String> imports = new ArrayList<String>();
+        List<String> classNames = new ArrayList<String>();
+
+        for (IImportDeclaration importDeclaration : builderUnit.getImports()) {
+            if (!importDeclaration.isOnDemand() && !Flags.isStatic(importDeclaration.getFlags())) {
+                imports.add(importDeclaration.getElementName());
+            }
+        }
+
+        for (IType type : builderUnit.getTypes()) {
+            if (type.getElementName().endsWith(BUILDER_BASE_SUFFIX)) {
+                classNames.add(type.getElementName());
+
+                for (IType nestedType : type.getTypes()) {
+                    if (nestedType.getElementName().endsWith(BUILDER_BASE_SUFFIX)) {
+                        classNames.add(nestedType.getElementName());
+                    }
+                }
+            }
+        }
+
+        return new BuilderOutline(imports, classNames);
+    }
+
+    /**
+     * Applies the classes through the unit's working copy, formatting only the spliced regions if requested.
+     *
+     * @param builderUnit
+     * @param partialSource classes generated for the outline of the unit
+     * @param formatCode
+     * @param monitor
+     * @return false if the classes cannot be spliced, e.g. because they need new imports or the unit has unsaved
+     *  changes, and the builder has to be generated as a whole
+     * @throws JavaModelException
+     */
+    public static boolean splice(ICompilationUnit builderUnit, PartialBuilderSource partialSource,
+        boolean formatCode, IProgressMonitor monitor) throws JavaModelException {
+        if (!partialSource.getNewImports().isEmpty()) {
+            // a new import might hide a type used by the classes left as they are
+            return false;
+        }
+
+        if (builderUnit.hasUnsavedChanges()) {
+            // committing the working copy would save the editor's changes as well, writing the builder refuses them
+            return false;
+        }
+
+        builderUnit.becomeWorkingCopy(monitor);
+
+        try {
+            MultiTextEdit edit = createEdit(builderUnit, partialSource);
+
+            if (edit == null) {
+                return false;
+            }
+
+            if (edit.hasChildren()) {
+                builderUnit.applyTextEdit(edit, monitor);
+
+                if (formatCode) {
+                    format(builderUnit, edit.getChildren(), monitor);
+                }
+
+                builderUnit.commitWorkingCopy(false, monitor);
+            }
+
+            return true;
+        } finally {
+            builderUnit.discardWorkingCopy();
+        }
+    }
+
+    private static MultiTextEdit createEdit(ICompilationUnit builderUnit, PartialBuilderSource partialSource)
+        throws JavaModelException {
+        IType rootClass = builderUnit.getType(partialSource.getRootClassName());
+
+        if (!rootClass.exists()) {
+            return null;
+        }
+
+        String source = builderUnit.getSource();
+        String lineSeparator = builderUnit.findRecommendedLineSeparator();
+        ISourceRange rootRange = rootClass.getSourceRange();
+        int rootEnd = rootRange.getOffset() + rootRange.getLength() - 1;
+        int firstClassOffset = -1;
+        MultiTextEdit edit = new MultiTextEdit();
+
+        if (source.charAt(rootEnd) != '}') {
+            return null;
+        }
+
+        for (IType nestedType : rootClass.getTypes()) {
+            if (nestedType.getElementName().endsWith(BUILDER_BASE_SUFFIX)
+                    && (firstClassOffset == -1 || nestedType.getSourceRange().getOffset() < firstClassOffset)) {
+                firstClassOffset = nestedType.getSourceRange().getOffset();
+            }
+        }
+
+        if (partialSource.getRootClassSource() != null) {
+            if (firstClassOffset == -1) {
+                return null;
+            }
+
+            // the members of the top level class up to its first nested builder base class
+            String rootClassSource = partialSource.getRootClassSource();
+            int lineStart = source.lastIndexOf('\n', firstClassOffset - 1) + 1;
+
+            edit.addChild(new ReplaceEdit(rootRange.getOffset(), firstClassOffset - rootRange.getOffset(),
+                    rootClassSource.substring(0, rootClassSource.lastIndexOf('}')) + lineSeparator
+                    + source.substring(lineStart, firstClassOffset)));
+        }
+
+        StringBuilder newClasses = new StringBuilder();
+
+        for (Map.Entry<String, String> entry : partialSource.getClassSources().entrySet()) {
+            IType nestedType = rootClass.getType(entry.getKey());
+
+            if (nestedType.exists()) {
+                ISourceRange range = nestedType.getSourceRange();
+
+                edit.addChild(new ReplaceEdit(range.getOffset(), range.getLength(), entry.getValue().trim()));
+            } else {
+                newClasses.append(lineSeparator).append("    ").append(entry.getValue());
+            }
+        }
+
+        if (newClasses.length() > 0) {
+            edit.addChild(new InsertEdit(rootEnd, newClasses.toString()));
+        }
+
+        return edit;
+    }
+
+    private static void format(ICompilationUnit builderUnit, TextEdit[] splicedEdits, IProgressMonitor monitor)
+        throws JavaModelException {
+        // the edits cover the spliced text after they are applied
+        IRegion[] regions = new IRegion[splicedEdits.length];
+
+        for (int i = 0; i < splicedEdits.length; i++) {
+            regions[i] = new Region(splicedEdits[i].getOffset(), splicedEdits[i].getLength());
+        }
+
+        TextEdit formatEdit = ToolFactory.createCodeFormatter(null).format(CodeFormatter.K_COMPILATION_UNIT,
+                builderUnit.getSource(), regions, 0, "\n");
+
+        // formatEdit is null if the source cannot be formatted
+        if (formatEdit != null) {
+            builderUnit.applyTextEdit(formatEdit, monitor);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+package com.sabre.buildergenerator.projectbuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.core.resources.ICommand;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IProjectNature;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import com.sabre.buildergenerator.Activator;
+
+
+/**
+ * Opts a project in to the regeneration of its builders, see {@link FluentBuildersProjectBuilder}. The builder is
+ * added to the project's build spec when the nature is added, and removed with it; generating a builder leaves the
+ * project description alone.
+ */
+public class FluentBuildersNature implements IProjectNature {
+    public static final String NATURE_ID = Activator.PLUGIN_ID + ".fluentBuildersNature";
+
+    private static final String JAVA_BUILDER_ID = "org.eclipse.jdt.core.javabuilder";
+
+    private IProject project;
+
+    /**
+     * @param project
+     * @return true if the builders of the project are regenerated when the types they were generated from change
+     * @throws CoreException
+     */
+    public static boolean isEnabled(IProject project) throws CoreException {
+        return project.isOpen() && project.hasNature(NATURE_ID);
+    }
+
+    /**
+     * Adds the nature to the project, or removes it if the project has it.
+     *
+     * @param project
+     * @param monitor
+     * @throws CoreException
+     */
+    public static void toggle(IProject project, IProgressMonitor monitor) throws CoreException {
+        IProjectDescription description = project.getDescription();
+        List<String> natureIds = new ArrayList<String>(Arrays.asList(description.getNatureIds()));
+
+        if (!natureIds.remove(NATURE_ID)) {
+            natureIds.add(NATURE_ID);
+        }
+
+        description.setNatureIds(natureIds.toArray(new String[natureIds.size()]));
+        project.setDescription(description, monitor);
+    }
+
+    /**
+     * Adds the builder to the project's build spec, ahead of the java builder, unless it is there already.
+     */
+    public void configure() throws CoreException {
+        IProjectDescription description = project.getDescription();
+
+        if (indexOfBuilder(description.getBuildSpec()) != -1) {
+            return;
+        }
+
+        List<ICommand> commands = new ArrayList<ICommand>();
+        ICommand command = description.newCommand();
+
+        command.setBuilderName(FluentBuildersProjectBuilder.BUILDER_ID);
+
+        for (ICommand existingCommand : description.getBuildSpec()) {
+            if (JAVA_BUILDER_ID.equals(existingCommand.getBuilderName())) {
+                commands.add(command);
+                command = null;
+            }
+
+            commands.add(existingCommand);
+        }
+
+        if (command != null) {
+            commands.add(command);
+        }
+
+        description.setBuildSpec(commands.toArray(new ICommand[commands.size()]));
+        project.setDescription(description, null);
+    }
+
+    /**
+     * Removes the builder from the project's build spec.
+     */
+    public void deconfigure() throws CoreException {
+        IProjectDescription description = project.getDescription();
+        List<ICommand> commands = new ArrayList<ICommand>(Arrays.asList(description.getBuildSpec()));
+        int index = indexOfBuilder(description.getBuildSpec());
+
+        if (index == -1) {
+            return;
+        }
+
+        commands.remove(index);
+        description.setBuildSpec(commands.toArray(new ICommand[commands.size()]));
+        project.setDescription(description, null);
+    }
+
+    public IProject getProject() {
+        return project;
+    }
+
+    public void setProject(IProject aProject) {
+        project = aProject;
+    }
+
+    private static int indexOfBuilder(ICommand[] commands) {
+        for (int i = 0; i < commands.length; i++) {
+            if (FluentBuildersProjectBuilder.BUILDER_ID.equals(commands[i].getBuilderName())) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,325 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+package com.sabre.buildergenerator.projectbuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+
+import com.sabre.buildergenerator.Activator;
+import com.sabre.buildergenerator.eclipsejavamodel.EclipseBuilderGenerator;
+import com.sabre.buildergenerator.sourcegenerator.BuilderModel;
+import com.sabre.buildergenerator.sourcegenerator.BuilderOutline;
+import com.sabre.buildergenerator.sourcegenerator.MethodProvider;
+import com.sabre.buildergenerator.sourcegenerator.PartialBuilderSource;
+import com.sabre.buildergenerator.sourcegenerator.java.FormattingProfile;
+import com.sabre.buildergenerator.ui.actions.GenerateBuilderAction;
+
+
+/**
+ * Regenerates builders of the project when the types they were generated from change, see
+ * {@link GeneratedBuilders}. Changes of projects the project depends on are taken into account as well. On an
+ * incremental build only the builder base classes of the changed types are regenerated, see
+ * {@link BuilderSourceSplicer}. Builders regenerated as a whole, e.g. on a full build, reuse the stored models of
+ * unchanged types, see {@link BuilderModelCache}. Builder base classes shared by the builders are regenerated on
+ * their own, see {@link SharedBuilderBases}. The builder runs in the projects that opted in to the regeneration,
+ * see {@link FluentBuildersNature}.
+ */
+public class FluentBuildersProjectBuilder extends IncrementalProjectBuilder {
+    public static final String BUILDER_ID = Activator.PLUGIN_ID + ".fluentBuildersBuilder";
+
+    @Override
+    protected IProject[] build(int kind, Map args, IProgressMonitor monitor) throws CoreException {
+        IProject[] requiredProjects = getRequiredProjects();
+        Set<String> changedTypeNames = null;
+        Collection<GeneratedBuilder> staleBuilders;
+
+        if (kind != FULL_BUILD) {
+            changedTypeNames = new HashSet<String>();
+            boolean deltasKnown = collectChangedTypeNames(getProject(), changedTypeNames);
+
+            for (IProject requiredProject : requiredProjects) {
+                deltasKnown &= collectChangedTypeNames(requiredProject, changedTypeNames);
+            }
+
+            if (!deltasKnown) {
+                changedTypeNames = null;
+            }
+        }
+
+        if (changedTypeNames != null) {
+            staleBuilders = GeneratedBuilders.getDefault().getStaleBuilders(getProject(), changedTypeNames);
+        } else {
+            staleBuilders = GeneratedBuilders.getDefault().getBuilders(getProject());
+        }
+
+        regenerate(staleBuilders, changedTypeNames, monitor);
+        GeneratedBuilders.getDefault().save();
+
+        return requiredProjects;
+    }
+
+    private IProject[] getRequiredProjects() throws CoreException {
+        List<IProject> requiredProjects = new ArrayList<IProject>();
+        IJavaProject javaProject = JavaCore.create(getProject());
+
+        if (javaProject.exists()) {
+            for (String projectName : javaProject.getRequiredProjectNames()) {
+                requiredProjects.add(ResourcesPlugin.getWorkspace().getRoot().getProject(projectName));
+            }
+        }
+
+        return requiredProjects.toArray(new IProject[requiredProjects.size()]);
+    }
+
+    /**
+     * @return false if the delta of the project is not known
+     */
+    private boolean collectChangedTypeNames(final IProject project, final Set<String> changedTypeNames)
+        throws CoreException {
+        IResourceDelta delta = getDelta(project);
+
+        if (delta == null) {
+            return false;
+        }
+
+        delta.accept(new IResourceDeltaVisitor() {
+                public boolean visit(IResourceDelta resourceDelta) throws CoreException {
+                    IResource resource = resourceDelta.getResource();
+
+                    if (resource.getType() == IResource.FILE && "java".equals(resource.getFileExtension())) {
+                        collectChangedTypeNames((IFile) resource, resourceDelta.getKind(), changedTypeNames);
+                    }
+
+                    return true;
+                }
+            });
+
+        return true;
+    }
+
+    private void collectChangedTypeNames(IFile file, int deltaKind, Set<String> changedTypeNames)
+        throws CoreException {
+        ICompilationUnit cu = JavaCore.createCompilationUnitFrom(file);
+
+        if (cu == null) {
+            return;
+        }
+
+        String packageName = cu.getParent().getElementName();
+        String unitName = cu.getElementName().substring(0, cu.getElementName().length() - ".java".length());
+        String primaryTypeName = packageName.length() > 0 ? packageName + "." + unitName : unitName;
+
+        if (GeneratedBuilders.getDefault().isBuilder(getProject(), primaryTypeName)) {
+            // builder deleted by the user is not regenerated any more
+            if (deltaKind == IResourceDelta.REMOVED) {
+                GeneratedBuilders.getDefault().unregister(getProject(), primaryTypeName);
+            }
+
+            return;
+        }
+
+        changedTypeNames.add(primaryTypeName);
+
+        if (cu.exists()) {
+            for (IType type : cu.getAllTypes()) {
+                changedTypeNames.add(type.getFullyQualifiedName());
+            }
+        }
+    }
+
+    /**
+     * @param changedTypeNames names of the changed types, null to regenerate the builders as a whole
+     */
+    private void regenerate(Collection<GeneratedBuilder> builders, Set<String> changedTypeNames,
+        IProgressMonitor monitor) throws CoreException {
+        if (builders.isEmpty()) {
+            return;
+        }
+
+        IJavaProject javaProject = JavaCore.create(getProject());
+        EclipseBuilderGenerator builderGenerator = new EclipseBuilderGenerator();
+
+        builderGenerator.setAnalysisExecutor(Activator.getDefault().getAnalysisExecutor());
+        monitor.beginTask("Regenerating fluent builders", builders.size());
+
+        try {
+            for (GeneratedBuilder builder : builders) {
+                if (monitor.isCanceled()) {
+                    break;
+                }
+
+                monitor.subTask(builder.getBuilderName());
+
+                try {
+                    regenerate(javaProject, builderGenerator, builder, changedTypeNames, monitor);
+                } catch (Exception e) {
+                    Activator.getDefault().getLog().log(new Status(IStatus.ERROR, Activator.PLUGIN_ID,
+                            "couldn't regenerate builder '" + builder.getBuilderTypeName() + "'", e));
+                }
+
+                monitor.worked(1);
+            }
+        } finally {
+            monitor.done();
+        }
+    }
+
+    private void regenerate(IJavaProject javaProject, EclipseBuilderGenerator builderGenerator,
+        GeneratedBuilder builder, Set<String> changedTypeNames, IProgressMonitor monitor) throws Exception {
+        IType type = javaProject.findType(builder.getTypeName().replace('$', '.'));
+        IJavaElement sourceFolder = JavaCore.create(builder.getSourceFolderHandle());
+
+        if (type == null || !(sourceFolder instanceof IPackageFragmentRoot) || !sourceFolder.exists()) {
+            // the type or the source folder is gone
+            GeneratedBuilders.getDefault().unregister(getProject(), builder.getBuilderTypeName());
+
+            return;
+        }
+
+        MethodProvider<IType, IMethod> methodProvider = null;
+
+        if (builder.getSelectedSetters() != null) {
+            methodProvider = new SelectedSetters(javaProject, builder.getSelectedSetters());
+        }
+
+        IPackageFragmentRoot root = (IPackageFragmentRoot) sourceFolder;
+        ICompilationUnit builderUnit = root.getPackageFragment(builder.getPackageName()).getCompilationUnit(
+                builder.getBuilderName() + ".java");
+
+        if (changedTypeNames != null && builderUnit.exists() && !builder.isSplitFiles()
+                && builder.getSharedPackageName() == null
+                && regenerateChangedClasses(builderGenerator, type, methodProvider, builder, builderUnit,
+                    changedTypeNames, monitor)) {
+            return;
+        }
+
+        FormattingProfile formattingProfile = builder.isFormatCode()
+            ? GenerateBuilderAction.getFormattingProfile() : null;
+
+        builderGenerator.setFormattingProfile(formattingProfile);
+
+        if (builder.isSharedBaseClass()) {
+            SharedBuilderBases.writeClass(builderGenerator, root, builder, type, formattingProfile, monitor);
+
+            return;
+        }
+
+        BuilderModel model = BuilderModelCache.getDefault().getModel(javaProject, type,
+                builder.getSelectedSetters());
+
+        if (model == null) {
+            model = builderGenerator.generateModel(type, methodProvider);
+            BuilderModelCache.getDefault().putModel(javaProject, type, builder.getSelectedSetters(), model);
+        }
+
+        Set<String> referencedTypeNames = new TreeSet<String>(model.getReferencedTypeNames());
+
+        if (builder.getSharedPackageName() != null) {
+            // the shared builder base classes of the changed types are regenerated on their own
+            GeneratedBuilder regeneratedBuilder = builder.withReferencedTypeNames(referencedTypeNames);
+
+            SharedBuilderBases.writeBuilder(builderGenerator, root, regeneratedBuilder, model, formattingProfile,
+                monitor);
+            GeneratedBuilders.getDefault().register(getProject(), regeneratedBuilder);
+
+            return;
+        }
+
+        if (builder.isSplitFiles()) {
+            // only the units of the changed classes get new content
+            GenerateBuilderAction.writeCompilationUnits(root, builder.getPackageName(), builder.getBuilderName(),
+                builderGenerator.generateCompilationUnits(model, builder.getPackageName(), builder.getBuilderName(),
+                    builder.getMethodsPrefix(), builder.getCollectionAddPrefix(), builder.getEndPrefix()),
+                builder.isFormatCode(), formattingProfile, monitor);
+            GeneratedBuilders.getDefault().register(getProject(),
+                builder.withReferencedTypeNames(referencedTypeNames));
+
+            return;
+        }
+
+        String source = builderGenerator.generateSource(model, builder.getPackageName(), builder.getBuilderName(),
+                builder.getMethodsPrefix(), builder.getCollectionAddPrefix(), builder.getEndPrefix());
+
+        if (builder.isFormatCode()) {
+            source = GenerateBuilderAction.formatSource(source, formattingProfile);
+        }
+
+        if (!root.getPackageFragment(builder.getPackageName()).exists()) {
+            root.createPackageFragment(builder.getPackageName(), false, monitor);
+        }
+
+        GenerateBuilderAction.writeSource(root, builder.getPackageName(), builder.getBuilderName(), source, null);
+        GeneratedBuilders.getDefault().register(getProject(), builder.withReferencedTypeNames(referencedTypeNames));
+    }
+
+    /**
+     * Regenerates only the builder base classes of the changed types. Not possible if a changed type the builder
+     * was generated from has no builder base class of its own, e.g. a supertype declaring setters.
+     *
+     * @return false if the builder has to be regenerated as a whole
+     */
+    private boolean regenerateChangedClasses(EclipseBuilderGenerator builderGenerator, IType type,
+        MethodProvider<IType, IMethod> methodProvider, GeneratedBuilder builder, ICompilationUnit builderUnit,
+        Set<String> changedTypeNames, IProgressMonitor monitor) throws Exception {
+        BuilderOutline outline = BuilderSourceSplicer.outline(builderUnit);
+        Set<String> builderChangedTypeNames = new HashSet<String>();
+
+        for (String typeName : changedTypeNames) {
+            if (builder.getReferencedTypeNames().contains(typeName)) {
+                if (!outline.hasClassFor(typeName)) {
+                    return false;
+                }
+
+                builderChangedTypeNames.add(typeName);
+            }
+        }
+
+        // names of the types the classes left as they are were generated from are kept
+        Set<String> referencedTypeNames = new TreeSet<String>(builder.getReferencedTypeNames());
+        PartialBuilderSource partialSource = builderGenerator.generateChangedClasses(type, builder.getPackageName(),
+                builder.getBuilderName(), methodProvider, builder.getMethodsPrefix(),
+                builder.getCollectionAddPrefix(), builder.getEndPrefix(), outline, builderChangedTypeNames,
+                referencedTypeNames);
+
+        if (!BuilderSourceSplicer.splice(builderUnit, partialSource, builder.isFormatCode(), monitor)) {
+            return false;
+        }
+
+        GeneratedBuilders.getDefault().register(getProject(), builder.withReferencedTypeNames(referencedTypeNames));
+
+        return true;
+    }
+}
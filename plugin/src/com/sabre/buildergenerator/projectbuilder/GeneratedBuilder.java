@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+package com.sabre.buildergenerator.projectbuilder;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.sabre.buildergenerator.ui.actions.BuilderGenerationProperties;
+
+
+/**
+ * A builder generated before, with the options it was generated with and the types it depends on.
+ */
+public final class GeneratedBuilder {
+    private final String typeName;
+    private final String sourceFolderHandle;
+    private final String packageName;
+    private final String builderName;
+    private final String methodsPrefix;
+    private final String collectionAddPrefix;
+    private final String endPrefix;
+    private final boolean formatCode;
+    private final boolean splitFiles;
+    private final String sharedPackageName;
+    private final boolean sharedBaseClass;
+    private final Map<String, Set<String>> selectedSetters;
+    private final Set<String> referencedTypeNames;
+
+    /**
+     * @param typeName fully qualified name of the type the builder is generated for
+     * @param sourceFolderHandle handle identifier of the builder's source folder
+     * @param packageName package of the builder
+     * @param builderName simple name of the builder
+     * @param methodsPrefix
+     * @param collectionAddPrefix
+     * @param endPrefix
+     * @param formatCode
+     * @param splitFiles builder base classes are generated into compilation units of their own
+     * @param sharedPackageName package of the builder base classes shared by the builders of the project, null if
+     *  the builder has builder base classes of its own
+     * @param sharedBaseClass the entry is a shared builder base class rather than a builder, see
+     *  {@link SharedBuilderBases}
+     * @param selectedSetters names of selected setters by fully qualified name of their type, null if all setters
+     *  are generated
+     * @param referencedTypeNames fully qualified names of the types the builder was generated from
+     */
+    public GeneratedBuilder(String typeName, String sourceFolderHandle, String packageName, String builderName,
+        String methodsPrefix, String collectionAddPrefix, String endPrefix, boolean formatCode,
+        boolean splitFiles, String sharedPackageName, boolean sharedBaseClass,
+        Map<String, Set<String>> selectedSetters, Set<String> referencedTypeNames) {
+        this.typeName = typeName;
+        this.sourceFolderHandle = sourceFolderHandle;
+        this.packageName = packageName;
+        this.builderName = builderName;
+        this.methodsPrefix = methodsPrefix;
+        this.collectionAddPrefix = collectionAddPrefix;
+        this.endPrefix = endPrefix;
+        this.formatCode = formatCode;
+        this.splitFiles = splitFiles;
+        this.sharedPackageName = sharedPackageName;
+        this.sharedBaseClass = sharedBaseClass;
+        this.selectedSetters = selectedSetters != null ? copy(selectedSetters) : null;
+        this.referencedTypeNames = Collections.unmodifiableSet(new TreeSet<String>(referencedTypeNames));
+    }
+
+    /**
+     * @param properties options the builder was generated with
+     * @param selectedSetters see {@link SelectedSetters#collect(com.sabre.buildergenerator.sourcegenerator.MethodProvider)}
+     * @param referencedTypeNames fully qualified names of the types the builder was generated from
+     */
+    public GeneratedBuilder(BuilderGenerationProperties properties, Map<String, Set<String>> selectedSetters,
+        Set<String> referencedTypeNames) {
+        this(properties.getType().getFullyQualifiedName(), properties.getSourceFolder().getHandleIdentifier(),
+            properties.getPackageName(), properties.getBuilderClassName(), properties.getMethodsPrefix(),
+            properties.getCollectionAddPrefix(), properties.getEndPrefix(), properties.isFormatCode(),
+            properties.isSplitFiles(), properties.getSharedPackageName().length() > 0
+                ? properties.getSharedPackageName() : null, false, selectedSetters, referencedTypeNames);
+    }
+
+    /**
+     * @param aReferencedTypeNames types the builder was generated from this time
+     * @return the same builder after regeneration
+     */
+    public GeneratedBuilder withReferencedTypeNames(Set<String> aReferencedTypeNames) {
+        return new GeneratedBuilder(typeName, sourceFolderHandle, packageName, builderName, methodsPrefix,
+            collectionAddPrefix, endPrefix, formatCode, splitFiles, sharedPackageName, sharedBaseClass, selectedSetters,
+            aReferencedTypeNames);
+    }
+
+    /**
+     * @return fully qualified name of the builder
+     */
+    public String getBuilderTypeName() {
+        return packageName.length() > 0 ? packageName + "." + builderName : builderName;
+    }
+
+    public String getTypeName() {
+        return typeName;
+    }
+
+    public String getSourceFolderHandle() {
+        return sourceFolderHandle;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public String getBuilderName() {
+        return builderName;
+    }
+
+    public String getMethodsPrefix() {
+        return methodsPrefix;
+    }
+
+    public String getCollectionAddPrefix() {
+        return collectionAddPrefix;
+    }
+
+    public String getEndPrefix() {
+        return endPrefix;
+    }
+
+    public boolean isFormatCode() {
+        return formatCode;
+    }
+
+    public boolean isSplitFiles() {
+        return splitFiles;
+    }
+
+    public String getSharedPackageName() {
+        return sharedPackageName;
+    }
+
+    public boolean isSharedBaseClass() {
+        return sharedBaseClass;
+    }
+
+    /**
+     * @param builder
+     * @return true if the entry was generated with the same prefixes and formatting as the builder
+     */
+    public boolean hasOptionsOf(GeneratedBuilder builder) {
+        return methodsPrefix.equals(builder.methodsPrefix) && collectionAddPrefix.equals(builder.collectionAddPrefix)
+            && endPrefix.equals(builder.endPrefix) && formatCode == builder.formatCode;
+    }
+
+    public Map<String, Set<String>> getSelectedSetters() {
+        return selectedSetters;
+    }
+
+    public Set<String> getReferencedTypeNames() {
+        return referencedTypeNames;
+    }
+
+    private static Map<String, Set<String>> copy(Map<String, Set<String>> map) {
+        Map<String, Set<String>> copy = new HashMap<String, Set<String>>();
+
+        for (Map.Entry<String, Set<String>> entry : map.entrySet()) {
+            copy.put(entry.getKey(), Collections.unmodifiableSet(new HashSet<String>(entry.getValue())));
+        }
+
+        return Collections.unmodifiableMap(copy);
+    }
+}
@@ -0,0 +1,267 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+package com.sabre.buildergenerator.projectbuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+import com.sabre.buildergenerator.Activator;
+
+
+/**
+ * Builders generated in each project, by fully qualified builder name, with an index from model types to the
+ * builders generated from them. Tells {@link FluentBuildersProjectBuilder} which builders are stale after the types
+ * they were generated from changed.
+ * <p>
+ * The default instance is kept in {@link BuilderIndexFile} under the plugin state location. It is loaded on first
+ * use and written by {@link #save()} after each generation.
+ */
+public class GeneratedBuilders {
+    private static final String INDEX_FILE_NAME = "builders.index";
+
+    private static GeneratedBuilders instance;
+
+    private final File indexFile;
+    private final Map<String, Map<String, GeneratedBuilder>> builders = new HashMap<String, Map<String, GeneratedBuilder>>();
+    private final Map<String, Map<String, Set<String>>> buildersByReferencedType = new HashMap<String, Map<String, Set<String>>>();
+    private boolean loaded;
+    private boolean modified;
+
+    public static synchronized GeneratedBuilders getDefault() {
+        if (instance == null) {
+            instance = new GeneratedBuilders(Activator.getDefault().getStateLocation().append(INDEX_FILE_NAME)
+                    .toFile());
+        }
+
+        return instance;
+    }
+
+    /**
+     * Creates builders kept in memory only.
+     */
+    public GeneratedBuilders() {
+        this(null);
+    }
+
+    /**
+     * @param indexFile file the builders are kept in, null to keep them in memory only
+     */
+    public GeneratedBuilders(File indexFile) {
+        this.indexFile = indexFile;
+        this.loaded = indexFile == null;
+    }
+
+    /**
+     * Adds the builder or replaces the one with the same name.
+     *
+     * @param project project of the builder's source folder
+     * @param builder
+     */
+    public synchronized void register(IProject project, GeneratedBuilder builder) {
+        load();
+        unregister(project.getName(), builder.getBuilderTypeName());
+        add(project.getName(), builder);
+        modified = true;
+    }
+
+    /**
+     * @param project
+     * @param builderTypeName fully qualified name of the builder
+     */
+    public synchronized void unregister(IProject project, String builderTypeName) {
+        load();
+        modified |= unregister(project.getName(), builderTypeName);
+    }
+
+    /**
+     * @param project
+     * @param typeName fully qualified name of a type
+     * @return true if the type is a builder generated in the project
+     */
+    public synchronized boolean isBuilder(IProject project, String typeName) {
+        load();
+
+        Map<String, GeneratedBuilder> projectBuilders = builders.get(project.getName());
+
+        return projectBuilders != null && projectBuilders.containsKey(typeName);
+    }
+
+    /**
+     * @param project
+     * @param builderTypeName fully qualified name of the builder
+     * @return the builder, null if no such builder is generated in the project
+     */
+    public synchronized GeneratedBuilder getBuilder(IProject project, String builderTypeName) {
+        load();
+
+        Map<String, GeneratedBuilder> projectBuilders = builders.get(project.getName());
+
+        return projectBuilders != null ? projectBuilders.get(builderTypeName) : null;
+    }
+
+    /**
+     * @param project
+     * @return builders generated in the project
+     */
+    public synchronized Collection<GeneratedBuilder> getBuilders(IProject project) {
+        load();
+
+        Map<String, GeneratedBuilder> projectBuilders = builders.get(project.getName());
+
+        if (projectBuilders == null) {
+            return Collections.emptyList();
+        }
+
+        return new ArrayList<GeneratedBuilder>(projectBuilders.values());
+    }
+
+    /**
+     * @param project
+     * @param changedTypeNames fully qualified names of changed types
+     * @return builders of the project generated from any of the changed types
+     */
+    public synchronized List<GeneratedBuilder> getStaleBuilders(IProject project, Set<String> changedTypeNames) {
+        load();
+
+        Map<String, GeneratedBuilder> projectBuilders = builders.get(project.getName());
+        Map<String, Set<String>> projectIndex = buildersByReferencedType.get(project.getName());
+        Set<String> staleBuilderNames = new HashSet<String>();
+        List<GeneratedBuilder> staleBuilders = new ArrayList<GeneratedBuilder>();
+
+        if (projectIndex != null) {
+            for (String typeName : changedTypeNames) {
+                Set<String> builderNames = projectIndex.get(typeName);
+
+                if (builderNames != null) {
+                    for (String builderName : builderNames) {
+                        if (staleBuilderNames.add(builderName)) {
+                            staleBuilders.add(projectBuilders.get(builderName));
+                        }
+                    }
+                }
+            }
+        }
+
+        return staleBuilders;
+    }
+
+    /**
+     * Writes the builders to the index file if they changed since they were loaded or saved.
+     */
+    public synchronized void save() {
+        if (indexFile == null || !modified) {
+            return;
+        }
+
+        try {
+            BuilderIndexFile.write(indexFile, builders);
+            modified = false;
+        } catch (IOException e) {
+            Activator.getDefault().getLog().log(new Status(IStatus.ERROR, Activator.PLUGIN_ID,
+                    "couldn't write builder index '" + indexFile + "'", e));
+        }
+    }
+
+    /**
+     * Forgets the builders kept in memory, they are loaded from the index file again on next use.
+     */
+    public synchronized void clear() {
+        builders.clear();
+        buildersByReferencedType.clear();
+        loaded = indexFile == null;
+        modified = false;
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+
+        loaded = true;
+
+        if (!indexFile.exists()) {
+            return;
+        }
+
+        try {
+            for (Map.Entry<String, List<GeneratedBuilder>> entry : BuilderIndexFile.read(indexFile).entrySet()) {
+                for (GeneratedBuilder builder : entry.getValue()) {
+                    add(entry.getKey(), builder);
+                }
+            }
+        } catch (IOException e) {
+            // builders generated before are not regenerated until generated again
+            Activator.getDefault().getLog().log(new Status(IStatus.WARNING, Activator.PLUGIN_ID,
+                    "couldn't read builder index '" + indexFile + "'", e));
+        }
+    }
+
+    private void add(String projectName, GeneratedBuilder builder) {
+        Map<String, GeneratedBuilder> projectBuilders = builders.get(projectName);
+        Map<String, Set<String>> projectIndex = buildersByReferencedType.get(projectName);
+
+        if (projectBuilders == null) {
+            projectBuilders = new HashMap<String, GeneratedBuilder>();
+            projectIndex = new HashMap<String, Set<String>>();
+            builders.put(projectName, projectBuilders);
+            buildersByReferencedType.put(projectName, projectIndex);
+        }
+
+        projectBuilders.put(builder.getBuilderTypeName(), builder);
+
+        for (String typeName : builder.getReferencedTypeNames()) {
+            Set<String> builderNames = projectIndex.get(typeName);
+
+            if (builderNames == null) {
+                builderNames = new HashSet<String>();
+                projectIndex.put(typeName, builderNames);
+            }
+
+            builderNames.add(builder.getBuilderTypeName());
+        }
+    }
+
+    private boolean unregister(String projectName, String builderTypeName) {
+        Map<String, GeneratedBuilder> projectBuilders = builders.get(projectName);
+        GeneratedBuilder builder = projectBuilders != null ? projectBuilders.remove(builderTypeName) : null;
+
+        if (builder == null) {
+            return false;
+        }
+
+        Map<String, Set<String>> projectIndex = buildersByReferencedType.get(projectName);
+
+        for (String typeName : builder.getReferencedTypeNames()) {
+            Set<String> builderNames = projectIndex.get(typeName);
+
+            builderNames.remove(builderTypeName);
+
+            if (builderNames.isEmpty()) {
+                projectIndex.remove(typeName);
+            }
+        }
+
+        return true;
+    }
+}
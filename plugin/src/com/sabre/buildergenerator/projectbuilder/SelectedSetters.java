@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+package com.sabre.buildergenerator.projectbuilder;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaModelException;
+
+import com.sabre.buildergenerator.eclipsejavamodel.TypeHierarchyCache;
+import com.sabre.buildergenerator.sourcegenerator.MethodConsumer;
+import com.sabre.buildergenerator.sourcegenerator.MethodProvider;
+
+
+/**
+ * Setters selected in the wizard, remembered by type and setter name so that the builder can be regenerated
+ * with the same selection later.
+ */
+public class SelectedSetters implements MethodProvider<IType, IMethod> {
+    private final IJavaProject javaProject;
+    private final Map<String, Set<String>> selectedSetters;
+
+    /**
+     * @param javaProject project to look the types up in
+     * @param selectedSetters names of selected setters by fully qualified name of their type
+     */
+    public SelectedSetters(IJavaProject javaProject, Map<String, Set<String>> selectedSetters) {
+        this.javaProject = javaProject;
+        this.selectedSetters = selectedSetters;
+    }
+
+    /**
+     * @param methodProvider
+     * @return names of setters provided by the method provider, by fully qualified name of their type
+     */
+    public static Map<String, Set<String>> collect(MethodProvider<IType, IMethod> methodProvider) {
+        final Map<String, Set<String>> selectedSetters = new HashMap<String, Set<String>>();
+
+        methodProvider.process(new MethodConsumer<IType, IMethod>() {
+                public void nextMethod(IType type, IMethod method) {
+                    Set<String> setterNames = selectedSetters.get(type.getFullyQualifiedName());
+
+                    if (setterNames == null) {
+                        setterNames = new HashSet<String>();
+                        selectedSetters.put(type.getFullyQualifiedName(), setterNames);
+                    }
+
+                    setterNames.add(method.getElementName());
+                }
+            });
+
+        return selectedSetters;
+    }
+
+    public void process(MethodConsumer<IType, IMethod> consumer) {
+        try {
+            for (Map.Entry<String, Set<String>> entry : selectedSetters.entrySet()) {
+                IType type = javaProject.findType(entry.getKey().replace('$', '.'));
+
+                if (type != null) {
+                    processSetters(type, entry.getValue(), consumer);
+                }
+            }
+        } catch (JavaModelException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void processSetters(IType type, Set<String> setterNames, MethodConsumer<IType, IMethod> consumer)
+        throws JavaModelException {
+        Set<String> found = new HashSet<String>();
+
+        processSetters(type, type, setterNames, found, consumer);
+
+        // setters may be inherited
+        for (IType superType : TypeHierarchyCache.getDefault().getSupertypeHierarchy(type).getAllSuperclasses(type)) {
+            processSetters(type, superType, setterNames, found, consumer);
+        }
+    }
+
+    private void processSetters(IType type, IType declaringType, Set<String> setterNames, Set<String> found,
+        MethodConsumer<IType, IMethod> consumer) throws JavaModelException {
+        for (IMethod method : declaringType.getMethods()) {
+            if (method.getNumberOfParameters() == 1 && setterNames.contains(method.getElementName())
+                    && found.add(method.getElementName())) {
+                consumer.nextMethod(type, method);
+            }
+        }
+    }
+}
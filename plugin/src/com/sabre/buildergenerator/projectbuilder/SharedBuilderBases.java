@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+
+package com.sabre.buildergenerator.projectbuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+
+import com.sabre.buildergenerator.Activator;
+import com.sabre.buildergenerator.eclipsejavamodel.EclipseBuilderGenerator;
+import com.sabre.buildergenerator.sourcegenerator.BuilderModel;
+import com.sabre.buildergenerator.sourcegenerator.BuilderModel.ClassModel;
+import com.sabre.buildergenerator.sourcegenerator.BuilderSourceGenerator;
+import com.sabre.buildergenerator.sourcegenerator.java.FormattingProfile;
+import com.sabre.buildergenerator.ui.actions.GenerateBuilderAction;
+
+
+/**
+ * Builder base classes shared by the builders of a project. Each class is generated once into the shared package,
+ * from its type alone, and reused by all builders reaching the type. The classes are registered in
+ * {@link GeneratedBuilders} next to the builders, with the types they were generated from, so a shared class is
+ * regenerated only when one of these types changes, not with every builder reaching it.
+ * <p>
+ * Shared classes do not depend on the builder they are generated for, so they are generated with all setters of
+ * their types. A shared class is never generated again for another builder: a builder with other prefixes or
+ * formatting than the shared classes it reaches, or reaching a type whose class name is taken by a type of the same
+ * simple name, is refused and needs a shared package of its own.
+ */
+public final class SharedBuilderBases {
+    private SharedBuilderBases() {
+    }
+
+    /**
+     * Writes the builder and the shared builder base classes of its model that are not generated yet. Nothing is
+     * written if the builder can't share the classes generated already.
+     *
+     * @param builderGenerator generator set up with the formatting profile
+     * @param sourceFolder
+     * @param builder the builder, with the package of the shared classes
+     * @param model model of the builder generated for all setters
+     * @param formattingProfile
+     * @param monitor
+     * @throws CoreException if a shared class of the model is generated for another type or with other options
+     * @throws Exception
+     */
+    public static void writeBuilder(EclipseBuilderGenerator builderGenerator, IPackageFragmentRoot sourceFolder,
+        GeneratedBuilder builder, BuilderModel model, FormattingProfile formattingProfile, IProgressMonitor monitor)
+        throws Exception {
+        String sharedPackageName = builder.getSharedPackageName();
+        List<ClassModel> newClasses = getNewClasses(sourceFolder.getJavaProject().getProject(), builder, model);
+        // the builder refers to the top level builder base class only
+        BuilderModel rootModel = new BuilderModel(Collections.singletonList(model.getRootClass()),
+                model.getReferencedTypeNames());
+        Map<String, String> sources = builderGenerator.generateCompilationUnits(rootModel, builder.getPackageName(),
+                builder.getBuilderName(), sharedPackageName, builder.getMethodsPrefix(),
+                builder.getCollectionAddPrefix(), builder.getEndPrefix());
+
+        GenerateBuilderAction.writeCompilationUnit(sourceFolder, builder.getBuilderTypeName(),
+            sources.get(builder.getBuilderTypeName()), builder.isFormatCode(), formattingProfile, monitor);
+
+        for (ClassModel classModel : newClasses) {
+            String className = BuilderSourceGenerator.getBuilderBaseClassName(classModel.getTypeName());
+            IType type = sourceFolder.getJavaProject().findType(classModel.getQualifiedName().replace('$', '.'));
+
+            if (type != null) {
+                writeClass(builderGenerator, sourceFolder,
+                    new GeneratedBuilder(classModel.getQualifiedName(), sourceFolder.getHandleIdentifier(),
+                        sharedPackageName, className, builder.getMethodsPrefix(), builder.getCollectionAddPrefix(),
+                        builder.getEndPrefix(), builder.isFormatCode(), true, sharedPackageName, true, null,
+                        Collections.<String>emptySet()), type, formattingProfile, monitor);
+            }
+        }
+    }
+
+    /**
+     * Generates a shared builder base class from its type and registers it with the types it was generated from.
+     *
+     * @param builderGenerator generator set up with the formatting profile
+     * @param sourceFolder
+     * @param sharedClass the class, see {@link GeneratedBuilder#isSharedBaseClass()}
+     * @param type type of the class
+     * @param formattingProfile
+     * @param monitor
+     * @throws Exception
+     */
+    public static void writeClass(EclipseBuilderGenerator builderGenerator, IPackageFragmentRoot sourceFolder,
+        GeneratedBuilder sharedClass, IType type, FormattingProfile formattingProfile, IProgressMonitor monitor)
+        throws Exception {
+        BuilderModel classModel = builderGenerator.generateClassModel(type);
+        Map<String, String> sources = builderGenerator.generateCompilationUnits(classModel, null, null,
+                sharedClass.getPackageName(), sharedClass.getMethodsPrefix(), sharedClass.getCollectionAddPrefix(),
+                sharedClass.getEndPrefix());
+
+        for (Map.Entry<String, String> entry : sources.entrySet()) {
+            GenerateBuilderAction.writeCompilationUnit(sourceFolder, entry.getKey(), entry.getValue(),
+                sharedClass.isFormatCode(), formattingProfile, monitor);
+        }
+
+        GeneratedBuilders.getDefault().register(sourceFolder.getJavaProject().getProject(),
+            sharedClass.withReferencedTypeNames(classModel.getReferencedTypeNames()));
+    }
+
+    /**
+     * @return classes of the model that are not shared yet, in model order
+     * @throws CoreException if a class of the model can't share the class of the same name
+     */
+    private static List<ClassModel> getNewClasses(IProject project, GeneratedBuilder builder, BuilderModel model)
+        throws CoreException {
+        List<ClassModel> newClasses = new ArrayList<ClassModel>();
+        Map<String, String> typeNamesByClassName = new HashMap<String, String>();
+
+        for (ClassModel classModel : model.getClasses()) {
+            String classTypeName = builder.getSharedPackageName() + "."
+                + BuilderSourceGenerator.getBuilderBaseClassName(classModel.getTypeName());
+            // classes of the model are checked against each other as well
+            String typeName = typeNamesByClassName.put(classTypeName, classModel.getQualifiedName());
+            GeneratedBuilder sharedClass = GeneratedBuilders.getDefault().getBuilder(project, classTypeName);
+
+            if (sharedClass != null && !sharedClass.isSharedBaseClass()) {
+                throw refuse("'" + classTypeName + "' is a builder already, choose another shared package for '"
+                    + classModel.getQualifiedName() + "'");
+            }
+
+            if (sharedClass != null) {
+                typeName = sharedClass.getTypeName();
+            }
+
+            if (typeName != null && !typeName.equals(classModel.getQualifiedName())) {
+                throw refuse("'" + classTypeName + "' is generated for '" + typeName + "' already, choose another"
+                    + " shared package for '" + classModel.getQualifiedName() + "'");
+            }
+
+            if (sharedClass == null) {
+                newClasses.add(classModel);
+            } else if (!sharedClass.hasOptionsOf(builder)) {
+                throw refuse("'" + classTypeName + "' is generated with other prefixes or formatting already, choose"
+                    + " another shared package for the builder '" + builder.getBuilderTypeName() + "'");
+            }
+        }
+
+        return newClasses;
+    }
+
+    private static CoreException refuse(String message) {
+        return new CoreException(new Status(IStatus.ERROR, Activator.PLUGIN_ID, message));
+    }
+}
@@ -7,6 +7,10 @@ import org.eclipse.jdt.core.IType;
 
 public class RootTypeNode extends TypeNode {
 
+	public RootTypeNode(IType type) {
+		super(type);
+	}
+
 	public RootTypeNode(IType type, Collection<IMethod> definedSettingMethods) {
 		super(type, definedSettingMethods);
 	}
@@ -48,6 +48,10 @@ public class TypeHelperRouter {
 		return modelHelper.findSetterMethodsForAllTypesReferenced(type);
 	}
 
+	public TypeMethods findTypeMethods(IType type) throws Exception {
+		return modelHelper.findTypeMethods(type);
+	}
+
 	public SetType resolveSetterSetType(IType owningType, IMethod method, Map<String, String> parameterSubstitution) throws Exception {
 		String typeUnresolvedSignature = method.getParameterTypes()[0];
 		String typeSignature = signatureResolver.resolveTypeWithParameterMapping(owningType, typeUnresolvedSignature, parameterSubstitution);
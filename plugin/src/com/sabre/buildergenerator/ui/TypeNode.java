@@ -14,6 +14,21 @@ public class TypeNode extends TreeNode<IType> {
 	private final HashSet<MethodNode> methodNodes;
 	private final HashSet<MethodNode> methodNodesPointingAtMe;
 	private boolean active = true;
+	private volatile boolean resolved;
+
+	/**
+	 * Creates an unresolved node, its setting methods are added later by
+	 * {@link #setMethods(Collection)}.
+	 * 
+	 * @param type
+	 *            type represented by this node
+	 */
+	public TypeNode(IType type) {
+		super(type, null);
+
+		this.methodNodes = new HashSet<MethodNode>();
+		this.methodNodesPointingAtMe = new HashSet<MethodNode>();
+	}
 
 	/**
 	 * @param type
@@ -32,6 +47,27 @@ public class TypeNode extends TreeNode<IType> {
 		}
 
 		methodNodesPointingAtMe = new HashSet<MethodNode>();
+		resolved = true;
+	}
+
+	/**
+	 * @return false if the setting methods of the type are not known yet
+	 */
+	public boolean isResolved() {
+		return resolved;
+	}
+
+	void setMethods(Collection<IMethod> definedSettingMethods) {
+		for (IMethod settingMethod : definedSettingMethods) {
+			MethodNode methodNode = new MethodNode(settingMethod, this);
+
+			if (!isSelected() && isActive()) {
+				methodNode.setSelected(false);
+			}
+			methodNodes.add(methodNode);
+		}
+
+		resolved = true;
 	}
 
 	/**
@@ -1,26 +1,45 @@
 package com.sabre.buildergenerator.ui;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.jdt.core.IMethod;
 import org.eclipse.jdt.core.IType;
-import org.eclipse.jdt.core.JavaModelException;
 
 import com.sabre.buildergenerator.eclipsejavamodel.ModelHelper.TypeMethods;
-import com.sabre.buildergenerator.signatureutils.SignatureParserException;
 import com.sabre.buildergenerator.ui.TypeHelperRouter.SetType;
 
 public class TypeTree {
 
+    /**
+     * Notified from the thread building the tree.
+     */
+    public interface Listener {
+        void typeNodeAdded(TypeNode typeNode);
+    }
+
+    private final IType rootType;
     private final Map<IType, TypeNode> typeNodes;
     private final TypeHelperRouter typeHelperRouter;
     private final Map<IType, TypeMethods> setterMethods;
+    private final boolean analyzeOnDemand;
     private final Set<IType> typesAlreadyProcessed;
+    private final Listener listener;
     private RootTypeNode rootNode;
+    private volatile boolean complete;
+    private volatile boolean lazy;
 
     /**
+     * Builds the whole tree at once.
+     *
      * @param aType
      *            a root type
      * @param typeHelperRouter
@@ -29,77 +48,259 @@ public class TypeTree {
      *             an exception thrown sometimes
      */
     public TypeTree(IType aType, TypeHelperRouter typeHelperRouter) throws Exception {
+        this(aType, typeHelperRouter, typeHelperRouter.findSetterMethods(aType), null);
+        build(new NullProgressMonitor());
+    }
+
+    /**
+     * Creates an empty tree, to be populated by {@link #build(IProgressMonitor)}.
+     *
+     * @param aType
+     *            a root type
+     * @param typeHelperRouter
+     *            a helper router
+     * @param listener
+     *            notified about each type node added while building
+     */
+    public TypeTree(IType aType, TypeHelperRouter typeHelperRouter, Listener listener) {
+        this(aType, typeHelperRouter, null, listener);
+    }
+
+    private TypeTree(IType aType, TypeHelperRouter typeHelperRouter, Map<IType, TypeMethods> setterMethods,
+            Listener listener) {
+        this.rootType = aType;
         this.typeNodes = new LinkedHashMap<IType, TypeNode>();
         this.typeHelperRouter = typeHelperRouter;
-        this.setterMethods = typeHelperRouter.findSetterMethods(aType);
+        this.analyzeOnDemand = setterMethods == null;
+        this.setterMethods = analyzeOnDemand ? new HashMap<IType, TypeMethods>() : setterMethods;
         this.typesAlreadyProcessed = new HashSet<IType>();
+        this.listener = listener;
+    }
 
-        TypeMethods typeMethods = getSetterMethodsForType(aType);
-        if (typeMethods != null) {
-            rootNode = new RootTypeNode(aType, typeMethods.getMethods());
-            processType(rootNode, typeMethods.getParameterSubstitution());
+    /**
+     * Analyzes setters of the root type and of all the types reachable through them.
+     *
+     * @param monitor
+     *            progress monitor, checked for cancellation after each type
+     * @throws OperationCanceledException
+     *             if the monitor was cancelled
+     * @throws Exception
+     *             an exception thrown sometimes
+     */
+    public void build(IProgressMonitor monitor) throws Exception {
+        monitor.beginTask("Analyzing setters", IProgressMonitor.UNKNOWN);
 
-            for (TypeNode typeNode : typeNodes.values()) {
-                for (MethodNode methodNode : typeNode.getMethodNodes()) {
-                    SetType setType = typeHelperRouter.resolveSetterSetType(typeNode.getElement(),
-                            methodNode.getElement(), typeMethods.getParameterSubstitution());
-                    if (!setType.isSimpleType()) {
-                        TypeNode setTypeNode = getNodeFor(setType.getType());
-                        if (setTypeNode != null) {
-                            setTypeNode.addPointingMethodNode(methodNode);
-                            methodNode.setPointedTypeNode(setTypeNode);
+        try {
+            TypeMethods typeMethods = getSetterMethodsForType(rootType);
+            if (typeMethods != null) {
+                rootNode = new RootTypeNode(rootType, typeMethods.getMethods());
+                processType(rootNode, typeMethods.getParameterSubstitution(), monitor);
+
+                for (TypeNode typeNode : getSortedTypesNodes()) {
+                    for (MethodNode methodNode : typeNode.getMethodNodes()) {
+                        SetType setType = typeHelperRouter.resolveSetterSetType(typeNode.getElement(),
+                                methodNode.getElement(), typeMethods.getParameterSubstitution());
+                        if (!setType.isSimpleType()) {
+                            TypeNode setTypeNode = getNodeFor(setType.getType());
+                            if (setTypeNode != null) {
+                                setTypeNode.addPointingMethodNode(methodNode);
+                                methodNode.setPointedTypeNode(setTypeNode);
+                            }
                         }
                     }
                 }
             }
+            complete = true;
+        } finally {
+            monitor.done();
         }
     }
 
-    private TypeMethods getSetterMethodsForType(IType aType) {
+    /**
+     * Creates just the root node. Other type nodes are created unresolved when a setter pointing at them is
+     * found, and get their setters in {@link #resolve(TypeNode)}.
+     *
+     * @throws Exception
+     *             an exception thrown sometimes
+     */
+    public void buildLazily() throws Exception {
+        lazy = true;
+        rootNode = new RootTypeNode(rootType);
+        addTypeNode(rootNode);
+        resolve(rootNode);
+    }
+
+    /**
+     * Finds setters of the type node and creates (unresolved) nodes for the types they point at.
+     *
+     * @param typeNode
+     *            node to resolve, nothing happens if it is resolved already
+     * @throws Exception
+     *             an exception thrown sometimes
+     */
+    public synchronized void resolve(TypeNode typeNode) throws Exception {
+        if (typeNode.isResolved()) {
+            return;
+        }
+
+        IType type = typeNode.getElement();
+        TypeMethods typeMethods = getSetterMethodsForType(type);
+        if (typeMethods == null) {
+            typeNode.setMethods(Collections.<IMethod>emptyList());
+            return;
+        }
+
+        typeNode.setMethods(typeMethods.getMethods());
+        for (MethodNode methodNode : typeNode.getMethodNodes()) {
+            SetType setType = typeHelperRouter.resolveSetterSetType(type, methodNode.getElement(),
+                    typeMethods.getParameterSubstitution());
+            if (!setType.isSimpleType()) {
+                IType setIType = setType.getType();
+                TypeNode setTypeNode = getNodeFor(setIType);
+                if (setTypeNode == null && setIType.isClass() && !setIType.isBinary()) {
+                    setTypeNode = new TypeNode(setIType);
+                    addTypeNode(setTypeNode);
+                }
+                if (setTypeNode != null) {
+                    setTypeNode.addPointingMethodNode(methodNode);
+                    methodNode.setPointedTypeNode(setTypeNode);
+                }
+            }
+        }
+    }
+
+    /**
+     * Resolves all type nodes reachable from the root through selected setters, so that the tree describes
+     * everything that is going to be generated. Does nothing for a tree that is not lazy.
+     *
+     * @param monitor
+     *            progress monitor
+     * @throws Exception
+     *             an exception thrown sometimes
+     */
+    public void resolveSelected(IProgressMonitor monitor) throws Exception {
+        if (!lazy) {
+            return;
+        }
+
+        monitor.beginTask("Analyzing selected setters", IProgressMonitor.UNKNOWN);
+        try {
+            Set<TypeNode> visited = new HashSet<TypeNode>();
+            LinkedList<TypeNode> pending = new LinkedList<TypeNode>();
+
+            pending.add(rootNode);
+            visited.add(rootNode);
+            while (!pending.isEmpty()) {
+                if (monitor.isCanceled()) {
+                    throw new OperationCanceledException();
+                }
+
+                TypeNode typeNode = pending.removeFirst();
+                monitor.subTask(typeNode.getElement().getFullyQualifiedName());
+                resolve(typeNode);
+                monitor.worked(1);
+
+                for (MethodNode methodNode : typeNode.getMethodNodes()) {
+                    TypeNode pointedTypeNode = methodNode.getPointedTypeNode();
+                    if (methodNode.isSelected() && pointedTypeNode != null && visited.add(pointedTypeNode)) {
+                        pending.add(pointedTypeNode);
+                    }
+                }
+            }
+            populateStateChange();
+        } finally {
+            monitor.done();
+        }
+    }
+
+    /**
+     * @return true when {@link #build(IProgressMonitor)} has finished without being cancelled
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return true if type nodes are resolved on demand
+     */
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    private TypeMethods getSetterMethodsForType(IType aType) throws Exception {
+        if (analyzeOnDemand && !setterMethods.containsKey(aType)) {
+            setterMethods.put(aType, typeHelperRouter.findTypeMethods(aType));
+        }
         TypeMethods typeMethods = setterMethods.get(aType);
         return typeMethods;
     }
 
-    private void processType(TypeNode typeNode, Map<String, String> parameterSubstitution)
-            throws JavaModelException, SignatureParserException, Exception {
-        typeNodes.put(typeNode.getElement(), typeNode);
+    private void processType(TypeNode typeNode, Map<String, String> parameterSubstitution, IProgressMonitor monitor)
+            throws Exception {
+        if (monitor.isCanceled()) {
+            throw new OperationCanceledException();
+        }
+        monitor.subTask(typeNode.getElement().getFullyQualifiedName());
+        addTypeNode(typeNode);
+        monitor.worked(1);
+
         for (TreeNode<IMethod> setterNode : typeNode.getMethodNodes()) {
             SetType setType = typeHelperRouter.resolveSetterSetType(typeNode.getElement(),
                     setterNode.getElement(), parameterSubstitution);
             if (!setType.isSimpleType()) {
                 IType setIType = setType.getType();
-                TypeMethods newTypeMethods = getSetterMethodsForType(setIType);
-                if (!typesAlreadyProcessed.contains(setIType) && newTypeMethods != null
-                        && setType.getType().isClass() && !setIType.isBinary()) {
-                    typesAlreadyProcessed.add(setIType);
-
-                    Map<String, String> newParameterSubstitution = newTypeMethods
-                            .getParameterSubstitution();
-                    processType(createTypeNode(setIType), newParameterSubstitution);
+                if (!typesAlreadyProcessed.contains(setIType) && setIType.isClass() && !setIType.isBinary()) {
+                    TypeMethods newTypeMethods = getSetterMethodsForType(setIType);
+                    if (newTypeMethods != null) {
+                        typesAlreadyProcessed.add(setIType);
+
+                        Map<String, String> newParameterSubstitution = newTypeMethods
+                                .getParameterSubstitution();
+                        processType(createTypeNode(setIType), newParameterSubstitution, monitor);
+                    }
                 }
             }
         }
     }
 
+    private void addTypeNode(TypeNode typeNode) {
+        synchronized (typeNodes) {
+            typeNodes.put(typeNode.getElement(), typeNode);
+        }
+        if (listener != null) {
+            listener.typeNodeAdded(typeNode);
+        }
+    }
+
     private TypeNode createTypeNode(IType setType) throws Exception {
         return new TypeNode(setType, getSetterMethodsForType(setType).getMethods());
     }
 
+    public TypeNode getRootNode() {
+        return rootNode;
+    }
+
     TypeNode getNodeFor(IType aBaseType) {
-        return typeNodes.get(aBaseType);
+        synchronized (typeNodes) {
+            return typeNodes.get(aBaseType);
+        }
     }
 
     public TypeNode[] getSortedTypesNodes() {
-        return typeNodes.values().toArray(new TypeNode[typeNodes.size()]);
+        synchronized (typeNodes) {
+            return typeNodes.values().toArray(new TypeNode[typeNodes.size()]);
+        }
     }
 
     public void populateStateChange() {
-        makeAllNodesInvisible();
-        rootNode.populateStateChange();
+        if (rootNode != null) {
+            makeAllNodesInvisible();
+            rootNode.populateStateChange();
+        }
     }
 
     private void makeAllNodesInvisible() {
-        for (TypeNode typeNode : typeNodes.values()) {
+        for (TypeNode typeNode : getSortedTypesNodes()) {
             typeNode.deactivate();
         }
     }
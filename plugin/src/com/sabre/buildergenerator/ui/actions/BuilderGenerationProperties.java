@@ -15,7 +15,9 @@ import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.IPackageFragmentRoot;
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jface.preference.IPreferenceStore;
 
+import com.sabre.buildergenerator.sourcegenerator.BuilderModel;
 import com.sabre.buildergenerator.ui.TypeTree;
 
 
@@ -30,17 +32,28 @@ import com.sabre.buildergenerator.ui.TypeTree;
  */
 
 public class BuilderGenerationProperties {
+    private static final String METHODS_PREFIX_PREFERENCE = "methodsPrefix";
+    private static final String COLLECTION_ADD_PREFIX_PREFERENCE = "collectionAddPrefix";
+    private static final String END_PREFIX_PREFERENCE = "endPrefix";
+    private static final String FORMAT_CODE_PREFERENCE = "formatCode";
+    private static final String SPLIT_FILES_PREFERENCE = "splitFiles";
+    private static final String SHARED_PACKAGE_PREFERENCE = "sharedPackage";
+
     //    private IPackageFragment aPackage;
     private String builderClassName;
     private String collectionAddPrefix;
     private String endPrefix;
     private boolean formatCode;
+    private boolean splitFiles;
+    private String sharedPackageName;
     private boolean generateComments;
     private String methodsPrefix;
     private String packageName;
     private IPackageFragmentRoot sourceFolder;
     private IType type;
     private TypeTree settersTypeTree;
+    private boolean lazyAnalysis;
+    private BuilderModel allSettersModel;
 
     /**
      * @param aType
@@ -55,6 +68,7 @@ public class BuilderGenerationProperties {
         builderClassName = aType.getElementName() + "Builder";
         generateComments = true;
         formatCode = true;
+        sharedPackageName = "";
 
         methodsPrefix = "with";
         collectionAddPrefix = "withAdded";
@@ -63,6 +77,51 @@ public class BuilderGenerationProperties {
         sourceFolder = getSourceFolder(aPackage);
     }
 
+    /**
+     * Replaces default options with the ones remembered by {@link #saveOptions(IPreferenceStore)}.
+     *
+     * @param store
+     */
+    public void loadOptions(IPreferenceStore store) {
+        if (store.contains(METHODS_PREFIX_PREFERENCE)) {
+            methodsPrefix = store.getString(METHODS_PREFIX_PREFERENCE);
+        }
+
+        if (store.contains(COLLECTION_ADD_PREFIX_PREFERENCE)) {
+            collectionAddPrefix = store.getString(COLLECTION_ADD_PREFIX_PREFERENCE);
+        }
+
+        if (store.contains(END_PREFIX_PREFERENCE)) {
+            endPrefix = store.getString(END_PREFIX_PREFERENCE);
+        }
+
+        if (store.contains(FORMAT_CODE_PREFERENCE)) {
+            formatCode = store.getBoolean(FORMAT_CODE_PREFERENCE);
+        }
+
+        if (store.contains(SPLIT_FILES_PREFERENCE)) {
+            splitFiles = store.getBoolean(SPLIT_FILES_PREFERENCE);
+        }
+
+        if (store.contains(SHARED_PACKAGE_PREFERENCE)) {
+            sharedPackageName = store.getString(SHARED_PACKAGE_PREFERENCE);
+        }
+    }
+
+    /**
+     * Remembers options not specific to the type, to be used for the next generation.
+     *
+     * @param store
+     */
+    public void saveOptions(IPreferenceStore store) {
+        store.setValue(METHODS_PREFIX_PREFERENCE, methodsPrefix);
+        store.setValue(COLLECTION_ADD_PREFIX_PREFERENCE, collectionAddPrefix);
+        store.setValue(END_PREFIX_PREFERENCE, endPrefix);
+        store.setValue(FORMAT_CODE_PREFERENCE, formatCode);
+        store.setValue(SPLIT_FILES_PREFERENCE, splitFiles);
+        store.setValue(SHARED_PACKAGE_PREFERENCE, sharedPackageName);
+    }
+
     /**
      * @return the formatCode
      */
@@ -77,6 +136,35 @@ public class BuilderGenerationProperties {
         formatCode = aFormatCode;
     }
 
+    /**
+     * @return true if each builder base class is generated into a compilation unit of its own
+     */
+    public boolean isSplitFiles() {
+        return splitFiles;
+    }
+
+    /**
+     * @param aSplitFiles the splitFiles to set
+     */
+    public void setSplitFiles(boolean aSplitFiles) {
+        splitFiles = aSplitFiles;
+    }
+
+    /**
+     * @return package of the builder base classes shared by the builders of the project, empty if the builder
+     *  has builder base classes of its own
+     */
+    public String getSharedPackageName() {
+        return sharedPackageName;
+    }
+
+    /**
+     * @param aSharedPackageName the sharedPackageName to set
+     */
+    public void setSharedPackageName(String aSharedPackageName) {
+        sharedPackageName = aSharedPackageName;
+    }
+
     /**
     * @param aPackageFragment
     * @return
@@ -208,4 +296,33 @@ public class BuilderGenerationProperties {
     public TypeTree getSettersTypeTree() {
         return settersTypeTree;
     }
+
+    /**
+     * @return true if setters of a type are analyzed only when the type is expanded or selected for generation
+     */
+    public boolean isLazyAnalysis() {
+        return lazyAnalysis;
+    }
+
+    /**
+     * @param aLazyAnalysis the lazyAnalysis to set
+     */
+    public void setLazyAnalysis(boolean aLazyAnalysis) {
+        lazyAnalysis = aLazyAnalysis;
+    }
+
+    /**
+     * @return snapshot of the builder for all setters of the setters tree, null if the types have to be analyzed
+     *         during generation
+     */
+    public BuilderModel getAllSettersModel() {
+        return allSettersModel;
+    }
+
+    /**
+     * @param aAllSettersModel the allSettersModel to set
+     */
+    public void setAllSettersModel(BuilderModel aAllSettersModel) {
+        allSettersModel = aAllSettersModel;
+    }
 }
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+
+package com.sabre.buildergenerator.ui.actions;
+
+import java.util.Map;
+
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.formatter.DefaultCodeFormatterConstants;
+
+import com.sabre.buildergenerator.sourcegenerator.java.FormattingProfile;
+
+
+/**
+ * Maps code formatter settings to the {@link FormattingProfile} generated builders are laid out with, so that they
+ * need not be passed through the code formatter.
+ */
+public final class FormatterSettings {
+    /** settings the generated layout always matches, with their required values */
+    private static final String[][] FIXED_SETTINGS = {
+            { DefaultCodeFormatterConstants.FORMATTER_BRACE_POSITION_FOR_BLOCK, DefaultCodeFormatterConstants.END_OF_LINE },
+            { DefaultCodeFormatterConstants.FORMATTER_BLANK_LINES_AFTER_PACKAGE, "1" },
+            { DefaultCodeFormatterConstants.FORMATTER_BLANK_LINES_AFTER_IMPORTS, "1" },
+            { DefaultCodeFormatterConstants.FORMATTER_BLANK_LINES_BETWEEN_TYPE_DECLARATIONS, "1" },
+            { DefaultCodeFormatterConstants.FORMATTER_BLANK_LINES_BEFORE_FIRST_CLASS_BODY_DECLARATION, "0" },
+            { DefaultCodeFormatterConstants.FORMATTER_INDENT_BODY_DECLARATIONS_COMPARE_TO_TYPE_HEADER,
+                DefaultCodeFormatterConstants.TRUE },
+            { DefaultCodeFormatterConstants.FORMATTER_INDENT_STATEMENTS_COMPARE_TO_BODY,
+                DefaultCodeFormatterConstants.TRUE },
+            { DefaultCodeFormatterConstants.FORMATTER_INSERT_SPACE_BEFORE_OPENING_BRACE_IN_TYPE_DECLARATION,
+                JavaCore.INSERT },
+            { DefaultCodeFormatterConstants.FORMATTER_INSERT_SPACE_BEFORE_OPENING_BRACE_IN_METHOD_DECLARATION,
+                JavaCore.INSERT },
+            { DefaultCodeFormatterConstants.FORMATTER_INSERT_SPACE_BEFORE_OPENING_BRACE_IN_BLOCK, JavaCore.INSERT },
+            { DefaultCodeFormatterConstants.FORMATTER_INSERT_SPACE_AFTER_COMMA_IN_METHOD_DECLARATION_PARAMETERS,
+                JavaCore.INSERT },
+            { DefaultCodeFormatterConstants.FORMATTER_INSERT_SPACE_AFTER_COMMA_IN_TYPE_ARGUMENTS, JavaCore.INSERT },
+            { DefaultCodeFormatterConstants.FORMATTER_INSERT_SPACE_AFTER_COMMA_IN_TYPE_PARAMETERS, JavaCore.INSERT },
+            { DefaultCodeFormatterConstants.FORMATTER_INSERT_SPACE_AFTER_CLOSING_PAREN_IN_CAST, JavaCore.INSERT },
+        };
+
+    private FormatterSettings() {
+    }
+
+    /**
+     * @param options code formatter settings, e.g. {@link JavaCore#getOptions()}
+     * @return profile laying builders out the way the code formatter would, null if the settings ask for a
+     *  layout the profiles do not cover
+     */
+    public static FormattingProfile toProfile(Map<?, ?> options) {
+        for (String[] setting : FIXED_SETTINGS) {
+            if (!setting[1].equals(options.get(setting[0]))) {
+                return null;
+            }
+        }
+
+        Object tabChar = options.get(DefaultCodeFormatterConstants.FORMATTER_TAB_CHAR);
+        Object typeBrace = options.get(DefaultCodeFormatterConstants.FORMATTER_BRACE_POSITION_FOR_TYPE_DECLARATION);
+        Object methodBrace = options.get(
+                DefaultCodeFormatterConstants.FORMATTER_BRACE_POSITION_FOR_METHOD_DECLARATION);
+        int blankLinesBeforeMethod = toInt(options.get(DefaultCodeFormatterConstants.FORMATTER_BLANK_LINES_BEFORE_METHOD));
+        int blankLinesBeforeMemberType = toInt(options.get(
+                    DefaultCodeFormatterConstants.FORMATTER_BLANK_LINES_BEFORE_MEMBER_TYPE));
+        int emptyLinesToPreserve = toInt(options.get(
+                    DefaultCodeFormatterConstants.FORMATTER_NUMBER_OF_EMPTY_LINES_TO_PRESERVE));
+        int tabSize = toInt(options.get(DefaultCodeFormatterConstants.FORMATTER_TAB_SIZE));
+        int lineLength = toInt(options.get(DefaultCodeFormatterConstants.FORMATTER_LINE_SPLIT));
+        int continuationIndent = toInt(options.get(DefaultCodeFormatterConstants.FORMATTER_CONTINUATION_INDENTATION));
+
+        if (!(JavaCore.TAB.equals(tabChar) || JavaCore.SPACE.equals(tabChar)) || typeBrace == null
+                || !typeBrace.equals(methodBrace)
+                || !(DefaultCodeFormatterConstants.END_OF_LINE.equals(typeBrace)
+                    || DefaultCodeFormatterConstants.NEXT_LINE.equals(typeBrace))
+                || blankLinesBeforeMethod != blankLinesBeforeMemberType || blankLinesBeforeMethod < 0
+                || emptyLinesToPreserve < 1 || tabSize <= 0 || lineLength <= 0 || continuationIndent < 0) {
+            // the blank lines inside methods are kept only if empty lines are preserved
+            return null;
+        }
+
+        return new FormattingProfile(JavaCore.TAB.equals(tabChar), tabSize, lineLength, continuationIndent,
+            DefaultCodeFormatterConstants.NEXT_LINE.equals(typeBrace), blankLinesBeforeMethod, true);
+    }
+
+    private static int toInt(Object value) {
+        try {
+            return value != null ? Integer.parseInt(value.toString()) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
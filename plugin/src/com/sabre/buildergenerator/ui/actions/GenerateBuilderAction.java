@@ -11,20 +11,36 @@
 
 package com.sabre.buildergenerator.ui.actions;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintWriter;
-import java.io.StringBufferInputStream;
 import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
 import java.lang.reflect.InvocationTargetException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubProgressMonitor;
+import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.IPackageFragmentRoot;
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.ITypeParameter;
+import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.ToolFactory;
 import org.eclipse.jdt.core.formatter.CodeFormatter;
@@ -39,13 +55,24 @@ import org.eclipse.swt.widgets.Shell;
 import org.eclipse.text.edits.MalformedTreeException;
 import org.eclipse.text.edits.TextEdit;
 
+import com.sabre.buildergenerator.Activator;
 import com.sabre.buildergenerator.eclipsejavamodel.EclipseBuilderGenerator;
+import com.sabre.buildergenerator.eclipsejavamodel.TypeResolutionCache;
+import com.sabre.buildergenerator.projectbuilder.GeneratedBuilder;
+import com.sabre.buildergenerator.projectbuilder.GeneratedBuilders;
+import com.sabre.buildergenerator.projectbuilder.SelectedSetters;
+import com.sabre.buildergenerator.projectbuilder.SharedBuilderBases;
+import com.sabre.buildergenerator.sourcegenerator.AnalyzedMethodProvider;
 import com.sabre.buildergenerator.sourcegenerator.BuilderGenerator;
+import com.sabre.buildergenerator.sourcegenerator.BuilderModel;
+import com.sabre.buildergenerator.sourcegenerator.BuilderSourceGenerator;
 import com.sabre.buildergenerator.sourcegenerator.MethodConsumer;
 import com.sabre.buildergenerator.sourcegenerator.MethodProvider;
+import com.sabre.buildergenerator.sourcegenerator.java.FormattingProfile;
 import com.sabre.buildergenerator.ui.MethodNode;
 import com.sabre.buildergenerator.ui.TypeNode;
 import com.sabre.buildergenerator.ui.TypeTree;
+import com.sabre.buildergenerator.ui.actions.support.LineDiff;
 import com.sabre.buildergenerator.ui.actions.support.CompliantCompilationUnitTester;
 import com.sabre.buildergenerator.ui.wizard.GenerateBuilderWizard;
 
@@ -61,6 +88,10 @@ public class GenerateBuilderAction {
     private final CompliantCompilationUnitTester compilationUnitTester = new CompliantCompilationUnitTester();
     private final EclipseBuilderGenerator builderGenerator = new EclipseBuilderGenerator();
 
+    public GenerateBuilderAction() {
+        builderGenerator.setAnalysisExecutor(Activator.getDefault().getAnalysisExecutor());
+    }
+
     /**
      * Starts the generation procedure for the type
      *
@@ -76,7 +107,11 @@ public class GenerateBuilderAction {
             return;
         }
 
-        GenerateBuilderWizard wizard = new GenerateBuilderWizard(new BuilderGenerationProperties(type));
+        BuilderGenerationProperties generationProperties = new BuilderGenerationProperties(type);
+
+        generationProperties.loadOptions(Activator.getDefault().getPreferenceStore());
+
+        GenerateBuilderWizard wizard = new GenerateBuilderWizard(generationProperties);
         WizardDialog wizardDialog = new WizardDialog(shell, wizard);
 
         wizardDialog.setMinimumPageSize(200, 500);
@@ -84,10 +119,12 @@ public class GenerateBuilderAction {
         if (wizardDialog.open() == Dialog.OK) {
             final BuilderGenerationProperties properties = wizard.getBuilderGenerationProperties();
 
+            properties.saveOptions(Activator.getDefault().getPreferenceStore());
+
             IRunnableWithProgress runnableWithProgress = new IRunnableWithProgress() {
                     public void run(IProgressMonitor aMonitor) throws InvocationTargetException, InterruptedException {
                         try {
-                            aMonitor.beginTask("Generating class", 4);
+                            aMonitor.beginTask("Generating class", 5);
 
                             IPackageFragmentRoot selectedSourceFolder = properties.getSourceFolder();
 
@@ -101,26 +138,34 @@ public class GenerateBuilderAction {
                                 selectedSourceFolder.createPackageFragment(packageName, false, aMonitor);
                             }
 
-                            String source = generateSource(builderGenerator, properties);
-
-                            aMonitor.worked(2);
+                            properties.getSettersTypeTree().resolveSelected(new SubProgressMonitor(aMonitor, 1));
 
-                            // create source file
-                            IPath builderPath = selectedSourceFolder.getPath();
+                            MethodProvider<IType, IMethod> methodProvider = createMethodProvider(properties);
+                            Set<String> referencedTypeNames = new TreeSet<String>();
+                            boolean shared = properties.getSharedPackageName().length() > 0;
 
-                            for (String s : packageName.split("\\.")) {
-                                builderPath = builderPath.append(s);
-                            }
+                            if (shared) {
+                                generateSharedBuilder(properties, referencedTypeNames, aMonitor);
+                            } else if (properties.isSplitFiles()) {
+                                generateCompilationUnits(builderGenerator, properties, methodProvider,
+                                    referencedTypeNames, aMonitor);
+                            } else {
+                                String source = generateSource(builderGenerator, properties, methodProvider,
+                                        referencedTypeNames);
 
-                            builderPath = builderPath.append(builderClassName).addFileExtension("java");
+                                aMonitor.worked(2);
 
-                            IFile file = ResourcesPlugin.getWorkspace().getRoot().getFile(builderPath);
-
-                            if (file.exists()) {
-                                file.delete(false, aMonitor);
+                                // create source file
+                                writeSource(selectedSourceFolder, packageName, builderClassName, source, aMonitor);
                             }
 
-                            file.create(new StringBufferInputStream(source), false, aMonitor);
+                            // kept current when the types it was generated from change, if the project opted in
+                            IProject project = selectedSourceFolder.getJavaProject().getProject();
+
+                            GeneratedBuilders.getDefault().register(project,
+                                new GeneratedBuilder(properties,
+                                    shared ? null : SelectedSetters.collect(methodProvider), referencedTypeNames));
+                            GeneratedBuilders.getDefault().save();
                         } catch (Throwable e) {
                             throw new InvocationTargetException(e);
                         } finally {
@@ -166,10 +211,19 @@ public class GenerateBuilderAction {
         return true;
     }
 
-    private String generateSource(BuilderGenerator<IType, ITypeParameter, IMethod, JavaModelException> builderGenerator, final BuilderGenerationProperties properties) throws Exception {
-
+    /**
+     * @param properties
+     * @return setters selected in the setters tree of the properties, with the snapshot taken while they were
+     *  selected
+     */
+    public static MethodProvider<IType, IMethod> createMethodProvider(final BuilderGenerationProperties properties) {
         final TypeTree typeTree = properties.getSettersTypeTree();
-        MethodProvider<IType, IMethod> methodProvider = new MethodProvider<IType, IMethod>() {
+
+        return new AnalyzedMethodProvider<IType, IMethod>() {
+                public BuilderModel getAllSettersModel() {
+                    return properties.getAllSettersModel();
+                }
+
                 public void process(MethodConsumer<IType, IMethod> consumer) {
                     if (typeTree != null) {
                         for (TypeNode typeNode : typeTree.getSortedTypesNodes()) {
@@ -188,17 +242,266 @@ public class GenerateBuilderAction {
                     }
                 }
             };
+    }
+
+    private String generateSource(BuilderGenerator<IType, ITypeParameter, IMethod, JavaModelException> builderGenerator, final BuilderGenerationProperties properties,
+        MethodProvider<IType, IMethod> methodProvider, Set<String> referencedTypeNames) throws Exception {
+        FormattingProfile formattingProfile = properties.isFormatCode() ? getFormattingProfile() : null;
+
+        builderGenerator.setFormattingProfile(formattingProfile);
+        TypeResolutionCache.getDefault().resetStatistics();
 
         String builderSource = builderGenerator.generateSource(properties.getType(), properties.getPackageName(), properties.getBuilderClassName(), methodProvider, properties.getMethodsPrefix(),
-                properties.getCollectionAddPrefix(), properties.getEndPrefix());
+                properties.getCollectionAddPrefix(), properties.getEndPrefix(), referencedTypeNames);
+
+        Activator.logDebug(TypeResolutionCache.getDefault().toString());
         if (properties.isFormatCode()) {
-            builderSource = formatSource(builderSource);
+            builderSource = formatSource(builderSource, formattingProfile);
         }
 
         return builderSource;
     }
 
-    private String formatSource(String sourceCode) {
+    /**
+     * Builder base classes shared by the builders of the project do not depend on the setters selected for one
+     * builder, so the builder is generated for all setters, see {@link SharedBuilderBases}.
+     */
+    private void generateSharedBuilder(BuilderGenerationProperties properties, Set<String> referencedTypeNames,
+        IProgressMonitor monitor) throws Exception {
+        FormattingProfile formattingProfile = properties.isFormatCode() ? getFormattingProfile() : null;
+
+        builderGenerator.setFormattingProfile(formattingProfile);
+
+        BuilderModel model = builderGenerator.generateModel(properties.getType(), null);
+
+        referencedTypeNames.addAll(model.getReferencedTypeNames());
+        monitor.worked(2);
+        SharedBuilderBases.writeBuilder(builderGenerator, properties.getSourceFolder(),
+            new GeneratedBuilder(properties, null, referencedTypeNames), model, formattingProfile, monitor);
+    }
+
+    private void generateCompilationUnits(
+        BuilderGenerator<IType, ITypeParameter, IMethod, JavaModelException> builderGenerator,
+        BuilderGenerationProperties properties, MethodProvider<IType, IMethod> methodProvider,
+        Set<String> referencedTypeNames, IProgressMonitor monitor) throws Exception {
+        FormattingProfile formattingProfile = properties.isFormatCode() ? getFormattingProfile() : null;
+
+        builderGenerator.setFormattingProfile(formattingProfile);
+
+        BuilderModel model = builderGenerator.generateModel(properties.getType(), methodProvider);
+        Map<String, String> sources = builderGenerator.generateCompilationUnits(model, properties.getPackageName(),
+                properties.getBuilderClassName(), properties.getMethodsPrefix(), properties.getCollectionAddPrefix(),
+                properties.getEndPrefix());
+
+        referencedTypeNames.addAll(model.getReferencedTypeNames());
+        monitor.worked(2);
+        writeCompilationUnits(properties.getSourceFolder(), properties.getPackageName(),
+            properties.getBuilderClassName(), sources, properties.isFormatCode(), formattingProfile, monitor);
+    }
+
+    /**
+     * Writes a builder generated into compilation units, see
+     * {@link BuilderGenerator#generateCompilationUnits(BuilderModel, String, String, String, String, String)}, and
+     * deletes the generated units of builder base classes the builder no longer has. Units with unchanged content
+     * are left untouched, so only the changed ones are recompiled.
+     *
+     * @param sourceFolder
+     * @param packageName package of the builder
+     * @param builderClassName
+     * @param sources sources by fully qualified class name
+     * @param formatCode
+     * @param formattingProfile profile the sources have been generated with
+     * @param monitor
+     * @throws CoreException
+     */
+    public static void writeCompilationUnits(IPackageFragmentRoot sourceFolder, String packageName,
+        String builderClassName, Map<String, String> sources, boolean formatCode,
+        FormattingProfile formattingProfile, IProgressMonitor monitor) throws CoreException {
+        IPackageFragment baseClassesPackage = sourceFolder.getPackageFragment(
+                BuilderGenerator.getBaseClassesPackage(packageName, builderClassName));
+
+        for (Map.Entry<String, String> entry : sources.entrySet()) {
+            writeCompilationUnit(sourceFolder, entry.getKey(), entry.getValue(), formatCode, formattingProfile,
+                monitor);
+        }
+
+        if (!baseClassesPackage.exists()) {
+            return;
+        }
+
+        for (ICompilationUnit compilationUnit : baseClassesPackage.getCompilationUnits()) {
+            String className = baseClassesPackage.getElementName() + "."
+                + compilationUnit.getElementName().substring(0, compilationUnit.getElementName().lastIndexOf('.'));
+
+            if (!sources.containsKey(className)
+                    && compilationUnit.getSource().contains(BuilderSourceGenerator.GENERATED_SOURCE_MARKER)) {
+                compilationUnit.delete(false, monitor);
+            }
+        }
+    }
+
+    /**
+     * Writes a generated compilation unit, see {@link #writeSource}, creating its package if needed.
+     *
+     * @param sourceFolder
+     * @param className fully qualified name of the class of the unit
+     * @param source
+     * @param formatCode
+     * @param formattingProfile profile the source has been generated with
+     * @param monitor
+     * @return true if the file was created or its content changed
+     * @throws CoreException
+     */
+    public static boolean writeCompilationUnit(IPackageFragmentRoot sourceFolder, String className, String source,
+        boolean formatCode, FormattingProfile formattingProfile, IProgressMonitor monitor) throws CoreException {
+        int packageEnd = className.lastIndexOf('.');
+        String packageName = packageEnd != -1 ? className.substring(0, packageEnd) : "";
+
+        if (formatCode) {
+            source = formatSource(source, formattingProfile);
+        }
+
+        if (!sourceFolder.getPackageFragment(packageName).exists()) {
+            sourceFolder.createPackageFragment(packageName, false, monitor);
+        }
+
+        return writeSource(sourceFolder, packageName, className.substring(packageEnd + 1), source, monitor);
+    }
+
+    /**
+     * Creates or replaces the builder source file, encoded with the file's charset. A file that already has the
+     * same content is left untouched, so no resource delta and no rebuild of its dependents follows. Only the
+     * changed lines of an existing compilation unit are replaced, see {@link #applySource}. A file with unsaved
+     * changes in an editor is not replaced, the user's edits are not overwritten.
+     *
+     * @param sourceFolder
+     * @param packageName
+     * @param builderClassName
+     * @param source
+     * @param monitor
+     * @return true if the file was created or its content changed
+     * @throws CoreException also if the file has unsaved changes in an editor
+     */
+    public static boolean writeSource(IPackageFragmentRoot sourceFolder, String packageName, String builderClassName,
+        String source, IProgressMonitor monitor) throws CoreException {
+        IPath builderPath = sourceFolder.getPath();
+
+        for (String s : packageName.split("\\.")) {
+            builderPath = builderPath.append(s);
+        }
+
+        builderPath = builderPath.append(builderClassName).addFileExtension("java");
+
+        IFile file = ResourcesPlugin.getWorkspace().getRoot().getFile(builderPath);
+        byte[] content = encode(source, file.getCharset());
+
+        if (file.exists()) {
+            if (Arrays.equals(digest(new ByteArrayInputStream(content)), digest(file.getContents(true)))) {
+                return false;
+            }
+
+            ICompilationUnit compilationUnit = JavaCore.createCompilationUnitFrom(file);
+
+            if (compilationUnit != null && compilationUnit.exists()) {
+                applySource(compilationUnit, source, monitor);
+            } else {
+                file.setContents(new ByteArrayInputStream(content), false, true, monitor);
+            }
+        } else {
+            file.create(new ByteArrayInputStream(content), false, monitor);
+        }
+
+        return true;
+    }
+
+    /**
+     * Replaces the changed lines of the compilation unit through its working copy. When the unit is open in an
+     * editor the edits go to the editor's buffer, so reconciling, indexing and the markers of the unchanged lines
+     * are affected only by the changed regions. The buffer is committed, so it must not have unsaved changes: the
+     * lines are diffed against the buffer and committing it would save the user's edits as well.
+     *
+     * @param compilationUnit
+     * @param source new content of the unit
+     * @param monitor
+     * @throws CoreException if the unit has unsaved changes
+     */
+    private static void applySource(ICompilationUnit compilationUnit, String source, IProgressMonitor monitor)
+        throws CoreException {
+        if (compilationUnit.hasUnsavedChanges()) {
+            throw new CoreException(new Status(IStatus.ERROR, Activator.PLUGIN_ID,
+                    "'" + compilationUnit.getPath()
+                        + "' has unsaved changes, save or revert them to update the builder"));
+        }
+
+        compilationUnit.becomeWorkingCopy(monitor);
+
+        try {
+            compilationUnit.applyTextEdit(LineDiff.diff(compilationUnit.getSource(), source), monitor);
+            compilationUnit.commitWorkingCopy(false, monitor);
+        } finally {
+            compilationUnit.discardWorkingCopy();
+        }
+    }
+
+    private static byte[] encode(String source, String charset) throws CoreException {
+        try {
+            return source.getBytes(charset);
+        } catch (UnsupportedEncodingException e) {
+            throw new CoreException(new Status(IStatus.ERROR, Activator.PLUGIN_ID,
+                    "unsupported charset '" + charset + "'", e));
+        }
+    }
+
+    private static byte[] digest(InputStream in) throws CoreException {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+            byte[] buffer = new byte[8192];
+            int count;
+
+            while ((count = in.read(buffer)) != -1) {
+                messageDigest.update(buffer, 0, count);
+            }
+
+            return messageDigest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            // every java platform supports MD5
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new CoreException(new Status(IStatus.ERROR, Activator.PLUGIN_ID, "couldn't read file content", e));
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // the content has been read already
+            }
+        }
+    }
+
+    /**
+     * @return layout matching the workspace code formatter settings, null if generated builders have to be passed
+     *  through the code formatter
+     */
+    public static FormattingProfile getFormattingProfile() {
+        return FormatterSettings.toProfile(JavaCore.getOptions());
+    }
+
+    /**
+     * Formats the source with the code formatter, unless it has been generated with a formatting profile already
+     * and no line of it exceeds the profile's line length.
+     *
+     * @param sourceCode
+     * @param formattingProfile profile the source has been generated with, see {@link #getFormattingProfile()}
+     * @return formatted source
+     */
+    public static String formatSource(String sourceCode, FormattingProfile formattingProfile) {
+        if (formattingProfile != null && formattingProfile.fits(sourceCode)) {
+            return sourceCode;
+        }
+
+        return formatSource(sourceCode);
+    }
+
+    public static String formatSource(String sourceCode) {
         TextEdit text = ToolFactory.createCodeFormatter(null).format(CodeFormatter.K_COMPILATION_UNIT, sourceCode, 0,
                 sourceCode.length(), 0, "\n");
 
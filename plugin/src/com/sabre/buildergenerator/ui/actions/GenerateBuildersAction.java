@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+package com.sabre.buildergenerator.ui.actions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+
+import com.sabre.buildergenerator.Activator;
+import com.sabre.buildergenerator.ui.actions.support.CompliantCompilationUnitTester;
+
+
+/**
+ * Generates builders for many types at once with the remembered options, see {@link GenerateBuildersJob}.
+ */
+public class GenerateBuildersAction {
+    private final CompliantCompilationUnitTester compilationUnitTester = new CompliantCompilationUnitTester();
+
+    /**
+     * Schedules a generation job per source folder of the types.
+     *
+     * @param types types to generate builders for, unsupported types are skipped
+     * @return number of builders scheduled for generation
+     * @throws Exception
+     */
+    public int execute(Collection<IType> types) throws Exception {
+        Map<IPackageFragmentRoot, List<BuilderGenerationProperties>> buildersBySourceFolder = new LinkedHashMap<IPackageFragmentRoot, List<BuilderGenerationProperties>>();
+        int count = 0;
+
+        for (IType type : types) {
+            if (!compilationUnitTester.isTypeSupported(type)) {
+                continue;
+            }
+
+            BuilderGenerationProperties properties = new BuilderGenerationProperties(type);
+
+            properties.loadOptions(Activator.getDefault().getPreferenceStore());
+
+            if (properties.getSourceFolder() == null) {
+                continue;
+            }
+
+            List<BuilderGenerationProperties> builders = buildersBySourceFolder.get(properties.getSourceFolder());
+
+            if (builders == null) {
+                builders = new ArrayList<BuilderGenerationProperties>();
+                buildersBySourceFolder.put(properties.getSourceFolder(), builders);
+            }
+
+            builders.add(properties);
+            count++;
+        }
+
+        for (Map.Entry<IPackageFragmentRoot, List<BuilderGenerationProperties>> entry : buildersBySourceFolder.entrySet()) {
+            new GenerateBuildersJob(entry.getKey(), entry.getValue()).schedule();
+        }
+
+        return count;
+    }
+}
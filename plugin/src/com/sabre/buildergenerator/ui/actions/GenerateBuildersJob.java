@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+package com.sabre.buildergenerator.ui.actions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+
+import com.sabre.buildergenerator.Activator;
+import com.sabre.buildergenerator.eclipsejavamodel.EclipseBuilderGenerator;
+import com.sabre.buildergenerator.projectbuilder.GeneratedBuilder;
+import com.sabre.buildergenerator.projectbuilder.GeneratedBuilders;
+import com.sabre.buildergenerator.projectbuilder.SharedBuilderBases;
+import com.sabre.buildergenerator.sourcegenerator.BuilderModel;
+import com.sabre.buildergenerator.sourcegenerator.BuilderSourceConsumer;
+import com.sabre.buildergenerator.sourcegenerator.GenerationOptions;
+import com.sabre.buildergenerator.sourcegenerator.java.FormattingProfile;
+
+
+/**
+ * Generates builders for types of one source folder, without the wizard. The folder is the job's scheduling rule,
+ * so jobs for different source folders run in parallel, and all builders of the folder are written in a single
+ * workspace operation.
+ */
+public class GenerateBuildersJob extends Job {
+    private final IPackageFragmentRoot sourceFolder;
+    private final List<BuilderGenerationProperties> builders;
+
+    /**
+     * @param sourceFolder source folder of the types and their builders
+     * @param builders generation properties of the types, all with the same options
+     */
+    public GenerateBuildersJob(IPackageFragmentRoot sourceFolder, List<BuilderGenerationProperties> builders) {
+        super("Generating fluent builders in " + sourceFolder.getElementName());
+        this.sourceFolder = sourceFolder;
+        this.builders = builders;
+        setRule(sourceFolder.getResource());
+        setUser(true);
+    }
+
+    @Override
+    protected IStatus run(final IProgressMonitor monitor) {
+        try {
+            ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+                    public void run(IProgressMonitor aMonitor) throws CoreException {
+                        generateBuilders(aMonitor);
+                    }
+                }, getRule(), IWorkspace.AVOID_UPDATE, monitor);
+        } catch (OperationCanceledException e) {
+            return Status.CANCEL_STATUS;
+        } catch (CoreException e) {
+            return e.getStatus();
+        }
+
+        return Status.OK_STATUS;
+    }
+
+    private void generateBuilders(final IProgressMonitor monitor) throws CoreException {
+        final Map<IType, BuilderGenerationProperties> propertiesByType = new HashMap<IType, BuilderGenerationProperties>();
+        List<IType> types = new ArrayList<IType>();
+
+        for (BuilderGenerationProperties properties : builders) {
+            propertiesByType.put(properties.getType(), properties);
+            types.add(properties.getType());
+        }
+
+        BuilderGenerationProperties options = builders.get(0);
+        EclipseBuilderGenerator builderGenerator = new EclipseBuilderGenerator();
+        final FormattingProfile formattingProfile = options.isFormatCode()
+            ? GenerateBuilderAction.getFormattingProfile() : null;
+
+        builderGenerator.setAnalysisExecutor(Activator.getDefault().getAnalysisExecutor());
+        builderGenerator.setFormattingProfile(formattingProfile);
+        monitor.beginTask(getName(), types.size());
+
+        try {
+            if (options.isSplitFiles() || options.getSharedPackageName().length() > 0) {
+                generateCompilationUnits(builderGenerator, formattingProfile, monitor);
+            } else {
+                generateSources(builderGenerator, types, propertiesByType, formattingProfile, monitor);
+            }
+        } catch (CoreException e) {
+            throw e;
+        } catch (OperationCanceledException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CoreException(new Status(IStatus.ERROR, Activator.PLUGIN_ID,
+                    "Generating builders in " + sourceFolder.getElementName() + " failed", e));
+        } finally {
+            GeneratedBuilders.getDefault().save();
+            monitor.done();
+        }
+    }
+
+    private void generateSources(EclipseBuilderGenerator builderGenerator, List<IType> types,
+        final Map<IType, BuilderGenerationProperties> propertiesByType, final FormattingProfile formattingProfile,
+        final IProgressMonitor monitor) throws Exception {
+        BuilderGenerationProperties options = builders.get(0);
+
+        builderGenerator.generateSources(types, null,
+            new GenerationOptions(null, options.getMethodsPrefix(), options.getCollectionAddPrefix(),
+                options.getEndPrefix()), new BuilderSourceConsumer<IType>() {
+                public void nextBuilder(IType type, String packageName, String builderName, String builderSource,
+                    Set<String> referencedTypeNames) throws Exception {
+                    if (monitor.isCanceled()) {
+                        throw new OperationCanceledException();
+                    }
+
+                    BuilderGenerationProperties properties = propertiesByType.get(type);
+
+                    if (properties.isFormatCode()) {
+                        builderSource = GenerateBuilderAction.formatSource(builderSource, formattingProfile);
+                    }
+
+                    monitor.subTask(builderName);
+                    GenerateBuilderAction.writeSource(sourceFolder, packageName, builderName, builderSource, null);
+                    GeneratedBuilders.getDefault().register(sourceFolder.getJavaProject().getProject(),
+                        new GeneratedBuilder(properties, null, referencedTypeNames));
+                    monitor.worked(1);
+                }
+            });
+    }
+
+    private void generateCompilationUnits(EclipseBuilderGenerator builderGenerator,
+        FormattingProfile formattingProfile, IProgressMonitor monitor) throws Exception {
+        for (BuilderGenerationProperties properties : builders) {
+            if (monitor.isCanceled()) {
+                throw new OperationCanceledException();
+            }
+
+            BuilderModel model = builderGenerator.generateModel(properties.getType(), null);
+            GeneratedBuilder builder = new GeneratedBuilder(properties, null, model.getReferencedTypeNames());
+
+            monitor.subTask(properties.getBuilderClassName());
+
+            if (builder.getSharedPackageName() != null) {
+                SharedBuilderBases.writeBuilder(builderGenerator, sourceFolder, builder, model, formattingProfile,
+                    monitor);
+            } else {
+                GenerateBuilderAction.writeCompilationUnits(sourceFolder, properties.getPackageName(),
+                    properties.getBuilderClassName(),
+                    builderGenerator.generateCompilationUnits(model, properties.getPackageName(),
+                        properties.getBuilderClassName(), properties.getMethodsPrefix(),
+                        properties.getCollectionAddPrefix(), properties.getEndPrefix()), properties.isFormatCode(),
+                    formattingProfile, monitor);
+            }
+
+            GeneratedBuilders.getDefault().register(sourceFolder.getJavaProject().getProject(), builder);
+            monitor.worked(1);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+package com.sabre.buildergenerator.ui.actions.support;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.text.edits.MultiTextEdit;
+import org.eclipse.text.edits.ReplaceEdit;
+
+
+/**
+ * Line based difference of two texts, as the edit that turns the old text into the new one. Each run of changed
+ * lines becomes one {@link ReplaceEdit}, so applying the edit touches only the changed regions of the old text.
+ * <p>
+ * Lines are matched with Myers' O(ND) algorithm, cheap when the texts differ in few lines. Texts that differ in
+ * more than {@value #MAX_EDIT_DISTANCE} lines are replaced as a whole, apart from their common first and last lines.
+ */
+public final class LineDiff {
+    private static final int MAX_EDIT_DISTANCE = 1000;
+
+    private LineDiff() {
+    }
+
+    /**
+     * @param oldText
+     * @param newText
+     * @return edit of the old text with a child edit for each changed region, without children if the texts are equal
+     */
+    public static MultiTextEdit diff(String oldText, String newText) {
+        List<String> oldLines = splitLines(oldText);
+        List<String> newLines = splitLines(newText);
+        int[] oldIds = new int[oldLines.size()];
+        int[] newIds = new int[newLines.size()];
+        Map<String, Integer> lineIds = new HashMap<String, Integer>();
+
+        identify(oldLines, oldIds, lineIds);
+        identify(newLines, newIds, lineIds);
+
+        int start = 0;
+        int oldEnd = oldIds.length;
+        int newEnd = newIds.length;
+
+        while (start < oldEnd && start < newEnd && oldIds[start] == newIds[start]) {
+            start++;
+        }
+
+        while (oldEnd > start && newEnd > start && oldIds[oldEnd - 1] == newIds[newEnd - 1]) {
+            oldEnd--;
+            newEnd--;
+        }
+
+        boolean[] deleted = new boolean[oldIds.length];
+        boolean[] inserted = new boolean[newIds.length];
+
+        if (!compare(oldIds, newIds, start, oldEnd, newEnd, deleted, inserted)) {
+            for (int i = start; i < oldEnd; i++) {
+                deleted[i] = true;
+            }
+
+            for (int j = start; j < newEnd; j++) {
+                inserted[j] = true;
+            }
+        }
+
+        return createEdit(oldLines, newLines, deleted, inserted);
+    }
+
+    private static List<String> splitLines(String text) {
+        List<String> lines = new ArrayList<String>();
+        int lineStart = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+
+            if (c == '\n' || c == '\r') {
+                if (c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+                    i++;
+                }
+
+                lines.add(text.substring(lineStart, i + 1));
+                lineStart = i + 1;
+            }
+        }
+
+        if (lineStart < text.length()) {
+            lines.add(text.substring(lineStart));
+        }
+
+        return lines;
+    }
+
+    private static void identify(List<String> lines, int[] ids, Map<String, Integer> lineIds) {
+        for (int i = 0; i < ids.length; i++) {
+            Integer id = lineIds.get(lines.get(i));
+
+            if (id == null) {
+                id = lineIds.size();
+                lineIds.put(lines.get(i), id);
+            }
+
+            ids[i] = id;
+        }
+    }
+
+    /**
+     * Marks the old lines deleted and new lines inserted on the shortest edit path between the ranges starting
+     * at start.
+     *
+     * @return false if the ranges differ in more than {@link #MAX_EDIT_DISTANCE} lines
+     */
+    private static boolean compare(int[] a, int[] b, int start, int aEnd, int bEnd, boolean[] deleted,
+        boolean[] inserted) {
+        int n = aEnd - start;
+        int m = bEnd - start;
+        int maxD = Math.min(n + m, MAX_EDIT_DISTANCE);
+        int offset = maxD + 1;
+        int[] v = new int[2 * maxD + 3];
+        List<int[]> trace = new ArrayList<int[]>();
+
+        for (int d = 0; d <= maxD; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+
+                if (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])) {
+                    x = v[offset + k + 1];
+                } else {
+                    x = v[offset + k - 1] + 1;
+                }
+
+                int y = x - k;
+
+                while (x < n && y < m && a[start + x] == b[start + y]) {
+                    x++;
+                    y++;
+                }
+
+                v[offset + k] = x;
+
+                if (x >= n && y >= m) {
+                    backtrack(trace, offset, d, n, m, start, deleted, inserted);
+
+                    return true;
+                }
+            }
+
+            int[] snapshot = new int[2 * maxD + 3];
+
+            System.arraycopy(v, offset - d, snapshot, offset - d, 2 * d + 1);
+            trace.add(snapshot);
+        }
+
+        return false;
+    }
+
+    private static void backtrack(List<int[]> trace, int offset, int lastD, int n, int m, int start,
+        boolean[] deleted, boolean[] inserted) {
+        int x = n;
+        int y = m;
+
+        for (int d = lastD; d > 0; d--) {
+            int[] v = trace.get(d - 1);
+            int k = x - y;
+            boolean down = k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1]);
+            int prevK = down ? k + 1 : k - 1;
+            int prevX = v[offset + prevK];
+            int prevY = prevX - prevK;
+
+            if (down) {
+                inserted[start + prevY] = true;
+            } else {
+                deleted[start + prevX] = true;
+            }
+
+            x = prevX;
+            y = prevY;
+        }
+    }
+
+    private static MultiTextEdit createEdit(List<String> oldLines, List<String> newLines, boolean[] deleted,
+        boolean[] inserted) {
+        MultiTextEdit edit = new MultiTextEdit();
+        int i = 0;
+        int j = 0;
+        int offset = 0;
+
+        while (i < deleted.length || j < inserted.length) {
+            if ((i < deleted.length && deleted[i]) || (j < inserted.length && inserted[j])) {
+                int length = 0;
+                StringBuilder text = new StringBuilder();
+
+                for (; i < deleted.length && deleted[i]; i++) {
+                    length += oldLines.get(i).length();
+                }
+
+                for (; j < inserted.length && inserted[j]; j++) {
+                    text.append(newLines.get(j));
+                }
+
+                edit.addChild(new ReplaceEdit(offset, length, text.toString()));
+                offset += length;
+            } else {
+                offset += oldLines.get(i).length();
+                i++;
+                j++;
+            }
+        }
+
+        return edit;
+    }
+}
@@ -11,25 +11,34 @@
 
 package com.sabre.buildergenerator.ui.handler;
 
+import com.sabre.buildergenerator.sourcegenerator.BuilderSourceGenerator;
 import com.sabre.buildergenerator.ui.actions.GenerateBuilderAction;
+import com.sabre.buildergenerator.ui.actions.GenerateBuildersAction;
 
 import org.eclipse.core.commands.AbstractHandler;
 import org.eclipse.core.commands.ExecutionEvent;
 import org.eclipse.core.commands.ExecutionException;
 import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaModelException;
 
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.viewers.IStructuredSelection;
 
 import org.eclipse.ui.handlers.HandlerUtil;
 
+import java.util.ArrayList;
+import java.util.List;
+
 
 public class GenerateBuilder extends AbstractHandler {
     private final GenerateBuilderAction generateBuilderAction;
+    private final GenerateBuildersAction generateBuildersAction;
 
     public GenerateBuilder() {
         generateBuilderAction = new GenerateBuilderAction();
+        generateBuildersAction = new GenerateBuildersAction();
     }
 
     public Object execute(ExecutionEvent aEvent) throws ExecutionException {
@@ -37,7 +46,17 @@ public class GenerateBuilder extends AbstractHandler {
 
         Object firstElement = selection.getFirstElement();
 
-        if (firstElement instanceof ICompilationUnit) {
+        if (selection.size() > 1 || firstElement instanceof IPackageFragment) {
+            // many builders at once, with remembered options instead of the wizard
+            try {
+                if (generateBuildersAction.execute(getSelectedTypes(selection)) == 0) {
+                    MessageDialog.openInformation(HandlerUtil.getActiveShell(aEvent), "Information",
+                        "No supported types in selected Java source files");
+                }
+            } catch (Exception e) {
+                MessageDialog.openError(HandlerUtil.getActiveShell(aEvent), "Error", e.getMessage());
+            }
+        } else if (firstElement instanceof ICompilationUnit) {
             ICompilationUnit cu = (ICompilationUnit) firstElement;
 
             try {
@@ -59,4 +78,29 @@ public class GenerateBuilder extends AbstractHandler {
 
         return null;
     }
+
+    private List<IType> getSelectedTypes(IStructuredSelection selection) throws JavaModelException {
+        List<IType> types = new ArrayList<IType>();
+
+        for (Object element : selection.toList()) {
+            if (element instanceof ICompilationUnit) {
+                addTypes(types, (ICompilationUnit) element);
+            } else if (element instanceof IPackageFragment) {
+                for (ICompilationUnit cu : ((IPackageFragment) element).getCompilationUnits()) {
+                    addTypes(types, cu);
+                }
+            }
+        }
+
+        return types;
+    }
+
+    private void addTypes(List<IType> types, ICompilationUnit cu) throws JavaModelException {
+        // skip builders generated before
+        if (!cu.getSource().contains(BuilderSourceGenerator.GENERATED_SOURCE_MARKER)) {
+            for (IType type : cu.getTypes()) {
+                types.add(type);
+            }
+        }
+    }
 }
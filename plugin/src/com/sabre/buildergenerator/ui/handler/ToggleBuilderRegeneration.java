@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2009-2010 fluent-builder-generator for Eclipse commiters.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sabre Polska sp. z o.o. - initial implementation during Hackday
+ */
+
+package com.sabre.buildergenerator.ui.handler;
+
+import com.sabre.buildergenerator.projectbuilder.FluentBuildersNature;
+
+import org.eclipse.core.commands.AbstractHandler;
+import org.eclipse.core.commands.ExecutionEvent;
+import org.eclipse.core.commands.ExecutionException;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.resources.WorkspaceJob;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IAdaptable;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+import org.eclipse.jface.viewers.IStructuredSelection;
+
+import org.eclipse.ui.handlers.HandlerUtil;
+
+
+/**
+ * Turns the regeneration of the builders of the selected projects on or off, see {@link FluentBuildersNature}.
+ */
+public class ToggleBuilderRegeneration extends AbstractHandler {
+    public Object execute(ExecutionEvent aEvent) throws ExecutionException {
+        IStructuredSelection selection = (IStructuredSelection) HandlerUtil.getActiveMenuSelection(aEvent);
+
+        for (Object element : selection.toList()) {
+            // java projects are adapted to their projects
+            if (element instanceof IAdaptable) {
+                Object resource = ((IAdaptable) element).getAdapter(IResource.class);
+
+                if (resource instanceof IProject) {
+                    toggle((IProject) resource);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private void toggle(final IProject project) {
+        WorkspaceJob job = new WorkspaceJob("Toggling builder regeneration of " + project.getName()) {
+                @Override
+                public IStatus runInWorkspace(IProgressMonitor monitor) throws CoreException {
+                    FluentBuildersNature.toggle(project, monitor);
+
+                    return Status.OK_STATUS;
+                }
+            };
+
+        job.setRule(ResourcesPlugin.getWorkspace().getRuleFactory().modifyRule(project));
+        job.schedule();
+    }
+}
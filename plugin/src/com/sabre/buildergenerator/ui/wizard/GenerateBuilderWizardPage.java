@@ -14,14 +14,22 @@ package com.sabre.buildergenerator.ui.wizard;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.ProgressMonitorWrapper;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
 import org.eclipse.jdt.core.Flags;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IMethod;
 import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeParameter;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jdt.ui.wizards.NewElementWizardPage;
@@ -29,6 +37,7 @@ import org.eclipse.jface.dialogs.Dialog;
 import org.eclipse.jface.dialogs.IMessageProvider;
 import org.eclipse.jface.fieldassist.AutoCompleteField;
 import org.eclipse.jface.fieldassist.TextContentAdapter;
+import org.eclipse.jface.resource.JFaceResources;
 import org.eclipse.jface.viewers.CheckStateChangedEvent;
 import org.eclipse.jface.viewers.CheckboxTreeViewer;
 import org.eclipse.jface.viewers.ICheckStateListener;
@@ -41,21 +50,29 @@ import org.eclipse.swt.events.ModifyEvent;
 import org.eclipse.swt.events.ModifyListener;
 import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.events.SelectionListener;
+import org.eclipse.swt.layout.FillLayout;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.ProgressBar;
 import org.eclipse.swt.widgets.Text;
 import org.eclipse.ui.dialogs.SelectionDialog;
 
 import com.sabre.buildergenerator.Activator;
+import com.sabre.buildergenerator.eclipsejavamodel.EclipseBuilderGenerator;
+import com.sabre.buildergenerator.sourcegenerator.BuilderModel;
+import com.sabre.buildergenerator.sourcegenerator.BuilderPreview;
+import com.sabre.buildergenerator.sourcegenerator.java.FormattingProfile;
 import com.sabre.buildergenerator.ui.MethodNode;
 import com.sabre.buildergenerator.ui.TreeNode;
 import com.sabre.buildergenerator.ui.TypeHelperRouter;
 import com.sabre.buildergenerator.ui.TypeNode;
 import com.sabre.buildergenerator.ui.TypeTree;
 import com.sabre.buildergenerator.ui.actions.BuilderGenerationProperties;
+import com.sabre.buildergenerator.ui.actions.GenerateBuilderAction;
 
 /**
  * Title: GenerateBuilderWizardPage.java<br>
@@ -109,6 +126,95 @@ class GenerateBuilderWizardPage extends NewElementWizardPage {
 		}
 	}
 
+	private final class SettersTypeTreeListener implements TypeTree.Listener {
+		private final int treeGeneration = settersTreeGeneration;
+
+		public void typeNodeAdded(final TypeNode typeNode) {
+			asyncExec(new Runnable() {
+				public void run() {
+					if (treeGeneration != settersTreeGeneration) {
+						return;
+					}
+
+					if (lazyContentProvider != null) {
+						lazyContentProvider.typeNodesChanged();
+					} else {
+						selectedSettersTreeViewer.add(selectedSettersTreeViewer
+								.getInput(), typeNode);
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Builds the setters tree off the UI thread.
+	 */
+	private class SettersAnalysisJob extends Job {
+		private final TypeTree settersTypeTree;
+		private BuilderModel allSettersModel;
+
+		public SettersAnalysisJob(TypeTree settersTypeTree) {
+			super("Analyzing setters of "
+					+ properties.getType().getFullyQualifiedName());
+
+			this.settersTypeTree = settersTypeTree;
+		}
+
+		@Override
+		protected IStatus run(final IProgressMonitor monitor) {
+			try {
+				settersTypeTree.build(new ProgressMonitorWrapper(monitor) {
+					@Override
+					public void subTask(final String name) {
+						super.subTask(name);
+
+						asyncExec(new Runnable() {
+							public void run() {
+								progressLabel.setText(name);
+							}
+						});
+					}
+				});
+
+				allSettersModel = generateAllSettersModel();
+
+				return Status.OK_STATUS;
+			} catch (OperationCanceledException e) {
+				return Status.CANCEL_STATUS;
+			} catch (Exception e) {
+				return new Status(IStatus.ERROR, Activator.PLUGIN_ID,
+						"Couldn't analyze setters of "
+								+ properties.getType().getFullyQualifiedName(),
+						e);
+			}
+		}
+
+		/**
+		 * @return snapshot of the builder for all setters, null if it couldn't
+		 *         be taken
+		 */
+		public BuilderModel getAllSettersModel() {
+			return allSettersModel;
+		}
+
+		private BuilderModel generateAllSettersModel() {
+			try {
+				return new EclipseBuilderGenerator().generateModel(properties
+						.getType(), null);
+			} catch (Exception e) {
+				// the builder is still generated, by analyzing the types again
+				Activator.getDefault().getLog().log(
+						new Status(IStatus.WARNING, Activator.PLUGIN_ID,
+								"Couldn't take snapshot of analyzed types", e));
+
+				return null;
+			}
+		}
+	}
+
+	private static final String LAZY_ANALYSIS_PREFERENCE = "lazySettersAnalysis";
+
 	private ErrorCreator errorCreator;
 
 	private final BuilderGenerationProperties properties;
@@ -120,11 +226,27 @@ class GenerateBuilderWizardPage extends NewElementWizardPage {
 	private Text endPrefixText;
 
 	private Button formatCodeButton;
+	private Button splitFilesButton;
+	private Text sharedPackageNameText;
 	private Text packageNameText;
 	private Text prefixText;
 
+	private Button lazyAnalysisButton;
+	private Composite settersTreeComposite;
 	private CheckboxTreeViewer selectedSettersTreeViewer;
+	private SettersTypeTreeLazyContentProvider lazyContentProvider;
+	private int settersTreeGeneration;
+	private final List<Button> settersTreeButtons = new ArrayList<Button>();
+	private Composite progressComposite;
+	private Label progressLabel;
+	private Button cancelAnalysisButton;
+	private SettersAnalysisJob settersAnalysisJob;
+	private String settersAnalysisError;
 	private Text sourceFolderNameText;
+	private Text previewText;
+	private String previewSource;
+	private EclipseBuilderGenerator previewGenerator;
+	private BuilderPreview<IType, ITypeParameter, IMethod, JavaModelException> builderPreview;
 
 	private final TypeNameValidator typeNameValidator;
 
@@ -136,6 +258,8 @@ class GenerateBuilderWizardPage extends NewElementWizardPage {
 		super(wizardPageName);
 
 		this.properties = properties;
+		this.properties.setLazyAnalysis(Activator.getDefault()
+				.getPreferenceStore().getBoolean(LAZY_ANALYSIS_PREFERENCE));
 
 		this.setTitle("Generate Fluent Builder");
 		this
@@ -167,8 +291,12 @@ class GenerateBuilderWizardPage extends NewElementWizardPage {
 			createEndPrefixPart(mainComposite);
 
 			createFormatCodePart(mainComposite);
+			createSplitFilesPart(mainComposite);
+			createSharedPackagePart(mainComposite);
+			createLazyAnalysisPart(mainComposite);
 
 			createSettersTreeViewer(mainComposite);
+			createPreviewPart(mainComposite);
 
 			setControl(mainComposite);
 		} catch (JavaModelException ex) {
@@ -207,6 +335,7 @@ class GenerateBuilderWizardPage extends NewElementWizardPage {
 			public void widgetSelected(SelectionEvent event) {
 				properties
 						.setFormatCode(((Button) event.widget).getSelection());
+				updatePreviewProfile();
 			}
 		});
 
@@ -217,6 +346,93 @@ class GenerateBuilderWizardPage extends NewElementWizardPage {
 		formatCodeButton.setLayoutData(gridData);
 	}
 
+	/**
+	 * @param aMainComposite
+	 */
+	private void createSplitFilesPart(Composite aMainComposite) {
+		createLabel(aMainComposite, "One file per builder base class");
+
+		splitFilesButton = new Button(aMainComposite, SWT.CHECK);
+		splitFilesButton.setSelection(properties.isSplitFiles());
+		splitFilesButton.addSelectionListener(new SelectionListener() {
+			public void widgetDefaultSelected(SelectionEvent aE) {
+				widgetSelected(aE);
+			}
+
+			public void widgetSelected(SelectionEvent event) {
+				properties
+						.setSplitFiles(((Button) event.widget).getSelection());
+			}
+		});
+
+		GridData gridData = createCenterFillGridData();
+
+		gridData.horizontalAlignment = SWT.BEGINNING;
+		gridData.horizontalSpan = 2;
+		splitFilesButton.setLayoutData(gridData);
+	}
+
+	/**
+	 * Builders generated with a shared package reuse the builder base
+	 * classes generated there for other builders, with all setters of their
+	 * types.
+	 * 
+	 * @param aMainComposite
+	 */
+	private void createSharedPackagePart(Composite aMainComposite)
+			throws JavaModelException {
+		createLabel(aMainComposite, "Shared builder base classes package");
+
+		sharedPackageNameText = new Text(aMainComposite, SWT.SINGLE
+				| SWT.BORDER);
+		sharedPackageNameText.setText(properties.getSharedPackageName());
+		sharedPackageNameText
+				.setToolTipText("Leave empty to generate the builder base classes with the builder");
+
+		GridData gridData = createCenterFillGridData();
+
+		gridData.horizontalSpan = 2;
+		sharedPackageNameText.setLayoutData(gridData);
+		sharedPackageNameText.addModifyListener(new ModifyListener() {
+			public void modifyText(ModifyEvent aE) {
+				properties.setSharedPackageName(sharedPackageNameText.getText()
+						.trim());
+			}
+		});
+		new AutoCompleteField(sharedPackageNameText, new TextContentAdapter(),
+				convertToStringArray(getSourcePackages()));
+	}
+
+	/**
+	 * @param aMainComposite
+	 */
+	private void createLazyAnalysisPart(Composite aMainComposite) {
+		createLabel(aMainComposite, "Analyze setters on expand");
+
+		lazyAnalysisButton = new Button(aMainComposite, SWT.CHECK);
+		lazyAnalysisButton.setSelection(properties.isLazyAnalysis());
+		lazyAnalysisButton.addSelectionListener(new SelectionListener() {
+			public void widgetDefaultSelected(SelectionEvent aE) {
+				widgetSelected(aE);
+			}
+
+			public void widgetSelected(SelectionEvent event) {
+				boolean lazy = ((Button) event.widget).getSelection();
+
+				properties.setLazyAnalysis(lazy);
+				Activator.getDefault().getPreferenceStore().setValue(
+						LAZY_ANALYSIS_PREFERENCE, lazy);
+				createSettersTree();
+			}
+		});
+
+		GridData gridData = createCenterFillGridData();
+
+		gridData.horizontalAlignment = SWT.BEGINNING;
+		gridData.horizontalSpan = 2;
+		lazyAnalysisButton.setLayoutData(gridData);
+	}
+
 	/**
 	 * @param aMainComposite
 	 */
@@ -237,6 +453,7 @@ class GenerateBuilderWizardPage extends NewElementWizardPage {
 
 				handleStatus(methodPrefixChanged("End method prefix",
 						properties.getEndPrefix(), false));
+				updatePreview();
 			}
 		});
 	}
@@ -263,6 +480,7 @@ class GenerateBuilderWizardPage extends NewElementWizardPage {
 				properties.setCollectionAddPrefix(collectionAddPrefix);
 				handleStatus(methodPrefixChanged("Collection add prefix",
 						collectionAddPrefix, true));
+				updatePreview();
 			}
 		});
 	}
@@ -273,135 +491,306 @@ class GenerateBuilderWizardPage extends NewElementWizardPage {
 	private void createSettersTreeViewer(Composite aMainComposite) {
 		createLabel(aMainComposite, "Selected setters");
 
-		selectedSettersTreeViewer = new CheckboxTreeViewer(aMainComposite,
-				SWT.BORDER);
-
-		try {
-			final TypeTree settersTypeTree = new TypeTree(properties.getType(),
-					new TypeHelperRouter());
+		settersTreeComposite = new Composite(aMainComposite, SWT.None);
+		settersTreeComposite.setLayout(new FillLayout());
 
-			properties.setSettersTypeTree(settersTypeTree);
-			selectedSettersTreeViewer
-					.setContentProvider(new SettersTypeTreeContentTreeProvider(
-							settersTypeTree));
+		GridData gridData = createCenterFillGridData();
 
-			selectedSettersTreeViewer
-					.setLabelProvider(new SettersTypeTreeLabelProvider());
-			selectedSettersTreeViewer.setAutoExpandLevel(3);
+		gridData.horizontalSpan = 1;
+		gridData.verticalAlignment = SWT.FILL;
+		gridData.grabExcessVerticalSpace = true;
+		settersTreeComposite.setLayoutData(gridData);
 
-			selectedSettersTreeViewer
-					.setFilters(new ViewerFilter[] { new AcitveTypeNodesViewerFilter() });
+		Composite buttonsComposite = new Composite(aMainComposite, SWT.None);
+		GridData buttonsGridData = createCenterFillGridData();
+		buttonsGridData.horizontalAlignment = SWT.FILL;
+		buttonsGridData.verticalAlignment = SWT.BEGINNING;
+		buttonsGridData.grabExcessHorizontalSpace = true;
+		buttonsGridData.grabExcessVerticalSpace = false;
 
-			selectedSettersTreeViewer
-					.addTreeListener(new SettersTypeTreeExpansionListener());
+		buttonsComposite.setLayoutData(buttonsGridData);
+		buttonsComposite.setLayout(new GridLayout(1, true));
 
-			selectedSettersTreeViewer
-					.addCheckStateListener(new SettersTypeTreeCheckStateListener());
+		Button selectAllButton = new Button(buttonsComposite, SWT.None);
+		settersTreeButtons.add(selectAllButton);
 
-			Object someInput = new Object();
+		selectAllButton.setText("Select All");
+		selectAllButton.addSelectionListener(new SelectionListener() {
+			public void widgetSelected(SelectionEvent e) {
+				TypeTree settersTypeTree = properties.getSettersTypeTree();
 
-			selectedSettersTreeViewer.setInput(someInput);
+				// FIXME - dirty code :|
+				for (TypeNode typeNode : settersTypeTree.getSortedTypesNodes()) {
+					typeNode.setSelected(true);
+				}
 
-			GridData gridData = createCenterFillGridData();
+				selectedSettersTreeViewer.refresh();
 
-			gridData.horizontalSpan = 1;
-			gridData.verticalAlignment = SWT.FILL;
-			gridData.grabExcessVerticalSpace = true;
-			selectedSettersTreeViewer.getControl().setLayoutData(gridData);
+				for (TypeNode typeNode : settersTypeTree.getSortedTypesNodes()) {
+					typeNode.setSelected(true);
+				}
 
-			transferClickedNodes(settersTypeTree);
+				transferTreeModelToUI();
+			}
 
-			Composite buttonsComposite = new Composite(aMainComposite, SWT.None);
-			GridData buttonsGridData = createCenterFillGridData();
-			buttonsGridData.horizontalAlignment = SWT.FILL;
-			buttonsGridData.verticalAlignment = SWT.BEGINNING;
-			buttonsGridData.grabExcessHorizontalSpace = true;
-			buttonsGridData.grabExcessVerticalSpace = false;
+			public void widgetDefaultSelected(SelectionEvent e) {
+				widgetSelected(e);
+			}
+		});
 
-			buttonsComposite.setLayoutData(buttonsGridData);
-			buttonsComposite.setLayout(new GridLayout(1, true));
+		Button deselectAllButton = new Button(buttonsComposite, SWT.None);
+		settersTreeButtons.add(deselectAllButton);
 
-			Button selectAllButton = new Button(buttonsComposite, SWT.None);
+		deselectAllButton.setText("Deselect All");
+		deselectAllButton.addSelectionListener(new SelectionListener() {
+			public void widgetSelected(SelectionEvent e) {
+				properties.getSettersTypeTree().getSortedTypesNodes()[0]
+						.setSelected(false);
 
-			selectAllButton.setText("Select All");
-			selectAllButton.addSelectionListener(new SelectionListener() {
-				public void widgetSelected(SelectionEvent e) {
-					// FIXME - dirty code :|
-					for (TypeNode typeNode : settersTypeTree
-							.getSortedTypesNodes()) {
-						typeNode.setSelected(true);
-					}
+				transferTreeModelToUI();
+			}
 
-					selectedSettersTreeViewer.refresh();
+			public void widgetDefaultSelected(SelectionEvent e) {
+				widgetSelected(e);
+			}
+		});
 
-					for (TypeNode typeNode : settersTypeTree
-							.getSortedTypesNodes()) {
-						typeNode.setSelected(true);
-					}
+		Button collapseAllButton = new Button(buttonsComposite, SWT.None);
+		settersTreeButtons.add(collapseAllButton);
+		collapseAllButton.setText("Collapse All");
+		collapseAllButton.addSelectionListener(new SelectionListener() {
 
-					transferTreeModelToUI();
+			public void widgetSelected(SelectionEvent aE) {
+				for (TypeNode typeNode : properties.getSettersTypeTree()
+						.getSortedTypesNodes()) {
+					typeNode.collapse();
 				}
+				selectedSettersTreeViewer.collapseAll();
+			}
 
-				public void widgetDefaultSelected(SelectionEvent e) {
-					widgetSelected(e);
-				}
-			});
+			public void widgetDefaultSelected(SelectionEvent aE) {
+				widgetSelected(aE);
+			}
 
-			Button deselectAllButton = new Button(buttonsComposite, SWT.None);
+		});
 
-			deselectAllButton.setText("Deselect All");
-			deselectAllButton.addSelectionListener(new SelectionListener() {
-				public void widgetSelected(SelectionEvent e) {
-					settersTypeTree.getSortedTypesNodes()[0].setSelected(false);
+		Button expandAllButton = new Button(buttonsComposite, SWT.None);
+		settersTreeButtons.add(expandAllButton);
+		expandAllButton.setText("Expand All");
+		expandAllButton.addSelectionListener(new SelectionListener() {
 
-					transferTreeModelToUI();
+			public void widgetDefaultSelected(SelectionEvent aE) {
+				widgetSelected(aE);
+			}
+
+			public void widgetSelected(SelectionEvent aE) {
+				for (TypeNode typeNode : properties.getSettersTypeTree()
+						.getSortedTypesNodes()) {
+					typeNode.expand();
 				}
+				selectedSettersTreeViewer.expandAll();
+			}
 
-				public void widgetDefaultSelected(SelectionEvent e) {
-					widgetSelected(e);
+		});
+
+		createSettersAnalysisProgressPart(aMainComposite);
+		createSettersTree();
+	}
+
+	/**
+	 * Creates the setters tree and its viewer in the mode chosen in the
+	 * properties, replacing the previous ones.
+	 */
+	private void createSettersTree() {
+		if (settersAnalysisJob != null) {
+			settersAnalysisJob.cancel();
+			settersAnalysisJob = null;
+		}
+
+		settersAnalysisError = null;
+
+		if (selectedSettersTreeViewer != null) {
+			selectedSettersTreeViewer.getControl().dispose();
+			handleStatus(typeNameChanged());
+		}
+
+		settersTreeGeneration++;
+
+		boolean lazy = properties.isLazyAnalysis();
+
+		selectedSettersTreeViewer = new CheckboxTreeViewer(
+				settersTreeComposite, lazy ? SWT.BORDER | SWT.VIRTUAL
+						: SWT.BORDER);
+
+		final TypeTree settersTypeTree = new TypeTree(properties.getType(),
+				new TypeHelperRouter(), new SettersTypeTreeListener());
+
+		properties.setSettersTypeTree(settersTypeTree);
+		properties.setAllSettersModel(null);
+		updatePreview();
+
+		if (lazy) {
+			try {
+				settersTypeTree.buildLazily();
+			} catch (Exception ex) {
+				throw new RuntimeException(ex);
+			}
+
+			lazyContentProvider = new SettersTypeTreeLazyContentProvider(
+					selectedSettersTreeViewer, settersTypeTree, properties);
+			selectedSettersTreeViewer.setUseHashlookup(true);
+			selectedSettersTreeViewer.setContentProvider(lazyContentProvider);
+		} else {
+			lazyContentProvider = null;
+			selectedSettersTreeViewer
+					.setContentProvider(new SettersTypeTreeContentTreeProvider(
+							settersTypeTree));
+			selectedSettersTreeViewer.setAutoExpandLevel(3);
+			selectedSettersTreeViewer
+					.setFilters(new ViewerFilter[] { new AcitveTypeNodesViewerFilter() });
+		}
+
+		selectedSettersTreeViewer
+				.setLabelProvider(new SettersTypeTreeLabelProvider());
+
+		selectedSettersTreeViewer
+				.addTreeListener(new SettersTypeTreeExpansionListener());
+
+		selectedSettersTreeViewer
+				.addCheckStateListener(new SettersTypeTreeCheckStateListener());
+
+		Object someInput = new Object();
+
+		selectedSettersTreeViewer.setInput(someInput);
+		settersTreeComposite.layout();
+
+		if (lazy) {
+			settersAnalysisFinished(Status.OK_STATUS);
+		} else {
+			setSettersTreeEnabled(false);
+			progressLabel.setText("Analyzing setters...");
+			cancelAnalysisButton.setEnabled(true);
+			setSettersAnalysisProgressVisible(true);
+
+			final SettersAnalysisJob job = new SettersAnalysisJob(
+					settersTypeTree);
+
+			job.addJobChangeListener(new JobChangeAdapter() {
+				@Override
+				public void done(final IJobChangeEvent event) {
+					asyncExec(new Runnable() {
+						public void run() {
+							if (settersAnalysisJob == job) {
+								properties.setAllSettersModel(job
+										.getAllSettersModel());
+								settersAnalysisFinished(event.getResult());
+							}
+						}
+					});
 				}
 			});
+			settersAnalysisJob = job;
+			setPageComplete(false);
+			job.schedule();
+		}
+	}
 
-			Button collapseAllButton = new Button(buttonsComposite, SWT.None);
-			collapseAllButton.setText("Collapse All");
-			collapseAllButton.addSelectionListener(new SelectionListener() {
+	private void setSettersTreeEnabled(boolean enabled) {
+		selectedSettersTreeViewer.getControl().setEnabled(enabled);
 
-				public void widgetSelected(SelectionEvent aE) {
-					for (TypeNode typeNode : settersTypeTree
-							.getSortedTypesNodes()) {
-						typeNode.collapse();
-					}
-					selectedSettersTreeViewer.collapseAll();
-				}
+		for (Button button : settersTreeButtons) {
+			button.setEnabled(enabled);
+		}
+	}
 
-				public void widgetDefaultSelected(SelectionEvent aE) {
-					widgetSelected(aE);
-				}
+	private void setSettersAnalysisProgressVisible(boolean visible) {
+		((GridData) progressComposite.getLayoutData()).exclude = !visible;
+		progressComposite.setVisible(visible);
+		progressComposite.getParent().layout();
+	}
 
-			});
+	private void createSettersAnalysisProgressPart(Composite aMainComposite) {
+		createLabel(aMainComposite, "");
 
-			Button expandAllButton = new Button(buttonsComposite, SWT.None);
-			expandAllButton.setText("Expand All");
-			expandAllButton.addSelectionListener(new SelectionListener() {
+		progressComposite = new Composite(aMainComposite, SWT.None);
+		progressComposite.setLayout(new GridLayout(3, false));
 
-				public void widgetDefaultSelected(SelectionEvent aE) {
-					widgetSelected(aE);
-				}
+		GridData gridData = createCenterFillGridData();
+
+		gridData.horizontalSpan = 2;
+		progressComposite.setLayoutData(gridData);
+
+		progressLabel = new Label(progressComposite, SWT.None);
+		progressLabel.setText("Analyzing setters...");
+		progressLabel.setLayoutData(createCenterFillGridData());
+
+		ProgressBar progressBar = new ProgressBar(progressComposite,
+				SWT.HORIZONTAL | SWT.INDETERMINATE);
+
+		progressBar.setLayoutData(new GridData(SWT.END, SWT.CENTER, false,
+				false));
+
+		cancelAnalysisButton = new Button(progressComposite, SWT.None);
+		cancelAnalysisButton.setText("Cancel");
+		cancelAnalysisButton.addSelectionListener(new SelectionListener() {
+			public void widgetSelected(SelectionEvent e) {
+				settersAnalysisJob.cancel();
+				cancelAnalysisButton.setEnabled(false);
+			}
+
+			public void widgetDefaultSelected(SelectionEvent e) {
+				widgetSelected(e);
+			}
+		});
+	}
+
+	private void settersAnalysisFinished(IStatus result) {
+		if (result.isOK()) {
+			setSettersAnalysisProgressVisible(false);
+			setSettersTreeEnabled(true);
+
+			transferTreeModelToUI();
+
+			setPageComplete(true);
+		} else {
+			cancelAnalysisButton.setEnabled(false);
+
+			if (result.getSeverity() == IStatus.CANCEL) {
+				progressLabel.setText("Analysis cancelled");
+				settersAnalysisError = "Setters analysis was cancelled, "
+						+ "the builder can't be generated";
+			} else {
+				progressLabel.setText("Analysis failed");
+				settersAnalysisError = result.getMessage();
+			}
+
+			setMessage(settersAnalysisError, IMessageProvider.ERROR);
+		}
+	}
+
+	private void asyncExec(final Runnable runnable) {
+		final Control control = selectedSettersTreeViewer.getControl();
 
-				public void widgetSelected(SelectionEvent aE) {
-					for (TypeNode typeNode : settersTypeTree
-							.getSortedTypesNodes()) {
-						typeNode.expand();
+		if (!control.isDisposed()) {
+			control.getDisplay().asyncExec(new Runnable() {
+				public void run() {
+					if (!control.isDisposed()) {
+						runnable.run();
 					}
-					selectedSettersTreeViewer.expandAll();
 				}
-
 			});
-		} catch (Exception ex) {
-			throw new RuntimeException(ex);
 		}
 	}
 
+	@Override
+	public void dispose() {
+		if (settersAnalysisJob != null) {
+			settersAnalysisJob.cancel();
+		}
+
+		super.dispose();
+	}
+
 	private void transferCollapsedNodes(TypeTree aSettersTypeTree) {
 		for (TypeNode typeNode : aSettersTypeTree.getSortedTypesNodes()) {
 			if (typeNode.isCollapsed()) {
@@ -414,35 +803,9 @@ class GenerateBuilderWizardPage extends NewElementWizardPage {
 
 	private void transferClickedNodes(TypeTree settersTypeTree) {
 		for (TypeNode typeNode : settersTypeTree.getSortedTypesNodes()) {
-
-			if (typeNode.isActive()) {
-				boolean allMethodsChecked = true;
-				boolean noMethodChecked = true;
-
-				for (MethodNode methodNode : typeNode.getMethodNodes()) {
-					boolean methodSelected = methodNode.isSelected();
-
-					selectedSettersTreeViewer.setChecked(methodNode,
-							methodSelected);
-
-					if (!methodSelected) {
-						allMethodsChecked = false;
-					} else {
-						noMethodChecked = false;
-					}
-				}
-
-				if (allMethodsChecked) {
-					selectedSettersTreeViewer.setChecked(typeNode, true);
-					selectedSettersTreeViewer.setGrayed(typeNode, false);
-				} else if (noMethodChecked) {
-					selectedSettersTreeViewer.setGrayChecked(typeNode, false);
-				} else {
-					selectedSettersTreeViewer.setGrayChecked(typeNode, true);
-				}
-			}
+			SettersTypeTreeCheckStates.transfer(selectedSettersTreeViewer,
+					typeNode);
 		}
-
 	}
 
 	private Label createLabel(Composite aMainComposite, String aString) {
@@ -470,24 +833,26 @@ class GenerateBuilderWizardPage extends NewElementWizardPage {
 
 				properties.setBuilderClassName(text.getText());
 				handleStatus(typeNameChanged());
+				updatePreview();
 			}
 		});
 
 		builderClassNameText.setFocus();
 	}
 
+	/**
+	 * Shows the status of an edited field. A failed or cancelled setters
+	 * analysis keeps the Finish button disabled, so its error is shown
+	 * instead of anything less severe than another error.
+	 */
 	private void handleStatus(IStatus status) {
-		if (status != null) {
-			switch (status.getSeverity()) {
-			case IStatus.ERROR:
-				setMessage(status.getMessage(), IMessageProvider.ERROR);
-
-				break;
-
-			case IStatus.WARNING:
+		if (status != null && status.getSeverity() == IStatus.ERROR) {
+			setMessage(status.getMessage(), IMessageProvider.ERROR);
+		} else if (settersAnalysisError != null) {
+			setMessage(settersAnalysisError, IMessageProvider.ERROR);
+		} else if (status != null) {
+			if (status.getSeverity() == IStatus.WARNING) {
 				setMessage(status.getMessage(), IMessageProvider.WARNING);
-
-				break;
 			}
 		} else {
 			setMessage(getDescription(), IMessageProvider.NONE);
@@ -580,6 +945,7 @@ class GenerateBuilderWizardPage extends NewElementWizardPage {
 
 				properties.setMethodsPrefix(prefix);
 				handleStatus(methodPrefixChanged("prefix", prefix, true));
+				updatePreview();
 			}
 		});
 	}
@@ -735,6 +1101,19 @@ class GenerateBuilderWizardPage extends NewElementWizardPage {
 	}
 
 	private void transferTreeModelToUI() {
+		if (properties.getSettersTypeTree().isLazy()) {
+			properties.getSettersTypeTree().populateStateChange();
+			lazyContentProvider.reset();
+			selectedSettersTreeViewer.refresh();
+			updatePreview();
+
+			return;
+		}
+
+		if (!properties.getSettersTypeTree().isComplete()) {
+			return;
+		}
+
 		selectedSettersTreeViewer.refresh();
 		properties.getSettersTypeTree().populateStateChange();
 		selectedSettersTreeViewer.refresh();
@@ -742,5 +1121,82 @@ class GenerateBuilderWizardPage extends NewElementWizardPage {
 		selectedSettersTreeViewer.refresh();
 		transferCollapsedNodes(properties.getSettersTypeTree());
 		selectedSettersTreeViewer.refresh();
+		updatePreview();
+	}
+
+	/**
+	 * @param aMainComposite
+	 */
+	private void createPreviewPart(Composite aMainComposite) {
+		createLabel(aMainComposite, "Preview").setLayoutData(
+				new GridData(SWT.BEGINNING, SWT.BEGINNING, false, false));
+
+		previewText = new Text(aMainComposite, SWT.MULTI | SWT.READ_ONLY
+				| SWT.BORDER | SWT.H_SCROLL | SWT.V_SCROLL);
+		previewText.setFont(JFaceResources.getTextFont());
+
+		GridData gridData = new GridData(SWT.FILL, SWT.FILL, true, true);
+
+		gridData.horizontalSpan = 2;
+		gridData.heightHint = 200;
+		previewText.setLayoutData(gridData);
+
+		previewGenerator = new EclipseBuilderGenerator();
+		builderPreview = new BuilderPreview<IType, ITypeParameter, IMethod, JavaModelException>(
+				previewGenerator);
+		updatePreviewProfile();
+	}
+
+	private void updatePreviewProfile() {
+		if (previewGenerator != null) {
+			// the profile is kept, so that the preview is not emitted anew
+			// for each change
+			FormattingProfile formattingProfile = properties.isFormatCode() ? GenerateBuilderAction
+					.getFormattingProfile()
+					: null;
+
+			previewGenerator.setFormattingProfile(formattingProfile);
+			updatePreview();
+		}
+	}
+
+	/**
+	 * Renders the builder from the analysis taken while the setters tree was
+	 * built, emitting again only the builder base classes changed since the
+	 * previous rendering. Without the analysis, e.g. while the setters are
+	 * analyzed or if they are analyzed on expand, there is no preview.
+	 */
+	private void updatePreview() {
+		if (previewText == null) {
+			return;
+		}
+
+		String source = "";
+
+		if (properties.getAllSettersModel() != null) {
+			try {
+				BuilderModel model = previewGenerator.generateModel(properties
+						.getType(), GenerateBuilderAction
+						.createMethodProvider(properties));
+
+				source = builderPreview.render(model, properties
+						.getPackageName(), properties.getBuilderClassName(),
+						properties.getMethodsPrefix(), properties
+								.getCollectionAddPrefix(), properties
+								.getEndPrefix());
+			} catch (Exception e) {
+				Activator.getDefault().getLog().log(
+						new Status(IStatus.WARNING, Activator.PLUGIN_ID,
+								"Couldn't render builder preview", e));
+			}
+		}
+
+		if (!source.equals(previewSource)) {
+			int topIndex = previewText.getTopIndex();
+
+			previewSource = source;
+			previewText.setText(source);
+			previewText.setTopIndex(topIndex);
+		}
 	}
 }
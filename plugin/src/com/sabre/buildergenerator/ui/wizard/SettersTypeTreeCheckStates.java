@@ -0,0 +1,49 @@
+package com.sabre.buildergenerator.ui.wizard;
+
+import org.eclipse.jface.viewers.CheckboxTreeViewer;
+
+import com.sabre.buildergenerator.ui.MethodNode;
+import com.sabre.buildergenerator.ui.TypeNode;
+
+/**
+ * Transfers selection of tree nodes to the check boxes of a viewer.
+ */
+final class SettersTypeTreeCheckStates {
+
+	private SettersTypeTreeCheckStates() {
+	}
+
+	/**
+	 * Checks the setters selected in the type node and checks (or gray
+	 * checks, when only some setters are selected) the type node itself.
+	 */
+	static void transfer(CheckboxTreeViewer viewer, TypeNode typeNode) {
+		if (!typeNode.isResolved()) {
+			viewer.setChecked(typeNode, typeNode.isSelected());
+		} else if (typeNode.isActive()) {
+			boolean allMethodsChecked = true;
+			boolean noMethodChecked = true;
+
+			for (MethodNode methodNode : typeNode.getMethodNodes()) {
+				boolean methodSelected = methodNode.isSelected();
+
+				viewer.setChecked(methodNode, methodSelected);
+
+				if (!methodSelected) {
+					allMethodsChecked = false;
+				} else {
+					noMethodChecked = false;
+				}
+			}
+
+			if (allMethodsChecked) {
+				viewer.setChecked(typeNode, true);
+				viewer.setGrayed(typeNode, false);
+			} else if (noMethodChecked) {
+				viewer.setGrayChecked(typeNode, false);
+			} else {
+				viewer.setGrayChecked(typeNode, true);
+			}
+		}
+	}
+}
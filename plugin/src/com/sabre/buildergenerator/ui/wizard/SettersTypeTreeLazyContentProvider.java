@@ -0,0 +1,152 @@
+package com.sabre.buildergenerator.ui.wizard;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jface.viewers.CheckboxTreeViewer;
+import org.eclipse.jface.viewers.ILazyTreeContentProvider;
+import org.eclipse.jface.viewers.Viewer;
+
+import com.sabre.buildergenerator.ui.MethodNode;
+import com.sabre.buildergenerator.ui.TypeNode;
+import com.sabre.buildergenerator.ui.TypeTree;
+import com.sabre.buildergenerator.ui.actions.BuilderGenerationProperties;
+
+/**
+ * Content provider for a virtual viewer over a lazy {@link TypeTree}. Type
+ * nodes are resolved when the viewer asks for their children, i.e. when they
+ * are expanded.
+ * <p>
+ * Viewer filters are not applied to lazy content, so inactive type nodes and
+ * setters not accessible from the builder package are skipped here.
+ */
+public class SettersTypeTreeLazyContentProvider implements
+		ILazyTreeContentProvider {
+
+	private final CheckboxTreeViewer viewer;
+	private final BuilderGenerationProperties properties;
+	private final Map<Object, Object[]> children = new HashMap<Object, Object[]>();
+	private TypeTree settersTypeTree;
+	private Object input;
+
+	public SettersTypeTreeLazyContentProvider(CheckboxTreeViewer viewer,
+			TypeTree settersTypeTree, BuilderGenerationProperties properties) {
+		this.viewer = viewer;
+		this.settersTypeTree = settersTypeTree;
+		this.properties = properties;
+	}
+
+	public void dispose() {
+		children.clear();
+		settersTypeTree = null;
+	}
+
+	public void inputChanged(Viewer aViewer, Object oldInput, Object newInput) {
+		input = newInput;
+		children.clear();
+	}
+
+	/**
+	 * Forgets computed children, to be called before refreshing the viewer
+	 * after the tree model has changed.
+	 */
+	public void reset() {
+		children.clear();
+	}
+
+	/**
+	 * Updates the number of top level type nodes, e.g. after new types were
+	 * found.
+	 */
+	public void typeNodesChanged() {
+		children.remove(input);
+		viewer.setChildCount(input, getChildren(input).length);
+	}
+
+	public Object getParent(Object element) {
+		if (element instanceof MethodNode) {
+			return ((MethodNode) element).getParentTypeNode();
+		}
+
+		return input;
+	}
+
+	public void updateChildCount(Object element, int currentChildCount) {
+		int childCount = getChildren(element).length;
+
+		if (childCount != currentChildCount) {
+			viewer.setChildCount(element, childCount);
+		}
+	}
+
+	public void updateElement(Object parent, int index) {
+		Object[] elements = getChildren(parent);
+
+		if (index >= elements.length) {
+			return;
+		}
+
+		Object element = elements[index];
+
+		viewer.replace(parent, index, element);
+
+		if (element instanceof TypeNode) {
+			TypeNode typeNode = (TypeNode) element;
+
+			if (typeNode.isResolved()) {
+				viewer.setChildCount(typeNode, getChildren(typeNode).length);
+			} else {
+				viewer.setHasChildren(typeNode, true);
+			}
+
+			SettersTypeTreeCheckStates.transfer(viewer, typeNode);
+		} else {
+			viewer.setChildCount(element, 0);
+			viewer.setChecked(element, ((MethodNode) element).isSelected());
+		}
+	}
+
+	private Object[] getChildren(Object parent) {
+		Object[] result = children.get(parent);
+
+		if (result == null) {
+			result = parent instanceof TypeNode ? getMethodNodes((TypeNode) parent)
+					: getActiveTypeNodes();
+			children.put(parent, result);
+		}
+
+		return result;
+	}
+
+	private Object[] getActiveTypeNodes() {
+		List<TypeNode> typeNodes = new ArrayList<TypeNode>();
+
+		for (TypeNode typeNode : settersTypeTree.getSortedTypesNodes()) {
+			if (typeNode.isActive()) {
+				typeNodes.add(typeNode);
+			}
+		}
+
+		return typeNodes.toArray();
+	}
+
+	private Object[] getMethodNodes(TypeNode typeNode) {
+		try {
+			settersTypeTree.resolve(typeNode);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+
+		List<MethodNode> methodNodes = new ArrayList<MethodNode>();
+
+		for (MethodNode methodNode : typeNode.getMethodNodes()) {
+			if (methodNode.isAccessibleFromPackage(properties.getPackageName())) {
+				methodNodes.add(methodNode);
+			}
+		}
+
+		return methodNodes.toArray();
+	}
+}